@@ -1,7 +1,20 @@
 BEGIN;
 DROP TRIGGER IF EXISTS trg_route_stops_autoseq ON route_stops;
 DROP FUNCTION IF EXISTS route_stops_autoseq() CASCADE;
-DROP FUNCTION IF EXISTS create_kiosk_order(INTEGER, BIGINT, INTEGER, INTEGER) CASCADE;
+DROP TRIGGER IF EXISTS trg_kiosk_orders_load ON kiosk_orders;
+DROP TRIGGER IF EXISTS trg_kiosk_orders_load_update ON kiosk_orders;
+DROP TRIGGER IF EXISTS trg_container_sizes_load ON container_sizes;
+DROP FUNCTION IF EXISTS kiosk_orders_load() CASCADE;
+DROP FUNCTION IF EXISTS container_sizes_load() CASCADE;
+DROP FUNCTION IF EXISTS garbage_point_load_add(INTEGER, BIGINT, DOUBLE PRECISION, INTEGER) CASCADE;
+DROP FUNCTION IF EXISTS reconcile_garbage_point_load() CASCADE;
+DROP TRIGGER IF EXISTS trg_kiosk_orders_claim_key ON kiosk_orders;
+DROP TRIGGER IF EXISTS trg_kiosk_orders_release_key ON kiosk_orders;
+DROP FUNCTION IF EXISTS kiosk_orders_claim_key() CASCADE;
+DROP FUNCTION IF EXISTS kiosk_orders_release_key() CASCADE;
+DROP FUNCTION IF EXISTS kiosk_orders_create_partitions(INTEGER, INTEGER) CASCADE;
+DROP FUNCTION IF EXISTS kiosk_orders_archive_partitions(INTEGER) CASCADE;
+DROP FUNCTION IF EXISTS create_kiosk_order(INTEGER, BIGINT, INTEGER, INTEGER, UUID) CASCADE;
 DROP PROCEDURE IF EXISTS manage_driver_shift(INTEGER, TEXT, INTEGER) CASCADE;
 DROP FUNCTION IF EXISTS start_route(INTEGER, INTEGER) CASCADE;
 DROP OPERATOR IF EXISTS = (order_status, orderstatus) CASCADE;
@@ -17,7 +30,10 @@ DROP TABLE IF EXISTS incidents CASCADE;
 DROP TABLE IF EXISTS route_stops CASCADE;
 DROP TABLE IF EXISTS routes CASCADE;
 DROP TABLE IF EXISTS driver_shifts CASCADE;
+DROP TABLE IF EXISTS garbage_point_load CASCADE;
+DROP TABLE IF EXISTS kiosk_order_keys CASCADE;
 DROP TABLE IF EXISTS kiosk_orders CASCADE;
+DROP SCHEMA IF EXISTS archive CASCADE;
 DROP TABLE IF EXISTS garbage_point_fractions CASCADE;
 DROP TABLE IF EXISTS fractions CASCADE;
 DROP TABLE IF EXISTS container_sizes CASCADE;
@@ -1,3 +1,6 @@
+-- Триграммы для поиска подстроки (ILIKE '%...%') по индексу в grid-таблицах
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 CREATE TYPE user_role AS ENUM ('RESIDENT','ADMIN','DRIVER','KIOSK');
 CREATE TYPE order_status AS ENUM ('CREATED','CONFIRMED','CANCELLED');
 CREATE TYPE container_size_code AS ENUM ('XS','S','M','L','XL','XXL','XXXL');
@@ -67,11 +70,15 @@ CREATE TABLE garbage_points
     is_open    boolean     NOT NULL DEFAULT true,
     lat        double precision,
     lon        double precision,
+    -- окно работы точки; closes_at раньше opens_at - окно через полночь
+    opens_at   time,
+    closes_at  time,
     created_at timestamptz NOT NULL DEFAULT now(),
     admin_id   integer     REFERENCES users (id) ON DELETE SET NULL,
     kiosk_id   integer     REFERENCES users (id) ON DELETE SET NULL,
     CHECK (lat IS NULL OR (lat >= -90 AND lat <= 90)),
-    CHECK (lon IS NULL OR (lon >= -180 AND lon <= 180))
+    CHECK (lon IS NULL OR (lon >= -180 AND lon <= 180)),
+    CHECK ((opens_at IS NULL) = (closes_at IS NULL))
 );
 
 CREATE TABLE container_sizes
@@ -119,16 +126,290 @@ CREATE TABLE garbage_point_fractions
 
 CREATE TABLE kiosk_orders
 (
-    id                BIGSERIAL PRIMARY KEY,
+    id                BIGSERIAL,
     garbage_point_id  integer      NOT NULL REFERENCES garbage_points (id) ON DELETE RESTRICT,
     container_size_id bigint       NOT NULL REFERENCES container_sizes (id) ON DELETE RESTRICT,
     user_id           integer      REFERENCES users (id) ON DELETE SET NULL,
     fraction_id       integer      NOT NULL REFERENCES fractions (id) ON DELETE RESTRICT,
-    weight            double precision,
+    weight            double precision CHECK (weight >= 0),
     created_at        timestamptz  NOT NULL DEFAULT now(),
-    status            order_status NOT NULL DEFAULT 'CONFIRMED'
+    status            order_status NOT NULL DEFAULT 'CONFIRMED',
+    -- ключ, выданный киоском: повторная отправка того же заказа (офлайн-режим, ретраи) его не дублирует.
+    -- Уникальность держит kiosk_order_keys: уникальный индекс секционированной таблицы включал бы created_at
+    idempotency_key   uuid,
+    -- ключ секционирования обязан входить в первичный ключ
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Месячные секции заказов создаёт kiosk_orders_create_partitions(); сюда попадают заказы вне их диапазонов
+-- (например, синхронизированные киоском уже после архивации своего месяца)
+CREATE TABLE kiosk_orders_default PARTITION OF kiosk_orders DEFAULT;
+
+-- Отсоединённые от kiosk_orders старые секции
+CREATE SCHEMA IF NOT EXISTS archive;
+
+-- Создаёт недостающие месячные секции заказов от p_months_back месяцев назад до p_months_ahead вперёд
+-- и возвращает их имена
+CREATE OR REPLACE FUNCTION kiosk_orders_create_partitions(
+    p_months_back INTEGER,
+    p_months_ahead INTEGER
+) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    v_month timestamptz;
+    v_name  text;
+BEGIN
+    FOR i IN -p_months_back..p_months_ahead
+        LOOP
+            v_month := date_trunc('month', now()) + make_interval(months => i);
+            v_name := 'kiosk_orders_' || to_char(v_month, 'YYYY_MM');
+            CONTINUE WHEN to_regclass(v_name) IS NOT NULL;
+            EXECUTE format('CREATE TABLE %I PARTITION OF kiosk_orders FOR VALUES FROM (%L) TO (%L)',
+                           v_name, v_month, v_month + interval '1 month');
+            RETURN NEXT v_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT kiosk_orders_create_partitions(1, 3);
+
+-- Ключи идемпотентности заказов. Заказ с уже занятым ключом не вставляется (BEFORE-триггер возвращает NULL),
+-- поэтому INSERT ... RETURNING, как и при ON CONFLICT DO NOTHING, просто не возвращает строку
+CREATE TABLE kiosk_order_keys
+(
+    idempotency_key uuid PRIMARY KEY,
+    order_id        bigint NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION kiosk_orders_claim_key()
+    RETURNS trigger AS
+$$
+BEGIN
+    INSERT INTO kiosk_order_keys (idempotency_key, order_id)
+    VALUES (NEW.idempotency_key, NEW.id)
+    ON CONFLICT (idempotency_key) DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+CREATE TRIGGER trg_kiosk_orders_claim_key
+    BEFORE INSERT
+    ON kiosk_orders
+    FOR EACH ROW
+    WHEN (NEW.idempotency_key IS NOT NULL)
+EXECUTE FUNCTION kiosk_orders_claim_key();
+
+-- Ключ удалённого заказа снова свободен
+CREATE OR REPLACE FUNCTION kiosk_orders_release_key()
+    RETURNS trigger AS
+$$
+BEGIN
+    DELETE FROM kiosk_order_keys WHERE idempotency_key = OLD.idempotency_key;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+CREATE TRIGGER trg_kiosk_orders_release_key
+    AFTER DELETE
+    ON kiosk_orders
+    FOR EACH ROW
+    WHEN (OLD.idempotency_key IS NOT NULL)
+EXECUTE FUNCTION kiosk_orders_release_key();
+
+-- Нагрузка точек сбора по активным (не отменённым) заказам: планирование маршрутов и подбор ближайших точек
+-- читают строку на точку, а не агрегируют всю kiosk_orders. Ведётся триггерами на kiosk_orders и
+-- container_sizes, расхождения находит и исправляет reconcile_garbage_point_load()
+CREATE TABLE garbage_point_load
+(
+    garbage_point_id         integer PRIMARY KEY REFERENCES garbage_points (id) ON DELETE CASCADE,
+    -- numeric: сумма не зависит от порядка приращений и точно совпадает с пересчётом
+    total_weight             numeric     NOT NULL DEFAULT 0,
+    order_count              bigint      NOT NULL DEFAULT 0,
+    weighted_count           bigint      NOT NULL DEFAULT 0,
+    total_container_capacity bigint      NOT NULL DEFAULT 0,
+    updated_at               timestamptz NOT NULL DEFAULT now()
 );
 
+-- Добавляет (p_sign = 1) или убирает (p_sign = -1) один заказ из нагрузки точки
+CREATE OR REPLACE FUNCTION garbage_point_load_add(
+    p_garbage_point_id INTEGER,
+    p_container_size_id BIGINT,
+    p_weight DOUBLE PRECISION,
+    p_sign INTEGER
+) RETURNS void AS
+$$
+INSERT INTO garbage_point_load AS l (garbage_point_id, total_weight, order_count, weighted_count,
+                                     total_container_capacity)
+SELECT p_garbage_point_id,
+       p_sign * coalesce(p_weight, 0)::numeric,
+       p_sign,
+       CASE WHEN p_weight IS NULL THEN 0 ELSE p_sign END,
+       p_sign * cs.capacity
+FROM container_sizes cs
+WHERE cs.id = p_container_size_id
+ON CONFLICT (garbage_point_id) DO UPDATE
+    SET total_weight             = l.total_weight + excluded.total_weight,
+        order_count              = l.order_count + excluded.order_count,
+        weighted_count           = l.weighted_count + excluded.weighted_count,
+        total_container_capacity = l.total_container_capacity + excluded.total_container_capacity,
+        updated_at               = now();
+$$ LANGUAGE SQL;
+
+CREATE OR REPLACE FUNCTION kiosk_orders_load()
+    RETURNS trigger AS
+$$
+BEGIN
+    -- старая версия заказа уходит из нагрузки своей точки
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        IF OLD.status <> 'CANCELLED' THEN
+            PERFORM garbage_point_load_add(OLD.garbage_point_id, OLD.container_size_id, OLD.weight, -1);
+        END IF;
+    END IF;
+    -- новая - добавляется к нагрузке (возможно, уже другой точки)
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        IF NEW.status <> 'CANCELLED' THEN
+            PERFORM garbage_point_load_add(NEW.garbage_point_id, NEW.container_size_id, NEW.weight, 1);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+CREATE TRIGGER trg_kiosk_orders_load
+    AFTER INSERT OR DELETE
+    ON kiosk_orders
+    FOR EACH ROW
+EXECUTE FUNCTION kiosk_orders_load();
+-- JPA обновляет все колонки заказа - пересчитываем, только если изменилось то, что входит в нагрузку
+CREATE TRIGGER trg_kiosk_orders_load_update
+    AFTER UPDATE
+    ON kiosk_orders
+    FOR EACH ROW
+    WHEN ((OLD.garbage_point_id, OLD.container_size_id, OLD.weight, OLD.status)
+        IS DISTINCT FROM (NEW.garbage_point_id, NEW.container_size_id, NEW.weight, NEW.status))
+EXECUTE FUNCTION kiosk_orders_load();
+
+-- Смена объёма контейнера меняет нагрузку всех точек с активными заказами этого размера
+CREATE OR REPLACE FUNCTION container_sizes_load()
+    RETURNS trigger AS
+$$
+BEGIN
+    UPDATE garbage_point_load l
+    SET total_container_capacity = l.total_container_capacity + c.order_count * (NEW.capacity - OLD.capacity),
+        updated_at               = now()
+    FROM (SELECT garbage_point_id, count(*) AS order_count
+          FROM kiosk_orders
+          WHERE container_size_id = NEW.id
+            AND status <> 'CANCELLED'
+          GROUP BY garbage_point_id) c
+    WHERE l.garbage_point_id = c.garbage_point_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+CREATE TRIGGER trg_container_sizes_load
+    AFTER UPDATE OF capacity
+    ON container_sizes
+    FOR EACH ROW
+    WHEN (OLD.capacity IS DISTINCT FROM NEW.capacity)
+EXECUTE FUNCTION container_sizes_load();
+
+-- Сверка сводки с пересчётом по kiosk_orders: исправляет разошедшиеся строки и возвращает их точки.
+-- Пересчёт и сводка читаются в одном снимке; строку, которую параллельный заказ изменил после снимка,
+-- сверка не трогает - её проверит следующий запуск
+CREATE OR REPLACE FUNCTION reconcile_garbage_point_load()
+    RETURNS SETOF INTEGER AS
+$$
+WITH actual AS (SELECT gp.id                                                  AS garbage_point_id,
+                       coalesce(sum(coalesce(ko.weight, 0)::numeric), 0)      AS total_weight,
+                       count(ko.id)                                           AS order_count,
+                       count(ko.weight)                                       AS weighted_count,
+                       coalesce(sum(cs.capacity), 0)                          AS total_container_capacity
+                FROM garbage_points gp
+                         LEFT JOIN kiosk_orders ko ON ko.garbage_point_id = gp.id AND ko.status <> 'CANCELLED'
+                         LEFT JOIN container_sizes cs ON cs.id = ko.container_size_id
+                GROUP BY gp.id),
+     seen AS (SELECT * FROM garbage_point_load),
+     fixed AS (
+         UPDATE garbage_point_load l
+             SET total_weight = a.total_weight,
+                 order_count = a.order_count,
+                 weighted_count = a.weighted_count,
+                 total_container_capacity = a.total_container_capacity,
+                 updated_at = now()
+             FROM actual a
+                 JOIN seen s ON s.garbage_point_id = a.garbage_point_id
+             WHERE l.garbage_point_id = a.garbage_point_id
+                 AND (l.total_weight, l.order_count, l.weighted_count, l.total_container_capacity)
+                     = (s.total_weight, s.order_count, s.weighted_count, s.total_container_capacity)
+                 AND (s.total_weight, s.order_count, s.weighted_count, s.total_container_capacity)
+                     <> (a.total_weight, a.order_count, a.weighted_count, a.total_container_capacity)
+             RETURNING l.garbage_point_id),
+     added AS (
+         INSERT INTO garbage_point_load (garbage_point_id, total_weight, order_count, weighted_count,
+                                         total_container_capacity)
+             SELECT a.garbage_point_id, a.total_weight, a.order_count, a.weighted_count, a.total_container_capacity
+             FROM actual a
+             WHERE a.order_count > 0
+               AND NOT EXISTS (SELECT 1 FROM seen s WHERE s.garbage_point_id = a.garbage_point_id)
+             ON CONFLICT (garbage_point_id) DO NOTHING
+             RETURNING garbage_point_id)
+SELECT garbage_point_id
+FROM fixed
+UNION ALL
+SELECT garbage_point_id
+FROM added;
+$$ LANGUAGE SQL;
+
+-- Отсоединяет месячные секции заказов, закончившиеся больше p_retention_months месяцев назад, и переносит их
+-- в схему archive; возвращает их имена. Отсоединение не вызывает триггеры строк, поэтому заказы секции
+-- снимаются с нагрузки точек, а их ключи идемпотентности освобождаются здесь же. Таблица заказов блокируется
+-- до конца транзакции: иначе заказ секции, изменённый между пересчётом и отсоединением, учёлся бы дважды
+CREATE OR REPLACE FUNCTION kiosk_orders_archive_partitions(p_retention_months INTEGER)
+    RETURNS SETOF TEXT AS
+$$
+DECLARE
+    v_cutoff timestamptz := date_trunc('month', now()) - make_interval(months => p_retention_months);
+    v_part   record;
+BEGIN
+    FOR v_part IN
+        SELECT c.relname,
+               to_timestamp(substring(c.relname FROM '\d{4}_\d{2}$'), 'YYYY_MM') AS month
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'kiosk_orders'::regclass
+          AND c.relname ~ '^kiosk_orders_\d{4}_\d{2}$'
+        ORDER BY 2
+        LOOP
+            EXIT WHEN v_part.month + interval '1 month' > v_cutoff;
+            LOCK TABLE kiosk_orders IN ACCESS EXCLUSIVE MODE;
+
+            EXECUTE format($sql$
+                UPDATE garbage_point_load l
+                SET total_weight             = l.total_weight - a.total_weight,
+                    order_count              = l.order_count - a.order_count,
+                    weighted_count           = l.weighted_count - a.weighted_count,
+                    total_container_capacity = l.total_container_capacity - a.total_container_capacity,
+                    updated_at               = now()
+                FROM (SELECT ko.garbage_point_id,
+                             sum(coalesce(ko.weight, 0)::numeric) AS total_weight,
+                             count(*)                             AS order_count,
+                             count(ko.weight)                     AS weighted_count,
+                             sum(cs.capacity)                     AS total_container_capacity
+                      FROM %I ko
+                               JOIN container_sizes cs ON cs.id = ko.container_size_id
+                      WHERE ko.status <> 'CANCELLED'
+                      GROUP BY ko.garbage_point_id) a
+                WHERE l.garbage_point_id = a.garbage_point_id
+                $sql$, v_part.relname);
+            EXECUTE format('DELETE FROM kiosk_order_keys k USING %I ko WHERE k.idempotency_key = ko.idempotency_key',
+                           v_part.relname);
+            EXECUTE format('ALTER TABLE kiosk_orders DETACH PARTITION %I', v_part.relname);
+            EXECUTE format('ALTER TABLE %I SET SCHEMA archive', v_part.relname);
+            RETURN NEXT v_part.relname;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
 CREATE TABLE vehicles
 (
     id           BIGSERIAL PRIMARY KEY,
@@ -281,6 +562,22 @@ CREATE INDEX ON kiosk_orders (fraction_id);
 
 -- Заказы: планирование загрузки по размерам контейнеров
 CREATE INDEX ON kiosk_orders (container_size_id);
+
+-- Заказы: заказы точки (пересчёт нагрузки, группировка grid-таблицы по точке)
+CREATE INDEX ON kiosk_orders (garbage_point_id, created_at DESC);
+
+-- Grid-таблицы: порядок по умолчанию (created_at DESC, id DESC) и keyset-курсор идут по индексу без сортировки
+CREATE INDEX ON kiosk_orders (created_at DESC, id DESC);
+CREATE INDEX ON users (role, created_at DESC, id DESC);
+
+-- Grid-таблицы: фильтры contains/startsWith/endsWith и быстрый поиск по тексту (ILIKE по GIN-индексу pg_trgm)
+CREATE INDEX ON garbage_points USING gin (address gin_trgm_ops);
+CREATE INDEX ON users USING gin (name gin_trgm_ops);
+CREATE INDEX ON users USING gin (login gin_trgm_ops);
+CREATE INDEX ON users USING gin (phone gin_trgm_ops);
+CREATE INDEX ON vehicles USING gin (plate_number gin_trgm_ops);
+CREATE INDEX ON vehicles USING gin (name gin_trgm_ops);
+
 -- Смены: отслеживание использования транспорта
 CREATE INDEX ON driver_shifts (vehicle_id);
 
@@ -314,12 +611,14 @@ CREATE INDEX ON incidents (type);
 -- Инциденты: отслеживание активности сотрудников
 CREATE INDEX ON incidents (created_by);
 
--- Создание заказа через киоск с валидацией
+-- Создание заказа через киоск с валидацией (приложение проверяет заказ по снимку в памяти и вставляет
+-- его напрямую; функция оставлена для заказов из SQL)
 CREATE OR REPLACE FUNCTION create_kiosk_order(
     p_garbage_point_id INTEGER,
     p_container_size_id BIGINT,
     p_user_id INTEGER,
-    p_fraction_id INTEGER
+    p_fraction_id INTEGER,
+    p_idempotency_key UUID DEFAULT NULL -- ключ от киоска: повтор запроса возвращает уже созданный заказ
 ) RETURNS INTEGER AS
 $$
 DECLARE
@@ -391,10 +690,18 @@ BEGIN
 
     -- Создание заказа
     INSERT INTO kiosk_orders
-        (garbage_point_id, container_size_id, user_id, fraction_id, status)
-    VALUES (p_garbage_point_id, p_container_size_id, p_user_id, p_fraction_id, 'CONFIRMED')
+        (garbage_point_id, container_size_id, user_id, fraction_id, status, idempotency_key)
+    VALUES (p_garbage_point_id, p_container_size_id, p_user_id, p_fraction_id, 'CONFIRMED', p_idempotency_key)
     RETURNING id INTO v_order_id;
 
+    -- ключ уже занят (триггер trg_kiosk_orders_claim_key не вставил заказ): возвращаем созданный ранее
+    IF v_order_id IS NULL THEN
+        SELECT order_id
+        INTO v_order_id
+        FROM kiosk_order_keys
+        WHERE idempotency_key = p_idempotency_key;
+    END IF;
+
     RETURN v_order_id;
 END;
 $$ LANGUAGE plpgsql;
@@ -0,0 +1,103 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.Tuple;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.query.SelectionQuery;
+import org.openjdk.jmh.annotations.*;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderRowDto;
+import ru.itmo.wastemanagement.entity.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вторая фаза grid-запроса заказов киосков на странице из 500 строк: управляемые сущности с fetch join
+ * против tuple-проекции в DTO. Нужна PostgreSQL с данными (те же DB_URL, DB_USER, DB_PASS, что и у приложения);
+ * разница аллокаций на страницу - {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridProjectionBenchmark {
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            ContainerSize.class, DriverShift.class, Fraction.class, GarbagePoint.class, GarbagePointFraction.class,
+            Incident.class, KioskOrder.class, Route.class, RouteStop.class, StopEvent.class, User.class, Vehicle.class);
+
+    private static final String ENTITY_QUERY = "select ko from KioskOrder ko " +
+            "left join fetch ko.garbagePoint gp " +
+            "left join fetch ko.containerSize cs " +
+            "left join fetch ko.fraction fr " +
+            "left join fetch ko.user u " +
+            "where ko.id in :ids";
+
+    private SessionFactory sessionFactory;
+    private List<Integer> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getenv("DB_URL");
+        if (url == null) {
+            throw new IllegalStateException("DB_URL is not set: benchmark needs PostgreSQL with kiosk orders");
+        }
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, url)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, System.getenv("DB_USER"))
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, System.getenv("DB_PASS"))
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "none")
+                // слушателям сущностей нужен контейнер бинов Spring, здесь они не вызываются
+                .setProperty(AvailableSettings.JPA_CALLBACKS_ENABLED, "false");
+        configuration.setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy());
+        ENTITIES.forEach(configuration::addAnnotatedClass);
+        sessionFactory = configuration.buildSessionFactory();
+
+        ids = sessionFactory.fromSession(session -> session
+                .createSelectionQuery("select ko.id from KioskOrder ko order by ko.id desc", Integer.class)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList());
+        if (ids.size() < PAGE_SIZE) {
+            throw new IllegalStateException("Need at least " + PAGE_SIZE + " kiosk orders, found " + ids.size());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<KioskOrderRowDto> managedEntities() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createSelectionQuery(ENTITY_QUERY, KioskOrder.class)
+                    .setParameter("ids", ids)
+                    .getResultList()
+                    .stream()
+                    .map(KioskOrderRowDto::fromEntity)
+                    .toList();
+        }
+    }
+
+    @Benchmark
+    public List<KioskOrderRowDto> tupleProjection() {
+        // тот же запрос и маппер, что у grid-таблицы заказов
+        GridDescriptor<KioskOrder, KioskOrderRowDto> grid = KioskOrderGridRepository.GRID;
+        try (Session session = sessionFactory.openSession()) {
+            SelectionQuery<Tuple> query = session.createSelectionQuery(grid.getProjection(), Tuple.class);
+            grid.getHints().forEach(query::setHint);
+            return query.setParameter("ids", ids)
+                    .getResultList()
+                    .stream()
+                    .map(grid.getMapper())
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Автогенерация маршрутов без БД: тот же конвейер, что в {@code RouteService.planFromKioskOrders}
+ * (кэш расстояний, кластерный планировщик, расписание с разбиением по окнам и смене),
+ * на синтетическом городе. Кроме времени отчёт содержит стоимость решения: км и число маршрутов.
+ * Аллокации - профилировщиком gc (включён в build.gradle.kts).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RoutePlannerBenchmark {
+
+    // как в RouteService
+    private static final int MAX_STOPS_PER_ROUTE = 12;
+    private static final long DISTANCE_CACHE_BYTES = 64L * 1024 * 1024;
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int points;
+
+    @Param({"2000"})
+    public double vehicleCapacity;
+
+    @Param({"42"})
+    public long seed;
+
+    private SyntheticCity city;
+    private List<RouteSolver.Point> solverPoints;
+    private DistanceMatrix distances;
+    private ClusteredRoutePlanner planner;
+    private RouteScheduler scheduler;
+    private LocalDateTime shiftStart;
+
+    /**
+     * Стоимость последнего решения. JMH суммирует события по потокам, поэтому значения
+     * присваиваются, а не накапливаются: при одном потоке в отчёт попадает само решение.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SolutionCost {
+        public double totalKm;
+        public int routes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            totalKm = 0;
+            routes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        city = SyntheticCity.generate(points, seed);
+        solverPoints = city.solverPoints();
+        distances = new DistanceMatrix(DISTANCE_CACHE_BYTES, 0);
+        city.loadInto(distances);
+        planner = new ClusteredRoutePlanner(300, 0, seed);
+        scheduler = new RouteScheduler(LocalTime.of(22, 0), 8, 25, 10);
+        shiftStart = scheduler.shiftStartOn(LocalDate.of(2025, 1, 15));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        planner.shutdown();
+    }
+
+    @Benchmark
+    public List<RouteScheduler.Leg> generateRoutes(SolutionCost cost) {
+        RouteSolver.Solution solution = planner.plan(solverPoints, city.depotLat(), city.depotLon(),
+                vehicleCapacity, MAX_STOPS_PER_ROUTE, distances);
+
+        List<RouteScheduler.Leg> legs = new ArrayList<>();
+        for (RouteSolver.PlannedRoute planned : solution.routes()) {
+            List<RouteScheduler.Stop> stops = new ArrayList<>(planned.stops().size());
+            for (RouteSolver.Point p : planned.stops()) {
+                stops.add(city.scheduleStop(p.id()));
+            }
+            legs.addAll(scheduler.schedule(stops, shiftStart, distances));
+        }
+
+        cost.totalKm = solution.totalDistanceKm();
+        cost.routes = legs.size();
+        return legs;
+    }
+
+    @Benchmark
+    public List<RouteSolver.PlannedRoute> planOnly(SolutionCost cost) {
+        RouteSolver.Solution solution = planner.plan(solverPoints, city.depotLat(), city.depotLon(),
+                vehicleCapacity, MAX_STOPS_PER_ROUTE, distances);
+        cost.totalKm = solution.totalDistanceKm();
+        cost.routes = solution.routes().size();
+        return solution.routes();
+    }
+
+    /**
+     * Перезагрузка кэша расстояний: на больших городах матрица переходит в режим k ближайших.
+     */
+    @Benchmark
+    public void loadDistances(Blackhole blackhole) {
+        DistanceMatrix matrix = new DistanceMatrix(DISTANCE_CACHE_BYTES, 0);
+        city.loadInto(matrix);
+        blackhole.consume(matrix);
+    }
+}
@@ -0,0 +1,167 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Синтетический город для бенчмарков планировщика. Точки сгруппированы в районы разной плотности
+ * вокруг центра, часть разбросана по окраинам. Загрузка точек - логнормальная с тяжёлым хвостом,
+ * у части точек заказов с весом нет. Некоторым точкам назначено окно приёма внутри ночной смены.
+ * При одном seed город воспроизводим.
+ */
+final class SyntheticCity {
+
+    // Санкт-Петербург: порядок расстояний и широта как в реальных данных
+    private static final double CENTER_LAT = 59.9386;
+    private static final double CENTER_LON = 30.3141;
+    private static final double CITY_RADIUS_KM = 15;
+    private static final double KM_PER_DEGREE_LAT = 111.2;
+
+    private static final double SCATTERED_SHARE = 0.1;
+    private static final double EMPTY_SHARE = 0.15;
+    private static final double WINDOW_SHARE = 0.2;
+    // медиана ~60 кг, редкие точки на сотни кг
+    private static final double LOAD_MU = Math.log(60);
+    private static final double LOAD_SIGMA = 0.9;
+    private static final int POINTS_PER_DISTRICT = 400;
+
+    private static final LocalTime[][] WINDOWS = {
+            {LocalTime.of(22, 0), LocalTime.of(2, 0)},
+            {LocalTime.of(23, 0), LocalTime.of(4, 0)},
+            {LocalTime.of(0, 0), LocalTime.of(6, 0)},
+            {LocalTime.of(2, 0), LocalTime.of(6, 0)}
+    };
+
+    record Point(int id, double lat, double lon, double load, LocalTime opensAt, LocalTime closesAt) {}
+
+    private final List<Point> points;
+    private final double depotLat;
+    private final double depotLon;
+
+    private SyntheticCity(List<Point> points) {
+        this.points = points;
+        double lat = 0;
+        double lon = 0;
+        for (Point p : points) {
+            lat += p.lat();
+            lon += p.lon();
+        }
+        // как в RouteService: депо - центр обслуживаемых точек
+        this.depotLat = points.isEmpty() ? CENTER_LAT : lat / points.size();
+        this.depotLon = points.isEmpty() ? CENTER_LON : lon / points.size();
+    }
+
+    static SyntheticCity generate(int size, long seed) {
+        Random random = new Random(seed);
+        double kmPerDegreeLon = KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(CENTER_LAT));
+
+        int districtCount = Math.max(3, size / POINTS_PER_DISTRICT);
+        double[] districtLat = new double[districtCount];
+        double[] districtLon = new double[districtCount];
+        double[] districtSpreadKm = new double[districtCount];
+        double[] cumulativeWeight = new double[districtCount];
+        double totalWeight = 0;
+        for (int d = 0; d < districtCount; d++) {
+            // районы гуще к центру: радиус распределён не равномерно по площади
+            double r = CITY_RADIUS_KM * Math.pow(random.nextDouble(), 0.8);
+            double angle = random.nextDouble() * 2 * Math.PI;
+            districtLat[d] = CENTER_LAT + r * Math.sin(angle) / KM_PER_DEGREE_LAT;
+            districtLon[d] = CENTER_LON + r * Math.cos(angle) / kmPerDegreeLon;
+            districtSpreadKm[d] = 0.5 + random.nextDouble() * 1.5;
+            // плотность районов отличается в разы
+            totalWeight += 1 / (0.2 + random.nextDouble());
+            cumulativeWeight[d] = totalWeight;
+        }
+
+        List<Point> points = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            double lat;
+            double lon;
+            if (random.nextDouble() < SCATTERED_SHARE) {
+                double r = CITY_RADIUS_KM * Math.sqrt(random.nextDouble());
+                double angle = random.nextDouble() * 2 * Math.PI;
+                lat = CENTER_LAT + r * Math.sin(angle) / KM_PER_DEGREE_LAT;
+                lon = CENTER_LON + r * Math.cos(angle) / kmPerDegreeLon;
+            } else {
+                int d = pickDistrict(cumulativeWeight, random.nextDouble() * totalWeight);
+                lat = districtLat[d] + random.nextGaussian() * districtSpreadKm[d] / KM_PER_DEGREE_LAT;
+                lon = districtLon[d] + random.nextGaussian() * districtSpreadKm[d] / kmPerDegreeLon;
+            }
+
+            double load = random.nextDouble() < EMPTY_SHARE
+                    ? 0
+                    : Math.round(Math.exp(LOAD_MU + LOAD_SIGMA * random.nextGaussian()));
+
+            LocalTime opensAt = null;
+            LocalTime closesAt = null;
+            if (random.nextDouble() < WINDOW_SHARE) {
+                LocalTime[] window = WINDOWS[random.nextInt(WINDOWS.length)];
+                opensAt = window[0];
+                closesAt = window[1];
+            }
+            points.add(new Point(id, lat, lon, load, opensAt, closesAt));
+        }
+        return new SyntheticCity(points);
+    }
+
+    private static int pickDistrict(double[] cumulativeWeight, double target) {
+        int lo = 0;
+        int hi = cumulativeWeight.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulativeWeight[mid] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    int size() {
+        return points.size();
+    }
+
+    double depotLat() {
+        return depotLat;
+    }
+
+    double depotLon() {
+        return depotLon;
+    }
+
+    Point point(int id) {
+        return points.get(id - 1);
+    }
+
+    List<RouteSolver.Point> solverPoints() {
+        List<RouteSolver.Point> result = new ArrayList<>(points.size());
+        for (Point p : points) {
+            result.add(new RouteSolver.Point(p.id(), p.lat(), p.lon(), p.load()));
+        }
+        return result;
+    }
+
+    /**
+     * Загружает координаты точек в матрицу расстояний - так же, как это делает кэш расстояний.
+     */
+    void loadInto(DistanceMatrix matrix) {
+        int[] ids = new int[points.size()];
+        double[] lats = new double[points.size()];
+        double[] lons = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Point p = points.get(i);
+            ids[i] = p.id();
+            lats[i] = p.lat();
+            lons[i] = p.lon();
+        }
+        matrix.load(ids, lats, lons);
+    }
+
+    RouteScheduler.Stop scheduleStop(int id) {
+        Point p = point(id);
+        return new RouteScheduler.Stop(p.id(), p.lat(), p.lon(), p.opensAt(), p.closesAt());
+    }
+}
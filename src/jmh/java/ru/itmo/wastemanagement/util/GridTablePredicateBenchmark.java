@@ -0,0 +1,90 @@
+package ru.itmo.wastemanagement.util;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.itmo.wastemanagement.entity.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка условий и сортировки grid-запроса заказов киосков: планы фильтров против прежнего разбора
+ * на каждом запросе. Метамодель Hibernate поднимается без подключения к БД, SQL не выполняется -
+ * измеряется только CPU на построение criteria-запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridTablePredicateBenchmark {
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            ContainerSize.class, DriverShift.class, Fraction.class, GarbagePoint.class, GarbagePointFraction.class,
+            Incident.class, KioskOrder.class, Route.class, RouteStop.class, StopEvent.class, User.class, Vehicle.class);
+
+    private static final List<String> SORT_COLUMNS = List.of("garbagePoint.address", "createdAt");
+
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder cb;
+    private Map<String, Object> filterModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "none")
+                // слушателям сущностей нужен контейнер бинов Spring, здесь они не вызываются
+                .setProperty(AvailableSettings.JPA_CALLBACKS_ENABLED, "false");
+        ENTITIES.forEach(configuration::addAnnotatedClass);
+        sessionFactory = configuration.buildSessionFactory();
+        cb = sessionFactory.getCriteriaBuilder();
+
+        filterModel = Map.of(
+                "garbagePoint.address", Map.of("filterType", "text", "type", "contains", "filter", "Невский"),
+                "fraction.name", Map.of("filterType", "text", "type", "startsWith", "filter", "пласт"),
+                "weight", Map.of("filterType", "number", "type", "inRange", "filter", 10, "filterTo", "50.5"),
+                "createdAt", Map.of("filterType", "date", "type", "inRange",
+                        "dateFrom", "2025-10-01", "dateTo", "2025-10-20"),
+                "status", Map.of("filterType", "set", "values", List.of("CREATED", "CONFIRMED")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void compiledPlan(Blackhole blackhole) {
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<KioskOrder> root = cq.from(KioskOrder.class);
+        List<Predicate> predicates = GridTablePredicateBuilder.build(cb, root, filterModel);
+        for (String column : SORT_COLUMNS) {
+            blackhole.consume(GridTablePredicateBuilder.resolvePath(root, column));
+        }
+        blackhole.consume(predicates);
+    }
+
+    @Benchmark
+    public void legacyParsing(Blackhole blackhole) {
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<KioskOrder> root = cq.from(KioskOrder.class);
+        List<Predicate> predicates = LegacyGridTablePredicateBuilder.build(cb, root, filterModel);
+        for (String column : SORT_COLUMNS) {
+            blackhole.consume(LegacyGridTablePredicateBuilder.resolvePath(root, column));
+        }
+        blackhole.consume(predicates);
+    }
+}
@@ -35,7 +35,12 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/login").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/api/garbage-points/open").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/garbage-points/open", "/api/garbage-points/nearby").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        // Метрики (в т.ч. попадания в кэш справочников) - только админ
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        // Выгрузка таблиц целиком - только админ
+                        .requestMatchers(HttpMethod.POST, "/api/*/export").hasRole("ADMIN")
                         // Киоск может читать точки сбора, размеры контейнеров и фракции
                         .requestMatchers(HttpMethod.GET, "/api/garbage-points/**").hasAnyRole("ADMIN", "KIOSK")
                         .requestMatchers("/api/kiosk-orders/**").hasAnyRole("ADMIN", "KIOSK")
@@ -2,15 +2,19 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeUpsertDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.service.ContainerSizeService;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,12 +24,29 @@ public class ContainerSizeController {
 
     private final ContainerSizeService containerSizeService;
 
+    @GetMapping
+    public ResponseEntity<List<ContainerSizeRowDto>> getAll() {
+        return ResponseEntity.ok(containerSizeService.getAllContainerSizes());
+    }
+
     @PostMapping("/query")
     public ResponseEntity<GridTableResponse<ContainerSizeRowDto>> query(@Valid @RequestBody GridTableRequest req) {
         GridTableResponse<ContainerSizeRowDto> response = containerSizeService.queryGrid(req);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = containerSizeService.exportGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("container-sizes"))
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<Map<String, Long>> createContainerSize(@Valid @RequestBody ContainerSizeUpsertDto dto) {
         Long id = containerSizeService.createContainerSize(dto);
@@ -2,11 +2,14 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.driver.DriverCreateUpdateDto;
 import ru.itmo.wastemanagement.dto.driver.DriverRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.service.DriverService;
@@ -26,6 +29,18 @@ public class DriverController {
         return ResponseEntity.ok(resp);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = driverService.exportDriverGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("drivers"))
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<Map<String, Integer>> createDriver(@Valid @RequestBody DriverCreateUpdateDto dto) {
         Integer id = driverService.createDriver(dto);
@@ -2,15 +2,19 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
 import ru.itmo.wastemanagement.dto.fraction.FractionUpsertDto;
 import ru.itmo.wastemanagement.service.FractionService;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,12 +24,29 @@ public class FractionController {
 
     private final FractionService fractionService;
 
+    @GetMapping
+    public ResponseEntity<List<FractionRowDto>> getAll() {
+        return ResponseEntity.ok(fractionService.getAllFractions());
+    }
+
     @PostMapping("/query")
     public ResponseEntity<GridTableResponse<FractionRowDto>> query(@Valid @RequestBody GridTableRequest req) {
         GridTableResponse<FractionRowDto> response = fractionService.queryFractionGrid(req);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = fractionService.exportFractionGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("fractions"))
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<Map<String, Integer>> createFraction(@Valid @RequestBody FractionUpsertDto dto) {
         Integer id = fractionService.createFraction(dto);
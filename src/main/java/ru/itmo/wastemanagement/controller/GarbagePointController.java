@@ -2,11 +2,15 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointNearbyDto;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.service.GarbagePointService;
@@ -27,6 +31,15 @@ public class GarbagePointController {
         return ResponseEntity.ok(points);
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<List<GarbagePointNearbyDto>> getNearby(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(required = false) Integer k
+    ) {
+        return ResponseEntity.ok(garbagePointService.findNearby(lat, lon, k));
+    }
+
     @PostMapping("/query")
     public ResponseEntity<?> query(@RequestBody @Valid GridTableRequest req) {
         GridTableResponse<GarbagePointRowDto> res = garbagePointService.queryGrid(req);
@@ -35,6 +48,18 @@ public class GarbagePointController {
                 .body(res);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = garbagePointService.exportGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("garbage-points"))
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<?> createGarbagePoint(@RequestBody @Valid GarbagePointCreateUpdateDto dto) {
         Integer id = garbagePointService.createNewGarbagePoint(dto);
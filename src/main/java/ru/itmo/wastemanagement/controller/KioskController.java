@@ -2,9 +2,12 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.dto.kiosk.KioskCreateUpdateDto;
@@ -36,6 +39,18 @@ public class KioskController {
                 .body(body);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = kioskService.exportKioskGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("kiosks"))
+                .body(body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateKioskUser(
             @PathVariable Integer id,
@@ -2,16 +2,21 @@ package ru.itmo.wastemanagement.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
-import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderRowDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchResultDto;
 import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderUpsertDto;
 import ru.itmo.wastemanagement.service.KioskOrderService;
 
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/kiosk-orders")
@@ -21,19 +26,44 @@ public class KioskOrderController {
     private final KioskOrderService kioskOrderService;
 
     @PostMapping("/query")
-    public ResponseEntity<GridTableResponse<KioskOrderRowDto>> query(@Valid @RequestBody GridTableRequest req) {
-        GridTableResponse<KioskOrderRowDto> resp = kioskOrderService.queryGrid(req);
+    public ResponseEntity<GridTableResponse<?>> query(@Valid @RequestBody GridTableRequest req) {
+        // уровень группировки - строки-группы с агрегатами, внутри раскрытой группы - заказы
+        GridTableResponse<?> resp = req.groupLevel()
+                ? kioskOrderService.queryGroupGrid(req)
+                : kioskOrderService.queryGrid(req);
         return ResponseEntity.ok(resp);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") GridExportFormat format,
+            @RequestBody GridTableRequest req
+    ) {
+        StreamingResponseBody body = kioskOrderService.exportGrid(req, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("kiosk-orders"))
+                .body(body);
+    }
+
+    // Idempotency-Key - UUID от киоска: повтор запроса с ним возвращает уже созданный заказ
     @PostMapping
-    public ResponseEntity<Map<String, Integer>> createOrder(@Valid @RequestBody KioskOrderUpsertDto dto) {
-        Integer id = kioskOrderService.createOrder(dto);
+    public ResponseEntity<Map<String, Integer>> createOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) UUID idempotencyKey,
+            @Valid @RequestBody KioskOrderUpsertDto dto
+    ) {
+        Integer id = kioskOrderService.createOrder(dto, idempotencyKey);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(Map.of("id", id));
     }
 
+    // синхронизация после офлайн-режима киоска: результат по каждому заказу, повтор пакета безопасен
+    @PostMapping("/batch")
+    public ResponseEntity<KioskOrderBatchResultDto> createOrders(@Valid @RequestBody KioskOrderBatchDto dto) {
+        return ResponseEntity.ok(kioskOrderService.createOrders(dto));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> updateOrder(
             @PathVariable Integer id,
@@ -0,0 +1,38 @@
+package ru.itmo.wastemanagement.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobDto;
+import ru.itmo.wastemanagement.service.RouteGenerationJobService;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/routes/auto-generate/jobs")
+@RequiredArgsConstructor
+public class RouteGenerationJobController {
+
+    private final RouteGenerationJobService jobService;
+
+    @PostMapping
+    public ResponseEntity<RouteGenerationJobDto> submit() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.submit());
+    }
+
+    @GetMapping("/{id}")
+    public RouteGenerationJobDto getJob(@PathVariable UUID id) {
+        return jobService.getJob(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public RouteGenerationJobDto cancel(@PathVariable UUID id) {
+        return jobService.cancel(id);
+    }
+}
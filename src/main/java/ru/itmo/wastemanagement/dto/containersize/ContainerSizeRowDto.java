@@ -1,6 +1,7 @@
 package ru.itmo.wastemanagement.dto.containersize;
 
 import java.time.LocalDateTime;
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.ContainerSize;
@@ -29,4 +30,20 @@ public class ContainerSizeRowDto {
                 .createdAt(entity.getCreatedAt())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static ContainerSizeRowDto fromTuple(Tuple t) {
+        return ContainerSizeRowDto.builder()
+                .id(t.get("id", Long.class))
+                .code(t.get("code", String.class))
+                .capacity(t.get("capacity", Integer.class))
+                .length(t.get("length", Double.class))
+                .width(t.get("width", Double.class))
+                .height(t.get("height", Double.class))
+                .description(t.get("description", String.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .build();
+    }
 }
@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.driver;
 
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.User;
@@ -28,4 +29,18 @@ public class DriverRowDto {
                 .createdAt(u.getCreatedAt())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static DriverRowDto fromTuple(Tuple t) {
+        return DriverRowDto.builder()
+                .id(t.get("id", Integer.class))
+                .name(t.get("name", String.class))
+                .phone(t.get("phone", String.class))
+                .login(t.get("login", String.class))
+                .active(t.get("active", Boolean.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .build();
+    }
 }
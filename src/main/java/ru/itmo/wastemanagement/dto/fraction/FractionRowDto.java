@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.fraction;
 
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.Fraction;
@@ -23,4 +24,17 @@ public class FractionRowDto {
                 .hazardous(fraction.isHazardous())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static FractionRowDto fromTuple(Tuple t) {
+        return FractionRowDto.builder()
+                .id(t.get("id", Integer.class))
+                .name(t.get("name", String.class))
+                .code(t.get("code", String.class))
+                .description(t.get("description", String.class))
+                .hazardous(t.get("hazardous", Boolean.class))
+                .build();
+    }
 }
@@ -7,6 +7,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
 
+import java.time.LocalTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +35,9 @@ public class GarbagePointCreateUpdateDto {
     @NotNull(message = "Привязка киоска обязательна")
     @Positive(message = "ID киоска должен быть положительным числом")
     private Integer kioskId;
+    // окно работы точки, необязательно; если задано, то оба поля
+    private LocalTime opensAt;
+    private LocalTime closesAt;
 
     public static GarbagePointCreateUpdateDto toDto(GarbagePoint gp) {
         if (gp == null) return null;
@@ -43,6 +48,8 @@ public class GarbagePointCreateUpdateDto {
                 .lat(gp.getLat())
                 .lon(gp.getLon())
                 .kioskId(gp.getKiosk() != null ? gp.getKiosk().getId() : null)
+                .opensAt(gp.getOpensAt())
+                .closesAt(gp.getClosesAt())
                 .build();
     }
 
@@ -53,6 +60,8 @@ public class GarbagePointCreateUpdateDto {
         t.setOpen(dto.getOpen() != null ? dto.getOpen() : true);
         t.setLat(dto.getLat());
         t.setLon(dto.getLon());
+        t.setOpensAt(dto.getOpensAt());
+        t.setClosesAt(dto.getClosesAt());
         return t;
     }
 
@@ -0,0 +1,35 @@
+package ru.itmo.wastemanagement.dto.garbagepoint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.wastemanagement.entity.GarbagePoint;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GarbagePointNearbyDto {
+
+    private Long id;
+    private String address;
+    private Double lat;
+    private Double lon;
+    private Integer capacity;
+    // null, если вместимость точки не задана
+    private Double freeCapacity;
+    private Double distanceKm;
+
+    public static GarbagePointNearbyDto fromEntity(GarbagePoint gp, double distanceKm, Double freeCapacity) {
+        return GarbagePointNearbyDto.builder()
+                .id(gp.getId() != null ? gp.getId().longValue() : null)
+                .address(gp.getAddress())
+                .lat(gp.getLat())
+                .lon(gp.getLon())
+                .capacity(gp.getCapacity())
+                .freeCapacity(freeCapacity)
+                .distanceKm(distanceKm)
+                .build();
+    }
+}
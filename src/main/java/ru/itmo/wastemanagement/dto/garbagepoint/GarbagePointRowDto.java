@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.garbagepoint;
 
+import jakarta.persistence.Tuple;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,6 +8,7 @@ import lombok.NoArgsConstructor;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 @Data
 @NoArgsConstructor
@@ -20,6 +22,8 @@ public class GarbagePointRowDto {
     private Boolean open;
     private Double lat;
     private Double lon;
+    private LocalTime opensAt;
+    private LocalTime closesAt;
     private LocalDateTime createdAt;
     private Long adminId;
     private Long kioskId;
@@ -34,9 +38,32 @@ public class GarbagePointRowDto {
                 .open(gp.isOpen())
                 .lat(gp.getLat())
                 .lon(gp.getLon())
+                .opensAt(gp.getOpensAt())
+                .closesAt(gp.getClosesAt())
                 .createdAt(gp.getCreatedAt())
                 .adminId(gp.getAdmin() != null ? gp.getAdmin().getId().longValue() : null)
                 .kioskId(gp.getKiosk() != null ? gp.getKiosk().getId().longValue() : null)
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static GarbagePointRowDto fromTuple(Tuple t) {
+        Integer adminId = t.get("adminId", Integer.class);
+        Integer kioskId = t.get("kioskId", Integer.class);
+        return GarbagePointRowDto.builder()
+                .id(t.get("id", Integer.class).longValue())
+                .address(t.get("address", String.class))
+                .capacity(t.get("capacity", Integer.class))
+                .open(t.get("open", Boolean.class))
+                .lat(t.get("lat", Double.class))
+                .lon(t.get("lon", Double.class))
+                .opensAt(t.get("opensAt", LocalTime.class))
+                .closesAt(t.get("closesAt", LocalTime.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .adminId(adminId != null ? adminId.longValue() : null)
+                .kioskId(kioskId != null ? kioskId.longValue() : null)
+                .build();
+    }
 }
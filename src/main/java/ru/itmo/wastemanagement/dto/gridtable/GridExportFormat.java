@@ -0,0 +1,27 @@
+package ru.itmo.wastemanagement.dto.gridtable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+@Getter
+@RequiredArgsConstructor
+public enum GridExportFormat {
+    // заголовок - имена полей DTO строки, UTF-8 с BOM для Excel
+    csv(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+    // одна JSON-строка таблицы на строку файла
+    ndjson(MediaType.parseMediaType("application/x-ndjson"), "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    public String contentDisposition(String name) {
+        return ContentDisposition.attachment()
+                .filename(name + "." + extension)
+                .build()
+                .toString();
+    }
+}
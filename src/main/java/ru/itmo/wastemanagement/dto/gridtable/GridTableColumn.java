@@ -0,0 +1,20 @@
+package ru.itmo.wastemanagement.dto.gridtable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Колонка из rowGroupCols / valueCols запроса ag-Grid (ColumnVO).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GridTableColumn {
+    private String id;           // colId колонки
+    private String displayName;
+    private String field;
+    private String aggFunc;      // для valueCols: "sum" | "avg" | "min" | "max" | "count"
+}
@@ -0,0 +1,8 @@
+package ru.itmo.wastemanagement.dto.gridtable;
+
+public enum GridTableCountMode {
+    // точное число строк (из кэша или окном в запросе страницы)
+    exact,
+    // без фильтров - оценка планировщика по pg_class.reltuples, с фильтрами - как exact
+    estimated
+}
@@ -0,0 +1,18 @@
+package ru.itmo.wastemanagement.dto.gridtable;
+
+import java.util.List;
+
+/**
+ * Страница grid-таблицы из репозитория: строки, курсор следующей страницы и общее число строк
+ * ({@code null}, если клиент попросил его не считать; {@code totalExact = false} - оценка).
+ */
+public record GridTablePage<T>(List<T> rows, String nextCursor, Long total, boolean totalExact) {
+
+    public Integer lastRow() {
+        return total != null ? Math.toIntExact(total) : null;
+    }
+
+    public Boolean lastRowExact() {
+        return total != null ? totalExact : null;
+    }
+}
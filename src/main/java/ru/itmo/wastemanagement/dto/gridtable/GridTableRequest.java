@@ -1,6 +1,7 @@
 package ru.itmo.wastemanagement.dto.gridtable;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,5 +28,31 @@ public class GridTableRequest {
     // colId -> filter descriptor
     // см. формат filterModel из ag-Grid
     private Map<String, Object> filterModel;
+
+    // быстрый поиск по текстовым колонкам таблицы (quickFilterText ag-Grid): каждое слово - хотя бы в одной
+    @Size(max = 200)
+    private String quickFilter;
+
+    // nextCursor из предыдущего ответа: страница выбирается после него, startRow не используется
+    private String cursor;
+
+    // клиент уже знает lastRow - общее число строк не считается
+    private Boolean skipCount;
+
+    // exact (по умолчанию) или estimated - оценка общего числа строк для больших таблиц
+    private GridTableCountMode countMode;
+
+    // группировка ag-Grid: колонки уровней, агрегаты и ключи уже раскрытых групп (по одному на уровень)
+    private List<GridTableColumn> rowGroupCols;
+    private List<GridTableColumn> valueCols;
+    private List<Object> groupKeys;
+
+    /**
+     * Запрошен уровень группировки (строки - группы), а не строки таблицы внутри раскрытых групп.
+     */
+    public boolean groupLevel() {
+        int keys = groupKeys != null ? groupKeys.size() : 0;
+        return rowGroupCols != null && rowGroupCols.size() > keys;
+    }
 }
 
@@ -14,5 +14,11 @@ import java.util.List;
 public class GridTableResponse<T> {
     private List<T> rows;
     private Integer lastRow;
+
+    // курсор следующей страницы, null - страница последняя
+    private String nextCursor;
+
+    // false - lastRow оценочный (countMode = estimated)
+    private Boolean lastRowExact;
 }
 
@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.incident;
 
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.Incident;
@@ -48,5 +49,26 @@ public class IncidentDto {
                 .resolvedAt(incident.getResolvedAt())
                 .build();
     }
-}
 
+    /**
+     * Инцидент из tuple-проекции: алиасы колонок совпадают с именами полей.
+     */
+    public static IncidentDto fromTuple(Tuple t) {
+        return IncidentDto.builder()
+                .id(t.get("id", Integer.class))
+                .stopId(t.get("stopId", Integer.class))
+                .stopAddress(t.get("stopAddress", String.class))
+                .routeId(t.get("routeId", Integer.class))
+                .type(t.get("type", IncidentType.class))
+                .description(t.get("description", String.class))
+                .photoUrl(t.get("photoUrl", String.class))
+                .createdById(t.get("createdById", Integer.class))
+                .createdByName(t.get("createdByName", String.class))
+                .createdByLogin(t.get("createdByLogin", String.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .updatedAt(t.get("updatedAt", LocalDateTime.class))
+                .resolved(Boolean.TRUE.equals(t.get("resolved", Boolean.class)))
+                .resolvedAt(t.get("resolvedAt", LocalDateTime.class))
+                .build();
+    }
+}
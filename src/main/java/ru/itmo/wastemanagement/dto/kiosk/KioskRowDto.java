@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.kiosk;
 
+import jakarta.persistence.Tuple;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -30,4 +31,17 @@ public class KioskRowDto {
                 .createdAt(u.getCreatedAt())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static KioskRowDto fromTuple(Tuple t) {
+        return KioskRowDto.builder()
+                .id(t.get("id", Integer.class))
+                .name(t.get("name", String.class))
+                .login(t.get("login", String.class))
+                .active(t.get("active", Boolean.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .build();
+    }
 }
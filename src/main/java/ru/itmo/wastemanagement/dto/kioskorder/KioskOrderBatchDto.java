@@ -0,0 +1,22 @@
+package ru.itmo.wastemanagement.dto.kioskorder;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KioskOrderBatchDto {
+
+    // заказы, накопленные киоском без сети, в порядке оформления
+    @NotEmpty(message = "Передайте хотя бы один заказ.")
+    @Size(max = 1000, message = "Не больше 1000 заказов за один запрос.")
+    private List<@Valid @NotNull KioskOrderBatchItemDto> orders;
+}
@@ -0,0 +1,35 @@
+package ru.itmo.wastemanagement.dto.kioskorder;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KioskOrderBatchItemDto {
+
+    // генерирует киоск при оформлении заказа; повторная отправка с тем же ключом не создаёт дубль
+    @NotNull(message = "Укажите ключ идемпотентности (idempotencyKey).")
+    private UUID idempotencyKey;
+
+    // null - точка киоска, от имени которого идёт синхронизация
+    private Integer garbagePointId;
+
+    @NotNull(message = "Выберите размер контейнера (containerSizeId).")
+    private Integer containerSizeId;
+
+    @NotNull(message = "Выберите фракцию (fractionId).")
+    private Integer fractionId;
+
+    @DecimalMin(value = "0.0", message = "Вес не может быть отрицательным.")
+    private Double weight;
+
+    // время оформления на киоске; null - время синхронизации
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,27 @@
+package ru.itmo.wastemanagement.dto.kioskorder;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+@Value
+@Builder
+public class KioskOrderBatchResultDto {
+    // результаты в порядке заказов запроса
+    List<Item> results;
+    int created;
+    int duplicates;
+    int rejected;
+
+    @Value
+    @Builder
+    public static class Item {
+        UUID idempotencyKey;
+        KioskOrderBatchStatus status;
+        // id созданного или ранее созданного заказа; null для rejected
+        Integer orderId;
+        String error;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.itmo.wastemanagement.dto.kioskorder;
+
+public enum KioskOrderBatchStatus {
+    // заказ создан этим запросом
+    created,
+    // заказ с этим ключом уже был создан раньше (или повторяется в запросе)
+    duplicate,
+    // заказ не прошёл проверку, причина - в error
+    rejected
+}
@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.kioskorder;
 
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.KioskOrder;
@@ -62,4 +63,24 @@ public class KioskOrderRowDto {
                 .status(o.getStatus())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static KioskOrderRowDto fromTuple(Tuple t) {
+        return KioskOrderRowDto.builder()
+                .id(t.get("id", Integer.class))
+                .garbagePointId(t.get("garbagePointId", Integer.class))
+                .garbagePointAddress(t.get("garbagePointAddress", String.class))
+                .containerSizeId(t.get("containerSizeId", Long.class))
+                .containerSizeCode(t.get("containerSizeCode", String.class))
+                .fractionId(t.get("fractionId", Integer.class))
+                .fractionName(t.get("fractionName", String.class))
+                .weight(t.get("weight", Double.class))
+                .userId(t.get("userId", Integer.class))
+                .userName(t.get("userName", String.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .status(t.get("status", OrderStatus.class))
+                .build();
+    }
 }
@@ -0,0 +1,23 @@
+package ru.itmo.wastemanagement.dto.route;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Value
+@Builder
+public class RouteGenerationJobDto {
+    UUID id;
+    RouteGenerationJobStatus status;
+    // сколько маршрутов запланировано и сколько уже записано; до конца планирования totalRoutes = null
+    Integer totalRoutes;
+    int processedRoutes;
+    List<Integer> routeIds;
+    String error;
+    LocalDateTime createdAt;
+    LocalDateTime startedAt;
+    LocalDateTime finishedAt;
+}
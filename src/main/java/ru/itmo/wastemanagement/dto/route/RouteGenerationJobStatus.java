@@ -0,0 +1,14 @@
+package ru.itmo.wastemanagement.dto.route;
+
+public enum RouteGenerationJobStatus {
+    queued,
+    planning,
+    persisting,
+    completed,
+    failed,
+    cancelled;
+
+    public boolean isFinished() {
+        return this == completed || this == failed || this == cancelled;
+    }
+}
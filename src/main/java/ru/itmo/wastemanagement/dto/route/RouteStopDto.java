@@ -5,6 +5,8 @@ import lombok.Value;
 import ru.itmo.wastemanagement.entity.RouteStop;
 import ru.itmo.wastemanagement.entity.enums.StopStatus;
 
+import java.time.LocalDateTime;
+
 @Value
 @Builder
 public class RouteStopDto {
@@ -12,6 +14,8 @@ public class RouteStopDto {
     Integer seqNo;
     Integer garbagePointId;
     String address;
+    LocalDateTime timeFrom;
+    LocalDateTime timeTo;
     StopStatus status;
     Integer expectedCapacity;
     Integer actualCapacity;
@@ -23,6 +27,8 @@ public class RouteStopDto {
                 .seqNo(stop.getSeqNo())
                 .garbagePointId(stop.getGarbagePoint() != null ? stop.getGarbagePoint().getId() : null)
                 .address(stop.getAddress())
+                .timeFrom(stop.getTimeFrom())
+                .timeTo(stop.getTimeTo())
                 .status(stop.getStatus())
                 .expectedCapacity(stop.getExpectedCapacity())
                 .actualCapacity(stop.getActualCapacity())
@@ -22,17 +22,27 @@ public class DriverShiftDto {
 
     public static DriverShiftDto fromEntity(DriverShift shift) {
         if (shift == null) return null;
-        
+
+        var vehicle = shift.getVehicle();
+        return fromEntity(shift, vehicle != null ? vehicle.getPlateNumber() : null);
+    }
+
+    /**
+     * Госномер передаётся отдельно, чтобы не загружать машину, заданную ссылкой без SELECT.
+     */
+    public static DriverShiftDto fromEntity(DriverShift shift, String vehiclePlate) {
+        if (shift == null) return null;
+
         var driver = shift.getDriver();
         var vehicle = shift.getVehicle();
-        
+
         return DriverShiftDto.builder()
                 .id(shift.getId())
                 .driverId(driver != null ? driver.getId() : null)
                 .driverName(driver != null ? driver.getName() : null)
                 .driverLogin(driver != null ? driver.getLogin() : null)
                 .vehicleId(vehicle != null ? vehicle.getId() : null)
-                .vehiclePlate(vehicle != null ? vehicle.getPlateNumber() : null)
+                .vehiclePlate(vehiclePlate)
                 .openedAt(shift.getOpenedAt())
                 .closedAt(shift.getClosedAt())
                 .status(shift.getStatus())
@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto.vehicle;
 
+import jakarta.persistence.Tuple;
 import lombok.Builder;
 import lombok.Value;
 import ru.itmo.wastemanagement.entity.Vehicle;
@@ -28,4 +29,18 @@ public class VehicleRowDto {
                 .createdAt(v.getCreatedAt())
                 .build();
     }
+
+    /**
+     * Строка из tuple-проекции grid-запроса: алиасы колонок совпадают с именами полей.
+     */
+    public static VehicleRowDto fromTuple(Tuple t) {
+        return VehicleRowDto.builder()
+                .id(t.get("id", Integer.class))
+                .plateNumber(t.get("plateNumber", String.class))
+                .name(t.get("name", String.class))
+                .capacity(t.get("capacity", Integer.class))
+                .active(t.get("active", Boolean.class))
+                .createdAt(t.get("createdAt", LocalDateTime.class))
+                .build();
+    }
 }
@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
 
 import java.time.LocalDateTime;
 
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "container_sizes")
+@EntityListeners(GridCountInvalidationListener.class)
 public class ContainerSize {
 
     @Id
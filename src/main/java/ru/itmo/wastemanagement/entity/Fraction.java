@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -14,6 +15,7 @@ import java.util.Set;
 @Builder
 @Entity
 @Table(name = "fractions")
+@EntityListeners(GridCountInvalidationListener.class)
 public class Fraction {
 
     @Id
@@ -2,8 +2,11 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
+import ru.itmo.wastemanagement.repository.KioskOrderValidationListener;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,6 +17,7 @@ import java.util.Set;
 @Builder
 @Entity
 @Table(name = "garbage_points")
+@EntityListeners({GridCountInvalidationListener.class, KioskOrderValidationListener.class})
 public class GarbagePoint {
 
     @Id
@@ -33,6 +37,12 @@ public class GarbagePoint {
 
     private Double lon;
 
+    @Column(name = "opens_at")
+    private LocalTime opensAt;
+
+    @Column(name = "closes_at")
+    private LocalTime closesAt;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,50 @@
+package ru.itmo.wastemanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Нагрузка точки сбора по активным заказам. Строки ведут триггеры БД (см. garbage_point_load в init.sql),
+ * приложение их только читает. {@link Synchronize}: перед запросом к сводке Hibernate сбрасывает в БД
+ * несохранённые изменения заказов, иначе триггеры их ещё не учли бы.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Immutable
+@Synchronize({"kiosk_orders", "container_sizes"})
+@Table(name = "garbage_point_load")
+public class GarbagePointLoad {
+
+    @Id
+    @Column(name = "garbage_point_id")
+    private Integer garbagePointId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "garbage_point_id")
+    private GarbagePoint garbagePoint;
+
+    @Column(name = "total_weight", nullable = false)
+    private BigDecimal totalWeight;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "weighted_count", nullable = false)
+    private Long weightedCount;
+
+    @Column(name = "total_container_capacity", nullable = false)
+    private Long totalContainerCapacity;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
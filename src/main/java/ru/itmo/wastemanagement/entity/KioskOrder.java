@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -15,8 +16,10 @@ import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 import ru.itmo.wastemanagement.entity.enums.OrderStatus;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Getter
 @Setter
@@ -25,6 +28,7 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "kiosk_orders")
+@EntityListeners(GridCountInvalidationListener.class)
 public class KioskOrder {
 
     @Id
@@ -56,4 +60,7 @@ public class KioskOrder {
     @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     private OrderStatus status = OrderStatus.CONFIRMED;
+
+    @Column(name = "idempotency_key", updatable = false)
+    private UUID idempotencyKey;
 }
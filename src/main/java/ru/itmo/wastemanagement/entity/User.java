@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +13,8 @@ import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
+import ru.itmo.wastemanagement.repository.KioskOrderValidationListener;
 
 import java.time.LocalDateTime;
 
@@ -23,6 +26,7 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "users")
+@EntityListeners({GridCountInvalidationListener.class, KioskOrderValidationListener.class})
 public class User {
 
     @Id
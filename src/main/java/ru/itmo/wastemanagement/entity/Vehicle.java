@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.wastemanagement.repository.GridCountInvalidationListener;
 
 import java.time.LocalDateTime;
 
@@ -13,6 +14,7 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "vehicles")
+@EntityListeners(GridCountInvalidationListener.class)
 public class Vehicle {
 
     @Id
@@ -1,96 +1,48 @@
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Order;
-import jakarta.persistence.criteria.Path;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
 import ru.itmo.wastemanagement.entity.ContainerSize;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class ContainerSizeGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<ContainerSize> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<ContainerSize> root = cq.from(ContainerSize.class);
-
-        List<Predicate> predicates = GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                orders.add("desc".equalsIgnoreCase(s.getSort()) ? cb.desc(p) : cb.asc(p));
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(cb.desc(root.get("id")));
-        }
-
-        cq.select(root.get("id"));
-
-        List<Long> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<ContainerSize> items = em.createQuery(
-                        "select c from ContainerSize c where c.id in :ids",
-                        ContainerSize.class)
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Long, Integer> rank = new HashMap<>(ids.size() * 2);
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
-
-        items.sort(Comparator.comparingInt(
-                c -> rank.getOrDefault(c.getId(), Integer.MAX_VALUE)
-        ));
+    static final GridDescriptor<ContainerSize, ContainerSizeRowDto> GRID = GridDescriptor.<ContainerSize, ContainerSizeRowDto>builder()
+            .name("container-sizes")
+            .entity(ContainerSize.class)
+            .table("container_sizes")
+            .columns(GridDescriptor.columns(
+                    "id", "code", "capacity", "length", "width", "height",
+                    "description", "createdAt"))
+            .defaultSort(List.of(new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("description"))
+            .projection("select c.id as id, c.code as code, c.capacity as capacity, " +
+                    "c.length as length, c.width as width, c.height as height, " +
+                    "c.description as description, c.createdAt as createdAt " +
+                    "from ContainerSize c where c.id in :ids")
+            .mapper(ContainerSizeRowDto::fromTuple)
+            .rowId(ContainerSizeRowDto::getId)
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<ContainerSizeRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<ContainerSizeRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<ContainerSize> root = cq.from(ContainerSize.class);
-
-        List<Predicate> predicates = GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
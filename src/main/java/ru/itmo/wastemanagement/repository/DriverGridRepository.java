@@ -1,102 +1,50 @@
-// src/main/java/ru/itmo/wastemanagement/repository/DriverGridRepository.java
-
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.driver.DriverRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
 import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
 
-import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class DriverGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<User> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
-        Root<User> root = cq.from(User.class);
-
-        List<Predicate> predicates = new ArrayList<>();
-
-        predicates.add(cb.equal(root.get("role"), UserRole.DRIVER));
-
-        predicates.addAll(GridTablePredicateBuilder.build(cb, root, req.getFilterModel()));
-
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                if ("desc".equalsIgnoreCase(s.getSort())) {
-                    orders.add(cb.desc(p));
-                } else {
-                    orders.add(cb.asc(p));
-                }
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
-        }
-
-        cq.select(root.get("id").as(Integer.class));
-
-        List<Integer> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<User> items = em.createQuery(
-                        "select u from User u where u.id in :ids", User.class)
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Integer, Integer> rank = new HashMap<>(ids.size() * 2);
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
-
-        items.sort(Comparator.comparingInt(
-                u -> rank.getOrDefault(u.getId(), Integer.MAX_VALUE)
-        ));
+    static final GridDescriptor<User, DriverRowDto> GRID = GridDescriptor.<User, DriverRowDto>builder()
+            .name("drivers")
+            .entity(User.class)
+            .table("users")
+            .columns(GridDescriptor.columns(
+                    "id", "name", "phone", "login", "active", "createdAt"))
+            .defaultSort(List.of(
+                    new GridTableSortModel("createdAt", "desc"),
+                    new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("name", "login", "phone"))
+            .scope((cb, root) -> cb.equal(root.get("role"), UserRole.DRIVER))
+            .projection("select u.id as id, u.name as name, u.phone as phone, u.login as login, " +
+                    "u.active as active, u.createdAt as createdAt " +
+                    "from User u where u.id in :ids")
+            .mapper(DriverRowDto::fromTuple)
+            .rowId(DriverRowDto::getId)
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<DriverRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<DriverRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<User> root = cq.from(User.class);
-
-        List<Predicate> predicates = new ArrayList<>();
-        predicates.add(cb.equal(root.get("role"), UserRole.DRIVER));
-        predicates.addAll(GridTablePredicateBuilder.build(cb, root, req.getFilterModel()));
-
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
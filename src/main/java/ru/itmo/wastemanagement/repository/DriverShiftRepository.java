@@ -22,6 +22,17 @@ public interface DriverShiftRepository extends JpaRepository<DriverShift, Intege
     @Query("SELECT s FROM DriverShift s WHERE s.status = 'open' ORDER BY s.openedAt DESC")
     List<DriverShift> findAllOpenShifts();
     
+    // открытые смены, у которых ещё нет запланированного или выполняемого маршрута
+    @Query("""
+            SELECT s FROM DriverShift s
+            JOIN FETCH s.driver
+            LEFT JOIN FETCH s.vehicle
+            WHERE s.status = 'open'
+              AND NOT EXISTS (SELECT r FROM Route r WHERE r.shift = s AND r.status IN ('planned', 'in_progress'))
+            ORDER BY s.openedAt
+            """)
+    List<DriverShift> findFreeOpenShifts();
+
     boolean existsByDriver_IdAndStatus(Integer driverId, ShiftStatus status);
 }
 
@@ -1,98 +1,48 @@
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
 import ru.itmo.wastemanagement.entity.Fraction;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
 
-import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class FractionGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<Fraction> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
-        Root<Fraction> root = cq.from(Fraction.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                if ("desc".equalsIgnoreCase(s.getSort())) {
-                    orders.add(cb.desc(p));
-                } else {
-                    orders.add(cb.asc(p));
-                }
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(
-                    cb.desc(root.get("createdAt")),
-                    cb.desc(root.get("id"))
-            );
-        }
-
-        cq.select(root.get("id").as(Integer.class));
-
-        List<Integer> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<Fraction> items = em.createQuery(
-                        "select f from Fraction f where f.id in :ids",
-                        Fraction.class
-                )
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Integer, Integer> rank = new HashMap<>(ids.size() * 2); 
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
-
-        items.sort(Comparator.comparingInt(
-                f -> rank.getOrDefault(f.getId(), Integer.MAX_VALUE)
-        ));
+    static final GridDescriptor<Fraction, FractionRowDto> GRID = GridDescriptor.<Fraction, FractionRowDto>builder()
+            .name("fractions")
+            .entity(Fraction.class)
+            .table("fractions")
+            .columns(GridDescriptor.columns(
+                    "id", "name", "code", "description", "hazardous", "createdAt"))
+            .defaultSort(List.of(
+                    new GridTableSortModel("createdAt", "desc"),
+                    new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("name", "code", "description"))
+            .projection("select f.id as id, f.name as name, f.code as code, " +
+                    "f.description as description, f.hazardous as hazardous " +
+                    "from Fraction f where f.id in :ids")
+            .mapper(FractionRowDto::fromTuple)
+            .rowId(FractionRowDto::getId)
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<FractionRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<FractionRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<Fraction> root = cq.from(Fraction.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
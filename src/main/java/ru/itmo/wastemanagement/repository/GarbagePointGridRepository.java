@@ -1,97 +1,50 @@
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
 
-import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class GarbagePointGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<GarbagePoint> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        var cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
-        Root<GarbagePoint> root = cq.from(GarbagePoint.class);
-
-        var predicates = GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                if ("desc".equalsIgnoreCase(s.getSort())) {
-                    orders.add(cb.desc(p));
-                } else {
-                    orders.add(cb.asc(p));
-                }
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(
-                    cb.desc(root.get("createdAt")),
-                    cb.desc(root.get("id"))
-            );
-        }
-
-        cq.select(root.get("id").as(Integer.class));
-
-        List<Integer> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<GarbagePoint> items = em.createQuery(
-                        "select gp from GarbagePoint gp " +
-                                "left join fetch gp.admin " +
-                                "left join fetch gp.kiosk " +
-                                "where gp.id in :ids", GarbagePoint.class)
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Integer, Integer> rank = new HashMap<>(ids.size() * 2);
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
-
-        items.sort(Comparator.comparingInt(
-                gp -> rank.getOrDefault(gp.getId(), Integer.MAX_VALUE)
-        ));
+    static final GridDescriptor<GarbagePoint, GarbagePointRowDto> GRID = GridDescriptor.<GarbagePoint, GarbagePointRowDto>builder()
+            .name("garbage-points")
+            .entity(GarbagePoint.class)
+            .table("garbage_points")
+            .columns(GridDescriptor.columns(
+                    "id", "address", "capacity", "open", "lat", "lon",
+                    "opensAt", "closesAt", "createdAt"))
+            .defaultSort(List.of(
+                    new GridTableSortModel("createdAt", "desc"),
+                    new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("address"))
+            .projection("select gp.id as id, gp.address as address, gp.capacity as capacity, gp.open as open, " +
+                    "gp.lat as lat, gp.lon as lon, gp.opensAt as opensAt, gp.closesAt as closesAt, " +
+                    "gp.createdAt as createdAt, gp.admin.id as adminId, gp.kiosk.id as kioskId " +
+                    "from GarbagePoint gp where gp.id in :ids")
+            .mapper(GarbagePointRowDto::fromTuple)
+            .rowId(gp -> gp.getId().intValue())
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<GarbagePointRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<GarbagePointRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        var cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<GarbagePoint> root = cq.from(GarbagePoint.class);
-
-        var predicates = GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
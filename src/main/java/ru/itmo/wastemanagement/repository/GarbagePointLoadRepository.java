@@ -0,0 +1,54 @@
+package ru.itmo.wastemanagement.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.entity.GarbagePointLoad;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Нагрузка точек сбора по активным заказам из сводки garbage_point_load: строка на точку вместо
+ * группировки всех заказов. Колонки нагрузки: общий вес, число заказов, число заказов с весом,
+ * суммарный объём контейнеров.
+ */
+@Repository
+public interface GarbagePointLoadRepository extends JpaRepository<GarbagePointLoad, Integer> {
+
+    /**
+     * Нагрузка по точкам сбора с активными заказами; первой колонкой идёт сама точка,
+     * чтобы не дочитывать их по одной.
+     */
+    @Query("""
+            select gp as garbagePoint,
+                   l.totalWeight, l.orderCount, l.weightedCount, l.totalContainerCapacity
+            from GarbagePointLoad l
+            join l.garbagePoint gp
+            where l.orderCount > 0
+            """)
+    List<Object[]> findActiveLoadWithGarbagePoints();
+
+    @Query("""
+            select l.totalWeight, l.orderCount, l.weightedCount, l.totalContainerCapacity
+            from GarbagePointLoad l
+            where l.garbagePointId = :garbagePointId
+            """)
+    List<Object[]> findActiveLoadByGarbagePointId(@Param("garbagePointId") Integer garbagePointId);
+
+    @Query("""
+            select l.garbagePointId, l.totalWeight, l.orderCount, l.weightedCount, l.totalContainerCapacity
+            from GarbagePointLoad l
+            where l.garbagePointId in :garbagePointIds
+            """)
+    List<Object[]> findActiveLoadByGarbagePointIds(@Param("garbagePointIds") Collection<Integer> garbagePointIds);
+
+    /**
+     * Сверяет сводку с пересчётом по заказам и исправляет расхождения.
+     *
+     * @return точки, нагрузка которых разошлась с заказами
+     */
+    @Query(value = "SELECT reconcile_garbage_point_load()", nativeQuery = true)
+    List<Integer> reconcile();
+}
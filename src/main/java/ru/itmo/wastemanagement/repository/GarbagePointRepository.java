@@ -1,6 +1,7 @@
 package ru.itmo.wastemanagement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
 
@@ -12,4 +13,10 @@ public interface GarbagePointRepository extends JpaRepository<GarbagePoint, Inte
     List<GarbagePoint> findByOpenTrue();
 
     Optional<GarbagePoint> findFirstByKiosk_Id(Integer kioskId);
+
+    @Query("select gp.id, gp.lat, gp.lon from GarbagePoint gp where gp.lat is not null and gp.lon is not null")
+    List<Object[]> findAllCoordinates();
+
+    @Query("select gp.id, gp.lat, gp.lon, gp.open from GarbagePoint gp where gp.lat is not null and gp.lon is not null")
+    List<Object[]> findAllLocations();
 }
@@ -0,0 +1,192 @@
+package ru.itmo.wastemanagement.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableCountMode;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш общего числа строк grid-таблиц. Ключ - таблица, нормализованная filterModel (ключи отсортированы),
+ * строка быстрого поиска и ключи раскрытых групп; значение живёт {@code ttl-seconds} и сбрасывается
+ * при записи в сущность таблицы: через JPA - {@link GridCountInvalidationListener}, через JDBC - явным
+ * {@link #invalidate}. Изменения связанных таблиц (например, адреса точки при фильтре заказов по нему)
+ * становятся видны не позже чем через TTL.
+ */
+@Component
+public class GridCountCache {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    /**
+     * Grid-таблица: сущность для сброса кэша, имя для ключа и таблица БД для оценки
+     * ({@code null}, если у выборки есть неявные условия и reltuples ей не подходит).
+     */
+    public record Grid(Class<?> entity, String name, String table) {}
+
+    /**
+     * Как получить число строк для страницы: окном в самом запросе или уже известное значение.
+     */
+    public record Plan(Grid grid, String key, long generation, boolean window, Long known, boolean exact) {}
+
+    public record Count(Long value, boolean exact) {}
+
+    private record Entry(long count, long expiresAt) {}
+
+    @Value("${app.grid.count-cache.ttl-seconds:30}")
+    private long ttlSeconds = 30;
+
+    @Value("${app.grid.count-cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Class<?>, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    // поколение сущности растёт при каждой записи: число, посчитанное до неё, в кэш не кладётся
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GridCountCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    GridCountCache(JdbcTemplate jdbcTemplate, long ttlSeconds, int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+    }
+
+    public Plan plan(Grid grid, GridTableRequest req) {
+        if (Boolean.TRUE.equals(req.getSkipCount())) {
+            return new Plan(grid, null, 0, false, null, false);
+        }
+        // в режиме курсора окно видит только строки после него - такое число не кэшируем
+        String key = req.getCursor() == null ? key(grid, req) : null;
+        long generation = generation(grid.entity()).get();
+
+        Entry cached = key != null ? entries.getOrDefault(grid.entity(), Map.of()).get(key) : null;
+        if (cached != null && cached.expiresAt() > System.nanoTime()) {
+            return new Plan(grid, key, generation, false, cached.count(), true);
+        }
+        if (req.getCountMode() == GridTableCountMode.estimated && grid.table() != null && !filtered(req)) {
+            Long estimate = estimate(grid.table());
+            if (estimate != null) {
+                return new Plan(grid, key, generation, false, estimate, false);
+            }
+        }
+        return new Plan(grid, key, generation, true, null, true);
+    }
+
+    /**
+     * Итоговое число строк: точное со страницы (окно, неполная страница, отдельный count) - с записью
+     * в кэш, иначе известное по плану.
+     *
+     * @param pageTotal точное число, если его удалось получить вместе со страницей
+     * @param seen      сколько строк клиент увидит с учётом этой страницы
+     */
+    public Count complete(Plan plan, Long pageTotal, int seen) {
+        if (pageTotal != null) {
+            if (plan.key() != null) {
+                put(plan, pageTotal);
+            }
+            return new Count(pageTotal, true);
+        }
+        if (plan.known() == null) {
+            return new Count(null, false);
+        }
+        if (!plan.exact() && plan.known() <= seen) {
+            // оценка отстала от таблицы: за полной страницей могут быть ещё строки
+            return new Count((long) seen + 1, false);
+        }
+        return new Count(plan.known(), plan.exact());
+    }
+
+    public void invalidate(Class<?> changed) {
+        evict(changed);
+        // число, посчитанное параллельно до коммита, могло успеть попасть в кэш - сбрасываем ещё раз
+        AfterCommit.run(() -> evict(changed));
+    }
+
+    private void evict(Class<?> changed) {
+        for (var entry : generations.entrySet()) {
+            // changed может быть прокси Hibernate - подклассом сущности
+            if (entry.getKey().isAssignableFrom(changed)) {
+                entry.getValue().incrementAndGet();
+                entries.remove(entry.getKey());
+            }
+        }
+    }
+
+    private void put(Plan plan, long count) {
+        Class<?> entity = plan.grid().entity();
+        if (generation(entity).get() != plan.generation()) {
+            return;
+        }
+        Map<String, Entry> byKey = entries.computeIfAbsent(entity, e -> new ConcurrentHashMap<>());
+        if (byKey.size() >= maxEntries) {
+            long now = System.nanoTime();
+            byKey.values().removeIf(e -> e.expiresAt() <= now);
+            if (byKey.size() >= maxEntries) {
+                byKey.clear();
+            }
+        }
+        byKey.put(plan.key(), new Entry(count, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+    }
+
+    private AtomicLong generation(Class<?> entity) {
+        return generations.computeIfAbsent(entity, e -> new AtomicLong());
+    }
+
+    private static boolean filtered(GridTableRequest req) {
+        return (req.getFilterModel() != null && !req.getFilterModel().isEmpty())
+                || (req.getQuickFilter() != null && !req.getQuickFilter().isBlank())
+                || (req.getGroupKeys() != null && !req.getGroupKeys().isEmpty());
+    }
+
+    private static String key(Grid grid, GridTableRequest req) {
+        if (!filtered(req)) {
+            return grid.name();
+        }
+        Map<String, Object> filterModel = req.getFilterModel() != null ? req.getFilterModel() : Map.of();
+        String quickFilter = req.getQuickFilter() != null ? req.getQuickFilter().trim() : "";
+        // строки внутри раскрытой группы: колонки уровней и их ключи
+        List<Object> group = new ArrayList<>();
+        if (req.getGroupKeys() != null) {
+            for (int i = 0; i < req.getGroupKeys().size(); i++) {
+                group.add(req.getRowGroupCols().get(i).getId());
+                group.add(req.getGroupKeys().get(i));
+            }
+        }
+        try {
+            return grid.name() + ':' + MAPPER.writeValueAsString(filterModel) + ':' + quickFilter
+                    + ':' + MAPPER.writeValueAsString(group);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize grid filter", e);
+        }
+    }
+
+    // reltuples = -1, пока таблицу ни разу не анализировали. У секционированной таблицы (kiosk_orders)
+    // своей оценки нет - складываем оценки секций, ещё не анализированные (пустые будущие) считаем нулём
+    private Long estimate(String table) {
+        List<Long> rows = jdbcTemplate.query("""
+                        SELECT CASE WHEN bool_or(c.reltuples >= 0) THEN sum(greatest(c.reltuples, 0))::bigint END
+                        FROM pg_partition_tree(to_regclass(?)) t
+                        JOIN pg_class c ON c.oid = t.relid
+                        WHERE t.isleaf
+                        """,
+                (rs, rowNum) -> rs.getObject(1, Long.class), table);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сбрасывает кэш числа строк grid-таблиц при записи сущности через JPA.
+ * Экземпляр создаёт Hibernate через контейнер бинов Spring, поэтому кэш внедряется конструктором.
+ */
+@RequiredArgsConstructor
+public class GridCountInvalidationListener {
+
+    private final GridCountCache countCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Object entity) {
+        countCache.invalidate(entity.getClass());
+    }
+}
@@ -0,0 +1,89 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.Builder;
+import lombok.Getter;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Описание grid-таблицы для {@link GridQueryEngine}: какие колонки клиент может фильтровать и сортировать
+ * (colId клиента -> путь в сущности), порядок по умолчанию, неявное условие выборки, проекция строк
+ * страницы в DTO, колонки быстрого поиска и группировки и ограничения запроса.
+ * <p>
+ * Подсказок планировщику в PostgreSQL нет: {@code defaultSort} должен совпадать с индексом таблицы,
+ * а {@code hints} - это подсказки JPA/Hibernate (таймаут, fetch size), которые получают оба запроса страницы.
+ */
+@Getter
+@Builder
+public final class GridDescriptor<E, R> {
+
+    // имя таблицы в ключах кэша и комментариях SQL
+    private final String name;
+
+    private final Class<E> entity;
+
+    // таблица БД для оценки числа строк по pg_class
+    private final String table;
+
+    private final Map<String, String> columns;
+
+    private final List<GridTableSortModel> defaultSort;
+
+    // пути текстовых колонок быстрого поиска; пусто - поиск по таблице недоступен
+    @Builder.Default
+    private final List<String> quickFilter = List.of();
+
+    // колонки группировки ag-Grid: colId -> ключ группы; пусто - группировка недоступна
+    @Builder.Default
+    private final Map<String, BiFunction<CriteriaBuilder, Root<E>, Expression<?>>> groups = Map.of();
+
+    // неявное условие (например, роль пользователя); null - вся таблица
+    private final BiFunction<CriteriaBuilder, Root<E>, Predicate> scope;
+
+    // JPQL второй фазы с параметром :ids, алиасы колонок - поля DTO
+    private final String projection;
+
+    private final Function<Tuple, R> mapper;
+
+    private final Function<R, Object> rowId;
+
+    @Builder.Default
+    private final int maxPageSize = 500;
+
+    @Builder.Default
+    private final Map<String, Object> hints = Map.of();
+
+    /**
+     * Колонки, у которых colId клиента совпадает с путём в сущности.
+     */
+    public static Map<String, String> columns(String... paths) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String path : paths) {
+            columns.put(path, path);
+        }
+        return columns;
+    }
+
+    /**
+     * Ключ группы - значение колонки по пути в сущности.
+     */
+    public static <E> BiFunction<CriteriaBuilder, Root<E>, Expression<?>> groupBy(String path) {
+        return (cb, root) -> GridTablePredicateBuilder.resolvePath(root, path);
+    }
+
+    GridCountCache.Grid countGrid() {
+        // у выборки с неявным условием reltuples всей таблицы не подходит
+        return new GridCountCache.Grid(entity, name, scope == null ? table : null);
+    }
+}
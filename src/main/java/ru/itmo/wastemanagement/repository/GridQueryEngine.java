@@ -0,0 +1,428 @@
+package ru.itmo.wastemanagement.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.Query;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableColumn;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+import ru.itmo.wastemanagement.util.GridTableKeyset;
+import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Запросы grid-таблиц по {@link GridDescriptor}. Страница выбирается в две фазы: id и ключи сортировки
+ * (с keyset-курсором и общим числом строк окном) и затем строки DTO по этим id tuple-проекцией.
+ * Выгрузка работает так же, только id читаются курсором целиком, а проекция - пачками.
+ * Уровни группировки ag-Grid считаются агрегатами в базе, строки таблицы для них не читаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class GridQueryEngine {
+
+    // размер пачки выгрузки: fetchSize курсора по id и число id в одной проекции
+    private static final int EXPORT_CHUNK = 1000;
+
+    private static final Set<String> AGG_FUNCS = Set.of("sum", "avg", "min", "max", "count");
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    /**
+     * Условия выборки запроса: фильтры колонок, быстрый поиск и ключи раскрытых групп (колонка - значение).
+     */
+    private record Where(Map<String, Object> filterModel, String quickFilter,
+                         List<String> groupCols, List<Object> groupKeys) {}
+
+    private record Aggregate(String colId, String path, String func) {}
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    private final GridCountCache countCache;
+
+    public <E, R> GridTablePage<R> findPage(GridDescriptor<E, R> grid, GridTableRequest req) {
+        final int pageSize = Math.min(grid.getMaxPageSize(), Math.max(1, req.getEndRow() - req.getStartRow()));
+        final int offset = Math.max(0, req.getStartRow());
+
+        Where where = where(grid, req);
+        List<GridTableSortModel> sortModel = sortModel(grid, req.getSortModel());
+
+        GridCountCache.Plan countPlan = countCache.plan(grid.countGrid(), req);
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<E> root = cq.from(grid.getEntity());
+
+        List<Predicate> predicates = predicates(grid, cb, root, where);
+        List<GridTableKeyset.SortKey> keys = GridTableKeyset.sortKeys(root, sortModel, grid.getDefaultSort());
+        if (req.getCursor() != null) {
+            predicates.add(GridTableKeyset.seekPredicate(cb, keys, req.getCursor()));
+        }
+        if (!predicates.isEmpty()) {
+            cq.where(predicates.toArray(new Predicate[0]));
+        }
+
+        cq.orderBy(GridTableKeyset.orders(cb, keys));
+        cq.multiselect(GridTableKeyset.selection(cb, root, keys, countPlan.window()));
+
+        TypedQuery<Tuple> query = hinted(grid, em.createQuery(cq)).setMaxResults(pageSize);
+        if (req.getCursor() == null) {
+            query.setFirstResult(offset);
+        }
+        List<Tuple> page = query.getResultList();
+        String nextCursor = GridTableKeyset.nextCursor(keys, page, pageSize);
+        Long total = GridTableKeyset.total(page, keys, offset, pageSize, countPlan.window());
+        if (total == null && countPlan.window()) {
+            // страница за концом выборки: окну не по чему считать
+            total = count(grid, where);
+        }
+        GridCountCache.Count count = countCache.complete(countPlan, total, offset + page.size());
+
+        List<Object> ids = page.stream().map(t -> t.get(0)).toList();
+
+        if (ids.isEmpty()) {
+            return new GridTablePage<>(List.of(), null, count.value(), count.exact());
+        }
+
+        // tuple-проекция: строки не попадают в persistence context и не копируются для dirty checking
+        List<R> rows = hinted(grid, em.createQuery(grid.getProjection(), Tuple.class))
+                .setParameter("ids", ids)
+                .getResultList()
+                .stream()
+                .map(grid.getMapper())
+                .toList();
+        List<R> items = GridTableKeyset.inPageOrder(ids, rows, grid.getRowId());
+
+        return new GridTablePage<>(items, nextCursor, count.value(), count.exact());
+    }
+
+    /**
+     * Все строки выборки в порядке сортировки, без пагинации. id читаются серверным курсором
+     * ({@code fetchSize}), строки DTO догружаются проекцией пачками - память не зависит от размера выборки.
+     * Нужна транзакция: без неё драйвер PostgreSQL игнорирует fetchSize и читает всю выборку сразу.
+     */
+    @SuppressWarnings("unchecked")
+    public <E, R> void export(GridDescriptor<E, R> grid, GridTableRequest req, Consumer<R> sink) {
+        Where where = where(grid, req);
+        List<GridTableSortModel> sortModel = sortModel(grid, req.getSortModel());
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Object> cq = cb.createQuery(Object.class);
+        Root<E> root = cq.from(grid.getEntity());
+
+        List<Predicate> predicates = predicates(grid, cb, root, where);
+        if (!predicates.isEmpty()) {
+            cq.where(predicates.toArray(new Predicate[0]));
+        }
+        cq.orderBy(GridTableKeyset.orders(cb, GridTableKeyset.sortKeys(root, sortModel, grid.getDefaultSort())));
+        cq.select(root.get("id"));
+
+        // без hints дескриптора: таймаут страницы оборвал бы долгую выгрузку
+        Query<Object> query = em.createQuery(cq).unwrap(Query.class)
+                .setComment("grid export " + grid.getName())
+                .setFetchSize(EXPORT_CHUNK)
+                .setReadOnly(true);
+
+        List<Object> chunk = new ArrayList<>(EXPORT_CHUNK);
+        try (ScrollableResults<Object> ids = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (ids.next()) {
+                chunk.add(ids.get());
+                if (chunk.size() == EXPORT_CHUNK) {
+                    exportChunk(grid, chunk, sink);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            exportChunk(grid, chunk, sink);
+        }
+    }
+
+    /**
+     * Строки уровня группировки ag-Grid (колонок в rowGroupCols больше, чем groupKeys): ключ группы
+     * следующей колонки, число строк в группе ({@code childCount}) и агрегаты valueCols - одним GROUP BY.
+     * Ключи уже раскрытых уровней - условия выборки, как и фильтры.
+     */
+    public <E> GridTablePage<Map<String, Object>> findGroups(GridDescriptor<E, ?> grid, GridTableRequest req) {
+        if (!req.groupLevel()) {
+            throw new BadRequestException("Все уровни группировки уже раскрыты");
+        }
+        final int pageSize = Math.min(grid.getMaxPageSize(), Math.max(1, req.getEndRow() - req.getStartRow()));
+        final int offset = Math.max(0, req.getStartRow());
+
+        Where where = where(grid, req);
+        String groupCol = groupColumn(grid, req.getRowGroupCols().get(where.groupKeys().size()).getId());
+        List<Aggregate> aggregates = aggregates(grid, req.getValueCols());
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<E> root = cq.from(grid.getEntity());
+
+        Expression<?> key = grid.getGroups().get(groupCol).apply(cb, root);
+        Map<String, Expression<?>> values = new LinkedHashMap<>();
+        for (Aggregate aggregate : aggregates) {
+            values.put(aggregate.colId(), aggregate(cb, root, aggregate));
+        }
+        List<Selection<?>> selection = new ArrayList<>(values.size() + 2);
+        selection.add(key);
+        selection.add(cb.count(root));
+        selection.addAll(values.values());
+
+        List<Predicate> predicates = predicates(grid, cb, root, where);
+        if (!predicates.isEmpty()) {
+            cq.where(predicates.toArray(new Predicate[0]));
+        }
+        cq.multiselect(selection);
+        cq.groupBy(key);
+        cq.orderBy(groupOrders(cb, key, groupCol, values, req.getSortModel()));
+
+        List<Tuple> page = hinted(grid, em.createQuery(cq))
+                .setFirstResult(offset)
+                .setMaxResults(pageSize)
+                .getResultList();
+
+        List<Map<String, Object>> rows = new ArrayList<>(page.size());
+        for (Tuple t : page) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(groupCol, t.get(0));
+            row.put("childCount", t.get(1));
+            int i = 2;
+            for (String colId : values.keySet()) {
+                row.put(colId, t.get(i++));
+            }
+            rows.add(row);
+        }
+
+        // групп обычно немного: неполная страница даёт их число сразу, иначе - отдельный запрос
+        long total = page.size() < pageSize && (!page.isEmpty() || offset == 0)
+                ? offset + page.size()
+                : countGroups(grid, where, groupCol);
+        return new GridTablePage<>(rows, null, total, true);
+    }
+
+    public long count(GridDescriptor<?, ?> grid, GridTableRequest req) {
+        return count(grid, where(grid, req));
+    }
+
+    private <E> long count(GridDescriptor<E, ?> grid, Where where) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<E> root = cq.from(grid.getEntity());
+
+        List<Predicate> predicates = predicates(grid, cb, root, where);
+        if (!predicates.isEmpty()) {
+            cq.where(predicates.toArray(new Predicate[0]));
+        }
+
+        cq.select(cb.count(root));
+        return hinted(grid, em.createQuery(cq)).getSingleResult();
+    }
+
+    private <E> long countGroups(GridDescriptor<E, ?> grid, Where where, String groupCol) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<E> root = cq.from(grid.getEntity());
+
+        Expression<?> key = grid.getGroups().get(groupCol).apply(cb, root);
+        List<Predicate> predicates = predicates(grid, cb, root, where);
+        if (!predicates.isEmpty()) {
+            cq.where(predicates.toArray(new Predicate[0]));
+        }
+        // count(distinct) не считает NULL - группа без ключа добавляется отдельно
+        cq.multiselect(cb.countDistinct(key),
+                cb.max(cb.<Integer>selectCase().when(cb.isNull(key), 1).otherwise(0)));
+
+        Tuple t = hinted(grid, em.createQuery(cq)).getSingleResult();
+        Integer nullGroup = t.get(1, Integer.class);
+        return t.get(0, Long.class) + (nullGroup != null ? nullGroup : 0);
+    }
+
+    private <R> void exportChunk(GridDescriptor<?, R> grid, List<Object> ids, Consumer<R> sink) {
+        List<R> rows = em.createQuery(grid.getProjection(), Tuple.class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .stream()
+                .map(grid.getMapper())
+                .toList();
+        GridTableKeyset.inPageOrder(ids, rows, grid.getRowId()).forEach(sink);
+        // сущностей в сессии нет, но очистка сбрасывает и остальное накопленное за выгрузку состояние
+        em.clear();
+    }
+
+    private static <E> List<Predicate> predicates(GridDescriptor<E, ?> grid, CriteriaBuilder cb, Root<E> root,
+                                                  Where where) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (grid.getScope() != null) {
+            predicates.add(grid.getScope().apply(cb, root));
+        }
+        predicates.addAll(GridTablePredicateBuilder.build(cb, root, where.filterModel()));
+        if (where.quickFilter() != null) {
+            predicates.add(GridTablePredicateBuilder.quickFilter(cb, root, grid.getQuickFilter(), where.quickFilter()));
+        }
+        for (int i = 0; i < where.groupKeys().size(); i++) {
+            Expression<?> key = grid.getGroups().get(where.groupCols().get(i)).apply(cb, root);
+            Object value = where.groupKeys().get(i);
+            predicates.add(value == null ? cb.isNull(key) : cb.equal(key, groupKey(key, value)));
+        }
+        return predicates;
+    }
+
+    private static Where where(GridDescriptor<?, ?> grid, GridTableRequest req) {
+        List<Object> groupKeys = req.getGroupKeys() != null ? req.getGroupKeys() : List.of();
+        List<GridTableColumn> rowGroupCols = req.getRowGroupCols() != null ? req.getRowGroupCols() : List.of();
+        if (groupKeys.size() > rowGroupCols.size()) {
+            throw new BadRequestException("Ключей групп больше, чем колонок группировки");
+        }
+        List<String> groupCols = new ArrayList<>(groupKeys.size());
+        for (int i = 0; i < groupKeys.size(); i++) {
+            groupCols.add(groupColumn(grid, rowGroupCols.get(i).getId()));
+        }
+        return new Where(filterModel(grid, req.getFilterModel()), quickFilter(grid, req.getQuickFilter()),
+                groupCols, groupKeys);
+    }
+
+    private static String groupColumn(GridDescriptor<?, ?> grid, String colId) {
+        if (!grid.getGroups().containsKey(colId)) {
+            throw new BadRequestException("Группировка по колонке недоступна: " + colId);
+        }
+        return colId;
+    }
+
+    // ключ группы приходит из JSON строкой или числом - приводим к типу выражения
+    private static Object groupKey(Expression<?> key, Object value) {
+        try {
+            return MAPPER.convertValue(value, key.getJavaType());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректный ключ группы: " + value);
+        }
+    }
+
+    private static List<Aggregate> aggregates(GridDescriptor<?, ?> grid, List<GridTableColumn> valueCols) {
+        if (valueCols == null || valueCols.isEmpty()) {
+            return List.of();
+        }
+        List<Aggregate> aggregates = new ArrayList<>(valueCols.size());
+        for (GridTableColumn col : valueCols) {
+            if (!AGG_FUNCS.contains(col.getAggFunc())) {
+                throw new BadRequestException("Агрегатная функция недоступна: " + col.getAggFunc());
+            }
+            aggregates.add(new Aggregate(col.getId(), path(grid, col.getId()), col.getAggFunc()));
+        }
+        return aggregates;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<?> aggregate(CriteriaBuilder cb, Root<?> root, Aggregate aggregate) {
+        Path<?> path = GridTablePredicateBuilder.resolvePath(root, aggregate.path());
+        if ("count".equals(aggregate.func())) {
+            return cb.count(path);
+        }
+        Class<?> type = path.getJavaType();
+        if (!Number.class.isAssignableFrom(type)
+                && !(type.isPrimitive() && type != boolean.class && type != char.class)) {
+            throw new BadRequestException("Агрегат " + aggregate.func() + " недоступен для колонки " + aggregate.colId());
+        }
+        Expression<Number> num = (Expression<Number>) path;
+        return switch (aggregate.func()) {
+            case "sum" -> cb.sum(num);
+            case "avg" -> cb.avg(num);
+            case "min" -> cb.min(num);
+            default -> cb.max(num);
+        };
+    }
+
+    // группы сортируются по ключу или агрегату; сортировка по остальным колонкам относится к строкам внутри групп
+    private static List<Order> groupOrders(CriteriaBuilder cb, Expression<?> key, String groupCol,
+                                           Map<String, Expression<?>> values, List<GridTableSortModel> sortModel) {
+        List<Order> orders = new ArrayList<>(2);
+        boolean byKey = false;
+        if (sortModel != null) {
+            for (GridTableSortModel s : sortModel) {
+                Expression<?> exp = groupCol.equals(s.getColId()) ? key : values.get(s.getColId());
+                if (exp != null) {
+                    orders.add("desc".equalsIgnoreCase(s.getSort()) ? cb.desc(exp) : cb.asc(exp));
+                    byKey |= exp == key;
+                }
+            }
+        }
+        if (!byKey) {
+            orders.add(cb.asc(key));
+        }
+        return orders;
+    }
+
+    private static <T> TypedQuery<T> hinted(GridDescriptor<?, ?> grid, TypedQuery<T> query) {
+        // попадает в SQL при hibernate.use_sql_comments - так запросы таблицы видны в pg_stat_statements
+        query.setHint(HibernateHints.HINT_COMMENT, "grid " + grid.getName());
+        grid.getHints().forEach(query::setHint);
+        return query;
+    }
+
+    private static Map<String, Object> filterModel(GridDescriptor<?, ?> grid, Map<String, Object> filterModel) {
+        if (filterModel == null || filterModel.isEmpty()) {
+            return filterModel;
+        }
+        Map<String, Object> mapped = new LinkedHashMap<>(filterModel.size() * 2);
+        filterModel.forEach((colId, filter) -> mapped.put(path(grid, colId), filter));
+        return mapped;
+    }
+
+    private static String quickFilter(GridDescriptor<?, ?> grid, String quickFilter) {
+        if (quickFilter == null || quickFilter.isBlank()) {
+            return null;
+        }
+        if (grid.getQuickFilter().isEmpty()) {
+            throw new BadRequestException("Быстрый поиск по этой таблице недоступен");
+        }
+        return quickFilter;
+    }
+
+    private static List<GridTableSortModel> sortModel(GridDescriptor<?, ?> grid, List<GridTableSortModel> sortModel) {
+        if (sortModel == null || sortModel.isEmpty()) {
+            return sortModel;
+        }
+        List<GridTableSortModel> mapped = new ArrayList<>(sortModel.size());
+        for (GridTableSortModel s : sortModel) {
+            String colId = s.getColId() == null || s.getColId().isBlank() ? "id" : s.getColId();
+            if (!grid.getColumns().containsKey(colId) && grid.getGroups().containsKey(colId)) {
+                // сортировка групп, строки внутри группы идут в своём порядке
+                continue;
+            }
+            mapped.add(new GridTableSortModel(path(grid, colId), s.getSort()));
+        }
+        return mapped;
+    }
+
+    private static String path(GridDescriptor<?, ?> grid, String colId) {
+        String path = grid.getColumns().get(colId);
+        if (path == null) {
+            throw new BadRequestException("Колонка недоступна для фильтрации и сортировки: " + colId);
+        }
+        return path;
+    }
+}
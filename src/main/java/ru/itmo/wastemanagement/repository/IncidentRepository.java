@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.repository;
 
+import jakarta.persistence.Tuple;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -14,8 +15,13 @@ public interface IncidentRepository extends JpaRepository<Incident, Integer> {
     
     List<Incident> findByResolvedFalseOrderByCreatedAtDesc();
     
-    @Query("SELECT i FROM Incident i ORDER BY i.createdAt DESC")
-    List<Incident> findAllOrderByCreatedAtDesc();
+    // колонки IncidentDto без загрузки сущностей: алиасы совпадают с полями DTO
+    @Query("SELECT i.id AS id, s.id AS stopId, s.address AS stopAddress, s.route.id AS routeId, " +
+            "i.type AS type, i.description AS description, i.photoUrl AS photoUrl, " +
+            "u.id AS createdById, u.name AS createdByName, u.login AS createdByLogin, " +
+            "i.createdAt AS createdAt, i.updatedAt AS updatedAt, i.resolved AS resolved, i.resolvedAt AS resolvedAt " +
+            "FROM Incident i LEFT JOIN i.stop s LEFT JOIN i.createdBy u ORDER BY i.createdAt DESC")
+    List<Tuple> findAllRowsOrderByCreatedAtDesc();
     
     @Query("SELECT i FROM Incident i WHERE i.stop.route.id = :routeId ORDER BY i.createdAt DESC")
     List<Incident> findByRouteId(Integer routeId);
@@ -0,0 +1,185 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.JDBCException;
+import org.hibernate.engine.jdbc.spi.SqlExceptionHelper;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.entity.KioskOrder;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Вставка заказов киоска в обход JPA по ключу идемпотентности: один INSERT на заказ или на весь пакет
+ * (с массивами в параметрах). Заказ с уже занятым ключом пропускает триггер, занимающий ключ
+ * в kiosk_order_keys (у секционированной kiosk_orders нет уникального индекса по ключу), - такой заказ
+ * просто не попадает в RETURNING.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KioskOrderBatchRepository {
+
+    private static final String INSERT_ORDERS_SQL = """
+            INSERT INTO kiosk_orders (idempotency_key, garbage_point_id, container_size_id, user_id,
+                                      fraction_id, weight, created_at, status)
+            SELECT t.idempotency_key, t.garbage_point_id, t.container_size_id, t.user_id,
+                   t.fraction_id, t.weight, t.created_at, t.status::order_status
+            FROM unnest(?::uuid[], ?::integer[], ?::bigint[], ?::integer[],
+                        ?::integer[], ?::double precision[], ?::timestamptz[], ?::text[])
+                 AS t(idempotency_key, garbage_point_id, container_size_id, user_id,
+                      fraction_id, weight, created_at, status)
+            RETURNING id, idempotency_key
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager em;
+    private final GridCountCache gridCountCache;
+
+    /**
+     * Вставляет один заказ без предварительных SELECT: ссылки проверяют внешние ключи, вес - CHECK.
+     * Нарушение приходит как {@link org.springframework.dao.DataIntegrityViolationException}, в причине
+     * которой Hibernate указывает имя ограничения.
+     *
+     * @return id нового заказа; null, если заказ с этим ключом идемпотентности уже есть
+     */
+    public Integer insertOrder(Integer garbagePointId, Long containerSizeId, Integer userId, Integer fractionId,
+                               Double weight, UUID idempotencyKey) {
+        NativeQuery<?> query = em.createNativeQuery("""
+                        INSERT INTO kiosk_orders (garbage_point_id, container_size_id, user_id, fraction_id,
+                                                  weight, status, idempotency_key)
+                        VALUES (:pointId, :containerSizeId, :userId, :fractionId, :weight, 'CONFIRMED', :key)
+                        RETURNING id
+                        """)
+                .unwrap(NativeQuery.class);
+        // типы заданы явно: null без типа PostgreSQL не сопоставит с колонкой
+        List<?> ids = query
+                .setParameter("pointId", garbagePointId, StandardBasicTypes.INTEGER)
+                .setParameter("containerSizeId", containerSizeId, StandardBasicTypes.LONG)
+                .setParameter("userId", userId, StandardBasicTypes.INTEGER)
+                .setParameter("fractionId", fractionId, StandardBasicTypes.INTEGER)
+                .setParameter("weight", weight, StandardBasicTypes.DOUBLE)
+                .setParameter("key", idempotencyKey, StandardBasicTypes.UUID)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return null;
+        }
+        // заказ вставлен в обход JPA - слушатель сущности его не видит
+        gridCountCache.invalidate(KioskOrder.class);
+        return ((Number) ids.get(0)).intValue();
+    }
+
+    /**
+     * Вставляет заказы (ключи в пакете не повторяются) и проставляет им id. Заказам, ключ которых уже есть
+     * в таблице, проставляется id существующего заказа. Нужна транзакция: вставка идёт под точкой сохранения.
+     * Нарушение ограничения откатывает весь пакет и приходит так же, как у {@link #insertOrder}.
+     *
+     * @return вставленные этим вызовом заказы
+     */
+    public List<KioskOrder> insertOrders(List<KioskOrder> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        int n = orders.size();
+        UUID[] keys = new UUID[n];
+        Integer[] pointIds = new Integer[n];
+        Long[] containerSizeIds = new Long[n];
+        Integer[] userIds = new Integer[n];
+        Integer[] fractionIds = new Integer[n];
+        Double[] weights = new Double[n];
+        Timestamp[] createdAt = new Timestamp[n];
+        String[] statuses = new String[n];
+        Map<UUID, KioskOrder> byKey = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            KioskOrder o = orders.get(i);
+            keys[i] = o.getIdempotencyKey();
+            pointIds[i] = o.getGarbagePoint().getId();
+            containerSizeIds[i] = o.getContainerSize().getId();
+            userIds[i] = o.getUser() != null ? o.getUser().getId() : null;
+            fractionIds[i] = o.getFraction().getId();
+            weights[i] = o.getWeight();
+            createdAt[i] = Timestamp.valueOf(o.getCreatedAt());
+            statuses[i] = o.getStatus().name();
+            byKey.put(keys[i], o);
+        }
+
+        List<KioskOrder> inserted = new ArrayList<>(n);
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            // нарушение ограничения откатывается до точки сохранения: транзакция пакета остаётся рабочей,
+            // и сервис может проверить заказы заново и повторить вставку
+            Savepoint savepoint = con.setSavepoint();
+            try (PreparedStatement ps = con.prepareStatement(INSERT_ORDERS_SQL)) {
+                ps.setArray(1, con.createArrayOf("uuid", keys));
+                ps.setArray(2, con.createArrayOf("integer", pointIds));
+                ps.setArray(3, con.createArrayOf("bigint", containerSizeIds));
+                ps.setArray(4, con.createArrayOf("integer", userIds));
+                ps.setArray(5, con.createArrayOf("integer", fractionIds));
+                ps.setArray(6, con.createArrayOf("float8", weights));
+                ps.setArray(7, con.createArrayOf("timestamptz", createdAt));
+                ps.setArray(8, con.createArrayOf("text", statuses));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        KioskOrder o = byKey.remove(rs.getObject(2, UUID.class));
+                        o.setId(rs.getInt(1));
+                        inserted.add(o);
+                    }
+                }
+            } catch (SQLException e) {
+                con.rollback(savepoint);
+                // как у insertOrder: в причине - исключение Hibernate с именем ограничения
+                JDBCException converted = sqlExceptionHelper().convert(e, "Batch insert of kiosk orders", INSERT_ORDERS_SQL);
+                if (converted instanceof ConstraintViolationException) {
+                    throw new DataIntegrityViolationException(converted.getMessage(), converted);
+                }
+                throw e;
+            }
+            con.releaseSavepoint(savepoint);
+            return null;
+        });
+
+        if (!inserted.isEmpty()) {
+            // заказы вставлены в обход JPA - слушатель сущности их не видит
+            gridCountCache.invalidate(KioskOrder.class);
+        }
+        if (!byKey.isEmpty()) {
+            findIdsByIdempotencyKeys(byKey.keySet()).forEach((key, id) -> byKey.get(key).setId(id));
+        }
+        return inserted;
+    }
+
+    private SqlExceptionHelper sqlExceptionHelper() {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getSqlExceptionHelper();
+    }
+
+    /**
+     * id заказов по ключам идемпотентности; ключей без заказа в результате нет.
+     */
+    public Map<UUID, Integer> findIdsByIdempotencyKeys(Collection<UUID> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        UUID[] array = keys.toArray(new UUID[0]);
+        Map<UUID, Integer> ids = new HashMap<>(array.length * 2);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT idempotency_key, order_id FROM kiosk_order_keys WHERE idempotency_key = ANY(?)");
+            ps.setArray(1, con.createArrayOf("uuid", array));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getObject(1, UUID.class), rs.getInt(2));
+        });
+        return ids;
+    }
+}
@@ -1,103 +1,88 @@
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderRowDto;
 import ru.itmo.wastemanagement.entity.KioskOrder;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
 
-import java.util.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class KioskOrderGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<KioskOrder> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
-        Root<KioskOrder> root = cq.from(KioskOrder.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                if ("desc".equalsIgnoreCase(s.getSort())) {
-                    orders.add(cb.desc(p));
-                } else {
-                    orders.add(cb.asc(p));
-                }
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(
-                    cb.desc(root.get("createdAt")),
-                    cb.desc(root.get("id"))
-            );
-        }
-
-        cq.select(root.get("id").as(Integer.class));
-
-        List<Integer> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<KioskOrder> items = em.createQuery(
-                        "select ko from KioskOrder ko " +
-                                "left join fetch ko.garbagePoint gp " +
-                                "left join fetch ko.containerSize cs " +
-                                "left join fetch ko.fraction fr " +
-                                "left join fetch ko.user u " +
-                                "where ko.id in :ids",
-                        KioskOrder.class
-                )
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Integer, Integer> rank = new HashMap<>(ids.size() * 2);
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
+    static final GridDescriptor<KioskOrder, KioskOrderRowDto> GRID = GridDescriptor.<KioskOrder, KioskOrderRowDto>builder()
+            .name("kiosk-orders")
+            .entity(KioskOrder.class)
+            .table("kiosk_orders")
+            .columns(Map.ofEntries(
+                    Map.entry("id", "id"),
+                    Map.entry("weight", "weight"),
+                    Map.entry("createdAt", "createdAt"),
+                    Map.entry("status", "status"),
+                    // колонки таблицы названы по полям строки, а не по путям в сущности
+                    Map.entry("garbagePointId", "garbagePoint.id"),
+                    Map.entry("garbagePointAddress", "garbagePoint.address"),
+                    Map.entry("containerSizeId", "containerSize.id"),
+                    Map.entry("containerSizeCode", "containerSize.code"),
+                    Map.entry("containerSizeName", "containerSize.code"),
+                    Map.entry("fractionId", "fraction.id"),
+                    Map.entry("fractionName", "fraction.name"),
+                    Map.entry("userId", "user.id"),
+                    Map.entry("userName", "user.name")))
+            .defaultSort(List.of(
+                    new GridTableSortModel("createdAt", "desc"),
+                    new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("garbagePoint.address", "user.name"))
+            // createdDay - день заказа, отдельной колонки у строки нет
+            .groups(Map.of(
+                    "garbagePointId", GridDescriptor.groupBy("garbagePoint.id"),
+                    "garbagePointAddress", GridDescriptor.groupBy("garbagePoint.address"),
+                    "fractionName", GridDescriptor.groupBy("fraction.name"),
+                    "containerSizeCode", GridDescriptor.groupBy("containerSize.code"),
+                    "status", GridDescriptor.groupBy("status"),
+                    "userName", GridDescriptor.groupBy("user.name"),
+                    "createdDay", (cb, root) -> cb.function("date", LocalDate.class, root.get("createdAt"))))
+            .projection("select ko.id as id, " +
+                    "gp.id as garbagePointId, gp.address as garbagePointAddress, " +
+                    "cs.id as containerSizeId, cs.code as containerSizeCode, " +
+                    "fr.id as fractionId, fr.name as fractionName, " +
+                    "ko.weight as weight, u.id as userId, u.name as userName, " +
+                    "ko.createdAt as createdAt, ko.status as status " +
+                    "from KioskOrder ko " +
+                    "left join ko.garbagePoint gp " +
+                    "left join ko.containerSize cs " +
+                    "left join ko.fraction fr " +
+                    "left join ko.user u " +
+                    "where ko.id in :ids")
+            .mapper(KioskOrderRowDto::fromTuple)
+            .rowId(KioskOrderRowDto::getId)
+            // самая большая таблица: фильтр без подходящего индекса не должен держать соединение
+            .hints(Map.of(SpecHints.HINT_SPEC_QUERY_TIMEOUT, 5_000))
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<KioskOrderRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        items.sort(Comparator.comparingInt(
-                ko -> rank.getOrDefault(ko.getId(), Integer.MAX_VALUE)
-        ));
+    public GridTablePage<Map<String, Object>> findGroupPageByGrid(GridTableRequest req) {
+        return engine.findGroups(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<KioskOrderRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<KioskOrder> root = cq.from(KioskOrder.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
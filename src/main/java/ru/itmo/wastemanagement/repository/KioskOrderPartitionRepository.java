@@ -0,0 +1,43 @@
+package ru.itmo.wastemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.entity.KioskOrder;
+
+import java.util.List;
+
+/**
+ * Месячные секции kiosk_orders: создание впрок и архивация старых (функции kiosk_orders_create_partitions
+ * и kiosk_orders_archive_partitions в init.sql).
+ */
+@Repository
+@RequiredArgsConstructor
+public class KioskOrderPartitionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GridCountCache gridCountCache;
+
+    /**
+     * @return имена созданных секций
+     */
+    public List<String> createPartitions(int monthsBack, int monthsAhead) {
+        return jdbcTemplate.queryForList("SELECT kiosk_orders_create_partitions(?, ?)", String.class,
+                monthsBack, monthsAhead);
+    }
+
+    /**
+     * Переносит в схему archive секции, закончившиеся больше {@code retentionMonths} месяцев назад.
+     *
+     * @return имена перенесённых секций
+     */
+    public List<String> archivePartitions(int retentionMonths) {
+        List<String> archived = jdbcTemplate.queryForList("SELECT kiosk_orders_archive_partitions(?)", String.class,
+                retentionMonths);
+        if (!archived.isEmpty()) {
+            // заказы ушли из таблицы в обход JPA - слушатель сущности их не видит
+            gridCountCache.invalidate(KioskOrder.class);
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Сбрасывает снимок проверки заказов киоска при записи точек сбора и пользователей через JPA.
+ */
+@RequiredArgsConstructor
+public class KioskOrderValidationListener {
+
+    private final KioskOrderValidationSnapshot snapshot;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Object entity) {
+        snapshot.invalidate();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.itmo.wastemanagement.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.entity.enums.UserRole;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Всё, что нужно для проверки заказа киоска без запросов к БД: открытость точек, точка каждого киоска,
+ * принимаемые точками фракции и роли активных пользователей. Загружается тремя запросами при первом
+ * обращении и сбрасывается при записи точек и пользователей: через JPA - {@link KioskOrderValidationListener},
+ * через JDBC - явным {@link #invalidate}. Связи точек и фракций приложение не пишет, их правки в БД
+ * становятся видны не позже чем через {@code ttl-seconds}.
+ */
+@Component
+public class KioskOrderValidationSnapshot {
+
+    public record Point(Integer id, boolean open, Set<Integer> fractions) {}
+
+    public record Snapshot(Map<Integer, Point> points, Map<Integer, Integer> kioskPoints,
+                           Map<Integer, UserRole> activeUsers) {}
+
+    private record Loaded(Snapshot snapshot, long expiresAt) {}
+
+    @Value("${app.kiosk-orders.validation-snapshot.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Loaded loaded;
+    // растёт при каждом сбросе: снимок, загруженный до него, не публикуется
+    private long generation;
+
+    @Autowired
+    public KioskOrderValidationSnapshot(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    KioskOrderValidationSnapshot(JdbcTemplate jdbcTemplate, long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public Snapshot get() {
+        Loaded current = loaded;
+        if (current != null && current.expiresAt() > System.nanoTime()) {
+            return current.snapshot();
+        }
+
+        long started;
+        synchronized (this) {
+            started = generation;
+        }
+        Snapshot fresh = load();
+        synchronized (this) {
+            if (generation == started) {
+                loaded = new Loaded(fresh, System.nanoTime() + ttlSeconds * 1_000_000_000L);
+            }
+        }
+        return fresh;
+    }
+
+    public void invalidate() {
+        evict();
+        // снимок, загруженный параллельно до коммита, прочитал старые строки - сбрасываем ещё раз
+        AfterCommit.run(this::evict);
+    }
+
+    private synchronized void evict() {
+        generation++;
+        loaded = null;
+    }
+
+    private Snapshot load() {
+        Map<Integer, Set<Integer>> fractions = new HashMap<>();
+        jdbcTemplate.query("SELECT garbage_point_id, fraction_id FROM garbage_point_fractions WHERE is_active", rs -> {
+            fractions.computeIfAbsent(rs.getInt(1), id -> new HashSet<>()).add(rs.getInt(2));
+        });
+
+        Map<Integer, Point> points = new HashMap<>();
+        Map<Integer, Integer> kioskPoints = new HashMap<>();
+        // у киоска с несколькими точками заказы идут на точку с меньшим id
+        jdbcTemplate.query("SELECT id, is_open, kiosk_id FROM garbage_points ORDER BY id", rs -> {
+            int id = rs.getInt(1);
+            points.put(id, new Point(id, rs.getBoolean(2), Set.copyOf(fractions.getOrDefault(id, Set.of()))));
+            int kioskId = rs.getInt(3);
+            if (!rs.wasNull()) {
+                kioskPoints.putIfAbsent(kioskId, id);
+            }
+        });
+
+        Map<Integer, UserRole> activeUsers = new HashMap<>();
+        jdbcTemplate.query("SELECT id, role::text FROM users WHERE is_active", rs -> {
+            activeUsers.put(rs.getInt(1), UserRole.valueOf(rs.getString(2)));
+        });
+
+        return new Snapshot(Map.copyOf(points), Map.copyOf(kioskPoints), Map.copyOf(activeUsers));
+    }
+}
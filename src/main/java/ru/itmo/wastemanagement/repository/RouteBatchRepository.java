@@ -0,0 +1,168 @@
+package ru.itmo.wastemanagement.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.entity.GarbagePoint;
+import ru.itmo.wastemanagement.entity.Route;
+import ru.itmo.wastemanagement.entity.RouteStop;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Пакетная запись маршрутов: каждая операция - один SQL-запрос с массивами в параметрах,
+ * независимо от числа строк. Hibernate с IDENTITY вставляет такие сущности по одной.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RouteBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GridCountCache gridCountCache;
+    private final KioskOrderValidationSnapshot kioskOrderValidationSnapshot;
+
+    /**
+     * Вставляет маршруты и проставляет им id.
+     */
+    public void insertRoutes(List<Route> routes) {
+        if (routes.isEmpty()) {
+            return;
+        }
+        int n = routes.size();
+        Date[] plannedDates = new Date[n];
+        Timestamp[] startAt = new Timestamp[n];
+        Timestamp[] endAt = new Timestamp[n];
+        Integer[] driverIds = new Integer[n];
+        Integer[] vehicleIds = new Integer[n];
+        Integer[] shiftIds = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Route r = routes.get(i);
+            plannedDates[i] = Date.valueOf(r.getPlannedDate());
+            startAt[i] = timestamp(r.getPlannedStartAt());
+            endAt[i] = timestamp(r.getPlannedEndAt());
+            driverIds[i] = r.getDriver() != null ? r.getDriver().getId() : null;
+            vehicleIds[i] = r.getVehicle() != null ? r.getVehicle().getId() : null;
+            shiftIds[i] = r.getShift() != null ? r.getShift().getId() : null;
+        }
+
+        List<Integer> ids = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    INSERT INTO routes (planned_date, planned_start_at, planned_end_at, driver_id, vehicle_id, shift_id)
+                    SELECT t.planned_date, t.planned_start_at, t.planned_end_at, t.driver_id, t.vehicle_id, t.shift_id
+                    FROM unnest(?::date[], ?::timestamptz[], ?::timestamptz[], ?::integer[], ?::integer[], ?::integer[])
+                         WITH ORDINALITY AS t(planned_date, planned_start_at, planned_end_at, driver_id, vehicle_id, shift_id, ord)
+                    ORDER BY t.ord
+                    RETURNING id
+                    """);
+            ps.setArray(1, con.createArrayOf("date", plannedDates));
+            ps.setArray(2, con.createArrayOf("timestamptz", startAt));
+            ps.setArray(3, con.createArrayOf("timestamptz", endAt));
+            ps.setArray(4, con.createArrayOf("integer", driverIds));
+            ps.setArray(5, con.createArrayOf("integer", vehicleIds));
+            ps.setArray(6, con.createArrayOf("integer", shiftIds));
+            return ps;
+        }, (rs, rowNum) -> rs.getInt(1));
+
+        // id из последовательности выдаются в порядке вставки
+        Collections.sort(ids);
+        for (int i = 0; i < n; i++) {
+            routes.get(i).setId(ids.get(i));
+        }
+    }
+
+    /**
+     * Вставляет остановки (маршруты уже должны иметь id) и проставляет им id.
+     */
+    public void insertStops(List<RouteStop> stops) {
+        if (stops.isEmpty()) {
+            return;
+        }
+        int n = stops.size();
+        Integer[] routeIds = new Integer[n];
+        Integer[] seqNos = new Integer[n];
+        Integer[] pointIds = new Integer[n];
+        String[] addresses = new String[n];
+        Timestamp[] timeFrom = new Timestamp[n];
+        Timestamp[] timeTo = new Timestamp[n];
+        Integer[] expected = new Integer[n];
+        Map<Long, RouteStop> byKey = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            RouteStop s = stops.get(i);
+            routeIds[i] = s.getRoute().getId();
+            seqNos[i] = s.getSeqNo();
+            pointIds[i] = s.getGarbagePoint() != null ? s.getGarbagePoint().getId() : null;
+            addresses[i] = s.getAddress();
+            timeFrom[i] = timestamp(s.getTimeFrom());
+            timeTo[i] = timestamp(s.getTimeTo());
+            expected[i] = s.getExpectedCapacity();
+            byKey.put(key(routeIds[i], seqNos[i]), s);
+        }
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    INSERT INTO route_stops (route_id, seq_no, garbage_point_id, address, time_from, time_to, expected_capacity)
+                    SELECT * FROM unnest(?::integer[], ?::integer[], ?::integer[], ?::text[],
+                                         ?::timestamptz[], ?::timestamptz[], ?::integer[])
+                    RETURNING id, route_id, seq_no
+                    """);
+            ps.setArray(1, con.createArrayOf("integer", routeIds));
+            ps.setArray(2, con.createArrayOf("integer", seqNos));
+            ps.setArray(3, con.createArrayOf("integer", pointIds));
+            ps.setArray(4, con.createArrayOf("text", addresses));
+            ps.setArray(5, con.createArrayOf("timestamptz", timeFrom));
+            ps.setArray(6, con.createArrayOf("timestamptz", timeTo));
+            ps.setArray(7, con.createArrayOf("integer", expected));
+            return ps;
+        }, rs -> {
+            byKey.get(key(rs.getInt(2), rs.getInt(3))).setId(rs.getInt(1));
+        });
+    }
+
+    /**
+     * Снимает точки с приёма заказов одним UPDATE.
+     */
+    public int closeGarbagePoints(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        gridCountCache.invalidate(GarbagePoint.class);
+        kioskOrderValidationSnapshot.invalidate();
+        Integer[] array = ids.toArray(new Integer[0]);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("UPDATE garbage_points SET is_open = false WHERE id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("integer", array));
+            return ps;
+        });
+    }
+
+    /**
+     * Закрывает только ещё открытые точки и возвращает их id. Точки, которые успел закрыть
+     * параллельный маршрут, в результат не попадают.
+     */
+    public List<Integer> claimGarbagePoints(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        gridCountCache.invalidate(GarbagePoint.class);
+        kioskOrderValidationSnapshot.invalidate();
+        Integer[] array = ids.toArray(new Integer[0]);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "UPDATE garbage_points SET is_open = false WHERE id = ANY(?) AND is_open RETURNING id");
+            ps.setArray(1, con.createArrayOf("integer", array));
+            return ps;
+        }, (rs, rowNum) -> rs.getInt(1));
+    }
+
+    private static long key(int routeId, int seqNo) {
+        return ((long) routeId << 32) | (seqNo & 0xffffffffL);
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
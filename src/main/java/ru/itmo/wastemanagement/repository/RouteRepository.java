@@ -1,14 +1,23 @@
 package ru.itmo.wastemanagement.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.itmo.wastemanagement.entity.Route;
 import ru.itmo.wastemanagement.entity.enums.RouteStatus;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RouteRepository extends JpaRepository<Route, Integer> {
     List<Route> findByDriver_Id(Integer driverId);
     List<Route> findByShift_IdAndStatusIn(Integer shiftId, List<RouteStatus> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Route r where r.id = :id")
+    Optional<Route> findByIdForUpdate(@Param("id") Integer id);
 }
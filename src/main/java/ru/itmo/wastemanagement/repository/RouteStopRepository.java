@@ -1,9 +1,13 @@
 package ru.itmo.wastemanagement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.itmo.wastemanagement.entity.RouteStop;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 
@@ -12,4 +16,19 @@ public interface RouteStopRepository extends JpaRepository<RouteStop, Integer> {
     List<RouteStop> findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(Collection<Integer> routeIds);
 
     void deleteByRoute_Id(Integer routeId);
+
+    @Query("""
+            select rs from RouteStop rs
+            join fetch rs.route r
+            left join fetch r.vehicle
+            left join fetch rs.garbagePoint
+            where r.status = ru.itmo.wastemanagement.entity.enums.RouteStatus.planned
+              and r.plannedDate >= :from
+            order by r.id, rs.seqNo
+            """)
+    List<RouteStop> findPlannedStopsFrom(@Param("from") LocalDate from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update RouteStop rs set rs.seqNo = rs.seqNo + :delta where rs.route.id = :routeId and rs.seqNo >= :fromSeq")
+    int shiftSeqNo(@Param("routeId") Integer routeId, @Param("fromSeq") int fromSeq, @Param("delta") int delta);
 }
@@ -1,94 +1,46 @@
 package ru.itmo.wastemanagement.repository;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
 import ru.itmo.wastemanagement.entity.Vehicle;
-import ru.itmo.wastemanagement.util.GridTablePredicateBuilder;
 
-import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class VehicleGridRepository {
 
-    @PersistenceContext
-    private final EntityManager em;
-
-    public List<Vehicle> findPageByGrid(GridTableRequest req) {
-        final int pageSize = Math.max(1, req.getEndRow() - req.getStartRow());
-        final int offset = Math.max(0, req.getStartRow());
-
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
-        Root<Vehicle> root = cq.from(Vehicle.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        if (req.getSortModel() != null && !req.getSortModel().isEmpty()) {
-            List<Order> orders = new ArrayList<>();
-            req.getSortModel().forEach(s -> {
-                Path<?> p = GridTablePredicateBuilder.resolvePath(root, s.getColId());
-                if ("desc".equalsIgnoreCase(s.getSort())) {
-                    orders.add(cb.desc(p));
-                } else {
-                    orders.add(cb.asc(p));
-                }
-            });
-            cq.orderBy(orders);
-        } else {
-            cq.orderBy(cb.desc(root.get("id")));
-        }
-
-        cq.select(root.get("id"));
-
-        List<Integer> ids = em.createQuery(cq)
-                .setFirstResult(offset)
-                .setMaxResults(pageSize)
-                .getResultList();
-
-        if (ids.isEmpty()) {
-            return List.of();
-        }
-
-        List<Vehicle> items = em.createQuery(
-                        "select v from Vehicle v where v.id in :ids",
-                        Vehicle.class)
-                .setParameter("ids", ids)
-                .getResultList();
-
-        Map<Integer, Integer> rank = new HashMap<>(ids.size() * 2);
-        for (int i = 0; i < ids.size(); i++) {
-            rank.put(ids.get(i), i);
-        }
-
-        items.sort(Comparator.comparingInt(
-                v -> rank.getOrDefault(v.getId(), Integer.MAX_VALUE)
-        ));
+    static final GridDescriptor<Vehicle, VehicleRowDto> GRID = GridDescriptor.<Vehicle, VehicleRowDto>builder()
+            .name("vehicles")
+            .entity(Vehicle.class)
+            .table("vehicles")
+            .columns(GridDescriptor.columns(
+                    "id", "plateNumber", "name", "capacity", "active", "createdAt"))
+            .defaultSort(List.of(new GridTableSortModel("id", "desc")))
+            .quickFilter(List.of("plateNumber", "name"))
+            .projection("select v.id as id, v.plateNumber as plateNumber, v.name as name, " +
+                    "v.capacity as capacity, v.active as active, v.createdAt as createdAt " +
+                    "from Vehicle v where v.id in :ids")
+            .mapper(VehicleRowDto::fromTuple)
+            .rowId(VehicleRowDto::getId)
+            .build();
+
+    private final GridQueryEngine engine;
+
+    public GridTablePage<VehicleRowDto> findPageByGrid(GridTableRequest req) {
+        return engine.findPage(GRID, req);
+    }
 
-        return items;
+    public void exportByGrid(GridTableRequest req, Consumer<VehicleRowDto> sink) {
+        engine.export(GRID, req, sink);
     }
 
     public long countByGrid(GridTableRequest req) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
-        Root<Vehicle> root = cq.from(Vehicle.class);
-
-        List<Predicate> predicates =
-                GridTablePredicateBuilder.build(cb, root, req.getFilterModel());
-        if (!predicates.isEmpty()) {
-            cq.where(predicates.toArray(new Predicate[0]));
-        }
-
-        cq.select(cb.count(root));
-        return em.createQuery(cq).getSingleResult();
+        return engine.count(GRID, req);
     }
 }
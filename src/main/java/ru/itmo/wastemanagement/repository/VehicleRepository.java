@@ -1,9 +1,13 @@
 package ru.itmo.wastemanagement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.itmo.wastemanagement.entity.Vehicle;
 
 public interface VehicleRepository extends JpaRepository<Vehicle, Integer> {
 
     boolean existsByPlateNumber(String plateNumber);
+
+    @Query("select max(v.capacity) from Vehicle v where v.active = true")
+    Integer findMaxActiveCapacity();
 }
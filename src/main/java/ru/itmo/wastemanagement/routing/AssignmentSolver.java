@@ -0,0 +1,127 @@
+package ru.itmo.wastemanagement.routing;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+
+/**
+ * Задача о назначениях (венгерский алгоритм, O(n²·m)): каждой строке - не более одного столбца
+ * с минимальной суммарной стоимостью. Недопустимые пары задаются {@code Double.POSITIVE_INFINITY}.
+ * Сначала максимизируется число допустимых пар, затем минимизируется их стоимость.
+ */
+@UtilityClass
+public final class AssignmentSolver {
+
+    /**
+     * @param cost матрица rows x cols
+     * @return для каждой строки индекс столбца или -1, если допустимой пары не нашлось
+     */
+    public static int[] assign(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        if (rows == 0 || cols == 0) {
+            return result;
+        }
+
+        // алгоритму нужно строк не больше, чем столбцов - иначе решаем транспонированную задачу
+        boolean transposed = rows > cols;
+        int n = transposed ? cols : rows;
+        int m = transposed ? rows : cols;
+        double[][] a = new double[n][m];
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double[] row : cost) {
+            for (double c : row) {
+                if (c != Double.POSITIVE_INFINITY) {
+                    min = Math.min(min, c);
+                    max = Math.max(max, c);
+                }
+            }
+        }
+        if (min == Double.POSITIVE_INFINITY) {
+            return result;
+        }
+        // штраф больше любой суммы допустимых стоимостей: лишняя допустимая пара всегда выгоднее
+        double penalty = (max - min + 1) * (n + 1);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double c = transposed ? cost[j][i] : cost[i][j];
+                a[i][j] = c == Double.POSITIVE_INFINITY ? penalty : c - min;
+            }
+        }
+
+        int[] match = solve(a, n, m);
+        for (int j = 0; j < m; j++) {
+            int i = match[j];
+            if (i < 0 || a[i][j] >= penalty) {
+                continue;
+            }
+            if (transposed) {
+                result[j] = i;
+            } else {
+                result[i] = j;
+            }
+        }
+        return result;
+    }
+
+    // потенциалы u/v, p[j] - строка, назначенная столбцу j (индексы с 1, 0 - фиктивный столбец)
+    private static int[] solve(double[][] a, int n, int m) {
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.POSITIVE_INFINITY;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double cur = a[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] match = new int[m];
+        for (int j = 1; j <= m; j++) {
+            match[j - 1] = p[j] - 1;
+        }
+        return match;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.itmo.wastemanagement.routing;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Планирование "сначала кластеры, потом маршруты": точки делятся k-means на географические
+ * кластеры, маршруты каждого кластера строятся {@link RouteSolver} параллельно в ForkJoinPool.
+ * Результат собирается в порядке кластеров, поэтому при одном seed он воспроизводим.
+ */
+@Component
+public class ClusteredRoutePlanner {
+
+    @Value("${app.routing.cluster-size:300}")
+    private int clusterSize = 300;
+
+    @Value("${app.routing.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.routing.seed:42}")
+    private long seed = 42;
+
+    private ForkJoinPool pool;
+
+    public ClusteredRoutePlanner() {
+    }
+
+    public ClusteredRoutePlanner(int clusterSize, int parallelism, long seed) {
+        this.clusterSize = clusterSize;
+        this.parallelism = parallelism;
+        this.seed = seed;
+    }
+
+    public RouteSolver.Solution plan(List<RouteSolver.Point> points, double depotLat, double depotLon,
+                                     double vehicleCapacity, int maxStops, DistanceLookup distances) {
+        RouteSolver solver = new RouteSolver(vehicleCapacity, maxStops, distances);
+        int k = clusterSize > 0 ? (points.size() + clusterSize - 1) / clusterSize : 1;
+        if (k <= 1) {
+            return solver.solve(points, depotLat, depotLon);
+        }
+
+        double[] lat = new double[points.size()];
+        double[] lon = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            lat[i] = points.get(i).lat();
+            lon[i] = points.get(i).lon();
+        }
+        int[] clusterOf = PointClusterer.cluster(lat, lon, k, seed);
+
+        List<List<RouteSolver.Point>> clusters = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            while (clusters.size() <= clusterOf[i]) {
+                clusters.add(new ArrayList<>());
+            }
+            clusters.get(clusterOf[i]).add(points.get(i));
+        }
+
+        ForkJoinPool executor = pool();
+        List<ForkJoinTask<RouteSolver.Solution>> tasks = new ArrayList<>(clusters.size());
+        for (List<RouteSolver.Point> cluster : clusters) {
+            tasks.add(executor.submit(() -> solver.solve(cluster, depotLat, depotLon)));
+        }
+
+        List<RouteSolver.PlannedRoute> routes = new ArrayList<>();
+        double total = 0;
+        for (ForkJoinTask<RouteSolver.Solution> task : tasks) {
+            RouteSolver.Solution part = task.join();
+            routes.addAll(part.routes());
+            total += part.totalDistanceKm();
+        }
+        return new RouteSolver.Solution(routes, total);
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.itmo.wastemanagement.routing;
+
+/**
+ * Доступ к заранее посчитанным расстояниям между точками по плотным индексам (слотам).
+ */
+public interface DistanceLookup {
+
+    /**
+     * Слот точки или -1, если точки нет в кэше.
+     */
+    int slotOf(int pointId);
+
+    double distanceKm(int slotA, int slotB);
+}
@@ -0,0 +1,361 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Матрица расстояний между точками по плотным слотам.
+ * <p>
+ * Пока укладывается в бюджет памяти, хранится полный нижний треугольник во flat {@code float[]}
+ * (при росте меняется только хвост массива). Иначе, или если явно задано {@code nearest > 0},
+ * для каждой точки хранятся только k ближайших соседей, а остальные пары считаются
+ * по сохранённым координатам. Класс не потокобезопасен.
+ */
+public final class DistanceMatrix implements DistanceLookup {
+
+    public static final int DEFAULT_NEAREST = 64;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final long maxBytes;
+    private final int k;
+    private final boolean neighboursOnly;
+    private boolean full;
+
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private int[] idBySlot = new int[0];
+    private double[] lat = new double[0];
+    private double[] lon = new double[0];
+    // радианы и косинус широты заранее - haversine без лишней тригонометрии
+    private double[] latRad = new double[0];
+    private double[] lonRad = new double[0];
+    private double[] cosLat = new double[0];
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int slotCount;
+
+    // полный режим: нижний треугольник, пара (a > b) лежит по индексу a * (a - 1) / 2 + b
+    private float[] tri = new float[0];
+
+    // режим k ближайших: списки соседей отсортированы по расстоянию
+    private int[] nbSlot = new int[0];
+    private float[] nbDist = new float[0];
+    private int[] nbCount = new int[0];
+
+    /**
+     * @param maxBytes бюджет под полную матрицу, {@code <= 0} - без ограничения
+     * @param nearest  сколько соседей хранить; {@code 0} - полная матрица, пока хватает бюджета
+     */
+    public DistanceMatrix(long maxBytes, int nearest) {
+        this.maxBytes = maxBytes;
+        this.k = nearest > 0 ? nearest : DEFAULT_NEAREST;
+        this.neighboursOnly = nearest > 0;
+        this.full = !neighboursOnly;
+    }
+
+    /**
+     * Полная загрузка с нуля. Существующие данные сбрасываются.
+     */
+    public void load(int[] ids, double[] lats, double[] lons) {
+        int n = ids.length;
+        slotById.clear();
+        slotCount = 0;
+        freeCount = 0;
+        idBySlot = new int[0];
+        tri = new float[0];
+        nbSlot = new int[0];
+        nbDist = new float[0];
+        nbCount = new int[0];
+        full = !neighboursOnly && fitsBudget(n);
+        ensureCapacity(n);
+        for (int s = 0; s < n; s++) {
+            idBySlot[s] = ids[s];
+            setCoordinates(s, lats[s], lons[s]);
+            slotById.put(ids[s], s);
+        }
+        slotCount = n;
+
+        if (full) {
+            for (int a = 1; a < n; a++) {
+                fillRow(a);
+            }
+        } else {
+            buildAllNeighbours();
+        }
+    }
+
+    /**
+     * Добавляет точку или обновляет её координаты: пересчитываются только её строка и столбец.
+     */
+    public void put(int id, double pointLat, double pointLon) {
+        Integer existing = slotById.get(id);
+        int s;
+        if (existing != null) {
+            s = existing;
+        } else {
+            s = allocateSlot();
+            if (s < 0) {
+                // бюджет кончился, матрица перестроена в режим соседей
+                s = allocateSlot();
+            }
+            idBySlot[s] = id;
+            slotById.put(id, s);
+        }
+        setCoordinates(s, pointLat, pointLon);
+
+        if (full) {
+            fillRow(s);
+        } else {
+            patchNeighbours(s, existing != null);
+        }
+    }
+
+    public void remove(int id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        int s = slot;
+        idBySlot[s] = -1;
+        freeSlots[freeCount++] = s;
+
+        if (!full) {
+            nbCount[s] = 0;
+            for (int t = 0; t < slotCount; t++) {
+                if (idBySlot[t] >= 0 && indexOfNeighbour(t, s) >= 0) {
+                    rebuildNeighbours(t);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    public boolean isFullMatrix() {
+        return full;
+    }
+
+    @Override
+    public int slotOf(int pointId) {
+        Integer slot = slotById.get(pointId);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * В полном режиме O(1). В режиме соседей пара ищется линейным проходом по спискам обеих точек,
+     * то есть O(k): списки лежат подряд в одном массиве и при k порядка {@link #DEFAULT_NEAREST}
+     * проход дешевле отдельного индекса на каждый слот, который съел бы экономию памяти этого режима.
+     */
+    @Override
+    public double distanceKm(int a, int b) {
+        if (a == b) {
+            return 0;
+        }
+        if (full) {
+            return a > b ? tri[triIndex(a, b)] : tri[triIndex(b, a)];
+        }
+        int pos = indexOfNeighbour(a, b);
+        if (pos >= 0) {
+            return nbDist[a * k + pos];
+        }
+        pos = indexOfNeighbour(b, a);
+        if (pos >= 0) {
+            return nbDist[b * k + pos];
+        }
+        return haversine(a, b);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int needed = slotCount + 1;
+        if (full && !fitsBudget(needed)) {
+            switchToNeighbours();
+            return -1;
+        }
+        ensureCapacity(needed);
+        return slotCount++;
+    }
+
+    private void ensureCapacity(int needed) {
+        int capacity = idBySlot.length;
+        if (needed <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(needed, Math.max(MIN_CAPACITY, capacity * 2));
+        if (full && !fitsBudget(newCapacity)) {
+            // у края бюджета растём до наибольшей ёмкости, которая в него ещё входит,
+            // а не на один слот - иначе каждая вставка копировала бы весь треугольник
+            newCapacity = largestCapacityInBudget(needed, newCapacity);
+        }
+
+        idBySlot = Arrays.copyOf(idBySlot, newCapacity);
+        Arrays.fill(idBySlot, capacity, newCapacity, -1);
+        lat = Arrays.copyOf(lat, newCapacity);
+        lon = Arrays.copyOf(lon, newCapacity);
+        latRad = Arrays.copyOf(latRad, newCapacity);
+        lonRad = Arrays.copyOf(lonRad, newCapacity);
+        cosLat = Arrays.copyOf(cosLat, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+        if (full) {
+            tri = Arrays.copyOf(tri, (int) triSize(newCapacity));
+        } else {
+            nbSlot = Arrays.copyOf(nbSlot, newCapacity * k);
+            nbDist = Arrays.copyOf(nbDist, newCapacity * k);
+            nbCount = Arrays.copyOf(nbCount, newCapacity);
+        }
+    }
+
+    private boolean fitsBudget(int slots) {
+        long size = triSize(slots);
+        if (size > Integer.MAX_VALUE - 8) {
+            return false;
+        }
+        return maxBytes <= 0 || size * Float.BYTES <= maxBytes;
+    }
+
+    // fitsBudget монотонна по числу слотов; from сам в бюджет входит, to - уже нет
+    private int largestCapacityInBudget(int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (fitsBudget(mid)) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long triSize(int slots) {
+        return (long) slots * (slots - 1) / 2;
+    }
+
+    private static int triIndex(int a, int b) {
+        return (int) ((long) a * (a - 1) / 2 + b);
+    }
+
+    private void fillRow(int s) {
+        for (int t = 0; t < slotCount; t++) {
+            if (t == s || idBySlot[t] < 0) {
+                continue;
+            }
+            float d = (float) haversine(s, t);
+            tri[s > t ? triIndex(s, t) : triIndex(t, s)] = d;
+        }
+    }
+
+    private void switchToNeighbours() {
+        full = false;
+        tri = new float[0];
+        int capacity = idBySlot.length;
+        nbSlot = new int[capacity * k];
+        nbDist = new float[capacity * k];
+        nbCount = new int[capacity];
+        buildAllNeighbours();
+    }
+
+    private void buildAllNeighbours() {
+        int[] used = new int[slotCount];
+        int n = 0;
+        for (int s = 0; s < slotCount; s++) {
+            if (idBySlot[s] >= 0) {
+                used[n++] = s;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+        double[] usedLat = new double[n];
+        double[] usedLon = new double[n];
+        for (int i = 0; i < n; i++) {
+            usedLat[i] = lat[used[i]];
+            usedLon[i] = lon[used[i]];
+        }
+
+        NeighbourGrid grid = new NeighbourGrid(usedLat, usedLon);
+        int limit = Math.min(k, n - 1);
+        int[] nb = new int[Math.max(1, limit)];
+        double[] nbDist2 = new double[nb.length];
+        for (int i = 0; i < n; i++) {
+            int s = used[i];
+            nbCount[s] = 0;
+            int found = limit > 0 ? grid.nearest(i, nb, nbDist2) : 0;
+            for (int t = 0; t < found; t++) {
+                insertNeighbour(s, used[nb[t]], haversine(s, used[nb[t]]));
+            }
+        }
+    }
+
+    private void patchNeighbours(int s, boolean moved) {
+        rebuildNeighbours(s);
+        for (int t = 0; t < slotCount; t++) {
+            if (t == s || idBySlot[t] < 0) {
+                continue;
+            }
+            if (moved && indexOfNeighbour(t, s) >= 0) {
+                // точка уехала - её место у соседа мог занять кто-то другой
+                rebuildNeighbours(t);
+            } else {
+                insertNeighbour(t, s, haversine(t, s));
+            }
+        }
+    }
+
+    private void rebuildNeighbours(int s) {
+        nbCount[s] = 0;
+        for (int t = 0; t < slotCount; t++) {
+            if (t != s && idBySlot[t] >= 0) {
+                insertNeighbour(s, t, haversine(s, t));
+            }
+        }
+    }
+
+    private void insertNeighbour(int s, int t, double d) {
+        int base = s * k;
+        int count = nbCount[s];
+        if (count == k && d >= nbDist[base + k - 1]) {
+            return;
+        }
+        int pos = Math.min(count, k - 1);
+        while (pos > 0 && nbDist[base + pos - 1] > d) {
+            nbSlot[base + pos] = nbSlot[base + pos - 1];
+            nbDist[base + pos] = nbDist[base + pos - 1];
+            pos--;
+        }
+        nbSlot[base + pos] = t;
+        nbDist[base + pos] = (float) d;
+        nbCount[s] = Math.min(count + 1, k);
+    }
+
+    private int indexOfNeighbour(int s, int t) {
+        int base = s * k;
+        for (int i = 0; i < nbCount[s]; i++) {
+            if (nbSlot[base + i] == t) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setCoordinates(int s, double pointLat, double pointLon) {
+        lat[s] = pointLat;
+        lon[s] = pointLon;
+        latRad[s] = Math.toRadians(pointLat);
+        lonRad[s] = Math.toRadians(pointLon);
+        cosLat[s] = Math.cos(latRad[s]);
+    }
+
+    private double haversine(int a, int b) {
+        double sinLat = Math.sin((latRad[b] - latRad[a]) / 2);
+        double sinLon = Math.sin((lonRad[b] - lonRad[a]) / 2);
+        double h = sinLat * sinLat + cosLat[a] * cosLat[b] * sinLon * sinLon;
+        return 2 * GeoDistance.EARTH_RADIUS_KM * Math.asin(Math.min(1d, Math.sqrt(h)));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.itmo.wastemanagement.routing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.repository.GarbagePointRepository;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Кэш расстояний между всеми точками сбора с координатами.
+ * Загружается лениво при первом чтении, дальше патчится при изменении точек.
+ */
+@Component
+@RequiredArgsConstructor
+public class GarbagePointDistanceCache {
+
+    private final GarbagePointRepository garbagePointRepository;
+
+    @Value("${app.routing.distance-cache.max-mb:64}")
+    private long maxMegabytes = 64;
+
+    @Value("${app.routing.distance-cache.nearest:0}")
+    private int nearest;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private DistanceMatrix matrix;
+
+    /**
+     * Выполняет действие под блокировкой чтения: пока оно работает, матрица не меняется.
+     */
+    public <T> T read(Function<DistanceLookup, T> action) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return action.apply(matrix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void pointSaved(Integer id, Double lat, Double lon) {
+        if (id == null) {
+            return;
+        }
+        AfterCommit.run(() -> write(m -> {
+            if (lat != null && lon != null) {
+                m.put(id, lat, lon);
+            } else {
+                m.remove(id);
+            }
+        }));
+    }
+
+    public void pointDeleted(Integer id) {
+        if (id == null) {
+            return;
+        }
+        AfterCommit.run(() -> write(m -> m.remove(id)));
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (matrix != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (matrix != null) {
+                return;
+            }
+            List<Object[]> rows = garbagePointRepository.findAllCoordinates();
+            int[] ids = new int[rows.size()];
+            double[] lats = new double[rows.size()];
+            double[] lons = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] row = rows.get(i);
+                ids[i] = ((Number) row[0]).intValue();
+                lats[i] = ((Number) row[1]).doubleValue();
+                lons[i] = ((Number) row[2]).doubleValue();
+            }
+            DistanceMatrix loaded = new DistanceMatrix(maxMegabytes * 1024 * 1024, nearest);
+            loaded.load(ids, lats, lons);
+            matrix = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Consumer<DistanceMatrix> change) {
+        lock.writeLock().lock();
+        try {
+            // ещё не загружен - при загрузке прочитается актуальное состояние
+            if (matrix != null) {
+                change.accept(matrix);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.itmo.wastemanagement.routing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.repository.GarbagePointRepository;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Пространственный индекс точек сбора с координатами для поиска ближайших открытых точек.
+ * Загружается лениво при первом запросе, дальше обновляется на месте после коммита изменений
+ * координат и is_open.
+ */
+@Component
+@RequiredArgsConstructor
+public class GarbagePointSpatialIndex {
+
+    private final GarbagePointRepository garbagePointRepository;
+
+    // 0.01° - около 1 км по широте
+    @Value("${app.routing.spatial-index.cell-degrees:0.01}")
+    private double cellDegrees = 0.01;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SpatialGrid grid;
+
+    public List<SpatialGrid.Neighbour> nearest(double lat, double lon, int k, IntPredicate filter) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return grid.nearest(lat, lon, k, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void pointSaved(Integer id, Double lat, Double lon, boolean open) {
+        if (id == null) {
+            return;
+        }
+        AfterCommit.run(() -> write(g -> {
+            if (lat != null && lon != null) {
+                g.put(id, lat, lon, open);
+            } else {
+                g.remove(id);
+            }
+        }));
+    }
+
+    public void pointDeleted(Integer id) {
+        if (id == null) {
+            return;
+        }
+        AfterCommit.run(() -> write(g -> g.remove(id)));
+    }
+
+    public void openChanged(Collection<Integer> ids, boolean open) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Integer> copy = List.copyOf(ids);
+        AfterCommit.run(() -> write(g -> copy.forEach(id -> g.setOpen(id, open))));
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (grid != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (grid != null) {
+                return;
+            }
+            SpatialGrid loaded = new SpatialGrid(cellDegrees);
+            for (Object[] row : garbagePointRepository.findAllLocations()) {
+                loaded.put(((Number) row[0]).intValue(),
+                        ((Number) row[1]).doubleValue(),
+                        ((Number) row[2]).doubleValue(),
+                        Boolean.TRUE.equals(row[3]));
+            }
+            grid = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Consumer<SpatialGrid> change) {
+        lock.writeLock().lock();
+        try {
+            // ещё не загружен - при загрузке прочитается актуальное состояние
+            if (grid != null) {
+                change.accept(grid);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.Arrays;
+
+/**
+ * Равномерная сетка по спроецированным (x, y) координатам в км.
+ * Нужна для поиска k ближайших соседей без перебора всех пар.
+ */
+final class NeighbourGrid {
+
+    private static final int MAX_CELLS_PER_AXIS = 2048;
+
+    private final double[] x;
+    private final double[] y;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    NeighbourGrid(double[] lat, double[] lon) {
+        int n = lat.length;
+        this.x = new double[n];
+        this.y = new double[n];
+
+        double meanLat = 0;
+        for (double v : lat) {
+            meanLat += v;
+        }
+        meanLat = n > 0 ? meanLat / n : 0;
+        double kmPerLon = 111.320 * Math.cos(Math.toRadians(meanLat));
+        double kmPerLat = 110.574;
+
+        double mnX = Double.MAX_VALUE, mnY = Double.MAX_VALUE, mxX = -Double.MAX_VALUE, mxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * kmPerLon;
+            y[i] = lat[i] * kmPerLat;
+            mnX = Math.min(mnX, x[i]);
+            mnY = Math.min(mnY, y[i]);
+            mxX = Math.max(mxX, x[i]);
+            mxY = Math.max(mxY, y[i]);
+        }
+        if (n == 0) {
+            mnX = mnY = mxX = mxY = 0;
+        }
+        this.minX = mnX;
+        this.minY = mnY;
+
+        double width = Math.max(mxX - mnX, 1e-6);
+        double height = Math.max(mxY - mnY, 1e-6);
+        // ~2 точки на ячейку
+        double size = Math.sqrt(width * height * 2 / Math.max(1, n));
+        size = Math.max(size, Math.max(width, height) / MAX_CELLS_PER_AXIS);
+        this.cellSize = Math.max(size, 1e-6);
+        this.cols = Math.max(1, (int) (width / cellSize) + 1);
+        this.rows = Math.max(1, (int) (height / cellSize) + 1);
+
+        int[] counts = new int[cols * rows + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cellIndex(col(x[i]), row(y[i]));
+            counts[cellOf[i] + 1]++;
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        this.cellStart = counts;
+        this.cellItems = new int[n];
+        int[] fill = Arrays.copyOf(counts, counts.length);
+        for (int i = 0; i < n; i++) {
+            cellItems[fill[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Записывает в {@code out} до {@code out.length} ближайших к точке {@code i} соседей
+     * (ближайшие первыми) и возвращает их количество.
+     */
+    int nearest(int i, int[] out, double[] outDist2) {
+        int k = out.length;
+        int found = 0;
+        int c0 = col(x[i]);
+        int r0 = row(y[i]);
+        int maxRing = Math.max(cols, rows);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (found == k) {
+                double ringDist = (ring - 1) * cellSize;
+                if (ringDist > 0 && ringDist * ringDist > outDist2[k - 1]) {
+                    break;
+                }
+            }
+            for (int r = r0 - ring; r <= r0 + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == r0 - ring || r == r0 + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int c = c0 - ring; c <= c0 + ring; c += step) {
+                    if (c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int cell = cellIndex(c, r);
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        int j = cellItems[p];
+                        if (j == i) {
+                            continue;
+                        }
+                        double dx = x[j] - x[i];
+                        double dy = y[j] - y[i];
+                        double d2 = dx * dx + dy * dy;
+                        if (found < k) {
+                            found = insertSorted(out, outDist2, found, j, d2);
+                        } else if (d2 < outDist2[k - 1]) {
+                            insertSorted(out, outDist2, k - 1, j, d2);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int insertSorted(int[] out, double[] dist2, int size, int j, double d2) {
+        int pos = size;
+        while (pos > 0 && dist2[pos - 1] > d2) {
+            if (pos < out.length) {
+                out[pos] = out[pos - 1];
+                dist2[pos] = dist2[pos - 1];
+            }
+            pos--;
+        }
+        out[pos] = j;
+        dist2[pos] = d2;
+        return Math.min(size + 1, out.length);
+    }
+
+    private int col(double px) {
+        return Math.min(cols - 1, Math.max(0, (int) ((px - minX) / cellSize)));
+    }
+
+    private int row(double py) {
+        return Math.min(rows - 1, Math.max(0, (int) ((py - minY) / cellSize)));
+    }
+
+    private int cellIndex(int c, int r) {
+        return r * cols + c;
+    }
+}
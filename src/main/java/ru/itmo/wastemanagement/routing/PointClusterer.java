@@ -0,0 +1,148 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Географическая кластеризация точек k-means (инициализация k-means++) по спроецированным
+ * координатам в км. При одинаковом seed результат воспроизводится.
+ */
+final class PointClusterer {
+
+    private static final int MAX_ITERATIONS = 25;
+
+    private PointClusterer() {
+    }
+
+    /**
+     * Возвращает номер кластера для каждой точки. Кластеры пронумерованы по порядку
+     * первой своей точки во входных данных, пустые кластеры пропускаются.
+     */
+    static int[] cluster(double[] lat, double[] lon, int k, long seed) {
+        int n = lat.length;
+        int[] assignment = new int[n];
+        if (n == 0 || k <= 1) {
+            return assignment;
+        }
+        k = Math.min(k, n);
+
+        double meanLat = 0;
+        for (double v : lat) {
+            meanLat += v;
+        }
+        double kmPerLon = 111.320 * Math.cos(Math.toRadians(meanLat / n));
+        double kmPerLat = 110.574;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * kmPerLon;
+            y[i] = lat[i] * kmPerLat;
+        }
+
+        double[] cx = new double[k];
+        double[] cy = new double[k];
+        seedCentroids(x, y, cx, cy, new Random(seed));
+
+        double[] sumX = new double[k];
+        double[] sumY = new double[k];
+        int[] count = new int[k];
+        Arrays.fill(assignment, -1);
+        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+            boolean changed = false;
+            for (int i = 0; i < n; i++) {
+                int best = nearestCentroid(x[i], y[i], cx, cy);
+                if (best != assignment[i]) {
+                    assignment[i] = best;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+
+            Arrays.fill(sumX, 0);
+            Arrays.fill(sumY, 0);
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                sumX[c] += x[i];
+                sumY[c] += y[i];
+                count[c]++;
+            }
+            for (int c = 0; c < k; c++) {
+                if (count[c] > 0) {
+                    cx[c] = sumX[c] / count[c];
+                    cy[c] = sumY[c] / count[c];
+                }
+            }
+        }
+
+        // перенумерация по первому появлению - порядок кластеров не зависит от seed-центроидов
+        int[] renumber = new int[k];
+        Arrays.fill(renumber, -1);
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            int c = assignment[i];
+            if (renumber[c] < 0) {
+                renumber[c] = next++;
+            }
+            assignment[i] = renumber[c];
+        }
+        return assignment;
+    }
+
+    private static void seedCentroids(double[] x, double[] y, double[] cx, double[] cy, Random random) {
+        int n = x.length;
+        int k = cx.length;
+        double[] dist2 = new double[n];
+        int first = random.nextInt(n);
+        cx[0] = x[first];
+        cy[0] = y[first];
+        for (int i = 0; i < n; i++) {
+            dist2[i] = sq(x[i] - cx[0]) + sq(y[i] - cy[0]);
+        }
+
+        for (int c = 1; c < k; c++) {
+            double total = 0;
+            for (double d : dist2) {
+                total += d;
+            }
+            int chosen;
+            if (total <= 0) {
+                chosen = random.nextInt(n);
+            } else {
+                double r = random.nextDouble() * total;
+                chosen = n - 1;
+                for (int i = 0; i < n; i++) {
+                    r -= dist2[i];
+                    if (r <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            cx[c] = x[chosen];
+            cy[c] = y[chosen];
+            for (int i = 0; i < n; i++) {
+                dist2[i] = Math.min(dist2[i], sq(x[i] - cx[c]) + sq(y[i] - cy[c]));
+            }
+        }
+    }
+
+    private static int nearestCentroid(double px, double py, double[] cx, double[] cy) {
+        int best = 0;
+        double bestDist = Double.MAX_VALUE;
+        for (int c = 0; c < cx.length; c++) {
+            double d = sq(px - cx[c]) + sq(py - cy[c]);
+            if (d < bestDist) {
+                bestDist = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static double sq(double v) {
+        return v * v;
+    }
+}
@@ -0,0 +1,333 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Расписание маршрута: время прибытия на каждую остановку по расстоянию, скорости и времени
+ * обслуживания с учётом окон работы точек и длины смены. Внутри всё считается в минутах
+ * от начала смены.
+ * <p>
+ * Для проверки вставки используется прямой запас времени (forward time slack): сдвиг,
+ * который остановка и все следующие за ней могут выдержать без нарушения окон и конца смены.
+ * Поэтому проверка одной позиции стоит O(1), без пересчёта всего маршрута.
+ */
+@Component
+public class RouteScheduler {
+
+    @Value("${app.routing.schedule.shift-start:22:00}")
+    private String shiftStart = "22:00";
+
+    @Value("${app.routing.schedule.shift-hours:8}")
+    private double shiftHours = 8;
+
+    @Value("${app.routing.schedule.speed-kmh:25}")
+    private double speedKmh = 25;
+
+    @Value("${app.routing.schedule.service-minutes:10}")
+    private double serviceMinutes = 10;
+
+    /**
+     * @param lat     {@code Double.NaN}, если координат нет - переезд до такой точки считается нулевым
+     * @param opensAt окно работы точки; {@code null} - без ограничений
+     */
+    public record Stop(int id, double lat, double lon, LocalTime opensAt, LocalTime closesAt) {}
+
+    public record Visit(Stop stop, LocalDateTime start, LocalDateTime end) {}
+
+    public RouteScheduler() {
+    }
+
+    public RouteScheduler(LocalTime shiftStart, double shiftHours, double speedKmh, double serviceMinutes) {
+        this.shiftStart = shiftStart.toString();
+        this.shiftHours = shiftHours;
+        this.speedKmh = speedKmh;
+        this.serviceMinutes = serviceMinutes;
+    }
+
+    public LocalDateTime shiftStartOn(LocalDate date) {
+        return date.atTime(LocalTime.parse(shiftStart));
+    }
+
+    /**
+     * Расписывает остановки в заданном порядке. Если очередная остановка не успевает в своё окно
+     * или в смену, текущий маршрут закрывается и с неё начинается следующий (другая смена/машина).
+     * Остановка, которая не помещается даже первой в пустой маршрут, всё равно получает отдельный
+     * маршрут с ближайшим открытием окна - такие маршруты видны по {@link Leg#isFeasible()}.
+     */
+    public List<Leg> schedule(List<Stop> stops, LocalDateTime origin, DistanceLookup distances) {
+        List<Leg> legs = new ArrayList<>();
+        Leg current = new Leg(origin, distances, stops.size());
+        for (Stop stop : stops) {
+            if (!current.tryAppend(stop)) {
+                if (!current.isEmpty()) {
+                    legs.add(current);
+                    current = new Leg(origin, distances, stops.size());
+                }
+                if (!current.tryAppend(stop)) {
+                    current.forceAppend(stop);
+                }
+            }
+        }
+        if (!current.isEmpty()) {
+            legs.add(current);
+        }
+        return legs;
+    }
+
+    /**
+     * Расписание уже существующего маршрута без разбиения.
+     */
+    public Leg leg(List<Stop> stops, LocalDateTime origin, DistanceLookup distances) {
+        Leg leg = new Leg(origin, distances, stops.size() + 1);
+        for (Stop stop : stops) {
+            if (!leg.tryAppend(stop)) {
+                leg.forceAppend(stop);
+            }
+        }
+        return leg;
+    }
+
+    public final class Leg {
+
+        private final LocalDateTime origin;
+        private final DistanceLookup distances;
+        private final double shiftMinutes = shiftHours * 60;
+
+        private Stop[] stops;
+        private int[] slot;
+        private double[] earliest;
+        private double[] latest;
+        private double[] arrival;
+        private double[] start;
+        // прямой запас времени, пересчитывается лениво после изменений
+        private double[] slack;
+        private boolean slackValid;
+        private int size;
+        private boolean feasible = true;
+
+        private Leg(LocalDateTime origin, DistanceLookup distances, int capacity) {
+            this.origin = origin;
+            this.distances = distances;
+            int cap = Math.max(4, capacity);
+            this.stops = new Stop[cap];
+            this.slot = new int[cap];
+            this.earliest = new double[cap];
+            this.latest = new double[cap];
+            this.arrival = new double[cap];
+            this.start = new double[cap];
+            this.slack = new double[cap];
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Все ли остановки попали в свои окна и в смену.
+         */
+        public boolean isFeasible() {
+            return feasible;
+        }
+
+        public LocalDateTime start() {
+            return size == 0 ? origin : at(start[0]);
+        }
+
+        public LocalDateTime end() {
+            return size == 0 ? origin : at(start[size - 1] + serviceMinutes);
+        }
+
+        public List<Visit> visits() {
+            List<Visit> visits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                visits.add(new Visit(stops[i], at(start[i]), at(start[i] + serviceMinutes)));
+            }
+            return visits;
+        }
+
+        /**
+         * Можно ли вставить остановку перед позицией {@code pos} (0..size), не нарушив окна
+         * и конец смены. O(1) после однократного пересчёта запасов.
+         */
+        public boolean canInsert(int pos, Stop stop) {
+            if (!feasible) {
+                return false;
+            }
+            ensureSlack();
+            int s = slotOf(stop);
+            double[] window = window(stop);
+
+            double arrive = pos == 0 ? 0 : start[pos - 1] + serviceMinutes + travel(pos - 1, stop, s);
+            double begin = Math.max(arrive, window[0]);
+            if (begin > Math.min(window[1], lastStart())) {
+                return false;
+            }
+            if (pos == size) {
+                return true;
+            }
+            double nextArrive = begin + serviceMinutes + travel(pos, stop, s);
+            double push = Math.max(nextArrive, earliest[pos]) - start[pos];
+            return push <= slack[pos];
+        }
+
+        /**
+         * Вставляет остановку и пересчитывает расписание от позиции вставки.
+         */
+        public void insert(int pos, Stop stop) {
+            ensureCapacity(size + 1);
+            System.arraycopy(stops, pos, stops, pos + 1, size - pos);
+            System.arraycopy(slot, pos, slot, pos + 1, size - pos);
+            System.arraycopy(earliest, pos, earliest, pos + 1, size - pos);
+            System.arraycopy(latest, pos, latest, pos + 1, size - pos);
+            size++;
+            put(pos, stop);
+            recompute(pos);
+        }
+
+        private boolean tryAppend(Stop stop) {
+            int s = slotOf(stop);
+            double[] window = window(stop);
+            double arrive = size == 0 ? 0 : start[size - 1] + serviceMinutes + travel(size - 1, stop, s);
+            double begin = Math.max(arrive, window[0]);
+            if (begin > Math.min(window[1], lastStart())) {
+                return false;
+            }
+            ensureCapacity(size + 1);
+            put(size, stop);
+            arrival[size] = arrive;
+            start[size] = begin;
+            size++;
+            slackValid = false;
+            return true;
+        }
+
+        private void forceAppend(Stop stop) {
+            ensureCapacity(size + 1);
+            put(size, stop);
+            size++;
+            recompute(size - 1);
+        }
+
+        private void put(int pos, Stop stop) {
+            double[] window = window(stop);
+            stops[pos] = stop;
+            slot[pos] = slotOf(stop);
+            earliest[pos] = window[0];
+            latest[pos] = window[1];
+        }
+
+        private void recompute(int from) {
+            feasible = true;
+            for (int i = from; i < size; i++) {
+                arrival[i] = i == 0 ? 0 : start[i - 1] + serviceMinutes + travel(i - 1, i);
+                start[i] = Math.max(arrival[i], earliest[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                if (start[i] > Math.min(latest[i], lastStart())) {
+                    feasible = false;
+                }
+            }
+            slackValid = false;
+        }
+
+        // F_i = min(l_i - start_i, wait_{i+1} + F_{i+1}), считается один раз с конца
+        private void ensureSlack() {
+            if (slackValid) {
+                return;
+            }
+            double next = Double.POSITIVE_INFINITY;
+            for (int i = size - 1; i >= 0; i--) {
+                double own = Math.min(latest[i], lastStart()) - start[i];
+                if (i < size - 1) {
+                    double wait = start[i + 1] - arrival[i + 1];
+                    next = wait + next;
+                }
+                next = Math.min(own, next);
+                slack[i] = next;
+            }
+            slackValid = true;
+        }
+
+        private double lastStart() {
+            return shiftMinutes - serviceMinutes;
+        }
+
+        private double travel(int from, int to) {
+            return travelMinutes(stops[from], slot[from], stops[to], slot[to]);
+        }
+
+        private double travel(int from, Stop to, int toSlot) {
+            return travelMinutes(stops[from], slot[from], to, toSlot);
+        }
+
+        private double travelMinutes(Stop a, int slotA, Stop b, int slotB) {
+            if (Double.isNaN(a.lat()) || Double.isNaN(b.lat())) {
+                return 0;
+            }
+            double km = slotA >= 0 && slotB >= 0
+                    ? distances.distanceKm(slotA, slotB)
+                    : GeoDistance.haversineKm(a.lat(), a.lon(), b.lat(), b.lon());
+            return km / speedKmh * 60;
+        }
+
+        private int slotOf(Stop stop) {
+            return distances != null ? distances.slotOf(stop.id()) : -1;
+        }
+
+        /**
+         * Окно точки в минутах от начала смены: первое календарное окно, которое ещё не закончилось
+         * к началу смены. Окно с закрытием раньше открытия переходит через полночь.
+         */
+        private double[] window(Stop stop) {
+            LocalTime opens = stop.opensAt();
+            LocalTime closes = stop.closesAt();
+            if (opens == null || closes == null || opens.equals(closes)) {
+                return new double[]{0, Double.POSITIVE_INFINITY};
+            }
+            LocalDate day = origin.toLocalDate().minusDays(1);
+            for (int d = 0; d < 3; d++, day = day.plusDays(1)) {
+                LocalDateTime from = day.atTime(opens);
+                LocalDateTime to = closes.isAfter(opens) ? day.atTime(closes) : day.plusDays(1).atTime(closes);
+                if (!to.isBefore(origin)) {
+                    return new double[]{Math.max(0, minutes(from)), minutes(to)};
+                }
+            }
+            return new double[]{0, -1};
+        }
+
+        private double minutes(LocalDateTime time) {
+            return Duration.between(origin, time).getSeconds() / 60d;
+        }
+
+        private LocalDateTime at(double minutes) {
+            return origin.plusSeconds(Math.round(minutes * 60));
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= stops.length) {
+                return;
+            }
+            int cap = Math.max(needed, stops.length * 2);
+            stops = Arrays.copyOf(stops, cap);
+            slot = Arrays.copyOf(slot, cap);
+            earliest = Arrays.copyOf(earliest, cap);
+            latest = Arrays.copyOf(latest, cap);
+            arrival = Arrays.copyOf(arrival, cap);
+            start = Arrays.copyOf(start, cap);
+            slack = Arrays.copyOf(slack, cap);
+        }
+    }
+}
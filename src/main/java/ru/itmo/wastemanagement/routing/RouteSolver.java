@@ -0,0 +1,351 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Эвристический решатель CVRP: маршруты строятся алгоритмом сбережений Кларка–Райта
+ * (пары берутся только среди k ближайших соседей), затем каждый маршрут
+ * улучшается 2-opt и Or-opt. Все маршруты начинаются и заканчиваются в депо.
+ */
+public class RouteSolver {
+
+    public static final int DEFAULT_NEIGHBOURS = 24;
+
+    private static final double EPS = 1e-9;
+    private static final int MAX_IMPROVE_PASSES = 50;
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+
+    public record Point(int id, double lat, double lon, double load) {}
+
+    public record PlannedRoute(List<Point> stops, double load, double distanceKm) {}
+
+    public record Solution(List<PlannedRoute> routes, double totalDistanceKm) {}
+
+    private final double vehicleCapacity;
+    private final int maxStops;
+    private final int neighbours;
+    private final DistanceLookup distances;
+
+    public RouteSolver(double vehicleCapacity, int maxStops) {
+        this(vehicleCapacity, maxStops, DEFAULT_NEIGHBOURS, null);
+    }
+
+    public RouteSolver(double vehicleCapacity, int maxStops, DistanceLookup distances) {
+        this(vehicleCapacity, maxStops, DEFAULT_NEIGHBOURS, distances);
+    }
+
+    /**
+     * @param distances кэш расстояний между точками; если точки в нём нет, расстояние считается по координатам
+     */
+    public RouteSolver(double vehicleCapacity, int maxStops, int neighbours, DistanceLookup distances) {
+        this.vehicleCapacity = vehicleCapacity > 0 ? vehicleCapacity : Double.POSITIVE_INFINITY;
+        this.maxStops = maxStops > 0 ? maxStops : Integer.MAX_VALUE;
+        this.neighbours = Math.max(1, neighbours);
+        this.distances = distances;
+    }
+
+    public Solution solve(List<Point> points, double depotLat, double depotLon) {
+        if (points == null || points.isEmpty()) {
+            return new Solution(List.of(), 0d);
+        }
+        return new Run(points, depotLat, depotLon).solve();
+    }
+
+    private final class Run {
+
+        private final List<Point> points;
+        private final int n;
+        private final double[] lat;
+        private final double[] lon;
+        private final double[] load;
+        private final double[] depotDist;
+        private final int[] slot;
+
+        // двусвязные списки маршрутов во время слияния
+        private final int[] next;
+        private final int[] prev;
+        private final int[] routeOf;
+        private final int[] head;
+        private final int[] tail;
+        private final double[] routeLoad;
+        private final int[] routeSize;
+
+        Run(List<Point> points, double depotLat, double depotLon) {
+            this.points = points;
+            this.n = points.size();
+            this.lat = new double[n];
+            this.lon = new double[n];
+            this.load = new double[n];
+            this.depotDist = new double[n];
+            this.slot = new int[n];
+            for (int i = 0; i < n; i++) {
+                Point p = points.get(i);
+                lat[i] = p.lat();
+                lon[i] = p.lon();
+                load[i] = Math.max(0d, p.load());
+                depotDist[i] = GeoDistance.haversineKm(depotLat, depotLon, lat[i], lon[i]);
+                slot[i] = distances != null ? distances.slotOf(p.id()) : -1;
+            }
+
+            this.next = new int[n];
+            this.prev = new int[n];
+            this.routeOf = new int[n];
+            this.head = new int[n];
+            this.tail = new int[n];
+            this.routeLoad = new double[n];
+            this.routeSize = new int[n];
+            Arrays.fill(next, -1);
+            Arrays.fill(prev, -1);
+            for (int i = 0; i < n; i++) {
+                routeOf[i] = i;
+                head[i] = i;
+                tail[i] = i;
+                routeLoad[i] = load[i];
+                routeSize[i] = 1;
+            }
+        }
+
+        Solution solve() {
+            mergeBySavings();
+
+            List<PlannedRoute> routes = new ArrayList<>();
+            boolean[] emitted = new boolean[n];
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                int r = routeOf[i];
+                if (emitted[r]) {
+                    continue;
+                }
+                emitted[r] = true;
+
+                int[] seq = new int[routeSize[r]];
+                int pos = 0;
+                for (int v = head[r]; v != -1; v = next[v]) {
+                    seq[pos++] = v;
+                }
+                improve(seq);
+
+                List<Point> stops = new ArrayList<>(seq.length);
+                for (int v : seq) {
+                    stops.add(points.get(v));
+                }
+                double length = routeLength(seq);
+                total += length;
+                routes.add(new PlannedRoute(stops, routeLoad[r], length));
+            }
+            return new Solution(routes, total);
+        }
+
+        private void mergeBySavings() {
+            if (n < 2) {
+                return;
+            }
+            NeighbourGrid grid = new NeighbourGrid(lat, lon);
+            int k = Math.min(neighbours, n - 1);
+            int[] nb = new int[k];
+            double[] nbDist = new double[k];
+
+            int[] pairA = new int[n * k];
+            int[] pairB = new int[n * k];
+            long[] keys = new long[n * k];
+            int pairs = 0;
+
+            for (int i = 0; i < n; i++) {
+                int found = grid.nearest(i, nb, nbDist);
+                for (int t = 0; t < found; t++) {
+                    int j = nb[t];
+                    double saving = depotDist[i] + depotDist[j] - distance(i, j);
+                    if (saving <= EPS) {
+                        continue;
+                    }
+                    // положительный float монотонен по своим битам, поэтому сортировка long по
+                    // (MAX - bits) даёт убывание сбережений без объектов-компараторов
+                    int bits = Float.floatToIntBits((float) saving);
+                    keys[pairs] = ((long) (Integer.MAX_VALUE - bits) << 32) | pairs;
+                    pairA[pairs] = i;
+                    pairB[pairs] = j;
+                    pairs++;
+                }
+            }
+            Arrays.sort(keys, 0, pairs);
+
+            for (int s = 0; s < pairs; s++) {
+                int idx = (int) keys[s];
+                tryMerge(pairA[idx], pairB[idx]);
+            }
+        }
+
+        private void tryMerge(int i, int j) {
+            int ri = routeOf[i];
+            int rj = routeOf[j];
+            if (ri == rj) {
+                return;
+            }
+            if ((long) routeSize[ri] + routeSize[rj] > maxStops) {
+                return;
+            }
+            if (routeLoad[ri] + routeLoad[rj] > vehicleCapacity + EPS) {
+                return;
+            }
+            boolean iEnd = head[ri] == i || tail[ri] == i;
+            boolean jEnd = head[rj] == j || tail[rj] == j;
+            if (!iEnd || !jEnd) {
+                return;
+            }
+
+            if (tail[ri] != i) {
+                reverse(ri);
+            }
+            if (head[rj] != j) {
+                reverse(rj);
+            }
+
+            next[i] = j;
+            prev[j] = i;
+            tail[ri] = tail[rj];
+            routeLoad[ri] += routeLoad[rj];
+            routeSize[ri] += routeSize[rj];
+            for (int v = j; v != -1; v = next[v]) {
+                routeOf[v] = ri;
+            }
+        }
+
+        private void reverse(int r) {
+            int v = head[r];
+            while (v != -1) {
+                int nx = next[v];
+                next[v] = prev[v];
+                prev[v] = nx;
+                v = nx;
+            }
+            int h = head[r];
+            head[r] = tail[r];
+            tail[r] = h;
+        }
+
+        private void improve(int[] seq) {
+            if (seq.length < 2) {
+                return;
+            }
+            for (int pass = 0; pass < MAX_IMPROVE_PASSES; pass++) {
+                boolean improved = twoOpt(seq);
+                improved |= orOpt(seq);
+                if (!improved) {
+                    return;
+                }
+            }
+        }
+
+        private boolean twoOpt(int[] seq) {
+            boolean improvedAny = false;
+            boolean improved = true;
+            int m = seq.length;
+            while (improved) {
+                improved = false;
+                for (int a = 0; a < m - 1; a++) {
+                    int before = a == 0 ? -1 : seq[a - 1];
+                    for (int b = a + 1; b < m; b++) {
+                        int after = b == m - 1 ? -1 : seq[b + 1];
+                        double delta = distance(before, seq[b]) + distance(seq[a], after)
+                                - distance(before, seq[a]) - distance(seq[b], after);
+                        if (delta < -EPS) {
+                            reverseRange(seq, a, b);
+                            improved = true;
+                            improvedAny = true;
+                        }
+                    }
+                }
+            }
+            return improvedAny;
+        }
+
+        private boolean orOpt(int[] seq) {
+            int m = seq.length;
+            boolean improvedAny = false;
+            for (int len = 1; len <= Math.min(MAX_OR_OPT_SEGMENT, m - 1); len++) {
+                boolean improved = true;
+                while (improved) {
+                    improved = false;
+                    for (int s = 0; s + len <= m && !improved; s++) {
+                        int first = seq[s];
+                        int last = seq[s + len - 1];
+                        int before = s == 0 ? -1 : seq[s - 1];
+                        int after = s + len == m ? -1 : seq[s + len];
+                        double removeGain = distance(before, first) + distance(last, after) - distance(before, after);
+
+                        // позиция вставки: между rest[p-1] и rest[p] в маршруте без сегмента
+                        for (int p = 0; p <= m - len; p++) {
+                            if (p == s) {
+                                continue;
+                            }
+                            int u = p == 0 ? -1 : restAt(seq, s, len, p - 1);
+                            int v = p == m - len ? -1 : restAt(seq, s, len, p);
+                            double insertCost = distance(u, first) + distance(last, v) - distance(u, v);
+                            if (insertCost - removeGain < -EPS) {
+                                moveSegment(seq, s, len, p);
+                                improved = true;
+                                improvedAny = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return improvedAny;
+        }
+
+        private int restAt(int[] seq, int s, int len, int idx) {
+            return idx < s ? seq[idx] : seq[idx + len];
+        }
+
+        private void moveSegment(int[] seq, int s, int len, int p) {
+            int m = seq.length;
+            int[] segment = Arrays.copyOfRange(seq, s, s + len);
+            int[] rest = new int[m - len];
+            for (int idx = 0; idx < rest.length; idx++) {
+                rest[idx] = restAt(seq, s, len, idx);
+            }
+            System.arraycopy(rest, 0, seq, 0, p);
+            System.arraycopy(segment, 0, seq, p, len);
+            System.arraycopy(rest, p, seq, p + len, rest.length - p);
+        }
+
+        private void reverseRange(int[] seq, int a, int b) {
+            while (a < b) {
+                int t = seq[a];
+                seq[a++] = seq[b];
+                seq[b--] = t;
+            }
+        }
+
+        private double routeLength(int[] seq) {
+            if (seq.length == 0) {
+                return 0;
+            }
+            double total = distance(-1, seq[0]);
+            for (int i = 1; i < seq.length; i++) {
+                total += distance(seq[i - 1], seq[i]);
+            }
+            return total + distance(seq[seq.length - 1], -1);
+        }
+
+        // индекс -1 обозначает депо
+        private double distance(int a, int b) {
+            if (a == b) {
+                return 0;
+            }
+            if (a < 0) {
+                return depotDist[b];
+            }
+            if (b < 0) {
+                return depotDist[a];
+            }
+            if (slot[a] >= 0 && slot[b] >= 0) {
+                return distances.distanceKm(slot[a], slot[b]);
+            }
+            return GeoDistance.haversineKm(lat[a], lon[a], lat[b], lon[b]);
+        }
+    }
+}
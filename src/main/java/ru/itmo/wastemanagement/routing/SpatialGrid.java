@@ -0,0 +1,217 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Изменяемая сетка по lat/lon с шагом {@code cellDegrees} для поиска k ближайших точек.
+ * Ячейки хранятся в хеш-таблице, поэтому вставка, перенос и удаление точки - O(размер ячейки),
+ * а пустые районы карты памяти не занимают. Не потокобезопасна.
+ */
+public final class SpatialGrid {
+
+    public record Neighbour(int id, double distanceKm) {}
+
+    private static final class Entry {
+        final int id;
+        double lat;
+        double lon;
+        boolean open;
+        long cell;
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    private final double cellDegrees;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    // охват сетки только растёт - нужен как предел расширения колец поиска
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    public SpatialGrid(double cellDegrees) {
+        if (!(cellDegrees > 0)) {
+            throw new IllegalArgumentException("cellDegrees must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void put(int id, double lat, double lon, boolean open) {
+        Entry entry = byId.get(id);
+        int row = row(lat);
+        int col = col(lon);
+        long cell = key(row, col);
+        if (entry == null) {
+            entry = new Entry(id);
+            byId.put(id, entry);
+        } else if (entry.cell != cell) {
+            detach(entry);
+        } else {
+            entry.lat = lat;
+            entry.lon = lon;
+            entry.open = open;
+            return;
+        }
+        entry.lat = lat;
+        entry.lon = lon;
+        entry.open = open;
+        entry.cell = cell;
+        cells.computeIfAbsent(cell, c -> new ArrayList<>(4)).add(entry);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    public void remove(int id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+
+    public void setOpen(int id, boolean open) {
+        Entry entry = byId.get(id);
+        if (entry != null) {
+            entry.open = open;
+        }
+    }
+
+    /**
+     * До {@code k} ближайших открытых точек, прошедших {@code filter}, ближайшие первыми.
+     * Кольца ячеек обходятся от ячейки запроса, пока нижняя граница расстояния до следующего
+     * кольца не превысит k-е найденное расстояние.
+     */
+    public List<Neighbour> nearest(double lat, double lon, int k, IntPredicate filter) {
+        if (k <= 0 || byId.isEmpty()) {
+            return List.of();
+        }
+        int[] ids = new int[k];
+        double[] dist = new double[k];
+        int found = 0;
+
+        int r0 = row(lat);
+        int c0 = col(lon);
+        int maxRing = Math.max(Math.max(r0 - minRow, maxRow - r0), Math.max(c0 - minCol, maxCol - c0));
+        // запрос далеко от всех точек: кольца почти пустые, дешевле один раз перебрать всё
+        long lookupBudget = 4L * cells.size() + 64;
+        long lookups = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (found == k && ringLowerBoundKm(lat, ring) > dist[k - 1]) {
+                break;
+            }
+            for (int r = r0 - ring; r <= r0 + ring; r++) {
+                boolean edgeRow = r == r0 - ring || r == r0 + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int c = c0 - ring; c <= c0 + ring; c += step) {
+                    if (++lookups > lookupBudget) {
+                        return scanAll(lat, lon, k, filter);
+                    }
+                    List<Entry> cell = cells.get(key(r, c));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry e : cell) {
+                        if (!e.open || (filter != null && !filter.test(e.id))) {
+                            continue;
+                        }
+                        found = offer(ids, dist, found, e, lat, lon);
+                    }
+                }
+            }
+        }
+        return toList(ids, dist, found);
+    }
+
+    private List<Neighbour> scanAll(double lat, double lon, int k, IntPredicate filter) {
+        int[] ids = new int[k];
+        double[] dist = new double[k];
+        int found = 0;
+        for (Entry e : byId.values()) {
+            if (e.open && (filter == null || filter.test(e.id))) {
+                found = offer(ids, dist, found, e, lat, lon);
+            }
+        }
+        return toList(ids, dist, found);
+    }
+
+    private static int offer(int[] ids, double[] dist, int found, Entry e, double lat, double lon) {
+        double d = GeoDistance.haversineKm(lat, lon, e.lat, e.lon);
+        if (found < ids.length) {
+            return insertSorted(ids, dist, found, e.id, d);
+        }
+        if (d < dist[found - 1]) {
+            insertSorted(ids, dist, found - 1, e.id, d);
+        }
+        return found;
+    }
+
+    private static List<Neighbour> toList(int[] ids, double[] dist, int found) {
+        List<Neighbour> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(new Neighbour(ids[i], dist[i]));
+        }
+        return result;
+    }
+
+    // точка кольца ring отстоит от запроса хотя бы на (ring - 1) ячеек по широте или по долготе
+    private double ringLowerBoundKm(double lat, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double degrees = (ring - 1) * cellDegrees;
+        double byLat = Math.toRadians(degrees) * GeoDistance.EARTH_RADIUS_KM;
+        double farthestLat = Math.min(90, Math.abs(lat) + (ring + 1) * cellDegrees);
+        double sinHalf = Math.cos(Math.toRadians(farthestLat)) * Math.sin(Math.toRadians(Math.min(degrees, 180)) / 2);
+        double byLon = 2 * GeoDistance.EARTH_RADIUS_KM * Math.asin(Math.min(1d, sinHalf));
+        return Math.min(byLat, byLon);
+    }
+
+    private static int insertSorted(int[] ids, double[] dist, int size, int id, double d) {
+        int pos = size;
+        while (pos > 0 && dist[pos - 1] > d) {
+            if (pos < ids.length) {
+                ids[pos] = ids[pos - 1];
+                dist[pos] = dist[pos - 1];
+            }
+            pos--;
+        }
+        ids[pos] = id;
+        dist[pos] = d;
+        return Math.min(size + 1, ids.length);
+    }
+
+    private void detach(Entry entry) {
+        List<Entry> cell = cells.get(entry.cell);
+        if (cell == null) {
+            return;
+        }
+        cell.remove(entry);
+        if (cell.isEmpty()) {
+            cells.remove(entry.cell);
+        }
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellDegrees);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor(lon / cellDegrees);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -1,12 +1,14 @@
 package ru.itmo.wastemanagement.service;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeUpsertDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.entity.ContainerSize;
@@ -15,28 +17,39 @@ import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.repository.ContainerSizeGridRepository;
 import ru.itmo.wastemanagement.repository.ContainerSizeRepository;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class ContainerSizeService {
 
     private final ContainerSizeRepository containerSizeRepository;
     private final ContainerSizeGridRepository containerSizeGridRepository;
+    private final GridExportService gridExportService;
+    private final ReferenceDataCache referenceDataCache;
+
+    // справочник для киоска: из памяти, без транзакции и SQL
+    public List<ContainerSizeRowDto> getAllContainerSizes() {
+        return referenceDataCache.containerSizes();
+    }
 
     @Transactional(readOnly = true)
     public GridTableResponse<ContainerSizeRowDto> queryGrid(GridTableRequest req) {
-        List<ContainerSize> rows = containerSizeGridRepository.findPageByGrid(req);
-        long total = containerSizeGridRepository.countByGrid(req);
-
-        List<ContainerSizeRowDto> dtos = rows.stream()
-                .map(ContainerSizeRowDto::fromEntity)
-                .toList();
+        GridTablePage<ContainerSizeRowDto> page = containerSizeGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<ContainerSizeRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, ContainerSizeRowDto.class,
+                sink -> containerSizeGridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Long createContainerSize(ContainerSizeUpsertDto dto) {
         String code = dto.getCode().trim();
@@ -54,7 +67,9 @@ public class ContainerSizeService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return containerSizeRepository.save(entity).getId();
+        Long id = containerSizeRepository.save(entity).getId();
+        referenceDataCache.invalidate(ContainerSize.class);
+        return id;
     }
 
     @Transactional
@@ -73,6 +88,7 @@ public class ContainerSizeService {
         entity.setWidth(dto.getWidth());
         entity.setHeight(dto.getHeight());
         entity.setDescription(dto.getDescription());
+        referenceDataCache.invalidate(ContainerSize.class);
     }
 
     @Transactional
@@ -81,5 +97,6 @@ public class ContainerSizeService {
                 .orElseThrow(() -> ResourceNotFoundException.of(ContainerSize.class, "id", id));
 
         containerSizeRepository.delete(entity);
+        referenceDataCache.invalidate(ContainerSize.class);
     }
 }
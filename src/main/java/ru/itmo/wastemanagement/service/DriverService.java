@@ -3,9 +3,12 @@ package ru.itmo.wastemanagement.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import ru.itmo.wastemanagement.dto.driver.DriverCreateUpdateDto;
 import ru.itmo.wastemanagement.dto.driver.DriverRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.entity.User;
@@ -17,7 +20,6 @@ import ru.itmo.wastemanagement.repository.DriverGridRepository;
 import ru.itmo.wastemanagement.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -25,23 +27,26 @@ public class DriverService {
 
     private final UserRepository userRepository;
     private final DriverGridRepository driverGridRepository;
+    private final GridExportService gridExportService;
     private final PasswordEncoder passwordEncoder;
 
     @Transactional(readOnly = true)
     public GridTableResponse<DriverRowDto> queryDriverGrid(GridTableRequest req) {
-        List<User> rows = driverGridRepository.findPageByGrid(req);
-        long total = driverGridRepository.countByGrid(req);
-
-        List<DriverRowDto> dtos = rows.stream()
-                .map(DriverRowDto::fromEntity)
-                .toList();
+        GridTablePage<DriverRowDto> page = driverGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<DriverRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportDriverGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, DriverRowDto.class,
+                sink -> driverGridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Integer createDriver(DriverCreateUpdateDto dto) {
         String login = dto.getLogin().trim();
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.wastemanagement.dto.shift.DriverShiftDto;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
 import ru.itmo.wastemanagement.entity.DriverShift;
 import ru.itmo.wastemanagement.entity.Route;
 import ru.itmo.wastemanagement.entity.RouteStop;
@@ -34,6 +35,7 @@ public class DriverShiftService {
     private final VehicleRepository vehicleRepository;
     private final RouteRepository routeRepository;
     private final RouteStopRepository routeStopRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     @Transactional(readOnly = true)
     public List<DriverShiftDto> getAllShifts() {
@@ -97,10 +99,14 @@ public class DriverShiftService {
             throw new BadRequestException("У водителя уже есть открытая смена");
         }
 
+        // машину проверяем по кэшу справочника, в смену ставим ссылку без SELECT
         Vehicle vehicle = null;
+        String vehiclePlate = null;
         if (vehicleId != null) {
-            vehicle = vehicleRepository.findById(vehicleId)
+            VehicleRowDto cached = referenceDataCache.vehicle(vehicleId)
                     .orElseThrow(() -> new ResourceNotFoundException("Vehicle", "id", vehicleId));
+            vehicle = vehicleRepository.getReferenceById(vehicleId);
+            vehiclePlate = cached.getPlateNumber();
         }
 
         DriverShift shift = DriverShift.builder()
@@ -111,7 +117,7 @@ public class DriverShiftService {
                 .build();
 
         shift = driverShiftRepository.save(shift);
-        return DriverShiftDto.fromEntity(shift);
+        return DriverShiftDto.fromEntity(shift, vehiclePlate);
     }
 
     @Transactional
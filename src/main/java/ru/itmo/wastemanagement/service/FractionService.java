@@ -3,8 +3,11 @@ package ru.itmo.wastemanagement.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
 import ru.itmo.wastemanagement.dto.fraction.FractionUpsertDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.entity.Fraction;
@@ -20,22 +23,31 @@ public class FractionService {
 
     private final FractionRepository fractionRepository;
     private final FractionGridRepository fractionGridRepository;
+    private final GridExportService gridExportService;
+    private final ReferenceDataCache referenceDataCache;
+
+    // справочник для киоска: из памяти, без транзакции и SQL
+    public List<FractionRowDto> getAllFractions() {
+        return referenceDataCache.fractions();
+    }
 
     @Transactional(readOnly = true)
     public GridTableResponse<FractionRowDto> queryFractionGrid(GridTableRequest req) {
-        List<Fraction> rows = fractionGridRepository.findPageByGrid(req);
-        long total = fractionGridRepository.countByGrid(req);
-
-        List<FractionRowDto> dtos = rows.stream()
-                .map(FractionRowDto::fromEntity)
-                .toList();
+        GridTablePage<FractionRowDto> page = fractionGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<FractionRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportFractionGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, FractionRowDto.class,
+                sink -> fractionGridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Integer createFraction(FractionUpsertDto dto) {
         Fraction fraction = Fraction.builder()
@@ -44,7 +56,9 @@ public class FractionService {
                 .description(dto.getDescription())
                 .hazardous(dto.isHazardous())
                 .build();
-        return fractionRepository.save(fraction).getId();
+        Integer id = fractionRepository.save(fraction).getId();
+        referenceDataCache.invalidate(Fraction.class);
+        return id;
     }
 
 
@@ -59,6 +73,7 @@ public class FractionService {
         fraction.setHazardous(dto.isHazardous());
 
         fractionRepository.save(fraction);
+        referenceDataCache.invalidate(Fraction.class);
     }
 
     @Transactional
@@ -67,5 +82,6 @@ public class FractionService {
                 .orElseThrow(() -> ResourceNotFoundException.of(Fraction.class, "id", id));
 
         fractionRepository.delete(fraction);
+        referenceDataCache.invalidate(Fraction.class);
     }
 }
@@ -0,0 +1,36 @@
+package ru.itmo.wastemanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
+
+import java.util.List;
+
+/**
+ * Периодическая сверка сводки garbage_point_load с заказами. Триггеры держат сводку точной, но её могут
+ * испортить правки в обход них (отключённые триггеры, восстановление из дампа, гонка со сменой объёма
+ * контейнера); сверка исправляет такие строки, а их число копит метрика {@code garbage.point.load.drift}.
+ */
+@Component
+public class GarbagePointLoadReconciler {
+
+    private final GarbagePointLoadRepository garbagePointLoadRepository;
+    private final Counter drift;
+
+    public GarbagePointLoadReconciler(GarbagePointLoadRepository garbagePointLoadRepository,
+                                      MeterRegistry meterRegistry) {
+        this.garbagePointLoadRepository = garbagePointLoadRepository;
+        this.drift = meterRegistry.counter("garbage.point.load.drift");
+    }
+
+    @Scheduled(fixedDelayString = "${app.garbage-point-load.reconcile-interval:PT1H}",
+            initialDelayString = "${app.garbage-point-load.reconcile-interval:PT1H}")
+    @Transactional
+    public void reconcile() {
+        List<Integer> drifted = garbagePointLoadRepository.reconcile();
+        drift.increment(drifted.size());
+    }
+}
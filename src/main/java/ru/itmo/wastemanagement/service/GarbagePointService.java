@@ -3,8 +3,12 @@ package ru.itmo.wastemanagement.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointNearbyDto;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
@@ -12,38 +16,53 @@ import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.exception.BadRequestException;
 import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.repository.GarbagePointGridRepository;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
 import ru.itmo.wastemanagement.repository.GarbagePointRepository;
 import ru.itmo.wastemanagement.repository.UserRepository;
+import ru.itmo.wastemanagement.routing.GarbagePointDistanceCache;
+import ru.itmo.wastemanagement.routing.GarbagePointSpatialIndex;
+import ru.itmo.wastemanagement.routing.SpatialGrid;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class GarbagePointService {
 
+    private static final int DEFAULT_NEARBY = 5;
+    private static final int MAX_NEARBY = 50;
+
     private final GarbagePointRepository garbagePointRepository;
     private final GarbagePointGridRepository gridRepository;
+    private final GridExportService gridExportService;
     private final UserRepository userRepository;
-
+    private final GarbagePointDistanceCache distanceCache;
+    private final GarbagePointSpatialIndex spatialIndex;
+    private final GarbagePointLoadRepository garbagePointLoadRepository;
 
     @Transactional(readOnly = true)
     public GridTableResponse<GarbagePointRowDto> queryGrid(GridTableRequest req) {
-        List<GarbagePoint> rows = gridRepository.findPageByGrid(req);
-        long total = gridRepository.countByGrid(req);
-
-        List<GarbagePointRowDto> dtos = rows.stream()
-                .map(GarbagePointRowDto::fromEntity)
-                .toList();
+        GridTablePage<GarbagePointRowDto> page = gridRepository.findPageByGrid(req);
 
         return GridTableResponse.<GarbagePointRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, GarbagePointRowDto.class,
+                sink -> gridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Integer createNewGarbagePoint(GarbagePointCreateUpdateDto dto) {
+        validateOpeningHours(dto);
         GarbagePoint gp = GarbagePointCreateUpdateDto.toEntity(dto, null);
         gp.setCreatedAt(LocalDateTime.now());
 
@@ -53,7 +72,10 @@ public class GarbagePointService {
             gp.setKiosk(kiosk);
         }
 
-        return garbagePointRepository.save(gp).getId();
+        GarbagePoint saved = garbagePointRepository.save(gp);
+        distanceCache.pointSaved(saved.getId(), saved.getLat(), saved.getLon());
+        spatialIndex.pointSaved(saved.getId(), saved.getLat(), saved.getLon(), saved.isOpen());
+        return saved.getId();
     }
 
 
@@ -62,11 +84,16 @@ public class GarbagePointService {
         GarbagePoint gp = garbagePointRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("GarbagePoint", "id", id));
 
+        validateOpeningHours(dto);
+        boolean moved = !Objects.equals(gp.getLat(), dto.getLat()) || !Objects.equals(gp.getLon(), dto.getLon());
+        boolean wasOpen = gp.isOpen();
         gp.setAddress(dto.getAddress().trim());
         gp.setCapacity(dto.getCapacity());
         gp.setOpen(dto.getOpen() != null ? dto.getOpen() : true);
         gp.setLat(dto.getLat());
         gp.setLon(dto.getLon());
+        gp.setOpensAt(dto.getOpensAt());
+        gp.setClosesAt(dto.getClosesAt());
 
         if (dto.getKioskId() != null) {
             User kiosk = userRepository.findById(dto.getKioskId())
@@ -77,6 +104,12 @@ public class GarbagePointService {
         }
 
         garbagePointRepository.save(gp);
+        if (moved) {
+            distanceCache.pointSaved(id, gp.getLat(), gp.getLon());
+        }
+        if (moved || wasOpen != gp.isOpen()) {
+            spatialIndex.pointSaved(id, gp.getLat(), gp.getLon(), gp.isOpen());
+        }
     }
 
     @Transactional
@@ -84,6 +117,14 @@ public class GarbagePointService {
         GarbagePoint gp = garbagePointRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("GarbagePoint", "id", id));
         garbagePointRepository.delete(gp);
+        distanceCache.pointDeleted(id);
+        spatialIndex.pointDeleted(id);
+    }
+
+    private static void validateOpeningHours(GarbagePointCreateUpdateDto dto) {
+        if ((dto.getOpensAt() == null) != (dto.getClosesAt() == null)) {
+            throw new BadRequestException("Окно работы точки задаётся двумя временами: открытие и закрытие");
+        }
     }
 
     @Transactional(readOnly = true)
@@ -94,4 +135,69 @@ public class GarbagePointService {
                 .toList();
     }
 
+    /**
+     * Ближайшие открытые точки, в которых ещё есть место. Кандидаты по расстоянию берёт
+     * пространственный индекс, точки и их загрузка дочитываются пачкой; если после фильтра
+     * точек не хватило, берётся следующая пачка кандидатов.
+     */
+    @Transactional(readOnly = true)
+    public List<GarbagePointNearbyDto> findNearby(Double lat, Double lon, Integer k) {
+        if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new BadRequestException("Некорректные координаты: lat=" + lat + ", lon=" + lon);
+        }
+        int limit = k != null ? k : DEFAULT_NEARBY;
+        if (limit < 1 || limit > MAX_NEARBY) {
+            throw new BadRequestException("Количество точек должно быть от 1 до " + MAX_NEARBY);
+        }
+
+        List<GarbagePointNearbyDto> result = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        int batch = limit * 2;
+        while (result.size() < limit) {
+            List<SpatialGrid.Neighbour> candidates = spatialIndex.nearest(lat, lon, batch, id -> !seen.contains(id));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            List<Integer> ids = candidates.stream().map(SpatialGrid.Neighbour::id).toList();
+            seen.addAll(ids);
+
+            Map<Integer, GarbagePoint> points = garbagePointRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(GarbagePoint::getId, Function.identity()));
+            Map<Integer, Double> loads = new HashMap<>();
+            for (Object[] row : garbagePointLoadRepository.findActiveLoadByGarbagePointIds(ids)) {
+                loads.put(((Number) row[0]).intValue(), activeLoad(row));
+            }
+
+            for (SpatialGrid.Neighbour candidate : candidates) {
+                GarbagePoint gp = points.get(candidate.id());
+                // индекс обновляется после коммита - сверяемся с БД
+                if (gp == null || !gp.isOpen()) {
+                    continue;
+                }
+                Double free = gp.getCapacity() != null
+                        ? gp.getCapacity() - loads.getOrDefault(gp.getId(), 0d)
+                        : null;
+                if (free != null && free <= 0) {
+                    continue;
+                }
+                result.add(GarbagePointNearbyDto.fromEntity(gp, candidate.distanceKm(), free));
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+            if (candidates.size() < batch) {
+                break;
+            }
+            batch *= 2;
+        }
+        return result;
+    }
+
+    // колонки: id точки, суммарный вес, число заказов, число заказов с весом, суммарный объём контейнеров
+    private static double activeLoad(Object[] row) {
+        long weightedCount = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+        Object value = weightedCount > 0 ? row[1] : row[4];
+        return value != null ? ((Number) value).doubleValue() : 0d;
+    }
+
 }
\ No newline at end of file
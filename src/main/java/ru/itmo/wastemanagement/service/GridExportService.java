@@ -0,0 +1,108 @@
+package ru.itmo.wastemanagement.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая выгрузка grid-таблиц. Тело ответа пишется после выхода из контроллера в отдельном потоке,
+ * поэтому транзакция для курсора открывается здесь, а не в сервисе таблицы.
+ */
+@Service
+@RequiredArgsConstructor
+public class GridExportService {
+
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param rows выгрузка строк таблицы в переданный приёмник (например, {@code exportByGrid} репозитория)
+     */
+    public <R> StreamingResponseBody stream(GridExportFormat format, Class<R> rowType, Consumer<Consumer<R>> rows) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            Consumer<R> sink = format == GridExportFormat.csv
+                    ? csv(writer, columns(rowType))
+                    : ndjson(writer);
+
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            try {
+                tx.executeWithoutResult(status -> rows.accept(sink));
+            } catch (UncheckedIOException e) {
+                // клиент закрыл соединение - курсор и транзакция уже закрыты
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+    }
+
+    List<String> columns(Class<?> rowType) {
+        return objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(rowType))
+                .findProperties()
+                .stream()
+                .map(BeanPropertyDefinition::getName)
+                .toList();
+    }
+
+    <R> Consumer<R> csv(Writer writer, List<String> columns) {
+        // BOM: без него Excel открывает UTF-8 как cp1251
+        write(writer, "\uFEFF" + String.join(",", columns.stream().map(GridExportService::csvCell).toList()) + "\r\n");
+        return row -> {
+            JsonNode node = objectMapper.valueToTree(row);
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                JsonNode value = node.get(columns.get(i));
+                if (value != null && !value.isNull()) {
+                    line.append(csvCell(value.isValueNode() ? value.asText() : value.toString()));
+                }
+            }
+            write(writer, line.append("\r\n").toString());
+        };
+    }
+
+    <R> Consumer<R> ndjson(Writer writer) {
+        return row -> {
+            try {
+                write(writer, objectMapper.writeValueAsString(row) + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // RFC 4180: в кавычки берутся значения с разделителем, кавычкой или переводом строки
+    static String csvCell(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void write(Writer writer, String s) {
+        try {
+            writer.write(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -27,9 +27,9 @@ public class IncidentService {
 
     @Transactional(readOnly = true)
     public List<IncidentDto> getAllIncidents() {
-        return incidentRepository.findAllOrderByCreatedAtDesc()
+        return incidentRepository.findAllRowsOrderByCreatedAtDesc()
                 .stream()
-                .map(IncidentDto::fromEntity)
+                .map(IncidentDto::fromTuple)
                 .toList();
     }
 
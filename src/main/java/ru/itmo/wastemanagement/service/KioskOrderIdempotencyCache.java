@@ -0,0 +1,58 @@
+package ru.itmo.wastemanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Недавние ключи идемпотентности заказов киоска -> id заказа, LRU на {@code max-entries} ключей.
+ * Киоск повторяет запрос через секунды после таймаута, так что повтор почти всегда отвечается отсюда
+ * без обращения к БД; при промахе ключ ищется в kiosk_order_keys.
+ * <p>
+ * Ключ попадает сюда только после коммита: id откатившегося заказа повтору не вернётся.
+ */
+@Component
+public class KioskOrderIdempotencyCache {
+
+    @Value("${app.kiosk-orders.idempotency-cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    // accessOrder = true: вытесняется ключ, к которому дольше всего не обращались
+    private final Map<UUID, Integer> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Integer> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public KioskOrderIdempotencyCache() {
+    }
+
+    KioskOrderIdempotencyCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized Integer get(UUID key) {
+        return recent.get(key);
+    }
+
+    public void put(UUID key, Integer orderId) {
+        AfterCommit.run(() -> store(key, orderId));
+    }
+
+    public void evict(UUID key) {
+        AfterCommit.run(() -> remove(key));
+    }
+
+    private synchronized void store(UUID key, Integer orderId) {
+        recent.put(key, orderId);
+    }
+
+    private synchronized void remove(UUID key) {
+        recent.remove(key);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.itmo.wastemanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.itmo.wastemanagement.repository.KioskOrderPartitionRepository;
+
+/**
+ * Обслуживание месячных секций kiosk_orders: при старте и раз в сутки создаёт секции на
+ * {@code months-ahead} месяцев вперёд и переносит в схему archive секции старше {@code retention-months}.
+ * Пока секции месяца нет, его заказы попадают в секцию по умолчанию.
+ */
+@Component
+public class KioskOrderPartitionMaintainer {
+
+    @Value("${app.kiosk-orders.partitions.months-ahead:3}")
+    private int monthsAhead = 3;
+
+    @Value("${app.kiosk-orders.partitions.retention-months:24}")
+    private int retentionMonths = 24;
+
+    private final KioskOrderPartitionRepository kioskOrderPartitionRepository;
+
+    @Autowired
+    public KioskOrderPartitionMaintainer(KioskOrderPartitionRepository kioskOrderPartitionRepository) {
+        this.kioskOrderPartitionRepository = kioskOrderPartitionRepository;
+    }
+
+    KioskOrderPartitionMaintainer(KioskOrderPartitionRepository kioskOrderPartitionRepository,
+                                  int monthsAhead, int retentionMonths) {
+        this.kioskOrderPartitionRepository = kioskOrderPartitionRepository;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.kiosk-orders.partitions.cron:0 30 3 * * *}")
+    @Transactional
+    public void maintain() {
+        kioskOrderPartitionRepository.createPartitions(0, monthsAhead);
+        kioskOrderPartitionRepository.archivePartitions(retentionMonths);
+    }
+}
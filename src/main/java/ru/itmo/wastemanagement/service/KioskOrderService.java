@@ -1,86 +1,279 @@
 package ru.itmo.wastemanagement.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.config.security.CustomUserDetails;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchItemDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchResultDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchStatus;
 import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderRowDto;
 import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderUpsertDto;
 import ru.itmo.wastemanagement.entity.*;
+import ru.itmo.wastemanagement.entity.enums.OrderStatus;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
 import ru.itmo.wastemanagement.exception.BadRequestException;
 import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.repository.*;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class KioskOrderService {
 
+    // часы киоска могут спешить: заказ «из будущего» в этих пределах принимается
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    // внешние ключи и CHECK таблицы kiosk_orders -> сообщение клиенту
+    private static final Map<String, String> CONSTRAINT_MESSAGES = Map.of(
+            "kiosk_orders_garbage_point_id_fkey", "Точка сбора не найдена или закрыта",
+            "kiosk_orders_container_size_id_fkey", "Размер контейнера не найден",
+            "kiosk_orders_fraction_id_fkey", "Тип отходов не найден",
+            "kiosk_orders_user_id_fkey", "Пользователь не найден или неактивен",
+            "kiosk_orders_weight_check", "Вес не может быть отрицательным."
+    );
+
     private final KioskOrderRepository kioskOrderRepository;
     private final KioskOrderGridRepository kioskOrderGridRepository;
+    private final KioskOrderBatchRepository kioskOrderBatchRepository;
+    private final GridExportService gridExportService;
 
     private final GarbagePointRepository garbagePointRepository;
     private final ContainerSizeRepository containerSizeRepository;
     private final FractionRepository fractionRepository;
     private final UserRepository userRepository;
 
-    private final JdbcTemplate jdbcTemplate;
+    private final PlannedRouteInsertionService plannedRouteInsertionService;
+    private final GridCountCache gridCountCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final KioskOrderValidationSnapshot validationSnapshot;
+    private final KioskOrderIdempotencyCache idempotencyCache;
 
     @Transactional(readOnly = true)
     public GridTableResponse<KioskOrderRowDto> queryGrid(GridTableRequest req) {
-        List<KioskOrder> rows = kioskOrderGridRepository.findPageByGrid(req);
-        long total = kioskOrderGridRepository.countByGrid(req);
-
-        List<KioskOrderRowDto> dtos = rows.stream()
-                .map(KioskOrderRowDto::fromEntity)
-                .toList();
+        GridTablePage<KioskOrderRowDto> page = kioskOrderGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<KioskOrderRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public GridTableResponse<Map<String, Object>> queryGroupGrid(GridTableRequest req) {
+        GridTablePage<Map<String, Object>> page = kioskOrderGridRepository.findGroupPageByGrid(req);
+
+        return GridTableResponse.<Map<String, Object>>builder()
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
                 .build();
     }
 
+    public StreamingResponseBody exportGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, KioskOrderRowDto.class,
+                sink -> kioskOrderGridRepository.exportByGrid(req, sink));
+    }
+
+    /**
+     * Создаёт заказ. Точка, пользователь и справочники проверяются по снимку в памяти, заказ вставляется
+     * одним INSERT; расхождение снимка с БД ловят внешние ключи. Проверка порога заполнения и вставка точки
+     * в запланированный маршрут идут уже после коммита на отдельном потоке
+     * ({@link PlannedRouteInsertionService}): запрос не читает загрузку точки и маршруты и не ждёт поиска места.
+     * С ключом идемпотентности повтор запроса (киоск не дождался ответа) возвращает id уже созданного заказа:
+     * сначала из кэша недавних ключей, затем по таблице ключей.
+     */
     @Transactional
-    public Integer createOrder(KioskOrderUpsertDto dto) {
-        User user = resolveOrderUser(dto);
-        GarbagePoint gp = resolveGarbagePoint(dto.getGarbagePointId(), user);
+    public Integer createOrder(KioskOrderUpsertDto dto, UUID idempotencyKey) {
+        if (idempotencyKey != null) {
+            Integer replayed = findOrderIdByIdempotencyKey(idempotencyKey);
+            if (replayed != null) {
+                return replayed;
+            }
+        }
+
+        KioskOrderValidationSnapshot.Snapshot snapshot = validationSnapshot.get();
+        Integer userId = resolveOrderUserId(dto.getUserId(), snapshot);
+        KioskOrderValidationSnapshot.Point point = resolveOrderPoint(dto.getGarbagePointId(), userId, snapshot);
+        String error = validateOrder(point, dto.getContainerSizeId(), dto.getFractionId());
+        if (error != null) {
+            throw new BadRequestException(error);
+        }
 
+        Integer orderId;
         try {
-            Integer orderId = jdbcTemplate.queryForObject(
-                    "SELECT create_kiosk_order(?, ?, ?, ?)",
-                    Integer.class,
-                    gp.getId(),
-                    dto.getContainerSizeId(),
-                    user != null ? user.getId() : null,
-                    dto.getFractionId()
-            );
-            return orderId;
-        } catch (DataAccessException e) {
-            String message = e.getMessage();
-            if (message != null) {
-                if (message.contains("Garbage point not found or closed")) {
-                    throw new BadRequestException("Точка сбора не найдена или закрыта");
-                } else if (message.contains("Container size not found")) {
-                    throw new BadRequestException("Размер контейнера не найден");
-                } else if (message.contains("Fraction not found")) {
-                    throw new BadRequestException("Тип отходов не найден");
-                } else if (message.contains("Fraction not accepted at this point")) {
-                    throw new BadRequestException("Данный тип отходов не принимается на этой точке");
-                } else if (message.contains("User not found or inactive")) {
-                    throw new BadRequestException("Пользователь не найден или неактивен");
+            orderId = kioskOrderBatchRepository.insertOrder(point.id(), Long.valueOf(dto.getContainerSizeId()),
+                    userId, dto.getFractionId(), dto.getWeight(), idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            // снимок отстал от БД: строку удалили после его загрузки
+            throw new BadRequestException(constraintMessage(e));
+        }
+        if (orderId == null) {
+            // параллельный повтор с тем же ключом успел вставить заказ раньше
+            orderId = kioskOrderRepository.findIdByIdempotencyKey(idempotencyKey)
+                    .orElseThrow(() -> ResourceNotFoundException.of(KioskOrder.class, "idempotencyKey", idempotencyKey));
+        } else {
+            // точка могла перейти порог заполнения - после коммита пробуем добавить её в запланированный маршрут
+            plannedRouteInsertionService.submitAfterCommit(List.of(point.id()));
+        }
+        if (idempotencyKey != null) {
+            idempotencyCache.put(idempotencyKey, orderId);
+        }
+        return orderId;
+    }
+
+    /**
+     * Синхронизация заказов, накопленных киоском без сети. Каждый заказ проверяется отдельно по тому же
+     * снимку, что и одиночный, прошедшие проверку вставляются одним INSERT. Если снимок отстал от БД и INSERT
+     * нарушил ограничение, пакет проверяется заново по свежему снимку и вставляется ещё раз; при повторной
+     * неудаче оставшиеся заказы отклоняются, а не валят всю синхронизацию. Точки новых заказов, как и у
+     * одиночного, добавляются в запланированные маршруты после коммита. Заказ с уже известным ключом
+     * идемпотентности не создаётся повторно, поэтому пакет можно безопасно отправить ещё раз после обрыва связи.
+     */
+    @Transactional
+    public KioskOrderBatchResultDto createOrders(KioskOrderBatchDto dto) {
+        List<KioskOrderBatchItemDto> items = dto.getOrders();
+        KioskOrderValidationSnapshot.Snapshot snapshot = validationSnapshot.get();
+        Integer userId = resolveOrderUserId(null, snapshot);
+
+        // повтор пакета: уже синхронизированные заказы не проверяются заново
+        Map<UUID, Integer> existing = new HashMap<>();
+        Set<UUID> unknown = new HashSet<>();
+        for (KioskOrderBatchItemDto item : items) {
+            Integer cached = idempotencyCache.get(item.getIdempotencyKey());
+            if (cached != null) {
+                existing.put(item.getIdempotencyKey(), cached);
+            } else {
+                unknown.add(item.getIdempotencyKey());
+            }
+        }
+        existing.putAll(kioskOrderBatchRepository.findIdsByIdempotencyKeys(unknown));
+
+        LocalDateTime now = LocalDateTime.now();
+        String[] errors = new String[items.size()];
+        Map<UUID, KioskOrder> orders = validateBatch(items, existing, snapshot, userId, now, errors);
+        List<KioskOrder> inserted;
+        try {
+            inserted = kioskOrderBatchRepository.insertOrders(new ArrayList<>(orders.values()));
+        } catch (DataIntegrityViolationException e) {
+            // снимок отстал от БД: точку или справочник удалили после его загрузки. Пакет откачен
+            // до точки сохранения - проверяем заказы по свежему снимку и вставляем ещё раз
+            validationSnapshot.invalidate();
+            snapshot = validationSnapshot.get();
+            userId = resolveOrderUserId(null, snapshot);
+            Arrays.fill(errors, null);
+            orders = validateBatch(items, existing, snapshot, userId, now, errors);
+            try {
+                inserted = kioskOrderBatchRepository.insertOrders(new ArrayList<>(orders.values()));
+            } catch (DataIntegrityViolationException again) {
+                String error = constraintMessage(again);
+                for (int i = 0; i < items.size(); i++) {
+                    if (orders.containsKey(items.get(i).getIdempotencyKey())) {
+                        errors[i] = error;
+                    }
                 }
+                orders.clear();
+                inserted = List.of();
             }
-            throw new BadRequestException("Не удалось создать заказ: " + message);
         }
+        Set<UUID> insertedKeys = inserted.stream().map(KioskOrder::getIdempotencyKey).collect(Collectors.toSet());
+        existing.forEach(idempotencyCache::put);
+        orders.values().stream()
+                .filter(o -> o.getId() != null)
+                .forEach(o -> idempotencyCache.put(o.getIdempotencyKey(), o.getId()));
+
+        List<KioskOrderBatchResultDto.Item> results = new ArrayList<>(items.size());
+        Set<UUID> reported = new HashSet<>();
+        int created = 0;
+        int rejected = 0;
+        for (int i = 0; i < items.size(); i++) {
+            UUID key = items.get(i).getIdempotencyKey();
+            KioskOrderBatchResultDto.Item.ItemBuilder result = KioskOrderBatchResultDto.Item.builder()
+                    .idempotencyKey(key);
+            if (errors[i] != null) {
+                results.add(result.status(KioskOrderBatchStatus.rejected).error(errors[i]).build());
+                rejected++;
+                continue;
+            }
+            // ключ, повторённый в запросе, относится к уже созданному первым вхождением заказу
+            boolean first = reported.add(key);
+            KioskOrder order = orders.get(key);
+            Integer orderId = order != null ? order.getId() : existing.get(key);
+            if (first && insertedKeys.contains(key)) {
+                results.add(result.status(KioskOrderBatchStatus.created).orderId(orderId).build());
+                created++;
+            } else {
+                results.add(result.status(KioskOrderBatchStatus.duplicate).orderId(orderId).build());
+            }
+        }
+
+        // точки могли перейти порог заполнения - после коммита пробуем добавить их в запланированные маршруты
+        plannedRouteInsertionService.submitAfterCommit(inserted.stream()
+                .map(o -> o.getGarbagePoint().getId())
+                .toList());
+
+        return KioskOrderBatchResultDto.builder()
+                .results(results)
+                .created(created)
+                .duplicates(items.size() - created - rejected)
+                .rejected(rejected)
+                .build();
+    }
+
+    /**
+     * Проверяет по снимку заказы пакета, которых ещё нет в БД. Ошибки пишутся в {@code errors} по индексу
+     * заказа, прошедшие проверку возвращаются по ключу идемпотентности в порядке пакета.
+     */
+    private Map<UUID, KioskOrder> validateBatch(List<KioskOrderBatchItemDto> items, Map<UUID, Integer> existing,
+                                                KioskOrderValidationSnapshot.Snapshot snapshot, Integer userId,
+                                                LocalDateTime now, String[] errors) {
+        User user = userId != null ? userRepository.getReferenceById(userId) : null;
+        Integer kioskPointId = userId != null ? snapshot.kioskPoints().get(userId) : null;
+        Map<UUID, KioskOrder> orders = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            KioskOrderBatchItemDto item = items.get(i);
+            UUID key = item.getIdempotencyKey();
+            if (existing.containsKey(key) || orders.containsKey(key)) {
+                continue;
+            }
+            Integer pointId = item.getGarbagePointId() != null ? item.getGarbagePointId() : kioskPointId;
+            errors[i] = pointId == null
+                    ? "Не удалось определить точку сбора: передайте garbagePointId"
+                    : validateOrder(snapshot.points().get(pointId), item.getContainerSizeId(), item.getFractionId());
+            if (errors[i] == null && item.getCreatedAt() != null && item.getCreatedAt().isAfter(now.plus(CLOCK_SKEW))) {
+                errors[i] = "Время оформления заказа позже текущего";
+            }
+            if (errors[i] != null) {
+                continue;
+            }
+            orders.put(key, KioskOrder.builder()
+                    .idempotencyKey(key)
+                    .garbagePoint(garbagePointRepository.getReferenceById(pointId))
+                    .containerSize(containerSizeRepository.getReferenceById(Long.valueOf(item.getContainerSizeId())))
+                    .fraction(fractionRepository.getReferenceById(item.getFractionId()))
+                    .user(user)
+                    .weight(item.getWeight())
+                    .createdAt(item.getCreatedAt() != null ? item.getCreatedAt() : now)
+                    .status(OrderStatus.CONFIRMED)
+                    .build());
+        }
+        return orders;
     }
 
     @Transactional
@@ -88,23 +281,25 @@ public class KioskOrderService {
         KioskOrder order = kioskOrderRepository.findById(id)
                 .orElseThrow(() -> ResourceNotFoundException.of(KioskOrder.class, "id", id));
 
-        User user = resolveOrderUser(dto);
+        User user = resolveOrderUser(dto.getUserId());
 
         GarbagePoint gp = resolveGarbagePoint(dto.getGarbagePointId(), user);
 
-        ContainerSize cs = containerSizeRepository.findById(Long.valueOf(dto.getContainerSizeId()))
+        // справочники проверяем по кэшу, в заказ ставим ссылки без SELECT
+        Long containerSizeId = Long.valueOf(dto.getContainerSizeId());
+        referenceDataCache.containerSize(containerSizeId)
                 .orElseThrow(() -> ResourceNotFoundException.of(
                         ContainerSize.class, "id", dto.getContainerSizeId()
                 ));
 
-        Fraction fraction = fractionRepository.findById(dto.getFractionId())
+        referenceDataCache.fraction(dto.getFractionId())
                 .orElseThrow(() -> ResourceNotFoundException.of(
                         Fraction.class, "id", dto.getFractionId()
                 ));
 
         order.setGarbagePoint(gp);
-        order.setContainerSize(cs);
-        order.setFraction(fraction);
+        order.setContainerSize(containerSizeRepository.getReferenceById(containerSizeId));
+        order.setFraction(fractionRepository.getReferenceById(dto.getFractionId()));
         order.setUser(user);
         order.setWeight(dto.getWeight());
 
@@ -121,18 +316,22 @@ public class KioskOrderService {
                 .orElseThrow(() -> ResourceNotFoundException.of(KioskOrder.class, "id", id));
 
         kioskOrderRepository.delete(order);
+        if (order.getIdempotencyKey() != null) {
+            // ключ удалённого заказа снова свободен в БД - повтор не должен вернуть удалённый id
+            idempotencyCache.evict(order.getIdempotencyKey());
+        }
     }
 
-    private User resolveOrderUser(KioskOrderUpsertDto dto) {
-        if (dto.getUserId() != null) {
-            User user = userRepository.findById(dto.getUserId())
+    private User resolveOrderUser(Integer orderUserId) {
+        if (orderUserId != null) {
+            User user = userRepository.findById(orderUserId)
                     .orElseThrow(() -> ResourceNotFoundException.of(
-                            User.class, "id", dto.getUserId()
+                            User.class, "id", orderUserId
                     ));
 
             if (user.getRole() != UserRole.KIOSK && user.getRole() != UserRole.ADMIN) {
                 throw new BadRequestException(
-                        "Пользователь id=%d не может оформлять заказ киоска".formatted(dto.getUserId())
+                        "Пользователь id=%d не может оформлять заказ киоска".formatted(orderUserId)
                 );
             }
             return user;
@@ -148,6 +347,93 @@ public class KioskOrderService {
         return null;
     }
 
+    private Integer findOrderIdByIdempotencyKey(UUID key) {
+        Integer cached = idempotencyCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Integer stored = kioskOrderRepository.findIdByIdempotencyKey(key).orElse(null);
+        if (stored != null) {
+            idempotencyCache.put(key, stored);
+        }
+        return stored;
+    }
+
+    // пользователь заказа по снимку: указанный явно (оператор) или киоск, от имени которого идёт запрос
+    private Integer resolveOrderUserId(Integer orderUserId, KioskOrderValidationSnapshot.Snapshot snapshot) {
+        Integer userId = orderUserId;
+        if (userId == null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails principal)) {
+                return null;
+            }
+            userId = principal.getId();
+        }
+
+        UserRole role = snapshot.activeUsers().get(userId);
+        if (role == null) {
+            throw new BadRequestException("Пользователь не найден или неактивен");
+        }
+        if (orderUserId != null && role != UserRole.KIOSK && role != UserRole.ADMIN) {
+            throw new BadRequestException(
+                    "Пользователь id=%d не может оформлять заказ киоска".formatted(orderUserId)
+            );
+        }
+        return userId;
+    }
+
+    private KioskOrderValidationSnapshot.Point resolveOrderPoint(Integer garbagePointId, Integer kioskUserId,
+                                                                 KioskOrderValidationSnapshot.Snapshot snapshot) {
+        if (garbagePointId != null) {
+            KioskOrderValidationSnapshot.Point point = snapshot.points().get(garbagePointId);
+            if (point == null) {
+                throw ResourceNotFoundException.of(GarbagePoint.class, "id", garbagePointId);
+            }
+            return point;
+        }
+
+        if (kioskUserId != null) {
+            Integer pointId = snapshot.kioskPoints().get(kioskUserId);
+            if (pointId == null) {
+                throw new BadRequestException("Не найдено точки сбора для киоска id=%d".formatted(kioskUserId));
+            }
+            return snapshot.points().get(pointId);
+        }
+
+        throw new BadRequestException("Не удалось определить точку сбора: передайте garbagePointId или выполните запрос от имени киоска");
+    }
+
+    // проверки, которые раньше делала функция create_kiosk_order, - по снимку и кэшу справочников
+    private String validateOrder(KioskOrderValidationSnapshot.Point point, Integer containerSizeId, Integer fractionId) {
+        if (point == null || !point.open()) {
+            return "Точка сбора не найдена или закрыта";
+        }
+        if (referenceDataCache.containerSize(Long.valueOf(containerSizeId)).isEmpty()) {
+            return "Размер контейнера не найден";
+        }
+        if (referenceDataCache.fraction(fractionId).isEmpty()) {
+            return "Тип отходов не найден";
+        }
+        if (!point.fractions().contains(fractionId)) {
+            return "Данный тип отходов не принимается на этой точке";
+        }
+        return null;
+    }
+
+    private static String constraintMessage(DataIntegrityViolationException e) {
+        String constraint = constraintName(e);
+        return CONSTRAINT_MESSAGES.getOrDefault(constraint, "Не удалось создать заказ: нарушено ограничение " + constraint);
+    }
+
+    private static String constraintName(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
+
     private GarbagePoint resolveGarbagePoint(Integer garbagePointId, User kioskUser) {
         if (garbagePointId != null) {
             return garbagePointRepository.findById(garbagePointId)
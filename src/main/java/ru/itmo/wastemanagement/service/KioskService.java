@@ -3,7 +3,10 @@ package ru.itmo.wastemanagement.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.dto.kiosk.KioskCreateUpdateDto;
@@ -17,7 +20,6 @@ import ru.itmo.wastemanagement.repository.KioskGridRepository;
 import ru.itmo.wastemanagement.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -25,23 +27,26 @@ public class KioskService {
 
     private final UserRepository userRepository;
     private final KioskGridRepository kioskGridRepository;
+    private final GridExportService gridExportService;
     private final PasswordEncoder passwordEncoder;
 
     @Transactional(readOnly = true)
     public GridTableResponse<KioskRowDto> queryKioskGrid(GridTableRequest req) {
-        List<User> rows = kioskGridRepository.findPageByGrid(req);
-        long total = kioskGridRepository.countByGrid(req);
-
-        List<KioskRowDto> dtos = rows.stream()
-                .map(KioskRowDto::fromEntity)
-                .toList();
+        GridTablePage<KioskRowDto> page = kioskGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<KioskRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportKioskGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, KioskRowDto.class,
+                sink -> kioskGridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Integer createKioskUser(KioskCreateUpdateDto dto) {
         if (userRepository.existsByLogin(dto.getLogin()))
@@ -0,0 +1,50 @@
+package ru.itmo.wastemanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Добавление точек, перешедших порог заполнения, в уже запланированные маршруты. Запускается после
+ * коммита заказа на виртуальном потоке, каждая точка - в своей транзакции
+ * ({@link RouteService#insertIntoPlannedRoute}), поэтому создание заказа не ждёт поиска места
+ * и не откатывается из-за него. Ошибки только пишутся в лог: точка дождётся следующей автогенерации.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlannedRouteInsertionService {
+
+    private final RouteService routeService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public void submitAfterCommit(Collection<Integer> garbagePointIds) {
+        if (garbagePointIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = List.copyOf(new LinkedHashSet<>(garbagePointIds));
+        AfterCommit.run(() -> executor.execute(() -> ids.forEach(this::insert)));
+    }
+
+    private void insert(Integer garbagePointId) {
+        try {
+            routeService.insertIntoPlannedRoute(garbagePointId);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось добавить точку {} в запланированный маршрут", garbagePointId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
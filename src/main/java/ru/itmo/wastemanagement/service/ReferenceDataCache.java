@@ -0,0 +1,156 @@
+package ru.itmo.wastemanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
+import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
+import ru.itmo.wastemanagement.entity.ContainerSize;
+import ru.itmo.wastemanagement.entity.Fraction;
+import ru.itmo.wastemanagement.entity.Vehicle;
+import ru.itmo.wastemanagement.repository.ContainerSizeRepository;
+import ru.itmo.wastemanagement.repository.FractionRepository;
+import ru.itmo.wastemanagement.repository.VehicleRepository;
+import ru.itmo.wastemanagement.util.AfterCommit;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Справочники (фракции, размеры контейнеров, транспорт) в памяти: меняются несколько раз в год, а читаются
+ * на каждом экране киоска и при каждом заказе. Справочник целиком загружается одним запросом при первом
+ * чтении и сбрасывается при записи через свой сервис ({@link #invalidate}); чтение из кэша не обращается к БД.
+ * <p>
+ * Метрики: {@code reference.cache.requests} с тегами {@code cache} и {@code result} (hit/miss)
+ * и {@code reference.cache.evictions}.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private final Snapshot<Integer, FractionRowDto> fractions;
+    private final Snapshot<Long, ContainerSizeRowDto> containerSizes;
+    private final Snapshot<Integer, VehicleRowDto> vehicles;
+
+    public ReferenceDataCache(FractionRepository fractionRepository,
+                              ContainerSizeRepository containerSizeRepository,
+                              VehicleRepository vehicleRepository,
+                              MeterRegistry meterRegistry) {
+        this.fractions = new Snapshot<>("fractions", meterRegistry, FractionRowDto::getId,
+                () -> fractionRepository.findAll(Sort.by("name")).stream()
+                        .map(FractionRowDto::fromEntity)
+                        .toList());
+        this.containerSizes = new Snapshot<>("container-sizes", meterRegistry, ContainerSizeRowDto::getId,
+                () -> containerSizeRepository.findAll(Sort.by("capacity")).stream()
+                        .map(ContainerSizeRowDto::fromEntity)
+                        .toList());
+        this.vehicles = new Snapshot<>("vehicles", meterRegistry, VehicleRowDto::getId,
+                () -> vehicleRepository.findAll(Sort.by("id")).stream()
+                        .map(VehicleRowDto::fromEntity)
+                        .toList());
+    }
+
+    public List<FractionRowDto> fractions() {
+        return fractions.get().rows();
+    }
+
+    public Optional<FractionRowDto> fraction(Integer id) {
+        return Optional.ofNullable(fractions.get().byId().get(id));
+    }
+
+    public List<ContainerSizeRowDto> containerSizes() {
+        return containerSizes.get().rows();
+    }
+
+    public Optional<ContainerSizeRowDto> containerSize(Long id) {
+        return Optional.ofNullable(containerSizes.get().byId().get(id));
+    }
+
+    public List<VehicleRowDto> vehicles() {
+        return vehicles.get().rows();
+    }
+
+    public Optional<VehicleRowDto> vehicle(Integer id) {
+        return Optional.ofNullable(vehicles.get().byId().get(id));
+    }
+
+    public void invalidate(Class<?> changed) {
+        Snapshot<?, ?> snapshot = snapshot(changed);
+        snapshot.evict();
+        // справочник, загруженный параллельно до коммита, прочитал старые строки - сбрасываем ещё раз
+        AfterCommit.run(snapshot::evict);
+    }
+
+    private Snapshot<?, ?> snapshot(Class<?> changed) {
+        if (Fraction.class.isAssignableFrom(changed)) {
+            return fractions;
+        }
+        if (ContainerSize.class.isAssignableFrom(changed)) {
+            return containerSizes;
+        }
+        if (Vehicle.class.isAssignableFrom(changed)) {
+            return vehicles;
+        }
+        throw new IllegalArgumentException("Not a reference entity: " + changed.getName());
+    }
+
+    private record Loaded<K, V>(List<V> rows, Map<K, V> byId) {}
+
+    private static final class Snapshot<K, V> {
+
+        private final Supplier<List<V>> loader;
+        private final Function<V, K> id;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter evictions;
+
+        private volatile Loaded<K, V> loaded;
+        // растёт при каждом сбросе: загруженное до него не публикуется
+        private long generation;
+
+        Snapshot(String name, MeterRegistry registry, Function<V, K> id, Supplier<List<V>> loader) {
+            this.loader = loader;
+            this.id = id;
+            this.hits = registry.counter("reference.cache.requests", "cache", name, "result", "hit");
+            this.misses = registry.counter("reference.cache.requests", "cache", name, "result", "miss");
+            this.evictions = registry.counter("reference.cache.evictions", "cache", name);
+        }
+
+        Loaded<K, V> get() {
+            Loaded<K, V> current = loaded;
+            if (current != null) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+
+            long started;
+            synchronized (this) {
+                started = generation;
+            }
+            List<V> rows = List.copyOf(loader.get());
+            Map<K, V> byId = new LinkedHashMap<>(rows.size() * 2);
+            for (V row : rows) {
+                byId.put(id.apply(row), row);
+            }
+            Loaded<K, V> fresh = new Loaded<>(rows, Map.copyOf(byId));
+            synchronized (this) {
+                if (generation == started) {
+                    loaded = fresh;
+                }
+            }
+            return fresh;
+        }
+
+        synchronized void evict() {
+            generation++;
+            loaded = null;
+            evictions.increment();
+        }
+    }
+}
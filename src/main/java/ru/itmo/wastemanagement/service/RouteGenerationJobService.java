@@ -0,0 +1,146 @@
+package ru.itmo.wastemanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobDto;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobStatus;
+import ru.itmo.wastemanagement.exception.ConflictException;
+import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновая автогенерация маршрутов: запрос сразу получает id задачи, планирование идёт
+ * на виртуальном потоке, каждый маршрут записывается в своей короткой транзакции
+ * ({@link RouteService#persistDraft}), поэтому строки garbage_points не блокируются на всё время работы.
+ * <p>
+ * Отмена срабатывает между маршрутами: уже записанные маршруты остаются.
+ * Задачи хранятся в памяти и удаляются через {@code app.routing.jobs.retention-minutes} после завершения.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteGenerationJobService {
+
+    @Value("${app.routing.jobs.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    private final RouteService routeService;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final class Job {
+        final UUID id = UUID.randomUUID();
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicInteger processed = new AtomicInteger();
+        final List<Integer> routeIds = new CopyOnWriteArrayList<>();
+        volatile RouteGenerationJobStatus status = RouteGenerationJobStatus.queued;
+        volatile boolean cancelRequested;
+        volatile Integer total;
+        volatile String error;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+
+        void finish(RouteGenerationJobStatus result) {
+            finishedAt = LocalDateTime.now();
+            status = result;
+        }
+
+        RouteGenerationJobDto toDto() {
+            return RouteGenerationJobDto.builder()
+                    .id(id)
+                    .status(status)
+                    .totalRoutes(total)
+                    .processedRoutes(processed.get())
+                    .routeIds(List.copyOf(routeIds))
+                    .error(error)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+
+    public synchronized RouteGenerationJobDto submit() {
+        evictFinished();
+        // две генерации подряд заняли бы одни и те же точки
+        if (jobs.values().stream().anyMatch(job -> !job.status.isFinished())) {
+            throw new ConflictException("Генерация маршрутов уже выполняется");
+        }
+        Job job = new Job();
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+        return job.toDto();
+    }
+
+    public RouteGenerationJobDto getJob(UUID id) {
+        return find(id).toDto();
+    }
+
+    public RouteGenerationJobDto cancel(UUID id) {
+        Job job = find(id);
+        if (!job.status.isFinished()) {
+            job.cancelRequested = true;
+        }
+        return job.toDto();
+    }
+
+    private void run(Job job) {
+        try {
+            job.startedAt = LocalDateTime.now();
+            if (job.cancelRequested) {
+                job.finish(RouteGenerationJobStatus.cancelled);
+                return;
+            }
+            job.status = RouteGenerationJobStatus.planning;
+            List<RouteService.RouteDraft> drafts = routeService.planFromKioskOrders();
+
+            job.total = drafts.size();
+            job.status = RouteGenerationJobStatus.persisting;
+            for (RouteService.RouteDraft draft : drafts) {
+                if (job.cancelRequested) {
+                    job.finish(RouteGenerationJobStatus.cancelled);
+                    return;
+                }
+                routeService.persistDraft(draft).ifPresent(route -> job.routeIds.add(route.getId()));
+                job.processed.incrementAndGet();
+            }
+            job.finish(RouteGenerationJobStatus.completed);
+        } catch (Throwable e) {
+            // и Error тоже: незавершённая задача блокировала бы все следующие запуски до рестарта
+            log.error("Генерация маршрутов {} завершилась ошибкой", job.id, e);
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            job.finish(RouteGenerationJobStatus.failed);
+        }
+    }
+
+    private Job find(UUID id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("RouteGenerationJob", "id", id);
+        }
+        return job;
+    }
+
+    private void evictFinished() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -2,6 +2,7 @@ package ru.itmo.wastemanagement.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.wastemanagement.dto.route.RouteDto;
 import ru.itmo.wastemanagement.dto.route.RouteStopDto;
@@ -9,6 +10,7 @@ import ru.itmo.wastemanagement.entity.GarbagePoint;
 import ru.itmo.wastemanagement.entity.Route;
 import ru.itmo.wastemanagement.entity.RouteStop;
 import ru.itmo.wastemanagement.entity.User;
+import ru.itmo.wastemanagement.entity.Vehicle;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
 import ru.itmo.wastemanagement.entity.enums.RouteStatus;
 import ru.itmo.wastemanagement.entity.enums.StopStatus;
@@ -18,11 +20,21 @@ import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.entity.DriverShift;
 import ru.itmo.wastemanagement.entity.enums.ShiftStatus;
 import ru.itmo.wastemanagement.repository.DriverShiftRepository;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
 import ru.itmo.wastemanagement.repository.GarbagePointRepository;
-import ru.itmo.wastemanagement.repository.KioskOrderRepository;
+import ru.itmo.wastemanagement.repository.RouteBatchRepository;
 import ru.itmo.wastemanagement.repository.RouteRepository;
 import ru.itmo.wastemanagement.repository.RouteStopRepository;
 import ru.itmo.wastemanagement.repository.UserRepository;
+import ru.itmo.wastemanagement.repository.VehicleRepository;
+import ru.itmo.wastemanagement.routing.AssignmentSolver;
+import ru.itmo.wastemanagement.routing.ClusteredRoutePlanner;
+import ru.itmo.wastemanagement.routing.DistanceLookup;
+import ru.itmo.wastemanagement.routing.GarbagePointDistanceCache;
+import ru.itmo.wastemanagement.routing.GarbagePointSpatialIndex;
+import ru.itmo.wastemanagement.routing.GeoDistance;
+import ru.itmo.wastemanagement.routing.RouteScheduler;
+import ru.itmo.wastemanagement.routing.RouteSolver;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -35,14 +47,29 @@ public class RouteService {
 
     private static final double DEFAULT_FILL_THRESHOLD = 0.7;
     private static final int MAX_STOPS_PER_ROUTE = 12;
+    private static final int SEQ_SHIFT_OFFSET = 1_000_000;
+    // машина без указанной вместимости берётся, только если не подошла ни одна с известной
+    private static final double UNKNOWN_CAPACITY_COST = 1_000_000;
     private record PointLoad(double load, boolean hasWeight, boolean hasAnyOrders) {}
+    private record Insertion(Route route, List<RouteStop> stops, RouteScheduler.Leg leg, int position, double cost) {}
+
+    /**
+     * Запланированный, но ещё не записанный маршрут: id у маршрута и остановок проставляются при записи.
+     */
+    public record RouteDraft(Route route, List<RouteStop> stops) {}
 
     private final RouteRepository routeRepository;
     private final RouteStopRepository routeStopRepository;
-    private final KioskOrderRepository kioskOrderRepository;
+    private final GarbagePointLoadRepository garbagePointLoadRepository;
     private final GarbagePointRepository garbagePointRepository;
     private final UserRepository userRepository;
     private final DriverShiftRepository driverShiftRepository;
+    private final VehicleRepository vehicleRepository;
+    private final GarbagePointDistanceCache distanceCache;
+    private final ClusteredRoutePlanner routePlanner;
+    private final RouteBatchRepository routeBatchRepository;
+    private final RouteScheduler routeScheduler;
+    private final GarbagePointSpatialIndex spatialIndex;
 
     @Transactional(readOnly = true)
     public List<RouteDto> getAllRoutesWithStops() {
@@ -137,32 +164,31 @@ public class RouteService {
 
     @Transactional
     public List<RouteDto> autoGenerateFromKioskOrders() {
+        return createRoutes(planFromKioskOrders());
+    }
+
+    /**
+     * Строит маршруты по активным заказам киосков, ничего не записывая в БД.
+     */
+    @Transactional(readOnly = true)
+    public List<RouteDraft> planFromKioskOrders() {
         Map<Integer, PointLoad> loadByPoint = new HashMap<>();
+        List<GarbagePoint> loadedPoints = new ArrayList<>();
 
-        for (Object[] row : kioskOrderRepository.findActiveWeightsByGarbagePoint()) {
-            if (row == null || row.length < 5 || row[0] == null) {
+        for (Object[] row : garbagePointLoadRepository.findActiveLoadWithGarbagePoints()) {
+            if (row == null || row.length < 5 || !(row[0] instanceof GarbagePoint gp)) {
                 continue;
             }
-            Integer gpId = ((Number) row[0]).intValue();
-            double totalWeight = row[1] != null ? ((Number) row[1]).doubleValue() : 0d;
-            long orderCount = row[2] != null ? ((Number) row[2]).longValue() : 0L;
-            long weightedCount = row[3] != null ? ((Number) row[3]).longValue() : 0L;
-            double totalContainerCapacity = row[4] != null ? ((Number) row[4]).doubleValue() : 0d;
-
-            boolean hasWeight = weightedCount > 0;
-            boolean hasAnyOrders = orderCount > 0;
-            double load = hasWeight ? totalWeight : totalContainerCapacity;
-            loadByPoint.put(gpId, new PointLoad(load, hasWeight, hasAnyOrders));
+            loadByPoint.put(gp.getId(), toPointLoad(row, 1));
+            loadedPoints.add(gp);
         }
 
         if (loadByPoint.isEmpty()) {
             throw new BadRequestException("Нет активных заказов киосков для создания маршрутов");
         }
 
-        List<Map.Entry<GarbagePoint, PointLoad>> candidates = loadByPoint.entrySet().stream()
-                .map(e -> garbagePointRepository.findById(e.getKey()).map(gp -> Map.entry(gp, e.getValue())))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+        List<Map.Entry<GarbagePoint, PointLoad>> candidates = loadedPoints.stream()
+                .map(gp -> Map.entry(gp, loadByPoint.get(gp.getId())))
                 .toList();
 
         List<GarbagePoint> pointsToVisit = candidates.stream()
@@ -187,54 +213,412 @@ public class RouteService {
             throw new BadRequestException("Нет точек для маршрута (нет активных заказов или точки закрыты)");
         }
 
-        List<RouteDto> createdRoutes = new ArrayList<>();
-        List<GarbagePoint> currentBatch = new ArrayList<>();
+        List<RouteDraft> drafts = buildDrafts(planBatches(pointsToVisit, loadByPoint), loadByPoint);
+        assignShifts(drafts);
+        return drafts;
+    }
 
-        for (GarbagePoint gp : pointsToVisit) {
-            currentBatch.add(gp);
+    /**
+     * Раздаёт маршруты свободным открытым сменам одной задачей о назначениях: маршрут допустим
+     * для машины, в которую помещается его загрузка, среди допустимых выбирается машина с наименьшим
+     * запасом вместимости. Маршруты, которым смены не хватило, остаются без водителя.
+     */
+    private void assignShifts(List<RouteDraft> drafts) {
+        if (drafts.isEmpty()) {
+            return;
+        }
+        List<DriverShift> shifts = driverShiftRepository.findFreeOpenShifts();
+        if (shifts.isEmpty()) {
+            return;
+        }
+
+        double[][] cost = new double[drafts.size()][shifts.size()];
+        for (int i = 0; i < drafts.size(); i++) {
+            double load = drafts.get(i).stops().stream()
+                    .mapToDouble(stop -> stop.getExpectedCapacity() != null ? stop.getExpectedCapacity() : 0)
+                    .sum();
+            for (int j = 0; j < shifts.size(); j++) {
+                Vehicle vehicle = shifts.get(j).getVehicle();
+                if (vehicle == null) {
+                    cost[i][j] = Double.POSITIVE_INFINITY;
+                } else if (vehicle.getCapacity() == null) {
+                    cost[i][j] = UNKNOWN_CAPACITY_COST;
+                } else {
+                    cost[i][j] = load <= vehicle.getCapacity() ? vehicle.getCapacity() - load : Double.POSITIVE_INFINITY;
+                }
+            }
+        }
 
-            if (currentBatch.size() >= MAX_STOPS_PER_ROUTE) {
-                RouteDto route = createSingleRoute(currentBatch, loadByPoint);
-                createdRoutes.add(route);
-                currentBatch.clear();
+        int[] shiftOf = AssignmentSolver.assign(cost);
+        for (int i = 0; i < drafts.size(); i++) {
+            if (shiftOf[i] < 0) {
+                continue;
             }
+            DriverShift shift = shifts.get(shiftOf[i]);
+            Route route = drafts.get(i).route();
+            route.setShift(shift);
+            route.setDriver(shift.getDriver());
+            route.setVehicle(shift.getVehicle());
         }
+    }
 
-        if (!currentBatch.isEmpty()) {
-            RouteDto route = createSingleRoute(currentBatch, loadByPoint);
-            createdRoutes.add(route);
+    /**
+     * Записывает один маршрут в собственной короткой транзакции. Точки занимаются условным UPDATE:
+     * если точку уже закрыл другой маршрут, она выбрасывается из черновика. Пустой маршрут не создаётся.
+     */
+    @Transactional
+    public Optional<RouteDto> persistDraft(RouteDraft draft) {
+        List<Integer> pointIds = draft.stops().stream()
+                .map(stop -> stop.getGarbagePoint().getId())
+                .toList();
+        Set<Integer> claimed = new HashSet<>(routeBatchRepository.claimGarbagePoints(pointIds));
+        spatialIndex.openChanged(claimed, false);
+
+        List<RouteStop> stops = new ArrayList<>(claimed.size());
+        int seq = 1;
+        for (RouteStop stop : draft.stops()) {
+            if (claimed.contains(stop.getGarbagePoint().getId())) {
+                stop.setSeqNo(seq++);
+                stops.add(stop);
+            }
         }
+        if (stops.isEmpty()) {
+            return Optional.empty();
+        }
+        if (stops.size() < draft.stops().size()) {
+            reschedule(draft.route(), stops);
+        }
+        routeBatchRepository.insertRoutes(List.of(draft.route()));
+        routeBatchRepository.insertStops(stops);
+        return Optional.of(toDto(draft.route(), stops));
+    }
 
-        return createdRoutes;
+    /**
+     * Пересчитывает время остановок и границы маршрута после выброса занятых точек:
+     * переезды между оставшимися точками другие, и время черновика уже неверно.
+     */
+    private void reschedule(Route route, List<RouteStop> stops) {
+        RouteScheduler.Leg leg = distanceCache.read(distances -> routeScheduler.leg(
+                stops.stream().map(stop -> scheduleStop(stop.getGarbagePoint())).toList(),
+                routeScheduler.shiftStartOn(route.getPlannedDate()), distances));
+        List<RouteScheduler.Visit> visits = leg.visits();
+        for (int i = 0; i < stops.size(); i++) {
+            stops.get(i).setTimeFrom(visits.get(i).start());
+            stops.get(i).setTimeTo(visits.get(i).end());
+        }
+        route.setPlannedStartAt(leg.start());
+        route.setPlannedEndAt(leg.end());
     }
 
-    private RouteDto createSingleRoute(List<GarbagePoint> points, Map<Integer, PointLoad> loadByPoint) {
-        Route route = Route.builder()
-                .plannedDate(LocalDate.now())
-                .build();
-        route = routeRepository.save(route);
+    // колонки: суммарный вес, число заказов, число заказов с весом, суммарный объём контейнеров
+    private static PointLoad toPointLoad(Object[] row, int offset) {
+        double totalWeight = row[offset] != null ? ((Number) row[offset]).doubleValue() : 0d;
+        long orderCount = row[offset + 1] != null ? ((Number) row[offset + 1]).longValue() : 0L;
+        long weightedCount = row[offset + 2] != null ? ((Number) row[offset + 2]).longValue() : 0L;
+        double totalContainerCapacity = row[offset + 3] != null ? ((Number) row[offset + 3]).doubleValue() : 0d;
+
+        boolean hasWeight = weightedCount > 0;
+        boolean hasAnyOrders = orderCount > 0;
+        double load = hasWeight ? totalWeight : totalContainerCapacity;
+        return new PointLoad(load, hasWeight, hasAnyOrders);
+    }
 
-        int seq = 1;
-        List<RouteStop> stops = new ArrayList<>();
+    /**
+     * Если после нового заказа точка перешла порог заполнения, вставляет её в уже запланированный
+     * маршрут в самое дешёвое по расстоянию место с учётом вместимости машины, лимита остановок,
+     * окон работы точек и длины смены.
+     * Новые маршруты не создаются: если подходящего нет, точка ждёт следующей автогенерации.
+     * <p>
+     * Вызывается после коммита заказа и всегда в собственной транзакции. Маршрут выбирается по остановкам
+     * без блокировок, затем строка маршрута блокируется, его остановки перечитываются и место ищется заново:
+     * иначе две вставки в один маршрут сдвигали бы одни и те же seq_no. Точка занимается условным UPDATE,
+     * поэтому из двух параллельных вставок одной точки остановку добавляет только одна.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<RouteDto> insertIntoPlannedRoute(Integer garbagePointId) {
+        GarbagePoint gp = garbagePointRepository.findById(garbagePointId).orElse(null);
+        if (gp == null || !gp.isOpen() || gp.getLat() == null || gp.getLon() == null) {
+            return Optional.empty();
+        }
+        PointLoad load = garbagePointLoadRepository.findActiveLoadByGarbagePointId(garbagePointId).stream()
+                .findFirst()
+                .map(row -> toPointLoad(row, 0))
+                .orElse(null);
+        if (load == null || !needsCleanup(gp, load.load())) {
+            return Optional.empty();
+        }
+
+        Map<Integer, List<RouteStop>> stopsByRoute = routeStopRepository.findPlannedStopsFrom(LocalDate.now())
+                .stream()
+                .collect(Collectors.groupingBy(rs -> rs.getRoute().getId(), LinkedHashMap::new, Collectors.toList()));
+        if (stopsByRoute.isEmpty()) {
+            return Optional.empty();
+        }
+
+        double defaultCapacity = resolveVehicleCapacity();
+        Insertion candidate = distanceCache.read(distances ->
+                findCheapestInsertion(gp, load.load(), stopsByRoute, defaultCapacity, distances));
+        if (candidate == null) {
+            return Optional.empty();
+        }
+
+        Integer routeId = candidate.route().getId();
+        Route locked = routeRepository.findByIdForUpdate(routeId).orElse(null);
+        if (locked == null || locked.getStatus() != RouteStatus.planned) {
+            return Optional.empty();
+        }
+        List<RouteStop> current = routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(routeId));
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        Insertion best = distanceCache.read(distances ->
+                findCheapestInsertion(gp, load.load(), Map.of(routeId, current), defaultCapacity, distances));
+        if (best == null || routeBatchRepository.claimGarbagePoints(List.of(garbagePointId)).isEmpty()) {
+            return Optional.empty();
+        }
+        spatialIndex.openChanged(List.of(garbagePointId), false);
+
+        List<RouteStop> stops = best.stops();
+        int seqNo;
+        if (best.position() < stops.size()) {
+            seqNo = stops.get(best.position()).getSeqNo();
+            // UNIQUE(route_id, seq_no) проверяется построчно, поэтому сдвиг в два шага через большой offset
+            routeStopRepository.shiftSeqNo(routeId, seqNo, SEQ_SHIFT_OFFSET);
+            routeStopRepository.shiftSeqNo(routeId, seqNo + SEQ_SHIFT_OFFSET, 1 - SEQ_SHIFT_OFFSET);
+        } else {
+            seqNo = stops.get(stops.size() - 1).getSeqNo() + 1;
+        }
+
+        routeStopRepository.save(RouteStop.builder()
+                .route(routeRepository.getReferenceById(routeId))
+                .seqNo(seqNo)
+                .garbagePoint(garbagePointRepository.getReferenceById(garbagePointId))
+                .expectedCapacity((int) Math.round(load.load()))
+                .build());
+
+        Route route = routeRepository.findById(routeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Route", "id", routeId));
+        List<RouteStop> reloaded = routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(routeId));
+
+        // пересчитанное расписание: порядок остановок в leg совпадает с seq_no
+        RouteScheduler.Leg leg = best.leg();
+        leg.insert(best.position(), scheduleStop(gp));
+        List<RouteScheduler.Visit> visits = leg.visits();
+        for (int i = 0; i < reloaded.size() && i < visits.size(); i++) {
+            reloaded.get(i).setTimeFrom(visits.get(i).start());
+            reloaded.get(i).setTimeTo(visits.get(i).end());
+        }
+        route.setPlannedStartAt(leg.start());
+        route.setPlannedEndAt(leg.end());
+        return Optional.of(toDto(route, reloaded));
+    }
+
+    private Insertion findCheapestInsertion(GarbagePoint gp, double load, Map<Integer, List<RouteStop>> stopsByRoute,
+                                            double defaultCapacity, DistanceLookup distances) {
+        int newSlot = distances.slotOf(gp.getId());
+        RouteScheduler.Stop newStop = scheduleStop(gp);
+        Insertion best = null;
+        for (List<RouteStop> stops : stopsByRoute.values()) {
+            if (stops.size() >= MAX_STOPS_PER_ROUTE) {
+                continue;
+            }
+            Route route = stops.get(0).getRoute();
+            double capacity = route.getVehicle() != null && route.getVehicle().getCapacity() != null
+                    ? route.getVehicle().getCapacity()
+                    : defaultCapacity;
+            double routeLoad = 0;
+            boolean located = true;
+            for (RouteStop stop : stops) {
+                routeLoad += stop.getExpectedCapacity() != null ? stop.getExpectedCapacity() : 0;
+                GarbagePoint p = stop.getGarbagePoint();
+                located &= p != null && p.getLat() != null && p.getLon() != null;
+            }
+            if (!located || routeLoad + load > capacity) {
+                continue;
+            }
+
+            RouteScheduler.Leg leg = routeScheduler.leg(
+                    stops.stream().map(stop -> scheduleStop(stop.getGarbagePoint())).toList(),
+                    routeScheduler.shiftStartOn(route.getPlannedDate()), distances);
+
+            // маршрут без депо: вставка в начало или конец стоит одно ребро
+            int m = stops.size();
+            double[] toNew = new double[m];
+            for (int i = 0; i < m; i++) {
+                toNew[i] = distance(stops.get(i).getGarbagePoint(), gp, newSlot, distances);
+            }
+            for (int pos = 0; pos <= m; pos++) {
+                double cost;
+                if (pos == 0) {
+                    cost = toNew[0];
+                } else if (pos == m) {
+                    cost = toNew[m - 1];
+                } else {
+                    GarbagePoint prev = stops.get(pos - 1).getGarbagePoint();
+                    GarbagePoint next = stops.get(pos).getGarbagePoint();
+                    cost = toNew[pos - 1] + toNew[pos] - distance(prev, next, distances.slotOf(next.getId()), distances);
+                }
+                if ((best == null || cost < best.cost()) && leg.canInsert(pos, newStop)) {
+                    best = new Insertion(route, stops, leg, pos, cost);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double distance(GarbagePoint a, GarbagePoint b, int slotB, DistanceLookup distances) {
+        int slotA = distances.slotOf(a.getId());
+        if (slotA >= 0 && slotB >= 0) {
+            return distances.distanceKm(slotA, slotB);
+        }
+        return GeoDistance.haversineKm(a.getLat(), a.getLon(), b.getLat(), b.getLon());
+    }
+
+    private List<List<GarbagePoint>> planBatches(List<GarbagePoint> points, Map<Integer, PointLoad> loadByPoint) {
+        double capacity = resolveVehicleCapacity();
+
+        List<GarbagePoint> located = new ArrayList<>();
+        List<GarbagePoint> unlocated = new ArrayList<>();
         for (GarbagePoint gp : points) {
-            Object loadObj = loadByPoint.get(gp.getId());
-            Double weight = 0d;
-            if (loadObj instanceof PointLoad pl) {
-                weight = pl.load();
+            if (gp.getLat() != null && gp.getLon() != null) {
+                located.add(gp);
+            } else {
+                unlocated.add(gp);
+            }
+        }
+
+        List<List<GarbagePoint>> batches = new ArrayList<>();
+
+        if (!located.isEmpty()) {
+            Map<Integer, GarbagePoint> byId = new HashMap<>(located.size() * 2);
+            List<RouteSolver.Point> solverPoints = new ArrayList<>(located.size());
+            double depotLat = 0;
+            double depotLon = 0;
+            for (GarbagePoint gp : located) {
+                byId.put(gp.getId(), gp);
+                solverPoints.add(new RouteSolver.Point(gp.getId(), gp.getLat(), gp.getLon(), pointLoad(gp, loadByPoint)));
+                depotLat += gp.getLat();
+                depotLon += gp.getLon();
             }
-            RouteStop stop = RouteStop.builder()
-                    .route(route)
-                    .seqNo(seq++)
-                    .garbagePoint(gp)
-                    .expectedCapacity(weight != null ? (int) Math.round(weight) : null)
+            // координат депо в системе нет - маршруты считаются от центра обслуживаемых точек
+            depotLat /= located.size();
+            depotLon /= located.size();
+
+            double finalDepotLat = depotLat;
+            double finalDepotLon = depotLon;
+            RouteSolver.Solution solution = distanceCache.read(distances -> routePlanner.plan(
+                    solverPoints, finalDepotLat, finalDepotLon, capacity, MAX_STOPS_PER_ROUTE, distances));
+            for (RouteSolver.PlannedRoute planned : solution.routes()) {
+                batches.add(planned.stops().stream()
+                        .map(p -> byId.get(p.id()))
+                        .toList());
+            }
+        }
+
+        // точки без координат нельзя упорядочить по карте - набираем их в маршруты по вместимости
+        List<GarbagePoint> currentBatch = new ArrayList<>();
+        double currentLoad = 0;
+        for (GarbagePoint gp : unlocated) {
+            double load = pointLoad(gp, loadByPoint);
+            if (!currentBatch.isEmpty()
+                    && (currentBatch.size() >= MAX_STOPS_PER_ROUTE || currentLoad + load > capacity)) {
+                batches.add(currentBatch);
+                currentBatch = new ArrayList<>();
+                currentLoad = 0;
+            }
+            currentBatch.add(gp);
+            currentLoad += load;
+        }
+        if (!currentBatch.isEmpty()) {
+            batches.add(currentBatch);
+        }
+
+        return batches;
+    }
+
+    private double resolveVehicleCapacity() {
+        // маршрут ещё не привязан к машине, поэтому ограничиваемся самой вместительной из активных
+        Integer capacity = vehicleRepository.findMaxActiveCapacity();
+        return capacity != null && capacity > 0 ? capacity : Double.POSITIVE_INFINITY;
+    }
+
+    private static double pointLoad(GarbagePoint gp, Map<Integer, PointLoad> loadByPoint) {
+        PointLoad pl = loadByPoint.get(gp.getId());
+        return pl != null ? pl.load() : 0d;
+    }
+
+    private static RouteScheduler.Stop scheduleStop(GarbagePoint gp) {
+        boolean located = gp.getLat() != null && gp.getLon() != null;
+        return new RouteScheduler.Stop(gp.getId(),
+                located ? gp.getLat() : Double.NaN,
+                located ? gp.getLon() : Double.NaN,
+                gp.getOpensAt(), gp.getClosesAt());
+    }
+
+    private List<RouteDraft> buildDrafts(List<List<GarbagePoint>> batches, Map<Integer, PointLoad> loadByPoint) {
+        LocalDate plannedDate = LocalDate.now();
+        LocalDateTime shiftStart = routeScheduler.shiftStartOn(plannedDate);
+        Map<Integer, GarbagePoint> pointById = new HashMap<>();
+        for (List<GarbagePoint> batch : batches) {
+            batch.forEach(gp -> pointById.put(gp.getId(), gp));
+        }
+
+        // маршрут, который не укладывается в окна точек или в смену, делится на несколько
+        List<RouteScheduler.Leg> legs = distanceCache.read(distances -> {
+            List<RouteScheduler.Leg> scheduled = new ArrayList<>();
+            for (List<GarbagePoint> batch : batches) {
+                scheduled.addAll(routeScheduler.schedule(
+                        batch.stream().map(RouteService::scheduleStop).toList(), shiftStart, distances));
+            }
+            return scheduled;
+        });
+
+        List<RouteDraft> drafts = new ArrayList<>(legs.size());
+        for (RouteScheduler.Leg leg : legs) {
+            Route route = Route.builder()
+                    .plannedDate(plannedDate)
+                    .plannedStartAt(leg.start())
+                    .plannedEndAt(leg.end())
                     .build();
-            stops.add(stop);
-            gp.setOpen(false);
+            int seq = 1;
+            List<RouteScheduler.Visit> visits = leg.visits();
+            List<RouteStop> stops = new ArrayList<>(visits.size());
+            for (RouteScheduler.Visit visit : visits) {
+                GarbagePoint gp = pointById.get(visit.stop().id());
+                stops.add(RouteStop.builder()
+                        .route(route)
+                        .seqNo(seq++)
+                        .garbagePoint(gp)
+                        .timeFrom(visit.start())
+                        .timeTo(visit.end())
+                        .expectedCapacity((int) Math.round(pointLoad(gp, loadByPoint)))
+                        .build());
+            }
+            drafts.add(new RouteDraft(route, stops));
         }
-        routeStopRepository.saveAll(stops);
-        garbagePointRepository.saveAll(points);
+        return drafts;
+    }
 
-        return toDto(route, stops);
+    private List<RouteDto> createRoutes(List<RouteDraft> drafts) {
+        List<Route> routes = drafts.stream().map(RouteDraft::route).toList();
+        routeBatchRepository.insertRoutes(routes);
+
+        List<RouteStop> allStops = new ArrayList<>();
+        List<Integer> pointIds = new ArrayList<>();
+        for (RouteDraft draft : drafts) {
+            allStops.addAll(draft.stops());
+            draft.stops().forEach(stop -> pointIds.add(stop.getGarbagePoint().getId()));
+        }
+        routeBatchRepository.insertStops(allStops);
+        // is_open меняем только в БД: грязные сущности Hibernate обновлял бы построчно
+        routeBatchRepository.closeGarbagePoints(pointIds);
+        spatialIndex.openChanged(pointIds, false);
+
+        List<RouteDto> created = new ArrayList<>(drafts.size());
+        for (RouteDraft draft : drafts) {
+            created.add(toDto(draft.route(), draft.stops()));
+        }
+        return created;
     }
 
     @Transactional
@@ -252,6 +636,7 @@ public class RouteService {
             gp.setOpen(true);
         }
         garbagePointRepository.saveAll(gps);
+        spatialIndex.openChanged(gps.stream().map(GarbagePoint::getId).toList(), true);
 
         routeStopRepository.deleteByRoute_Id(id);
         routeRepository.deleteById(id);
@@ -478,6 +863,7 @@ public class RouteService {
                 gp.setOpen(true);
             }
             garbagePointRepository.saveAll(gps);
+            spatialIndex.openChanged(gps.stream().map(GarbagePoint::getId).toList(), true);
         }
 
         return toDto(route, stops);
@@ -548,6 +934,7 @@ public class RouteService {
             gp.setOpen(true);
         }
         garbagePointRepository.saveAll(gps);
+        spatialIndex.openChanged(gps.stream().map(GarbagePoint::getId).toList(), true);
 
         stops = routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(routeId));
         return toDto(route, stops);
@@ -3,6 +3,9 @@ package ru.itmo.wastemanagement.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
@@ -14,7 +17,6 @@ import ru.itmo.wastemanagement.repository.VehicleGridRepository;
 import ru.itmo.wastemanagement.repository.VehicleRepository;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -22,22 +24,26 @@ public class VehicleService {
 
     private final VehicleRepository vehicleRepository;
     private final VehicleGridRepository vehicleGridRepository;
+    private final GridExportService gridExportService;
+    private final ReferenceDataCache referenceDataCache;
 
     @Transactional(readOnly = true)
     public GridTableResponse<VehicleRowDto> queryGrid(GridTableRequest req) {
-        List<Vehicle> rows = vehicleGridRepository.findPageByGrid(req);
-        long total = vehicleGridRepository.countByGrid(req);
-
-        List<VehicleRowDto> dtos = rows.stream()
-                .map(VehicleRowDto::fromEntity)
-                .toList();
+        GridTablePage<VehicleRowDto> page = vehicleGridRepository.findPageByGrid(req);
 
         return GridTableResponse.<VehicleRowDto>builder()
-                .rows(dtos)
-                .lastRow((int) total)
+                .rows(page.rows())
+                .lastRow(page.lastRow())
+                .lastRowExact(page.lastRowExact())
+                .nextCursor(page.nextCursor())
                 .build();
     }
 
+    public StreamingResponseBody exportGrid(GridTableRequest req, GridExportFormat format) {
+        return gridExportService.stream(format, VehicleRowDto.class,
+                sink -> vehicleGridRepository.exportByGrid(req, sink));
+    }
+
     @Transactional
     public Integer createVehicle(VehicleUpsertDto dto) {
         String plate = dto.getPlateNumber().trim();
@@ -54,7 +60,9 @@ public class VehicleService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return vehicleRepository.save(vehicle).getId();
+        Integer id = vehicleRepository.save(vehicle).getId();
+        referenceDataCache.invalidate(Vehicle.class);
+        return id;
     }
 
     @Transactional
@@ -74,6 +82,7 @@ public class VehicleService {
         vehicle.setName(dto.getName() != null ? dto.getName().trim() : null);
         vehicle.setCapacity(dto.getCapacity());
         vehicle.setActive(dto.getActive() != null ? dto.getActive() : vehicle.isActive());
+        referenceDataCache.invalidate(Vehicle.class);
     }
 
     @Transactional
@@ -82,5 +91,6 @@ public class VehicleService {
                 .orElseThrow(() -> new ResourceNotFoundException("Vehicle", "id", id));
 
         vehicleRepository.delete(vehicle);
+        referenceDataCache.invalidate(Vehicle.class);
     }
 }
@@ -0,0 +1,230 @@
+package ru.itmo.wastemanagement.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.experimental.UtilityClass;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset-пагинация для grid-таблиц. Сортировка всегда дополняется {@code id}, поэтому порядок строк
+ * однозначен. Курсор - base64 от JSON со значениями ключей сортировки последней строки страницы
+ * и подписью сортировки; следующая страница выбирается условием "после этой строки" вместо OFFSET,
+ * и её стоимость не зависит от глубины прокрутки.
+ * <p>
+ * NULL-ы упорядочены как в PostgreSQL по умолчанию: в конце при asc и в начале при desc.
+ */
+@UtilityClass
+public final class GridTableKeyset {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public record SortKey(String colId, Path<?> path, boolean desc) {}
+
+    /**
+     * Ключи сортировки из sortModel (или {@code defaults}, если она пуста) с {@code id} в конце.
+     */
+    public static List<SortKey> sortKeys(Root<?> root, List<GridTableSortModel> sortModel,
+                                         List<GridTableSortModel> defaults) {
+        List<GridTableSortModel> source = sortModel != null && !sortModel.isEmpty() ? sortModel : defaults;
+        List<SortKey> keys = new ArrayList<>(source.size() + 1);
+        boolean hasId = false;
+        for (GridTableSortModel s : source) {
+            String colId = s.getColId() == null || s.getColId().isBlank() ? "id" : s.getColId();
+            keys.add(new SortKey(colId, GridTablePredicateBuilder.resolvePath(root, colId),
+                    "desc".equalsIgnoreCase(s.getSort())));
+            hasId |= "id".equals(colId);
+        }
+        if (!hasId) {
+            // id в том же направлении, что и последний ключ: так обычно совпадает с индексом (col, id)
+            boolean desc = keys.isEmpty() || keys.get(keys.size() - 1).desc();
+            keys.add(new SortKey("id", root.get("id"), desc));
+        }
+        return keys;
+    }
+
+    public static List<Order> orders(CriteriaBuilder cb, List<SortKey> keys) {
+        List<Order> orders = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            orders.add(key.desc() ? cb.desc(key.path()) : cb.asc(key.path()));
+        }
+        return orders;
+    }
+
+    /**
+     * Колонки выборки страницы: {@code id} первым, затем ключи сортировки для следующего курсора
+     * и, если нужно, {@code count(id) over()} - общее число строк тем же запросом.
+     */
+    public static List<Selection<?>> selection(CriteriaBuilder cb, Root<?> root, List<SortKey> keys,
+                                               boolean withTotal) {
+        List<Selection<?>> selection = new ArrayList<>(keys.size() + 2);
+        selection.add(root.get("id"));
+        for (SortKey key : keys) {
+            selection.add(key.path());
+        }
+        if (withTotal) {
+            HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+            selection.add(hcb.count(root.get("id"), hcb.createWindow()));
+        }
+        return selection;
+    }
+
+    /**
+     * Общее число строк по странице. Окно считается после фильтров, но до LIMIT: это все строки
+     * выборки, а в режиме курсора - строки после курсора, к которым добавляются {@code skipped}
+     * уже показанных. Неполная страница - последняя, и число известно без окна.
+     *
+     * @return {@code null}, если по странице число не определить (пустая страница или окно не запрошено)
+     */
+    public static Long total(List<Tuple> page, List<SortKey> keys, int skipped, int pageSize, boolean withTotal) {
+        if (!page.isEmpty() && page.size() < pageSize) {
+            return (long) skipped + page.size();
+        }
+        if (page.isEmpty()) {
+            return skipped == 0 ? 0L : null;
+        }
+        if (!withTotal) {
+            return null;
+        }
+        return skipped + page.get(0).get(keys.size() + 1, Long.class);
+    }
+
+    /**
+     * Строки второго запроса (по {@code id} страницы, {@code where id in :ids}) в порядке страницы.
+     */
+    public static <T, K> List<T> inPageOrder(List<K> ids, List<T> rows, Function<T, K> id) {
+        Map<K, Integer> rank = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(row -> rank.getOrDefault(id.apply(row), Integer.MAX_VALUE)));
+        return sorted;
+    }
+
+    /**
+     * Условие "строка после курсора": (k1 > v1) or (k1 = v1 and k2 > v2) or ...
+     * с учётом направления и NULL. Для индекса по первому ключу добавляется его диапазон отдельно.
+     */
+    public static Predicate seekPredicate(CriteriaBuilder cb, List<SortKey> keys, String cursor) {
+        List<Object> values = decode(keys, cursor);
+
+        List<Predicate> branches = new ArrayList<>(keys.size());
+        List<Predicate> equalPrefix = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = keys.get(i);
+            Object value = values.get(i);
+            Predicate after = after(cb, key, value);
+            if (after != null) {
+                List<Predicate> branch = new ArrayList<>(equalPrefix);
+                branch.add(after);
+                branches.add(cb.and(branch.toArray(new Predicate[0])));
+            }
+            equalPrefix.add(value == null ? cb.isNull(key.path()) : cb.equal(key.path(), value));
+        }
+        if (branches.isEmpty()) {
+            return cb.disjunction();
+        }
+
+        Predicate seek = cb.or(branches.toArray(new Predicate[0]));
+        Predicate bound = leadingBound(cb, keys.get(0), values.get(0));
+        return bound != null ? cb.and(bound, seek) : seek;
+    }
+
+    /**
+     * Курсор на строку, следующую за страницей, или {@code null}, если страница неполная.
+     */
+    public static String nextCursor(List<SortKey> keys, List<Tuple> page, int pageSize) {
+        if (page.size() < pageSize || page.isEmpty()) {
+            return null;
+        }
+        Tuple last = page.get(page.size() - 1);
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            values.add(last.get(i + 1));
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(Map.of("s", signature(keys), "v", values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode grid cursor", e);
+        }
+    }
+
+    private static List<Object> decode(List<SortKey> keys, String cursor) {
+        Map<String, Object> token;
+        try {
+            token = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new BadRequestException("Некорректный курсор");
+        }
+        if (!signature(keys).equals(token.get("s")) || !(token.get("v") instanceof List<?> raw)
+                || raw.size() != keys.size()) {
+            throw new BadRequestException("Курсор не соответствует сортировке таблицы");
+        }
+
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = raw.get(i);
+            try {
+                values.add(value == null ? null : MAPPER.convertValue(value, keys.get(i).path().getJavaType()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Некорректный курсор");
+            }
+        }
+        return values;
+    }
+
+    private static String signature(List<SortKey> keys) {
+        return keys.stream()
+                .map(k -> k.colId() + (k.desc() ? ":desc" : ":asc"))
+                .collect(Collectors.joining(","));
+    }
+
+    // строки строго после value по одному ключу; null - если таких нет
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate after(CriteriaBuilder cb, SortKey key, Object value) {
+        Expression<Comparable> exp = (Expression<Comparable>) key.path();
+        if (key.desc()) {
+            // NULLS FIRST: после NULL идут все непустые
+            return value == null ? cb.isNotNull(exp) : cb.lessThan(exp, (Comparable) value);
+        }
+        // NULLS LAST: после NULL ничего нет
+        return value == null ? null : cb.or(cb.greaterThan(exp, (Comparable) value), cb.isNull(exp));
+    }
+
+    // избыточный диапазон по первому ключу - без него OR-условие не даёт планировщику индексный скан
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate leadingBound(CriteriaBuilder cb, SortKey key, Object value) {
+        if (value == null) {
+            return null;
+        }
+        Expression<Comparable> exp = (Expression<Comparable>) key.path();
+        return key.desc()
+                ? cb.lessThanOrEqualTo(exp, (Comparable) value)
+                : cb.or(cb.greaterThanOrEqualTo(exp, (Comparable) value), cb.isNull(exp));
+    }
+}
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Expression;
@@ -16,8 +18,21 @@ import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
 import lombok.experimental.UtilityClass;
-
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+
+/**
+ * Предикаты grid-таблиц из filterModel ag-Grid. Разбор колонок и фильтров выполняется один раз:
+ * путь колонки (какие сегменты - джойны, какие - атрибуты, тип значения) берётся из метамодели JPA,
+ * а набор фильтров одной формы (колонки, filterType, type) компилируется в план с готовыми
+ * конвертерами значений. Планы кэшируются по сущности; на запрос остаётся только подставить значения.
+ */
 @UtilityClass
 public final class GridTablePredicateBuilder {
 
@@ -45,142 +60,304 @@ public final class GridTablePredicateBuilder {
     // }
     // }
 
+    // форму фильтров задаёт клиент - число закэшированных планов на сущность ограничено
+    private static final int MAX_FILTER_PLANS_PER_ENTITY = 256;
+
+    // слова быстрого поиска сверх этого числа не учитываются
+    private static final int MAX_QUICK_FILTER_WORDS = 8;
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private static final Map<Class<?>, EntityPlans> PLANS = new ConcurrentHashMap<>();
+
+    private enum FilterKind {
+        TEXT, NUMBER, DATE, SET;
+
+        static FilterKind of(Object filterType) {
+            return switch (String.valueOf(filterType)) {
+                case "text" -> TEXT;
+                case "number" -> NUMBER;
+                case "date" -> DATE;
+                case "set" -> SET;
+                default -> null;
+            };
+        }
+    }
+
+    private enum Operator {
+        EQUALS, NOT_EQUAL, CONTAINS, STARTS_WITH, ENDS_WITH,
+        LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL, IN_RANGE, UNSUPPORTED;
+
+        static Operator of(Object type) {
+            return switch (String.valueOf(type)) {
+                case "equals" -> EQUALS;
+                case "notEqual" -> NOT_EQUAL;
+                case "contains" -> CONTAINS;
+                case "startsWith" -> STARTS_WITH;
+                case "endsWith" -> ENDS_WITH;
+                case "lessThan" -> LESS_THAN;
+                case "lessThanOrEqual" -> LESS_THAN_OR_EQUAL;
+                case "greaterThan" -> GREATER_THAN;
+                case "greaterThanOrEqual" -> GREATER_THAN_OR_EQUAL;
+                case "inRange" -> IN_RANGE;
+                default -> UNSUPPORTED;
+            };
+        }
+    }
+
+    /**
+     * Путь колонки: сначала джойны от корня, затем атрибуты (поле, embeddable, неявный переход).
+     */
+    private record ColumnPlan(String[] joins, String[] attributes, Class<?> javaType) {}
+
+    /**
+     * Фильтр одной колонки: {@code valueType} и {@code converter} - тип сравнения и приведение значений к нему.
+     */
+    private record FilterPlan(String colId, ColumnPlan column, FilterKind kind, Operator operator,
+                              Class<?> valueType, Function<Object, Object> converter) {}
+
+    private record EntityPlans(Map<String, ColumnPlan> columns, Map<String, List<FilterPlan>> filters) {}
+
     public static List<Predicate> build(CriteriaBuilder cb, Root<?> root, Map<String, Object> filterModel) {
         List<Predicate> out = new ArrayList<>();
 
         if (filterModel == null || filterModel.isEmpty())
             return out;
 
-        for (var entry : filterModel.entrySet()) {
-            String col = entry.getKey();
+        for (FilterPlan plan : filterPlan(root, filterModel)) {
             @SuppressWarnings("unchecked")
-            Map<String, Object> fm = (Map<String, Object>) entry.getValue();
-            String ft = (String) fm.get("filterType");
-
-            Path<?> path = resolvePath(root, col);
-
-            switch (String.valueOf(ft)) {
-                case "text" -> handleText(cb, out, path, fm);
-                case "number" -> handleNumber(cb, out, path, fm);
-                case "date" -> handleDate(cb, out, path, fm);
-                case "set" -> handleSet(cb, out, path, fm);
-                default -> {
-                }
+            Map<String, Object> fm = (Map<String, Object>) filterModel.get(plan.colId());
+            Path<?> path = path(root, plan.column());
+
+            switch (plan.kind()) {
+                case TEXT -> handleText(cb, out, path, plan, fm);
+                case NUMBER -> handleNumber(cb, out, path, plan, fm);
+                case DATE -> handleDate(cb, out, path, plan, fm);
+                case SET -> handleSet(cb, out, path, plan, fm);
             }
         }
         return out;
     }
 
+    /**
+     * Быстрый поиск: каждое слово {@code text} должно встретиться хотя бы в одной из колонок {@code colIds}.
+     */
+    public static Predicate quickFilter(CriteriaBuilder cb, Root<?> root, List<String> colIds, String text) {
+        List<Predicate> words = new ArrayList<>();
+        for (String word : text.trim().split("\\s+")) {
+            if (words.size() == MAX_QUICK_FILTER_WORDS)
+                break;
+            String pattern = "%" + escapeLike(word) + "%";
+            Predicate[] anyColumn = new Predicate[colIds.size()];
+            for (int i = 0; i < colIds.size(); i++) {
+                anyColumn[i] = ilike(cb, resolvePath(root, colIds.get(i)).as(String.class), pattern);
+            }
+            words.add(cb.or(anyColumn));
+        }
+        return cb.and(words.toArray(new Predicate[0]));
+    }
+
     public static Path<?> resolvePath(Root<?> root, String colId) {
 
         if (colId == null || colId.isBlank())
             return root.get("id");
 
-        String[] parts = colId.split("\\.");
+        return path(root, column(root, plans(root), colId));
+    }
 
-        Path<?> p = root;
-        From<?, ?> from = root;
+    private static EntityPlans plans(Root<?> root) {
+        return PLANS.computeIfAbsent(root.getModel().getJavaType(),
+                type -> new EntityPlans(new ConcurrentHashMap<>(), new ConcurrentHashMap<>()));
+    }
 
-        for (int i = 0; i < parts.length; i++) {
-            String part = parts[i];
+    private static ColumnPlan column(Root<?> root, EntityPlans plans, String colId) {
+        ColumnPlan plan = plans.columns().get(colId);
+        if (plan == null) {
+            // неизвестная колонка бросает исключение и в кэш не попадает
+            plan = compileColumn(root.getModel(), colId);
+            plans.columns().putIfAbsent(colId, plan);
+        }
+        return plan;
+    }
 
-            boolean isLast = (i == parts.length - 1);
-            if (!isLast) {
-                Join<?, ?> existing = null;
-                for (Join<?, ?> j : from.getJoins()) {
-                    if (j.getAttribute() != null && j.getAttribute().getName().equals(part)) {
-                        existing = j;
-                        break;
-                    }
-                }
+    private static List<FilterPlan> filterPlan(Root<?> root, Map<String, Object> filterModel) {
+        EntityPlans plans = plans(root);
+        String shape = shapeOf(filterModel);
+        List<FilterPlan> plan = plans.filters().get(shape);
+        if (plan == null) {
+            plan = compileFilters(root, plans, filterModel);
+            if (plans.filters().size() < MAX_FILTER_PLANS_PER_ENTITY) {
+                plans.filters().putIfAbsent(shape, plan);
+            }
+        }
+        return plan;
+    }
 
-                if (existing != null) {
-                    from = existing;
-                    p = from;
-                    continue;
-                }
+    // значения фильтров в форму не входят: план зависит только от колонок и видов сравнения
+    private static String shapeOf(Map<String, Object> filterModel) {
+        StringBuilder sb = new StringBuilder();
+        for (var entry : filterModel.entrySet()) {
+            sb.append(entry.getKey()).append('\u0001');
+            if (entry.getValue() instanceof Map<?, ?> fm) {
+                sb.append(fm.get("filterType")).append('\u0001').append(fm.get("type"));
+            }
+            sb.append('\u0002');
+        }
+        return sb.toString();
+    }
 
-                try {
-                    from = from.join(part, JoinType.LEFT);
-                    p = from;
-                    continue;
-                } catch (IllegalArgumentException ignored) {
+    private static List<FilterPlan> compileFilters(Root<?> root, EntityPlans plans, Map<String, Object> filterModel) {
+        List<FilterPlan> compiled = new ArrayList<>(filterModel.size());
+        for (var entry : filterModel.entrySet()) {
+            if (!(entry.getValue() instanceof Map<?, ?> fm))
+                continue;
+            FilterKind kind = FilterKind.of(fm.get("filterType"));
+            if (kind == null)
+                continue;
+
+            String colId = entry.getKey();
+            ColumnPlan column = column(root, plans, colId);
+            Operator operator = Operator.of(fm.get("type"));
+            Class<?> t = column.javaType();
+
+            switch (kind) {
+                case TEXT -> compiled.add(new FilterPlan(colId, column, kind, operator, String.class, null));
+                case NUMBER -> {
+                    Class<?> numberType = numberType(t);
+                    if (numberType != null)
+                        compiled.add(new FilterPlan(colId, column, kind, operator, numberType, numberConverter(numberType)));
                 }
+                case DATE -> {
+                    if (t != null && LocalDateTime.class.isAssignableFrom(t))
+                        compiled.add(new FilterPlan(colId, column, kind, operator, LocalDateTime.class, null));
+                }
+                case SET -> compiled.add(new FilterPlan(colId, column, kind, operator, t, setConverter(t)));
+            }
+        }
+        return List.copyOf(compiled);
+    }
+
+    private static ColumnPlan compileColumn(ManagedType<?> entity, String colId) {
+        String[] parts = colId.split("\\.");
+        List<String> joins = new ArrayList<>();
+        List<String> attributes = new ArrayList<>();
+        ManagedType<?> current = entity;
+        Class<?> javaType = null;
+
+        for (int i = 0; i < parts.length; i++) {
+            Attribute<?, ?> attribute = current != null ? findAttribute(current, parts[i]) : null;
+            if (attribute == null)
+                throw new BadRequestException("Неизвестная колонка таблицы: " + colId);
+
+            boolean isLast = (i == parts.length - 1);
+            // джойны только подряд от корня: после embeddable дальше идём через get
+            if (!isLast && attribute.isAssociation() && attributes.isEmpty()) {
+                joins.add(parts[i]);
+            } else {
+                attributes.add(parts[i]);
             }
 
-            p = p.get(part);
+            Type<?> target = targetType(attribute);
+            current = target instanceof ManagedType<?> managed ? managed : null;
+            javaType = attribute.getJavaType();
+        }
+        return new ColumnPlan(joins.toArray(new String[0]), attributes.toArray(new String[0]), javaType);
+    }
 
-            if (p instanceof From<?, ?> f)
-                from = f;
+    private static Attribute<?, ?> findAttribute(ManagedType<?> type, String name) {
+        for (Attribute<?, ?> attribute : type.getAttributes()) {
+            if (attribute.getName().equals(name))
+                return attribute;
         }
+        return null;
+    }
 
+    private static Type<?> targetType(Attribute<?, ?> attribute) {
+        if (attribute instanceof SingularAttribute<?, ?> singular)
+            return singular.getType();
+        if (attribute instanceof PluralAttribute<?, ?, ?> plural)
+            return plural.getElementType();
+        return null;
+    }
+
+    private static Path<?> path(Root<?> root, ColumnPlan column) {
+        From<?, ?> from = root;
+        for (String join : column.joins()) {
+            from = join(from, join);
+        }
+        Path<?> p = from;
+        for (String attribute : column.attributes()) {
+            p = p.get(attribute);
+        }
         return p;
     }
 
-    private static void handleText(CriteriaBuilder cb, List<Predicate> out, Path<?> path, Map<String, Object> fm) {
-        String type = (String) fm.get("type");
+    // фильтр и сортировка по одной связи должны использовать один джойн
+    private static From<?, ?> join(From<?, ?> from, String attribute) {
+        for (Join<?, ?> j : from.getJoins()) {
+            if (j.getAttribute() != null && j.getAttribute().getName().equals(attribute))
+                return j;
+        }
+        return from.join(attribute, JoinType.LEFT);
+    }
+
+    private static void handleText(CriteriaBuilder cb, List<Predicate> out, Path<?> path, FilterPlan plan,
+                                   Map<String, Object> fm) {
         String val = (String) fm.get("filter");
         if (val == null || val.isBlank())
             return;
 
-        Expression<String> exp = cb.lower(path.as(String.class));
-        String p = val.toLowerCase(Locale.ROOT);
+        Expression<String> exp = path.as(String.class);
+        String p = escapeLike(val);
 
-        switch (type) {
-            case "contains" -> out.add(cb.like(exp, "%" + p + "%"));
-            case "equals" -> out.add(cb.equal(exp, p));
-            case "startsWith" -> out.add(cb.like(exp, p + "%"));
-            case "endsWith" -> out.add(cb.like(exp, "%" + p));
-            case "notEqual" -> out.add(cb.notEqual(exp, p));
+        switch (plan.operator()) {
+            case CONTAINS -> out.add(ilike(cb, exp, "%" + p + "%"));
+            case EQUALS -> out.add(cb.equal(cb.lower(exp), val.toLowerCase(Locale.ROOT)));
+            case STARTS_WITH -> out.add(ilike(cb, exp, p + "%"));
+            case ENDS_WITH -> out.add(ilike(cb, exp, "%" + p));
+            case NOT_EQUAL -> out.add(cb.notEqual(cb.lower(exp), val.toLowerCase(Locale.ROOT)));
             default -> {
             }
         }
     }
 
-    private static void handleNumber(CriteriaBuilder cb, List<Predicate> out, Path<?> path, Map<String, Object> fm) {
-        String type = (String) fm.get("type");
-        Number f1 = toNumber(fm.get("filter"));
-        Number f2 = toNumber(fm.get("filterTo"));
-
-        Class<?> jt = path.getJavaType();
-
-        if (jt == Integer.class || jt == Integer.TYPE) {
-            addNumber(cb, out, type, path.as(Integer.class),
-                    f1 != null ? f1.intValue() : null,
-                    f2 != null ? f2.intValue() : null);
-        } else if (jt == Long.class || jt == Long.TYPE) {
-            addNumber(cb, out, type, path.as(Long.class),
-                    f1 != null ? f1.longValue() : null,
-                    f2 != null ? f2.longValue() : null);
-        } else if (jt == Float.class || jt == Float.TYPE) {
-            addNumber(cb, out, type, path.as(Float.class),
-                    f1 != null ? f1.floatValue() : null,
-                    f2 != null ? f2.floatValue() : null);
-        } else if (jt == Double.class || jt == Double.TYPE) {
-            addNumber(cb, out, type, path.as(Double.class),
-                    f1 != null ? f1.doubleValue() : null,
-                    f2 != null ? f2.doubleValue() : null);
-        } else if (jt == BigDecimal.class) {
-            addNumber(cb, out, type, path.as(BigDecimal.class),
-                    f1 != null ? new BigDecimal(f1.toString()) : null,
-                    f2 != null ? new BigDecimal(f2.toString()) : null);
+    // ILIKE по самой колонке, а не lower(col) LIKE: такое условие обслуживает GIN-индекс pg_trgm
+    private static Predicate ilike(CriteriaBuilder cb, Expression<String> exp, String pattern) {
+        return ((HibernateCriteriaBuilder) cb).ilike(exp, pattern, LIKE_ESCAPE);
+    }
+
+    // % и _ из значения фильтра ищутся как обычные символы
+    static String escapeLike(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE)
+                sb.append(LIKE_ESCAPE);
+            sb.append(c);
         }
+        return sb.toString();
     }
 
-    private static <T extends Number & Comparable<T>> void addNumber(
-            CriteriaBuilder cb, List<Predicate> out, String type,
-            Expression<T> num, T v1, T v2) {
-        if (v1 == null && !"inRange".equals(type))
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void handleNumber(CriteriaBuilder cb, List<Predicate> out, Path<?> path, FilterPlan plan,
+                                     Map<String, Object> fm) {
+        Object f1 = fm.get("filter");
+        Object f2 = fm.get("filterTo");
+        Comparable v1 = f1 != null ? (Comparable) plan.converter().apply(f1) : null;
+        Comparable v2 = f2 != null ? (Comparable) plan.converter().apply(f2) : null;
+        if (v1 == null && plan.operator() != Operator.IN_RANGE)
             return;
 
-        switch (type) {
-            case "equals" -> out.add(cb.equal(num, v1));
-            case "notEqual" -> out.add(cb.notEqual(num, v1));
-            case "lessThan" -> out.add(cb.lessThan(num, v1));
-            case "lessThanOrEqual" -> out.add(cb.lessThanOrEqualTo(num, v1));
-            case "greaterThan" -> out.add(cb.greaterThan(num, v1));
-            case "greaterThanOrEqual" -> out.add(cb.greaterThanOrEqualTo(num, v1));
-            case "inRange" -> {
+        Expression<Comparable> num = (Expression<Comparable>) path.as(plan.valueType());
+
+        switch (plan.operator()) {
+            case EQUALS -> out.add(cb.equal(num, v1));
+            case NOT_EQUAL -> out.add(cb.notEqual(num, v1));
+            case LESS_THAN -> out.add(cb.lessThan(num, v1));
+            case LESS_THAN_OR_EQUAL -> out.add(cb.lessThanOrEqualTo(num, v1));
+            case GREATER_THAN -> out.add(cb.greaterThan(num, v1));
+            case GREATER_THAN_OR_EQUAL -> out.add(cb.greaterThanOrEqualTo(num, v1));
+            case IN_RANGE -> {
                 if (v1 != null && v2 != null) {
                     out.add(cb.and(cb.greaterThanOrEqualTo(num, v1), cb.lessThanOrEqualTo(num, v2)));
                 } else if (v1 != null) {
@@ -194,11 +371,8 @@ public final class GridTablePredicateBuilder {
         }
     }
 
-    private static void handleDate(CriteriaBuilder cb, List<Predicate> out, Path<?> path, Map<String, Object> fm) {
-        if (!LocalDateTime.class.isAssignableFrom(path.getJavaType()))
-            return;
-
-        String type = (String) fm.get("type");
+    private static void handleDate(CriteriaBuilder cb, List<Predicate> out, Path<?> path, FilterPlan plan,
+                                   Map<String, Object> fm) {
         String d1s = (String) fm.get("dateFrom");
         String d2s = (String) fm.get("dateTo");
         if (d1s == null || d1s.isBlank())
@@ -211,17 +385,17 @@ public final class GridTablePredicateBuilder {
         LocalDateTime start = d1.atStartOfDay();
         Expression<LocalDateTime> dt = path.as(LocalDateTime.class);
 
-        switch (type) {
-            case "equals" -> {
+        switch (plan.operator()) {
+            case EQUALS -> {
                 LocalDateTime end = d1.plusDays(1).atStartOfDay();
                 out.add(cb.between(dt, start, end));
             }
-            case "lessThan" -> out.add(cb.lessThan(dt, start));
-            case "greaterThan" -> {
+            case LESS_THAN -> out.add(cb.lessThan(dt, start));
+            case GREATER_THAN -> {
                 LocalDateTime end = d1.plusDays(1).atStartOfDay();
                 out.add(cb.greaterThanOrEqualTo(dt, end));
             }
-            case "inRange" -> {
+            case IN_RANGE -> {
                 LocalDate d2 = parseToLocalDate(d2s);
                 if (d2 == null)
                     d2 = d1;
@@ -233,7 +407,8 @@ public final class GridTablePredicateBuilder {
         }
     }
 
-    private static void handleSet(CriteriaBuilder cb, List<Predicate> out, Path<?> path, Map<String, Object> fm) {
+    private static void handleSet(CriteriaBuilder cb, List<Predicate> out, Path<?> path, FilterPlan plan,
+                                  Map<String, Object> fm) {
         @SuppressWarnings("unchecked")
         List<Object> values = (List<Object>) fm.get("values");
         if (values == null || values.isEmpty())
@@ -241,38 +416,64 @@ public final class GridTablePredicateBuilder {
 
         CriteriaBuilder.In<Object> in = cb.in(path);
         for (Object v : values)
-            in.value(castForPath(path, v));
+            in.value(plan.converter().apply(v));
         out.add(in);
     }
 
-    @SuppressWarnings("unchecked")
-    private static Object castForPath(Path<?> path, Object value) {
-        Class<?> t = path.getJavaType();
-
-        if (value != null && t.isInstance(value))
-            return value;
+    private static Class<?> numberType(Class<?> t) {
+        if (t == Integer.class || t == Integer.TYPE)
+            return Integer.class;
+        if (t == Long.class || t == Long.TYPE)
+            return Long.class;
+        if (t == Float.class || t == Float.TYPE)
+            return Float.class;
+        if (t == Double.class || t == Double.TYPE)
+            return Double.class;
+        if (t == BigDecimal.class)
+            return BigDecimal.class;
+        return null;
+    }
 
-        String stringValue = value == null ? null : value.toString();
+    private static Function<Object, Object> numberConverter(Class<?> numberType) {
+        if (numberType == Integer.class)
+            return o -> toNumber(o).intValue();
+        if (numberType == Long.class)
+            return o -> toNumber(o).longValue();
+        if (numberType == Float.class)
+            return o -> toNumber(o).floatValue();
+        if (numberType == Double.class)
+            return o -> toNumber(o).doubleValue();
+        return o -> new BigDecimal(toNumber(o).toString());
+    }
 
-        if (t.equals(Boolean.class) || t.equals(Boolean.TYPE)) {
-            if (value instanceof Boolean)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> setConverter(Class<?> t) {
+        Function<String, Object> parse;
+        if (t == null)
+            parse = s -> s;
+        else if (t.equals(Boolean.class) || t.equals(Boolean.TYPE))
+            parse = Boolean::valueOf;
+        else if (t.isEnum())
+            parse = s -> Enum.valueOf((Class<Enum>) t, s);
+        else if (t.equals(Integer.class) || t.equals(Integer.TYPE))
+            parse = Integer::valueOf;
+        else if (t.equals(Long.class) || t.equals(Long.TYPE))
+            parse = Long::valueOf;
+        else if (t.equals(Double.class) || t.equals(Double.TYPE))
+            parse = Double::valueOf;
+        else if (t.equals(Float.class) || t.equals(Float.TYPE))
+            parse = Float::valueOf;
+        else if (t.equals(BigDecimal.class))
+            parse = BigDecimal::new;
+        else
+            parse = s -> s;
+
+        Class<?> boxed = t == Boolean.TYPE ? Boolean.class : t;
+        return value -> {
+            if (value != null && boxed != null && boxed.isInstance(value))
                 return value;
-            return Boolean.valueOf(stringValue);
-        }
-
-        if (t.isEnum())
-            return Enum.valueOf((Class<Enum>) t, stringValue);
-        if (t.equals(Integer.class) || t.equals(Integer.TYPE))
-            return Integer.valueOf(stringValue);
-        if (t.equals(Long.class) || t.equals(Long.TYPE))
-            return Long.valueOf(stringValue);
-        if (t.equals(Double.class) || t.equals(Double.TYPE))
-            return Double.valueOf(stringValue);
-        if (t.equals(Float.class) || t.equals(Float.TYPE))
-            return Float.valueOf(stringValue);
-        if (t.equals(BigDecimal.class))
-            return new BigDecimal(stringValue);
-        return stringValue;
+            return parse.apply(value == null ? null : value.toString());
+        };
     }
 
     private static Number toNumber(Object o) {
@@ -7,30 +7,40 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.itmo.wastemanagement.config.security.CustomUserDetails;
 import ru.itmo.wastemanagement.dto.AuthRequest;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeUpsertDto;
 import ru.itmo.wastemanagement.dto.driver.DriverCreateUpdateDto;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableColumn;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableResponse;
 import ru.itmo.wastemanagement.dto.incident.IncidentCreateDto;
 import ru.itmo.wastemanagement.dto.incident.IncidentDto;
 import ru.itmo.wastemanagement.dto.kiosk.KioskCreateUpdateDto;
 import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderUpsertDto;
 import ru.itmo.wastemanagement.dto.route.RouteAssignDto;
 import ru.itmo.wastemanagement.dto.route.RouteDto;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobDto;
 import ru.itmo.wastemanagement.dto.route.RouteStopUpdateDto;
 import ru.itmo.wastemanagement.dto.shift.DriverShiftDto;
 import ru.itmo.wastemanagement.dto.shift.ShiftOpenDto;
 import ru.itmo.wastemanagement.dto.vehicle.VehicleUpsertDto;
 import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
+import ru.itmo.wastemanagement.exception.GlobalExceptionHandler;
 import ru.itmo.wastemanagement.service.ContainerSizeService;
 import ru.itmo.wastemanagement.service.DriverService;
 import ru.itmo.wastemanagement.service.DriverShiftService;
@@ -39,19 +49,24 @@ import ru.itmo.wastemanagement.service.GarbagePointService;
 import ru.itmo.wastemanagement.service.IncidentService;
 import ru.itmo.wastemanagement.service.KioskOrderService;
 import ru.itmo.wastemanagement.service.KioskService;
+import ru.itmo.wastemanagement.service.RouteGenerationJobService;
 import ru.itmo.wastemanagement.service.RouteService;
 import ru.itmo.wastemanagement.service.VehicleService;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 class ControllersUnitTest {
@@ -150,6 +165,21 @@ class ControllersUnitTest {
         verify(routeService).deleteRoute(1);
     }
 
+    @Test
+    void routeGenerationJobControllerDelegatesToService() {
+        RouteGenerationJobService service = mock(RouteGenerationJobService.class);
+        RouteGenerationJobController c = new RouteGenerationJobController(service);
+        UUID id = UUID.randomUUID();
+        RouteGenerationJobDto dto = RouteGenerationJobDto.builder().id(id).build();
+        when(service.submit()).thenReturn(dto);
+        when(service.getJob(id)).thenReturn(dto);
+        when(service.cancel(id)).thenReturn(dto);
+
+        assertThat(c.submit().getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(c.getJob(id)).isSameAs(dto);
+        assertThat(c.cancel(id)).isSameAs(dto);
+    }
+
     @Test
     void incidentControllerDelegatesToService() {
         IncidentService service = mock(IncidentService.class);
@@ -216,7 +246,7 @@ class ControllersUnitTest {
         KioskController kioskController = new KioskController(kioskService);
 
         KioskOrderService kioskOrderService = mock(KioskOrderService.class);
-        when(kioskOrderService.createOrder(any())).thenReturn(1);
+        when(kioskOrderService.createOrder(any(), any())).thenReturn(1);
         KioskOrderController orderController = new KioskOrderController(kioskOrderService);
 
         ContainerSizeService containerSizeService = mock(ContainerSizeService.class);
@@ -243,7 +273,7 @@ class ControllersUnitTest {
         assertThat(kioskController.updateKioskUser(1, new KioskCreateUpdateDto()).getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(kioskController.deleteKioskUser(1).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
 
-        assertThat(orderController.createOrder(new KioskOrderUpsertDto()).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(orderController.createOrder(null, new KioskOrderUpsertDto()).getStatusCode()).isEqualTo(HttpStatus.CREATED);
         assertThat(orderController.updateOrder(1, new KioskOrderUpsertDto()).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
         assertThat(orderController.deleteOrder(1).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
 
@@ -254,6 +284,47 @@ class ControllersUnitTest {
         assertThat(gpController.createGarbagePoint(new GarbagePointCreateUpdateDto()).getStatusCode()).isEqualTo(HttpStatus.CREATED);
         assertThat(gpController.update(1, new GarbagePointCreateUpdateDto()).getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(gpController.delete(1).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(gpController.getNearby(59.9, 30.3, 3).getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(garbagePointService).findNearby(59.9, 30.3, 3);
+    }
+
+    @Test
+    void kioskOrderQueryReturnsGroupsOnGroupLevel() {
+        KioskOrderService kioskOrderService = mock(KioskOrderService.class);
+        KioskOrderController controller = new KioskOrderController(kioskOrderService);
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(100)
+                .rowGroupCols(List.of(GridTableColumn.builder().id("garbagePointAddress").build(),
+                        GridTableColumn.builder().id("createdDay").build()))
+                .groupKeys(List.of("ул. Ленина, 1"))
+                .build();
+        GridTableResponse<Map<String, Object>> groups = GridTableResponse.<Map<String, Object>>builder()
+                .rows(List.of(Map.of("createdDay", "2025-01-02", "childCount", 3L)))
+                .lastRow(1)
+                .build();
+        when(kioskOrderService.queryGroupGrid(req)).thenReturn(groups);
+
+        assertThat(controller.query(req).getBody()).isSameAs(groups);
+
+        // раскрыты все уровни - обычные строки заказов
+        req.setGroupKeys(List.of("ул. Ленина, 1", "2025-01-02"));
+        controller.query(req);
+        verify(kioskOrderService).queryGrid(req);
+    }
+
+    @Test
+    void gridExportIsAttachmentInRequestedFormat() {
+        KioskOrderService kioskOrderService = mock(KioskOrderService.class);
+        StreamingResponseBody body = out -> {};
+        GridTableRequest req = new GridTableRequest();
+        when(kioskOrderService.exportGrid(req, GridExportFormat.ndjson)).thenReturn(body);
+        KioskOrderController controller = new KioskOrderController(kioskOrderService);
+
+        ResponseEntity<StreamingResponseBody> resp = controller.export(GridExportFormat.ndjson, req);
+
+        assertThat(resp.getBody()).isSameAs(body);
+        assertThat(resp.getHeaders().getContentType()).hasToString("application/x-ndjson");
+        assertThat(resp.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"kiosk-orders.ndjson\"");
     }
 
     @Test
@@ -264,6 +335,21 @@ class ControllersUnitTest {
         assertThat(((Map<?, ?>) me.getBody()).get("error")).isEqualTo("Not authenticated");
     }
 
+    @Test
+    void kioskOrderBatchWithNullOrderIsRejected() throws Exception {
+        KioskOrderService kioskOrderService = mock(KioskOrderService.class);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new KioskOrderController(kioskOrderService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        String body = """
+                {"orders": [{"idempotencyKey": "%s", "garbagePointId": 4, "containerSizeId": 1, "fractionId": 2}, null]}
+                """.formatted(UUID.randomUUID());
+
+        mvc.perform(post("/api/kiosk-orders/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(kioskOrderService);
+    }
+
     private static CustomUserDetails principal(int id, String login, UserRole role) {
         User user = new User();
         user.setId(id);
@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.dto;
 
+import jakarta.persistence.Tuple;
 import org.junit.jupiter.api.Test;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
 import ru.itmo.wastemanagement.dto.driver.DriverRowDto;
@@ -28,6 +29,8 @@ import ru.itmo.wastemanagement.entity.enums.ShiftStatus;
 import java.time.LocalDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class DtoMappingTest {
 
@@ -169,4 +172,28 @@ class DtoMappingTest {
         assertThat(orderDto.getFractionName()).isEqualTo("Glass");
         assertThat(KioskOrderRowDto.fromEntity(null)).isNull();
     }
+
+    @Test
+    void rowDtosMapFromTupleProjection() {
+        Tuple order = mock(Tuple.class);
+        when(order.get("id", Integer.class)).thenReturn(1);
+        when(order.get("containerSizeId", Long.class)).thenReturn(10L);
+        when(order.get("fractionName", String.class)).thenReturn("Glass");
+        when(order.get("status", OrderStatus.class)).thenReturn(OrderStatus.CONFIRMED);
+
+        KioskOrderRowDto orderDto = KioskOrderRowDto.fromTuple(order);
+        assertThat(orderDto.getId()).isEqualTo(1);
+        assertThat(orderDto.getContainerSizeId()).isEqualTo(10L);
+        assertThat(orderDto.getFractionName()).isEqualTo("Glass");
+        assertThat(orderDto.getGarbagePointAddress()).isNull();
+
+        Tuple point = mock(Tuple.class);
+        when(point.get("id", Integer.class)).thenReturn(4);
+        when(point.get("kioskId", Integer.class)).thenReturn(5);
+
+        GarbagePointRowDto pointDto = GarbagePointRowDto.fromTuple(point);
+        assertThat(pointDto.getId()).isEqualTo(4L);
+        assertThat(pointDto.getKioskId()).isEqualTo(5L);
+        assertThat(pointDto.getAdminId()).isNull();
+    }
 }
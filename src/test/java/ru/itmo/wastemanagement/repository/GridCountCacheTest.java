@@ -0,0 +1,116 @@
+package ru.itmo.wastemanagement.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableCountMode;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.entity.Vehicle;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GridCountCacheTest {
+
+    private static final GridCountCache.Grid GRID = new GridCountCache.Grid(Vehicle.class, "vehicles", "vehicles");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final GridCountCache cache = new GridCountCache(jdbcTemplate, 30, 1000);
+
+    @Test
+    void exactCountIsCachedPerFilterModel() {
+        GridTableRequest req = request(Map.of("status", Map.of("filterType", "text", "filter", "ACTIVE")));
+
+        GridCountCache.Plan first = cache.plan(GRID, req);
+        assertThat(first.window()).isTrue();
+        assertThat(cache.complete(first, 120L, 10)).isEqualTo(new GridCountCache.Count(120L, true));
+
+        GridCountCache.Plan second = cache.plan(GRID, req);
+        assertThat(second.window()).isFalse();
+        assertThat(cache.complete(second, null, 10)).isEqualTo(new GridCountCache.Count(120L, true));
+
+        // другая filterModel - свой счёт
+        assertThat(cache.plan(GRID, request(Map.of())).window()).isTrue();
+    }
+
+    @Test
+    void invalidateDropsCachedCount() {
+        GridTableRequest req = request(null);
+        cache.complete(cache.plan(GRID, req), 50L, 10);
+
+        cache.invalidate(Vehicle.class);
+
+        assertThat(cache.plan(GRID, req).window()).isTrue();
+    }
+
+    @Test
+    void countStartedBeforeWriteIsNotCached() {
+        GridTableRequest req = request(null);
+        GridCountCache.Plan plan = cache.plan(GRID, req);
+
+        cache.invalidate(Vehicle.class);
+        cache.complete(plan, 50L, 10);
+
+        assertThat(cache.plan(GRID, req).window()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void estimatedModeUsesReltuplesWithoutFilters() {
+        doReturn(List.of(9000L)).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq("vehicles"));
+        GridTableRequest req = request(null);
+        req.setCountMode(GridTableCountMode.estimated);
+
+        GridCountCache.Plan plan = cache.plan(GRID, req);
+
+        assertThat(plan.window()).isFalse();
+        assertThat(cache.complete(plan, null, 10)).isEqualTo(new GridCountCache.Count(9000L, false));
+        // оценка меньше уже показанных строк - отдаём "есть ещё"
+        assertThat(cache.complete(plan, null, 9000)).isEqualTo(new GridCountCache.Count(9001L, false));
+    }
+
+    @Test
+    void estimatedModeWithFiltersCountsExactly() {
+        GridTableRequest req = request(Map.of("status", Map.of("filterType", "text", "filter", "ACTIVE")));
+        req.setCountMode(GridTableCountMode.estimated);
+
+        assertThat(cache.plan(GRID, req).window()).isTrue();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void quickFilterHasOwnCountAndIsNotEstimated() {
+        cache.complete(cache.plan(GRID, request(null)), 500L, 10);
+
+        GridTableRequest quick = request(null);
+        quick.setQuickFilter("газель");
+        quick.setCountMode(GridTableCountMode.estimated);
+
+        assertThat(cache.plan(GRID, quick).window()).isTrue();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void skipCountAndCursorBypassCache() {
+        GridTableRequest skip = request(null);
+        skip.setSkipCount(true);
+        GridCountCache.Plan skipPlan = cache.plan(GRID, skip);
+        assertThat(skipPlan.window()).isFalse();
+        assertThat(cache.complete(skipPlan, null, 10)).isEqualTo(new GridCountCache.Count(null, false));
+
+        GridTableRequest cursor = request(null);
+        cursor.setCursor("next");
+        cache.complete(cache.plan(GRID, cursor), 40L, 10);
+        assertThat(cache.plan(GRID, request(null)).window()).isTrue();
+    }
+
+    private static GridTableRequest request(Map<String, Object> filterModel) {
+        return GridTableRequest.builder().startRow(0).endRow(10).filterModel(filterModel).build();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.itmo.wastemanagement.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableColumn;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
+import ru.itmo.wastemanagement.entity.Vehicle;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class GridQueryEngineTest {
+
+    private final EntityManager em = mock(EntityManager.class);
+    private final GridCountCache countCache = mock(GridCountCache.class);
+    private final GridQueryEngine engine = new GridQueryEngine(em, countCache);
+
+    @Test
+    void columnOutsideDescriptorIsRejectedBeforeQuery() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10)
+                .filterModel(Map.of("password", Map.of("filterType", "text", "type", "startsWith", "filter", "$2a")))
+                .build();
+
+        assertThatThrownBy(() -> engine.findPage(DriverGridRepository.GRID, req))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("password");
+        verifyNoInteractions(em, countCache);
+    }
+
+    @Test
+    void sortByUnlistedColumnIsRejected() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10)
+                .sortModel(List.of(new GridTableSortModel("role", "asc")))
+                .build();
+
+        assertThatThrownBy(() -> engine.findPage(KioskGridRepository.GRID, req))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void quickFilterNeedsColumnsInDescriptor() {
+        GridDescriptor<Vehicle, VehicleRowDto> grid = GridDescriptor.<Vehicle, VehicleRowDto>builder()
+                .name("no-search")
+                .entity(Vehicle.class)
+                .columns(GridDescriptor.columns("id"))
+                .defaultSort(List.of(new GridTableSortModel("id", "desc")))
+                .build();
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).quickFilter("А001").build();
+
+        assertThatThrownBy(() -> engine.findPage(grid, req)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(em, countCache);
+    }
+
+    @Test
+    void groupingByColumnOutsideDescriptorIsRejected() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10)
+                .rowGroupCols(List.of(GridTableColumn.builder().id("password").build()))
+                .build();
+
+        assertThatThrownBy(() -> engine.findGroups(DriverGridRepository.GRID, req))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("password");
+        verifyNoInteractions(em, countCache);
+    }
+
+    @Test
+    void unknownAggregateIsRejectedBeforeQuery() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10)
+                .rowGroupCols(List.of(GridTableColumn.builder().id("fractionName").build()))
+                .valueCols(List.of(GridTableColumn.builder().id("weight").aggFunc("median").build()))
+                .build();
+
+        assertThatThrownBy(() -> engine.findGroups(KioskOrderGridRepository.GRID, req))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("median");
+        verifyNoInteractions(em);
+    }
+
+    @Test
+    void groupKeysNeedGroupColumns() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10)
+                .groupKeys(List.of("Пластик"))
+                .build();
+
+        assertThatThrownBy(() -> engine.findPage(KioskOrderGridRepository.GRID, req))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(req.groupLevel()).isFalse();
+    }
+
+    @Test
+    void scopedGridIsNotEstimatedFromWholeTable() {
+        assertThat(DriverGridRepository.GRID.countGrid().table()).isNull();
+        assertThat(VehicleGridRepository.GRID.countGrid().table()).isEqualTo("vehicles");
+        assertThat(KioskOrderGridRepository.GRID.getColumns()).containsEntry("fractionName", "fraction.name");
+    }
+}
@@ -0,0 +1,78 @@
+package ru.itmo.wastemanagement.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.itmo.wastemanagement.entity.enums.UserRole;
+
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class KioskOrderValidationSnapshotTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final KioskOrderValidationSnapshot snapshot = new KioskOrderValidationSnapshot(jdbcTemplate, 60);
+
+    @Test
+    void snapshotIsLoadedOnceWithFirstPointOfKiosk() throws Exception {
+        ResultSet fractions = mock(ResultSet.class);
+        when(fractions.getInt(1)).thenReturn(3);
+        when(fractions.getInt(2)).thenReturn(11);
+        ResultSet points = mock(ResultSet.class);
+        when(points.getInt(1)).thenReturn(3, 5);
+        when(points.getBoolean(2)).thenReturn(true, false);
+        when(points.getInt(3)).thenReturn(7, 7);
+        ResultSet users = mock(ResultSet.class);
+        when(users.getInt(1)).thenReturn(7);
+        when(users.getString(2)).thenReturn("KIOSK");
+        rows("SELECT garbage_point_id", fractions, 1);
+        rows("SELECT id, is_open", points, 2);
+        rows("SELECT id, role", users, 1);
+
+        KioskOrderValidationSnapshot.Snapshot loaded = snapshot.get();
+        snapshot.get();
+
+        assertThat(loaded.points()).isEqualTo(Map.of(
+                3, new KioskOrderValidationSnapshot.Point(3, true, Set.of(11)),
+                5, new KioskOrderValidationSnapshot.Point(5, false, Set.of())));
+        assertThat(loaded.kioskPoints()).isEqualTo(Map.of(7, 3));
+        assertThat(loaded.activeUsers()).isEqualTo(Map.of(7, UserRole.KIOSK));
+        verify(jdbcTemplate, times(3)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void snapshotLoadedBeforeWriteIsNotKept() {
+        AtomicInteger loads = new AtomicInteger();
+        doAnswer(inv -> {
+            // запись точки завершается, пока идёт первая загрузка
+            if (loads.getAndIncrement() == 0) {
+                snapshot.invalidate();
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        snapshot.get();
+        snapshot.get();
+        snapshot.get();
+
+        verify(jdbcTemplate, times(6)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private void rows(String sqlPrefix, ResultSet rs, int count) {
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (int i = 0; i < count; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith(sqlPrefix), any(RowCallbackHandler.class));
+    }
+}
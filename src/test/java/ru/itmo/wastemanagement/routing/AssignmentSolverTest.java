@@ -0,0 +1,99 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AssignmentSolverTest {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Test
+    void assignFindsMinimalTotalCost() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+
+        assertThat(AssignmentSolver.assign(cost)).containsExactly(1, 0, 2);
+    }
+
+    @Test
+    void assignPrefersMoreFeasiblePairsOverCheaperOnes() {
+        // строке 1 подходит только столбец 0 - строка 0 должна уступить его, хотя там она дешевле
+        double[][] cost = {
+                {1, 50},
+                {10, INF}
+        };
+
+        assertThat(AssignmentSolver.assign(cost)).containsExactly(1, 0);
+    }
+
+    @Test
+    void assignHandlesRectangularAndInfeasibleRows() {
+        double[][] moreRows = {{5}, {1}, {INF}};
+        double[][] moreCols = {{INF, INF, INF}, {3, 1, 2}};
+
+        assertThat(AssignmentSolver.assign(moreRows)).containsExactly(-1, 0, -1);
+        assertThat(AssignmentSolver.assign(moreCols)).containsExactly(-1, 1);
+        assertThat(AssignmentSolver.assign(new double[0][0])).isEmpty();
+    }
+
+    @Test
+    void assignMatchesBruteForce() {
+        Random random = new Random(5);
+        for (int round = 0; round < 500; round++) {
+            int rows = 1 + random.nextInt(5);
+            int cols = 1 + random.nextInt(5);
+            double[][] cost = new double[rows][cols];
+            for (double[] row : cost) {
+                for (int j = 0; j < cols; j++) {
+                    row[j] = random.nextInt(4) == 0 ? INF : random.nextInt(20);
+                }
+            }
+
+            int[] result = AssignmentSolver.assign(cost);
+
+            Set<Integer> used = new HashSet<>();
+            int count = 0;
+            double total = 0;
+            for (int i = 0; i < rows; i++) {
+                if (result[i] >= 0) {
+                    assertThat(used.add(result[i])).isTrue();
+                    assertThat(cost[i][result[i]]).isFinite();
+                    count++;
+                    total += cost[i][result[i]];
+                }
+            }
+            double[] best = brute(cost, 0, new boolean[cols]);
+            assertThat(count).as("round %d", round).isEqualTo((int) best[0]);
+            assertThat(total).as("round %d", round).isEqualTo(best[1]);
+        }
+    }
+
+    // {число пар, стоимость}: больше пар лучше, при равенстве - меньше стоимость
+    private static double[] brute(double[][] cost, int row, boolean[] used) {
+        if (row == cost.length) {
+            return new double[]{0, 0};
+        }
+        double[] best = brute(cost, row + 1, used);
+        for (int j = 0; j < used.length; j++) {
+            if (used[j] || cost[row][j] == INF) {
+                continue;
+            }
+            used[j] = true;
+            double[] rest = brute(cost, row + 1, used);
+            used[j] = false;
+            double[] candidate = {rest[0] + 1, rest[1] + cost[row][j]};
+            if (candidate[0] > best[0] || (candidate[0] == best[0] && candidate[1] < best[1])) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusteredRoutePlannerTest {
+
+    private final ClusteredRoutePlanner planner = new ClusteredRoutePlanner(100, 4, 7);
+
+    @AfterEach
+    void tearDown() {
+        planner.shutdown();
+    }
+
+    @Test
+    void planVisitsEveryPointWithinLimits() {
+        List<RouteSolver.Point> points = RandomCity.points(1000, 1);
+
+        RouteSolver.Solution solution = planner.plan(points, 59.95, 30.30, 300, 12, null);
+
+        assertThat(solution.routes()).allSatisfy(route -> {
+            assertThat(route.stops()).hasSizeLessThanOrEqualTo(12);
+            assertThat(route.load()).isLessThanOrEqualTo(300d);
+        });
+        assertThat(solution.routes().stream().flatMap(r -> r.stops().stream()).map(RouteSolver.Point::id))
+                .containsExactlyInAnyOrderElementsOf(points.stream().map(RouteSolver.Point::id).toList());
+    }
+
+    @Test
+    void planIsReproducibleForSameSeed() {
+        List<RouteSolver.Point> points = RandomCity.points(1000, 2);
+
+        RouteSolver.Solution first = planner.plan(points, 59.95, 30.30, 300, 12, null);
+        RouteSolver.Solution second = new ClusteredRoutePlanner(100, 2, 7).plan(points, 59.95, 30.30, 300, 12, null);
+
+        assertThat(routeIds(second)).isEqualTo(routeIds(first));
+        assertThat(second.totalDistanceKm()).isEqualTo(first.totalDistanceKm());
+    }
+
+    @Test
+    void smallInputIsSolvedAsOneCluster() {
+        List<RouteSolver.Point> points = RandomCity.points(80, 3);
+
+        RouteSolver.Solution planned = planner.plan(points, 59.95, 30.30, 300, 12, null);
+        RouteSolver.Solution direct = new RouteSolver(300, 12).solve(points, 59.95, 30.30);
+
+        assertThat(routeIds(planned)).isEqualTo(routeIds(direct));
+    }
+
+    @Test
+    void clustersAreGeographicallyCompact() {
+        List<RouteSolver.Point> points = new ArrayList<>(RandomCity.points(200, 4));
+        // два удалённых района - ни один кластер не должен захватывать оба
+        for (RouteSolver.Point p : RandomCity.points(200, 5)) {
+            points.add(new RouteSolver.Point(p.id() + 1000, p.lat() + 1, p.lon() + 1, p.load()));
+        }
+        double[] lat = points.stream().mapToDouble(RouteSolver.Point::lat).toArray();
+        double[] lon = points.stream().mapToDouble(RouteSolver.Point::lon).toArray();
+
+        int[] clusterOf = PointClusterer.cluster(lat, lon, 4, 11);
+
+        for (int i = 0; i < 200; i++) {
+            for (int j = 200; j < 400; j++) {
+                assertThat(clusterOf[i]).isNotEqualTo(clusterOf[j]);
+            }
+        }
+        assertThat(clusterOf[0]).isZero();
+    }
+
+    private static List<List<Integer>> routeIds(RouteSolver.Solution solution) {
+        return solution.routes().stream()
+                .map(r -> r.stops().stream().map(RouteSolver.Point::id).toList())
+                .toList();
+    }
+}
@@ -0,0 +1,148 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class DistanceMatrixTest {
+
+    @Test
+    void fullMatrixMatchesHaversine() {
+        double[][] coords = randomCoords(200, 1);
+        DistanceMatrix matrix = loaded(0, 0, coords);
+
+        assertThat(matrix.isFullMatrix()).isTrue();
+        assertAllDistancesMatch(matrix, coords);
+    }
+
+    @Test
+    void putAndRemovePatchOnlyAffectedPoint() {
+        double[][] coords = randomCoords(100, 2);
+        DistanceMatrix matrix = loaded(0, 0, coords);
+
+        matrix.remove(10);
+        matrix.put(1000, 59.93, 30.31);
+        matrix.put(20, 59.99, 30.41);
+        coords[19] = new double[]{59.99, 30.41};
+
+        assertThat(matrix.slotOf(10)).isEqualTo(-1);
+        assertThat(matrix.size()).isEqualTo(100);
+        int slotNew = matrix.slotOf(1000);
+        int slot20 = matrix.slotOf(20);
+        for (int id = 1; id <= 100; id++) {
+            if (id == 10) {
+                continue;
+            }
+            int slot = matrix.slotOf(id);
+            double[] c = coords[id - 1];
+            assertThat(matrix.distanceKm(slot, slotNew))
+                    .isCloseTo(GeoDistance.haversineKm(c[0], c[1], 59.93, 30.31), offset(1e-3));
+            assertThat(matrix.distanceKm(slot20, slot))
+                    .isCloseTo(GeoDistance.haversineKm(59.99, 30.41, c[0], c[1]), offset(1e-3));
+        }
+    }
+
+    @Test
+    void switchesToNearestNeighboursWhenBudgetIsExceeded() {
+        double[][] coords = randomCoords(300, 3);
+        // 300 точек в полном треугольнике - ~180 КБ
+        DistanceMatrix matrix = loaded(100_000, 0, coords);
+
+        assertThat(matrix.isFullMatrix()).isFalse();
+        assertAllDistancesMatch(matrix, coords);
+    }
+
+    @Test
+    void growsIntoNearestNeighboursModeOnInsert() {
+        double[][] coords = randomCoords(100, 4);
+        DistanceMatrix matrix = loaded(20_000, 0, coords);
+        assertThat(matrix.isFullMatrix()).isTrue();
+
+        double[][] more = randomCoords(50, 5);
+        for (int i = 0; i < more.length; i++) {
+            matrix.put(101 + i, more[i][0], more[i][1]);
+        }
+
+        assertThat(matrix.isFullMatrix()).isFalse();
+        assertThat(matrix.size()).isEqualTo(150);
+        double[][] all = new double[150][];
+        System.arraycopy(coords, 0, all, 0, 100);
+        System.arraycopy(more, 0, all, 100, 50);
+        assertAllDistancesMatch(matrix, all);
+    }
+
+    @Test
+    void staysFullUpToBudgetWhenGrowingNearIt() {
+        double[][] coords = randomCoords(60, 7);
+        // 20 КБ вмещают полный треугольник ровно на 100 точек
+        DistanceMatrix matrix = loaded(20_000, 0, coords);
+
+        double[][] more = randomCoords(40, 8);
+        for (int i = 0; i < more.length; i++) {
+            matrix.put(61 + i, more[i][0], more[i][1]);
+        }
+
+        assertThat(matrix.isFullMatrix()).isTrue();
+        double[][] all = new double[100][];
+        System.arraycopy(coords, 0, all, 0, 60);
+        System.arraycopy(more, 0, all, 60, 40);
+        assertAllDistancesMatch(matrix, all);
+    }
+
+    @Test
+    void nearestModeKeepsNeighboursAfterMoveAndRemove() {
+        double[][] coords = randomCoords(150, 6);
+        DistanceMatrix matrix = loaded(0, 8, coords);
+
+        matrix.put(5, 59.95, 30.30);
+        coords[4] = new double[]{59.95, 30.30};
+        matrix.remove(6);
+
+        assertThat(matrix.slotOf(6)).isEqualTo(-1);
+        for (int a = 1; a <= 150; a++) {
+            for (int b = 1; b <= 150; b++) {
+                if (a == 6 || b == 6) {
+                    continue;
+                }
+                double expected = GeoDistance.haversineKm(coords[a - 1][0], coords[a - 1][1], coords[b - 1][0], coords[b - 1][1]);
+                assertThat(matrix.distanceKm(matrix.slotOf(a), matrix.slotOf(b))).isCloseTo(expected, offset(1e-3));
+            }
+        }
+    }
+
+    private static DistanceMatrix loaded(long maxBytes, int nearest, double[][] coords) {
+        int n = coords.length;
+        int[] ids = new int[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            lat[i] = coords[i][0];
+            lon[i] = coords[i][1];
+        }
+        DistanceMatrix matrix = new DistanceMatrix(maxBytes, nearest);
+        matrix.load(ids, lat, lon);
+        return matrix;
+    }
+
+    private static void assertAllDistancesMatch(DistanceMatrix matrix, double[][] coords) {
+        for (int a = 0; a < coords.length; a++) {
+            for (int b = 0; b < coords.length; b++) {
+                double expected = GeoDistance.haversineKm(coords[a][0], coords[a][1], coords[b][0], coords[b][1]);
+                assertThat(matrix.distanceKm(matrix.slotOf(a + 1), matrix.slotOf(b + 1))).isCloseTo(expected, offset(1e-3));
+            }
+        }
+    }
+
+    private static double[][] randomCoords(int n, long seed) {
+        Random random = new Random(seed);
+        double[][] coords = new double[n][];
+        for (int i = 0; i < n; i++) {
+            coords[i] = new double[]{59.85 + random.nextDouble() * 0.2, 30.15 + random.nextDouble() * 0.3};
+        }
+        return coords;
+    }
+}
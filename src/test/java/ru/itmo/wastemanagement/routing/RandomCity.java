@@ -0,0 +1,26 @@
+package ru.itmo.wastemanagement.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Равномерно разбросанные точки в прямоугольнике вокруг центра Санкт-Петербурга с загрузкой 5-64.
+ * При одном seed набор воспроизводим.
+ */
+final class RandomCity {
+
+    private RandomCity() {
+    }
+
+    static List<RouteSolver.Point> points(int n, long seed) {
+        Random random = new Random(seed);
+        List<RouteSolver.Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double lat = 59.85 + random.nextDouble() * 0.2;
+            double lon = 30.15 + random.nextDouble() * 0.3;
+            points.add(new RouteSolver.Point(i + 1, lat, lon, 5 + random.nextInt(60)));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteSchedulerTest {
+
+    private static final LocalDateTime ORIGIN = LocalDate.of(2025, 3, 10).atTime(22, 0);
+
+    // 60 км/ч - один километр за минуту, удобно считать руками
+    private final RouteScheduler scheduler = new RouteScheduler(LocalTime.of(22, 0), 8, 60, 10);
+
+    @Test
+    void scheduleWaitsForOpeningAndCrossesMidnight() {
+        RouteScheduler.Stop first = stop(1, 0, null, null);
+        RouteScheduler.Stop overnight = stop(2, 0.09, LocalTime.of(23, 30), LocalTime.of(1, 0));
+
+        List<RouteScheduler.Leg> legs = scheduler.schedule(List.of(first, overnight), ORIGIN, null);
+
+        assertThat(legs).hasSize(1);
+        List<RouteScheduler.Visit> visits = legs.get(0).visits();
+        assertThat(visits.get(0).start()).isEqualTo(ORIGIN);
+        // 10 минут обслуживания и ~10 км пути - приезд около 22:20, ожидание открытия до 23:30
+        assertThat(visits.get(1).start()).isEqualTo(ORIGIN.plusMinutes(90));
+        assertThat(legs.get(0).end()).isEqualTo(ORIGIN.plusMinutes(100));
+        assertThat(legs.get(0).isFeasible()).isTrue();
+    }
+
+    @Test
+    void scheduleSplitsWhenShiftIsOver() {
+        List<RouteScheduler.Stop> stops = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            stops.add(stop(i + 1, 0, null, null));
+        }
+
+        List<RouteScheduler.Leg> legs = scheduler.schedule(stops, ORIGIN, null);
+
+        // 8 часов по 10 минут на точку - 48 точек в смене
+        assertThat(legs).extracting(RouteScheduler.Leg::size).containsExactly(48, 12);
+        assertThat(legs).allMatch(RouteScheduler.Leg::isFeasible);
+        assertThat(legs.get(0).end()).isEqualTo(ORIGIN.plusHours(8));
+    }
+
+    @Test
+    void stopOutsideShiftGetsOwnInfeasibleLeg() {
+        RouteScheduler.Stop day = stop(1, 0, LocalTime.of(10, 0), LocalTime.of(12, 0));
+
+        List<RouteScheduler.Leg> legs = scheduler.schedule(List.of(stop(2, 0, null, null), day), ORIGIN, null);
+
+        assertThat(legs).hasSize(2);
+        assertThat(legs.get(0).isFeasible()).isTrue();
+        assertThat(legs.get(1).isFeasible()).isFalse();
+        assertThat(legs.get(1).start()).isEqualTo(ORIGIN.toLocalDate().plusDays(1).atTime(10, 0));
+    }
+
+    @Test
+    void canInsertMatchesFullRecompute() {
+        Random random = new Random(3);
+        int checked = 0;
+        for (int round = 0; round < 200; round++) {
+            List<RouteScheduler.Stop> stops = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                stops.add(randomStop(i + 1, random));
+            }
+            RouteScheduler.Leg leg = scheduler.leg(stops, ORIGIN, null);
+            if (!leg.isFeasible()) {
+                continue;
+            }
+            RouteScheduler.Stop candidate = randomStop(100, random);
+            for (int pos = 0; pos <= stops.size(); pos++) {
+                List<RouteScheduler.Stop> inserted = new ArrayList<>(stops);
+                inserted.add(pos, candidate);
+                boolean expected = scheduler.leg(inserted, ORIGIN, null).isFeasible();
+
+                assertThat(leg.canInsert(pos, candidate)).as("round %d pos %d", round, pos).isEqualTo(expected);
+                checked++;
+            }
+        }
+        assertThat(checked).isPositive();
+    }
+
+    @Test
+    void insertRecomputesFollowingVisits() {
+        List<RouteScheduler.Stop> stops = List.of(stop(1, 0, null, null), stop(2, 0, null, null));
+        RouteScheduler.Leg leg = scheduler.leg(stops, ORIGIN, null);
+
+        leg.insert(1, stop(3, 0, null, null));
+
+        assertThat(leg.visits()).extracting(v -> v.stop().id()).containsExactly(1, 3, 2);
+        assertThat(leg.visits().get(2).start()).isEqualTo(ORIGIN.plusMinutes(20));
+    }
+
+    private static RouteScheduler.Stop stop(int id, double latOffset, LocalTime opensAt, LocalTime closesAt) {
+        return new RouteScheduler.Stop(id, 59.90 + latOffset, 30.30, opensAt, closesAt);
+    }
+
+    private static RouteScheduler.Stop randomStop(int id, Random random) {
+        double lat = 59.85 + random.nextDouble() * 0.1;
+        double lon = 30.20 + random.nextDouble() * 0.2;
+        if (random.nextBoolean()) {
+            return new RouteScheduler.Stop(id, lat, lon, null, null);
+        }
+        LocalTime opens = LocalTime.of(22, 0).plusMinutes(random.nextInt(420));
+        return new RouteScheduler.Stop(id, lat, lon, opens, opens.plusMinutes(30 + random.nextInt(120)));
+    }
+}
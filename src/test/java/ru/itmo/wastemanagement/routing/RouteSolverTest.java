@@ -0,0 +1,91 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class RouteSolverTest {
+
+    private static final double DEPOT_LAT = 59.95;
+    private static final double DEPOT_LON = 30.30;
+
+    @Test
+    void solveEmptyInputReturnsNoRoutes() {
+        RouteSolver.Solution solution = new RouteSolver(100, 12).solve(List.of(), DEPOT_LAT, DEPOT_LON);
+
+        assertThat(solution.routes()).isEmpty();
+        assertThat(solution.totalDistanceKm()).isZero();
+    }
+
+    @Test
+    void solveRespectsCapacityAndStopLimitAndVisitsEveryPoint() {
+        List<RouteSolver.Point> points = RandomCity.points(800, 7);
+
+        RouteSolver.Solution solution = new RouteSolver(300, 12).solve(points, DEPOT_LAT, DEPOT_LON);
+
+        assertThat(solution.routes()).allSatisfy(route -> {
+            assertThat(route.stops()).hasSizeLessThanOrEqualTo(12);
+            assertThat(route.stops().stream().mapToDouble(RouteSolver.Point::load).sum()).isLessThanOrEqualTo(300d);
+        });
+        assertThat(solution.routes().stream().flatMap(r -> r.stops().stream()).map(RouteSolver.Point::id))
+                .containsExactlyInAnyOrderElementsOf(points.stream().map(RouteSolver.Point::id).toList());
+    }
+
+    @Test
+    void solveKeepsOversizedPointOnItsOwnRoute() {
+        List<RouteSolver.Point> points = List.of(
+                new RouteSolver.Point(1, 59.951, 30.301, 500),
+                new RouteSolver.Point(2, 59.952, 30.302, 10),
+                new RouteSolver.Point(3, 59.953, 30.303, 10)
+        );
+
+        RouteSolver.Solution solution = new RouteSolver(100, 12).solve(points, DEPOT_LAT, DEPOT_LON);
+
+        assertThat(solution.routes()).hasSize(2);
+        assertThat(solution.routes()).anySatisfy(route ->
+                assertThat(route.stops()).extracting(RouteSolver.Point::id).containsExactly(1));
+    }
+
+    @Test
+    void solveIsMuchShorterThanChunkingInInputOrder() {
+        List<RouteSolver.Point> points = RandomCity.points(800, 11);
+
+        RouteSolver.Solution solution = new RouteSolver(400, 12).solve(points, DEPOT_LAT, DEPOT_LON);
+
+        double chunked = 0;
+        for (int from = 0; from < points.size(); from += 12) {
+            List<RouteSolver.Point> chunk = points.subList(from, Math.min(points.size(), from + 12));
+            chunked += length(chunk);
+        }
+        assertThat(solution.totalDistanceKm()).isLessThan(chunked / 2);
+    }
+
+    @Test
+    void routeDistanceMatchesStopOrder() {
+        List<RouteSolver.Point> points = RandomCity.points(50, 3);
+
+        RouteSolver.Solution solution = new RouteSolver(1000, 12).solve(points, DEPOT_LAT, DEPOT_LON);
+
+        double total = 0;
+        for (RouteSolver.PlannedRoute route : solution.routes()) {
+            assertThat(route.distanceKm()).isCloseTo(length(route.stops()), offset(1e-6));
+            total += route.distanceKm();
+        }
+        assertThat(solution.totalDistanceKm()).isCloseTo(total, offset(1e-6));
+    }
+
+    private static double length(List<RouteSolver.Point> stops) {
+        double km = 0;
+        double lat = DEPOT_LAT;
+        double lon = DEPOT_LON;
+        for (RouteSolver.Point p : stops) {
+            km += GeoDistance.haversineKm(lat, lon, p.lat(), p.lon());
+            lat = p.lat();
+            lon = p.lon();
+        }
+        return km + GeoDistance.haversineKm(lat, lon, DEPOT_LAT, DEPOT_LON);
+    }
+}
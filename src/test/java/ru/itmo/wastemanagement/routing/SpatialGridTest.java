@@ -0,0 +1,109 @@
+package ru.itmo.wastemanagement.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpatialGridTest {
+
+    @Test
+    void nearestReturnsClosestOpenPointsFirst() {
+        SpatialGrid grid = new SpatialGrid(0.01);
+        grid.put(1, 59.900, 30.300, true);
+        grid.put(2, 59.905, 30.300, true);
+        grid.put(3, 59.901, 30.300, false);
+        grid.put(4, 59.950, 30.400, true);
+
+        List<SpatialGrid.Neighbour> result = grid.nearest(59.900, 30.300, 2, null);
+
+        assertThat(result).extracting(SpatialGrid.Neighbour::id).containsExactly(1, 2);
+        assertThat(result.get(0).distanceKm()).isZero();
+    }
+
+    @Test
+    void updatesAreVisibleInPlace() {
+        SpatialGrid grid = new SpatialGrid(0.01);
+        grid.put(1, 59.90, 30.30, true);
+        grid.put(2, 59.95, 30.40, true);
+
+        grid.put(2, 59.9001, 30.3001, true);
+        assertThat(grid.nearest(59.90, 30.30, 2, null)).extracting(SpatialGrid.Neighbour::id).containsExactly(1, 2);
+
+        grid.setOpen(1, false);
+        assertThat(grid.nearest(59.90, 30.30, 2, null)).extracting(SpatialGrid.Neighbour::id).containsExactly(2);
+
+        grid.remove(2);
+        assertThat(grid.nearest(59.90, 30.30, 2, null)).isEmpty();
+        assertThat(grid.size()).isEqualTo(1);
+    }
+
+    @Test
+    void nearestMatchesBruteForceAfterRandomUpdates() {
+        Random random = new Random(7);
+        SpatialGrid grid = new SpatialGrid(0.01);
+        int n = 3000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        boolean[] open = new boolean[n];
+        boolean[] present = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 59.8 + random.nextDouble() * 0.3;
+            lon[i] = 30.1 + random.nextDouble() * 0.5;
+            open[i] = random.nextInt(5) != 0;
+            present[i] = true;
+            grid.put(i, lat[i], lon[i], open[i]);
+        }
+        for (int t = 0; t < 1000; t++) {
+            int i = random.nextInt(n);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    lat[i] = 59.8 + random.nextDouble() * 0.3;
+                    lon[i] = 30.1 + random.nextDouble() * 0.5;
+                    present[i] = true;
+                    grid.put(i, lat[i], lon[i], open[i]);
+                }
+                case 1 -> {
+                    present[i] = false;
+                    grid.remove(i);
+                }
+                default -> {
+                    open[i] = !open[i];
+                    grid.setOpen(i, open[i]);
+                }
+            }
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double qLat = 59.7 + random.nextDouble() * 0.5;
+            double qLon = 30.0 + random.nextDouble() * 0.7;
+            int k = 1 + random.nextInt(20);
+
+            List<SpatialGrid.Neighbour> result = grid.nearest(qLat, qLon, k, id -> id % 7 != 0);
+
+            List<Double> expected = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (present[i] && open[i] && i % 7 != 0) {
+                    expected.add(GeoDistance.haversineKm(qLat, qLon, lat[i], lon[i]));
+                }
+            }
+            expected.sort(Comparator.naturalOrder());
+            assertThat(result).extracting(SpatialGrid.Neighbour::distanceKm).containsExactlyElementsOf(expected.subList(0, k));
+        }
+    }
+
+    @Test
+    void farQueryFallsBackToFullScan() {
+        SpatialGrid grid = new SpatialGrid(0.01);
+        grid.put(1, 59.90, 30.30, true);
+        grid.put(2, 55.75, 37.62, true);
+
+        List<SpatialGrid.Neighbour> result = grid.nearest(0, 0, 1, null);
+
+        assertThat(result).extracting(SpatialGrid.Neighbour::id).containsExactly(2);
+    }
+}
@@ -6,7 +6,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
 import ru.itmo.wastemanagement.dto.containersize.ContainerSizeUpsertDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.entity.ContainerSize;
 import ru.itmo.wastemanagement.exception.ConflictException;
@@ -32,18 +34,17 @@ class ContainerSizeServiceTest {
     @Mock
     private ContainerSizeGridRepository containerSizeGridRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
     @InjectMocks
     private ContainerSizeService containerSizeService;
 
     @Test
     void queryGridReturnsMappedRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        ContainerSize cs = new ContainerSize();
-        cs.setId(11L);
-        cs.setCode("M");
-        cs.setCapacity(120);
-        when(containerSizeGridRepository.findPageByGrid(req)).thenReturn(List.of(cs));
-        when(containerSizeGridRepository.countByGrid(req)).thenReturn(1L);
+        ContainerSizeRowDto cs = ContainerSizeRowDto.builder().id(11L).code("M").capacity(120).build();
+        when(containerSizeGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(cs), null, 1L, true));
 
         var result = containerSizeService.queryGrid(req);
 
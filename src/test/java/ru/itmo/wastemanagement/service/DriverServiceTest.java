@@ -8,6 +8,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import ru.itmo.wastemanagement.dto.driver.DriverCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.driver.DriverRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
@@ -44,11 +46,8 @@ class DriverServiceTest {
     @Test
     void queryDriverGridReturnsRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        User user = new User();
-        user.setId(3);
-        user.setName("Driver");
-        when(driverGridRepository.findPageByGrid(req)).thenReturn(List.of(user));
-        when(driverGridRepository.countByGrid(req)).thenReturn(1L);
+        DriverRowDto user = DriverRowDto.builder().id(3).name("Driver").build();
+        when(driverGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(user), null, 1L, true));
 
         var result = driverService.queryDriverGrid(req);
 
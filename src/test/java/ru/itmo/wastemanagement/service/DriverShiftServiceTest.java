@@ -5,6 +5,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
 import ru.itmo.wastemanagement.entity.DriverShift;
 import ru.itmo.wastemanagement.entity.Route;
 import ru.itmo.wastemanagement.entity.RouteStop;
@@ -49,6 +50,9 @@ class DriverShiftServiceTest {
     @Mock
     private RouteStopRepository routeStopRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
     @InjectMocks
     private DriverShiftService driverShiftService;
 
@@ -96,7 +100,7 @@ class DriverShiftServiceTest {
         User driver = driver(1);
         when(userRepository.findByLogin("d")).thenReturn(Optional.of(driver));
         when(driverShiftRepository.existsByDriver_IdAndStatus(1, ShiftStatus.open)).thenReturn(false);
-        when(vehicleRepository.findById(77)).thenReturn(Optional.empty());
+        when(referenceDataCache.vehicle(77)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> driverShiftService.openShift("d", 77))
                 .isInstanceOf(ResourceNotFoundException.class);
@@ -110,7 +114,9 @@ class DriverShiftServiceTest {
 
         when(userRepository.findByLogin("d")).thenReturn(Optional.of(driver));
         when(driverShiftRepository.existsByDriver_IdAndStatus(1, ShiftStatus.open)).thenReturn(false);
-        when(vehicleRepository.findById(7)).thenReturn(Optional.of(vehicle));
+        when(referenceDataCache.vehicle(7)).thenReturn(Optional.of(
+                VehicleRowDto.builder().id(7).plateNumber("А001АА").build()));
+        when(vehicleRepository.getReferenceById(7)).thenReturn(vehicle);
         when(driverShiftRepository.save(any(DriverShift.class))).thenAnswer(inv -> {
             DriverShift s = inv.getArgument(0);
             s.setId(42);
@@ -122,6 +128,7 @@ class DriverShiftServiceTest {
         assertThat(dto.getId()).isEqualTo(42);
         assertThat(dto.getDriverId()).isEqualTo(1);
         assertThat(dto.getVehicleId()).isEqualTo(7);
+        assertThat(dto.getVehiclePlate()).isEqualTo("А001АА");
         assertThat(dto.getStatus()).isEqualTo(ShiftStatus.open);
     }
 
@@ -5,7 +5,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
 import ru.itmo.wastemanagement.dto.fraction.FractionUpsertDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.entity.Fraction;
 import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
@@ -19,6 +21,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,18 +33,17 @@ class FractionServiceTest {
     @Mock
     private FractionGridRepository fractionGridRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
     @InjectMocks
     private FractionService fractionService;
 
     @Test
     void queryFractionGridMapsRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(50).build();
-        Fraction f = new Fraction();
-        f.setId(1);
-        f.setName("Paper");
-        f.setCode("PAPER");
-        when(fractionGridRepository.findPageByGrid(req)).thenReturn(List.of(f));
-        when(fractionGridRepository.countByGrid(req)).thenReturn(1L);
+        FractionRowDto f = FractionRowDto.builder().id(1).name("Paper").code("PAPER").build();
+        when(fractionGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(f), null, 1L, true));
 
         var result = fractionService.queryFractionGrid(req);
 
@@ -88,6 +90,7 @@ class FractionServiceTest {
         assertThat(fraction.getCode()).isEqualTo("METAL");
         assertThat(fraction.isHazardous()).isTrue();
         verify(fractionRepository).save(fraction);
+        verify(referenceDataCache).invalidate(Fraction.class);
     }
 
     @Test
@@ -100,6 +103,15 @@ class FractionServiceTest {
         verify(fractionRepository).delete(fraction);
     }
 
+    @Test
+    void getAllFractionsIsServedFromCache() {
+        FractionRowDto f = FractionRowDto.builder().id(1).name("Paper").build();
+        when(referenceDataCache.fractions()).thenReturn(List.of(f));
+
+        assertThat(fractionService.getAllFractions()).containsExactly(f);
+        verifyNoInteractions(fractionRepository);
+    }
+
     private static FractionUpsertDto dto(String name, String code) {
         FractionUpsertDto dto = new FractionUpsertDto();
         dto.setName(name);
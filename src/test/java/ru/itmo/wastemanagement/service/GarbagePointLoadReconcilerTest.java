@@ -0,0 +1,28 @@
+package ru.itmo.wastemanagement.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GarbagePointLoadReconcilerTest {
+
+    private final GarbagePointLoadRepository garbagePointLoadRepository = mock(GarbagePointLoadRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GarbagePointLoadReconciler reconciler = new GarbagePointLoadReconciler(garbagePointLoadRepository, registry);
+
+    @Test
+    void driftedPointsAreCounted() {
+        when(garbagePointLoadRepository.reconcile()).thenReturn(List.of(3, 8)).thenReturn(List.of());
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        assertThat(registry.get("garbage.point.load.drift").counter().count()).isEqualTo(2);
+    }
+}
@@ -7,14 +7,20 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.garbagepoint.GarbagePointRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
 import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.exception.BadRequestException;
 import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.repository.GarbagePointGridRepository;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
 import ru.itmo.wastemanagement.repository.GarbagePointRepository;
 import ru.itmo.wastemanagement.repository.UserRepository;
+import ru.itmo.wastemanagement.routing.GarbagePointDistanceCache;
+import ru.itmo.wastemanagement.routing.GarbagePointSpatialIndex;
+import ru.itmo.wastemanagement.routing.SpatialGrid;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +28,9 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,17 +45,23 @@ class GarbagePointServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private GarbagePointDistanceCache distanceCache;
+
+    @Mock
+    private GarbagePointSpatialIndex spatialIndex;
+
+    @Mock
+    private GarbagePointLoadRepository garbagePointLoadRepository;
+
     @InjectMocks
     private GarbagePointService garbagePointService;
 
     @Test
     void queryGridReturnsRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        GarbagePoint gp = new GarbagePoint();
-        gp.setId(1);
-        gp.setAddress("Addr");
-        when(gridRepository.findPageByGrid(req)).thenReturn(List.of(gp));
-        when(gridRepository.countByGrid(req)).thenReturn(1L);
+        GarbagePointRowDto gp = GarbagePointRowDto.builder().id(1L).address("Addr").build();
+        when(gridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(gp), null, 1L, true));
 
         var result = garbagePointService.queryGrid(req);
 
@@ -78,6 +92,8 @@ class GarbagePointServiceTest {
         assertThat(saved.getKiosk()).isEqualTo(kiosk);
         assertThat(saved.getCreatedAt()).isNotNull();
         assertThat(id).isEqualTo(100);
+        verify(distanceCache).pointSaved(100, 59.0, 30.0);
+        verify(spatialIndex).pointSaved(100, 59.0, 30.0, true);
     }
 
     @Test
@@ -115,6 +131,80 @@ class GarbagePointServiceTest {
         assertThat(gp.isOpen()).isTrue();
         assertThat(gp.getKiosk()).isNull();
         verify(garbagePointRepository).save(gp);
+        verify(distanceCache).pointSaved(1, 59.0, 30.0);
+        verify(spatialIndex).pointSaved(1, 59.0, 30.0, true);
+    }
+
+    @Test
+    void updateKeepsDistanceCacheWhenCoordinatesUnchanged() {
+        GarbagePoint gp = new GarbagePoint();
+        gp.setLat(59.0);
+        gp.setLon(30.0);
+        when(garbagePointRepository.findById(1)).thenReturn(Optional.of(gp));
+
+        garbagePointService.update(1, dto());
+
+        verify(garbagePointRepository).save(gp);
+        verifyNoInteractions(distanceCache);
+        verifyNoInteractions(spatialIndex);
+    }
+
+    @Test
+    void updateRefreshesSpatialIndexWhenPointIsClosed() {
+        GarbagePoint gp = new GarbagePoint();
+        gp.setLat(59.0);
+        gp.setLon(30.0);
+        when(garbagePointRepository.findById(1)).thenReturn(Optional.of(gp));
+        GarbagePointCreateUpdateDto dto = dto();
+        dto.setOpen(false);
+
+        garbagePointService.update(1, dto);
+
+        verify(spatialIndex).pointSaved(1, 59.0, 30.0, false);
+        verifyNoInteractions(distanceCache);
+    }
+
+    @Test
+    void findNearbySkipsFullPointsAndFetchesMoreCandidates() {
+        // k=1: первая пачка из двух кандидатов - обе точки заполнены, нужна вторая пачка
+        when(spatialIndex.nearest(eq(59.9), eq(30.3), eq(2), any()))
+                .thenReturn(List.of(new SpatialGrid.Neighbour(1, 0.1), new SpatialGrid.Neighbour(2, 0.2)));
+        when(spatialIndex.nearest(eq(59.9), eq(30.3), eq(4), any()))
+                .thenReturn(List.of(new SpatialGrid.Neighbour(3, 0.5)));
+        when(garbagePointRepository.findAllById(List.of(1, 2))).thenReturn(List.of(point(1, 100), point(2, 50)));
+        when(garbagePointRepository.findAllById(List.of(3))).thenReturn(List.of(point(3, 100)));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointIds(List.of(1, 2))).thenReturn(List.of(
+                new Object[]{1, 100d, 2L, 2L, 0L},
+                new Object[]{2, 0d, 1L, 0L, 60L}
+        ));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointIds(List.of(3))).thenReturn(List.<Object[]>of(
+                new Object[]{3, 30d, 1L, 1L, 0L}
+        ));
+
+        var result = garbagePointService.findNearby(59.9, 30.3, 1);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getId()).isEqualTo(3L);
+        assertThat(result.get(0).getFreeCapacity()).isEqualTo(70d);
+        assertThat(result.get(0).getDistanceKm()).isEqualTo(0.5);
+    }
+
+    @Test
+    void findNearbyValidatesArguments() {
+        assertThatThrownBy(() -> garbagePointService.findNearby(91d, 30d, 5))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> garbagePointService.findNearby(59d, 30d, 0))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(spatialIndex);
+    }
+
+    private static GarbagePoint point(int id, Integer capacity) {
+        GarbagePoint gp = new GarbagePoint();
+        gp.setId(id);
+        gp.setCapacity(capacity);
+        gp.setLat(59.9);
+        gp.setLon(30.3);
+        return gp;
     }
 
     @Test
@@ -125,6 +215,8 @@ class GarbagePointServiceTest {
         garbagePointService.delete(5);
 
         verify(garbagePointRepository).delete(gp);
+        verify(distanceCache).pointDeleted(5);
+        verify(spatialIndex).pointDeleted(5);
     }
 
     @Test
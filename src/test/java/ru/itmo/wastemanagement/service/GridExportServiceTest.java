@@ -0,0 +1,64 @@
+package ru.itmo.wastemanagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.itmo.wastemanagement.dto.gridtable.GridExportFormat;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class GridExportServiceTest {
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final GridExportService service = new GridExportService(transactionManager, mapper);
+
+    private final List<VehicleRowDto> rows = List.of(
+            VehicleRowDto.builder().id(1).plateNumber("А001АА").name("Газель, \"синяя\"")
+                    .capacity(10).active(true).createdAt(LocalDateTime.of(2025, 1, 2, 3, 4)).build(),
+            VehicleRowDto.builder().id(2).plateNumber("В002ВВ").active(false).build());
+
+    @Test
+    void csvHasHeaderAndQuotesSpecialValues() throws Exception {
+        String csv = export(GridExportFormat.csv);
+
+        assertThat(csv).isEqualTo("\uFEFFid,plateNumber,name,capacity,active,createdAt\r\n" +
+                "1,А001АА,\"Газель, \"\"синяя\"\"\",10,true,2025-01-02T03:04:00\r\n" +
+                "2,В002ВВ,,,false,\r\n");
+        verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    void ndjsonWritesRowPerLine() throws Exception {
+        String[] lines = export(GridExportFormat.ndjson).split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(mapper.readTree(lines[1]).get("plateNumber").asText()).isEqualTo("В002ВВ");
+    }
+
+    @Test
+    void csvCellKeepsPlainValuesAsIs() {
+        assertThat(GridExportService.csvCell("plain")).isEqualTo("plain");
+        assertThat(GridExportService.csvCell("two\nlines")).isEqualTo("\"two\nlines\"");
+    }
+
+    private String export(GridExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream(format, VehicleRowDto.class, rows::forEach).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
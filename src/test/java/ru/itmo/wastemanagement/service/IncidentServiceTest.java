@@ -1,5 +1,6 @@
 package ru.itmo.wastemanagement.service;
 
+import jakarta.persistence.Tuple;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -23,6 +24,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,8 +45,9 @@ class IncidentServiceTest {
 
     @Test
     void getAllIncidentsReturnsDtos() {
-        Incident i = incident(1, false);
-        when(incidentRepository.findAllOrderByCreatedAtDesc()).thenReturn(List.of(i));
+        Tuple row = mock(Tuple.class);
+        when(row.get("id", Integer.class)).thenReturn(1);
+        when(incidentRepository.findAllRowsOrderByCreatedAtDesc()).thenReturn(List.of(row));
 
         var result = incidentService.getAllIncidents();
 
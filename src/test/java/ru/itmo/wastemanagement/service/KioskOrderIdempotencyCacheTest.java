@@ -0,0 +1,39 @@
+package ru.itmo.wastemanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KioskOrderIdempotencyCacheTest {
+
+    private final KioskOrderIdempotencyCache cache = new KioskOrderIdempotencyCache(2);
+
+    @Test
+    void leastRecentlyUsedKeyIsEvicted() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        cache.put(first, 1);
+        cache.put(second, 2);
+
+        // обращение к первому ключу делает вытесняемым второй
+        assertThat(cache.get(first)).isEqualTo(1);
+        cache.put(third, 3);
+
+        assertThat(cache.get(first)).isEqualTo(1);
+        assertThat(cache.get(second)).isNull();
+        assertThat(cache.get(third)).isEqualTo(3);
+    }
+
+    @Test
+    void evictedKeyIsForgotten() {
+        UUID key = UUID.randomUUID();
+        cache.put(key, 5);
+
+        cache.evict(key);
+
+        assertThat(cache.get(key)).isNull();
+    }
+}
@@ -0,0 +1,21 @@
+package ru.itmo.wastemanagement.service;
+
+import org.junit.jupiter.api.Test;
+import ru.itmo.wastemanagement.repository.KioskOrderPartitionRepository;
+
+import static org.mockito.Mockito.*;
+
+class KioskOrderPartitionMaintainerTest {
+
+    private final KioskOrderPartitionRepository repository = mock(KioskOrderPartitionRepository.class);
+    private final KioskOrderPartitionMaintainer maintainer = new KioskOrderPartitionMaintainer(repository, 3, 24);
+
+    @Test
+    void createsPartitionsAheadBeforeArchivingOldOnes() {
+        maintainer.maintain();
+
+        var order = inOrder(repository);
+        order.verify(repository).createPartitions(0, 3);
+        order.verify(repository).archivePartitions(24);
+    }
+}
@@ -1,17 +1,26 @@
 package ru.itmo.wastemanagement.service;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.DataAccessResourceFailureException;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import ru.itmo.wastemanagement.config.security.CustomUserDetails;
+import ru.itmo.wastemanagement.dto.containersize.ContainerSizeRowDto;
+import ru.itmo.wastemanagement.dto.fraction.FractionRowDto;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableColumn;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchItemDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchResultDto;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderBatchStatus;
+import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderRowDto;
 import ru.itmo.wastemanagement.dto.kioskorder.KioskOrderUpsertDto;
 import ru.itmo.wastemanagement.entity.ContainerSize;
 import ru.itmo.wastemanagement.entity.Fraction;
@@ -25,19 +34,26 @@ import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
 import ru.itmo.wastemanagement.repository.ContainerSizeRepository;
 import ru.itmo.wastemanagement.repository.FractionRepository;
 import ru.itmo.wastemanagement.repository.GarbagePointRepository;
+import ru.itmo.wastemanagement.repository.GridCountCache;
+import ru.itmo.wastemanagement.repository.KioskOrderBatchRepository;
 import ru.itmo.wastemanagement.repository.KioskOrderGridRepository;
 import ru.itmo.wastemanagement.repository.KioskOrderRepository;
+import ru.itmo.wastemanagement.repository.KioskOrderValidationSnapshot;
 import ru.itmo.wastemanagement.repository.UserRepository;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,6 +65,9 @@ class KioskOrderServiceTest {
     @Mock
     private KioskOrderGridRepository kioskOrderGridRepository;
 
+    @Mock
+    private KioskOrderBatchRepository kioskOrderBatchRepository;
+
     @Mock
     private GarbagePointRepository garbagePointRepository;
 
@@ -62,7 +81,19 @@ class KioskOrderServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private JdbcTemplate jdbcTemplate;
+    private PlannedRouteInsertionService plannedRouteInsertionService;
+
+    @Mock
+    private GridCountCache gridCountCache;
+
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private KioskOrderValidationSnapshot validationSnapshot;
+
+    @Mock
+    private KioskOrderIdempotencyCache idempotencyCache;
 
     @InjectMocks
     private KioskOrderService kioskOrderService;
@@ -75,10 +106,8 @@ class KioskOrderServiceTest {
     @Test
     void queryGridReturnsMappedRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        KioskOrder row = new KioskOrder();
-        row.setId(1);
-        when(kioskOrderGridRepository.findPageByGrid(req)).thenReturn(List.of(row));
-        when(kioskOrderGridRepository.countByGrid(req)).thenReturn(1L);
+        KioskOrderRowDto row = KioskOrderRowDto.builder().id(1).build();
+        when(kioskOrderGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(row), null, 1L, true));
 
         var result = kioskOrderService.queryGrid(req);
 
@@ -87,48 +116,94 @@ class KioskOrderServiceTest {
         assertThat(result.getLastRow()).isEqualTo(1);
     }
 
+    @Test
+    void queryGroupGridReturnsGroupRows() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(100)
+                .rowGroupCols(List.of(GridTableColumn.builder().id("fractionName").build()))
+                .build();
+        Map<String, Object> group = Map.of("fractionName", "Пластик", "childCount", 12L, "weight", 30.5);
+        when(kioskOrderGridRepository.findGroupPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(group), null, 1L, true));
+
+        var result = kioskOrderService.queryGroupGrid(req);
+
+        assertThat(result.getRows()).containsExactly(group);
+        assertThat(result.getLastRow()).isEqualTo(1);
+    }
+
     @Test
     void createOrderWithExplicitUserAndPointReturnsId() {
         KioskOrderUpsertDto dto = dto();
         dto.setUserId(9);
         dto.setGarbagePointId(4);
 
-        User user = new User();
-        user.setId(9);
-        user.setRole(UserRole.KIOSK);
-        GarbagePoint gp = new GarbagePoint();
-        gp.setId(4);
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(9, UserRole.KIOSK), true));
+        referenceDataPresent();
+        when(kioskOrderBatchRepository.insertOrder(4, 10L, 9, 11, 2.0, null)).thenReturn(123);
+
+        Integer id = kioskOrderService.createOrder(dto, null);
+
+        assertThat(id).isEqualTo(123);
+        verify(plannedRouteInsertionService).submitAfterCommit(List.of(4));
+        verifyNoInteractions(userRepository, garbagePointRepository);
+    }
 
-        when(userRepository.findById(9)).thenReturn(Optional.of(user));
-        when(garbagePointRepository.findById(4)).thenReturn(Optional.of(gp));
-        when(jdbcTemplate.queryForObject(any(String.class), eq(Integer.class), eq(4), eq(dto.getContainerSizeId()), eq(9), eq(dto.getFractionId())))
-                .thenReturn(123);
+    @Test
+    void createOrderReplayReturnsOriginalIdWithoutInsert() {
+        UUID key = UUID.randomUUID();
+        when(kioskOrderRepository.findIdByIdempotencyKey(key)).thenReturn(Optional.of(123));
 
-        Integer id = kioskOrderService.createOrder(dto);
+        Integer id = kioskOrderService.createOrder(dto(), key);
 
         assertThat(id).isEqualTo(123);
+        verify(idempotencyCache).put(key, 123);
+        verifyNoInteractions(validationSnapshot, kioskOrderBatchRepository, plannedRouteInsertionService);
     }
 
     @Test
-    void createOrderThrowsTranslatedErrorForClosedPoint() {
+    void createOrderWithNewKeyRemembersCreatedId() {
+        UUID key = UUID.randomUUID();
         KioskOrderUpsertDto dto = dto();
-        dto.setUserId(9);
         dto.setGarbagePointId(4);
 
-        User user = new User();
-        user.setId(9);
-        user.setRole(UserRole.KIOSK);
-        GarbagePoint gp = new GarbagePoint();
-        gp.setId(4);
+        when(kioskOrderRepository.findIdByIdempotencyKey(key)).thenReturn(Optional.empty());
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(), true));
+        referenceDataPresent();
+        when(kioskOrderBatchRepository.insertOrder(4, 10L, null, 11, 2.0, key)).thenReturn(124);
 
-        when(userRepository.findById(9)).thenReturn(Optional.of(user));
-        when(garbagePointRepository.findById(4)).thenReturn(Optional.of(gp));
-        when(jdbcTemplate.queryForObject(any(String.class), eq(Integer.class), eq(4), eq(dto.getContainerSizeId()), eq(9), eq(dto.getFractionId())))
-                .thenThrow(new DataAccessResourceFailureException("Garbage point not found or closed"));
+        assertThat(kioskOrderService.createOrder(dto, key)).isEqualTo(124);
+        verify(idempotencyCache).put(key, 124);
+    }
 
-        assertThatThrownBy(() -> kioskOrderService.createOrder(dto))
+    @Test
+    void createOrderRejectsClosedPointWithoutInsert() {
+        KioskOrderUpsertDto dto = dto();
+        dto.setUserId(9);
+        dto.setGarbagePointId(4);
+
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(9, UserRole.KIOSK), false));
+
+        assertThatThrownBy(() -> kioskOrderService.createOrder(dto, null))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("не найдена или закрыта");
+        verifyNoInteractions(kioskOrderBatchRepository, plannedRouteInsertionService);
+    }
+
+    @Test
+    void createOrderMapsViolatedConstraintToMessage() {
+        KioskOrderUpsertDto dto = dto();
+        dto.setGarbagePointId(4);
+
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(), true));
+        referenceDataPresent();
+        // фракцию удалили после загрузки снимка и кэша справочников
+        when(kioskOrderBatchRepository.insertOrder(4, 10L, null, 11, 2.0, null)).thenThrow(
+                new DataIntegrityViolationException("insert failed", new ConstraintViolationException(
+                        "insert failed", new SQLException(), "kiosk_orders_fraction_id_fkey")));
+
+        assertThatThrownBy(() -> kioskOrderService.createOrder(dto, null))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Тип отходов не найден");
+        verifyNoInteractions(plannedRouteInsertionService);
     }
 
     @Test
@@ -137,11 +212,9 @@ class KioskOrderServiceTest {
         dto.setUserId(1);
         dto.setGarbagePointId(4);
 
-        User user = new User();
-        user.setRole(UserRole.DRIVER);
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(1, UserRole.DRIVER), true));
 
-        assertThatThrownBy(() -> kioskOrderService.createOrder(dto))
+        assertThatThrownBy(() -> kioskOrderService.createOrder(dto, null))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("не может оформлять");
     }
@@ -154,21 +227,18 @@ class KioskOrderServiceTest {
         principalUser.setLogin("kiosk");
         SecurityContextHolder.getContext().setAuthentication(auth(principalUser));
 
-        when(userRepository.findById(77)).thenReturn(Optional.of(principalUser));
-
-        GarbagePoint gp = new GarbagePoint();
-        gp.setId(8);
-        when(garbagePointRepository.findFirstByKiosk_Id(77)).thenReturn(Optional.of(gp));
-        when(jdbcTemplate.queryForObject(any(String.class), eq(Integer.class), eq(8), eq(10), eq(77), eq(11)))
-                .thenReturn(33);
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(77, UserRole.KIOSK), true));
+        referenceDataPresent();
+        when(kioskOrderBatchRepository.insertOrder(8, 10L, 77, 11, null, null)).thenReturn(33);
 
         KioskOrderUpsertDto dto = new KioskOrderUpsertDto();
         dto.setContainerSizeId(10);
         dto.setFractionId(11);
 
-        Integer id = kioskOrderService.createOrder(dto);
+        Integer id = kioskOrderService.createOrder(dto, null);
 
         assertThat(id).isEqualTo(33);
+        verify(plannedRouteInsertionService).submitAfterCommit(List.of(8));
     }
 
     @Test
@@ -204,8 +274,10 @@ class KioskOrderServiceTest {
 
         when(userRepository.findById(1)).thenReturn(Optional.of(user));
         when(garbagePointRepository.findById(2)).thenReturn(Optional.of(gp));
-        when(containerSizeRepository.findById(3L)).thenReturn(Optional.of(cs));
-        when(fractionRepository.findById(4)).thenReturn(Optional.of(fraction));
+        when(referenceDataCache.containerSize(3L)).thenReturn(Optional.of(ContainerSizeRowDto.builder().id(3L).build()));
+        when(referenceDataCache.fraction(4)).thenReturn(Optional.of(FractionRowDto.builder().id(4).build()));
+        when(containerSizeRepository.getReferenceById(3L)).thenReturn(cs);
+        when(fractionRepository.getReferenceById(4)).thenReturn(fraction);
 
         kioskOrderService.updateOrder(5, dto);
 
@@ -218,6 +290,98 @@ class KioskOrderServiceTest {
         verify(kioskOrderRepository).save(order);
     }
 
+    @Test
+    void createOrdersInsertsValidOrdersOnceAndReportsEachItem() {
+        UUID fresh = UUID.randomUUID();
+        UUID synced = UUID.randomUUID();
+        UUID wrongFraction = UUID.randomUUID();
+        KioskOrderBatchDto dto = new KioskOrderBatchDto(List.of(
+                batchItem(fresh, 2), batchItem(fresh, 2), batchItem(synced, 2), batchItem(wrongFraction, 3)));
+
+        GarbagePoint gp = new GarbagePoint();
+        gp.setId(4);
+        when(validationSnapshot.get()).thenReturn(new KioskOrderValidationSnapshot.Snapshot(
+                Map.of(4, new KioskOrderValidationSnapshot.Point(4, true, Set.of(2))), Map.of(), Map.of()));
+        when(kioskOrderBatchRepository.findIdsByIdempotencyKeys(Set.of(fresh, synced, wrongFraction)))
+                .thenReturn(Map.of(synced, 77));
+        when(garbagePointRepository.getReferenceById(4)).thenReturn(gp);
+        when(referenceDataCache.containerSize(1L)).thenReturn(Optional.of(ContainerSizeRowDto.builder().id(1L).build()));
+        when(referenceDataCache.fraction(2)).thenReturn(Optional.of(FractionRowDto.builder().id(2).build()));
+        when(referenceDataCache.fraction(3)).thenReturn(Optional.of(FractionRowDto.builder().id(3).build()));
+        when(containerSizeRepository.getReferenceById(1L)).thenReturn(new ContainerSize());
+        when(fractionRepository.getReferenceById(2)).thenReturn(new Fraction());
+        when(kioskOrderBatchRepository.insertOrders(any())).thenAnswer(inv -> {
+            List<KioskOrder> orders = inv.getArgument(0);
+            orders.forEach(o -> o.setId(500));
+            return orders;
+        });
+
+        KioskOrderBatchResultDto result = kioskOrderService.createOrders(dto);
+
+        assertThat(result.getResults()).extracting(KioskOrderBatchResultDto.Item::getStatus).containsExactly(
+                KioskOrderBatchStatus.created, KioskOrderBatchStatus.duplicate,
+                KioskOrderBatchStatus.duplicate, KioskOrderBatchStatus.rejected);
+        assertThat(result.getResults()).extracting(KioskOrderBatchResultDto.Item::getOrderId)
+                .containsExactly(500, 500, 77, null);
+        assertThat(result.getResults().get(3).getError()).contains("не принимается");
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        verify(plannedRouteInsertionService).submitAfterCommit(List.of(4));
+    }
+
+    @Test
+    void createOrdersRevalidatesAgainstFreshSnapshotWhenInsertViolatesConstraint() {
+        UUID removedPoint = UUID.randomUUID();
+        UUID valid = UUID.randomUUID();
+        KioskOrderBatchDto dto = new KioskOrderBatchDto(List.of(batchItemAt(removedPoint, 4), batchItemAt(valid, 8)));
+
+        GarbagePoint gp = new GarbagePoint();
+        gp.setId(8);
+        // точку 4 удалили после загрузки снимка: свежий снимок её уже не содержит
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(), true), new KioskOrderValidationSnapshot.Snapshot(
+                Map.of(8, new KioskOrderValidationSnapshot.Point(8, true, Set.of(11))), Map.of(77, 8), Map.of()));
+        referenceDataPresent();
+        when(kioskOrderBatchRepository.findIdsByIdempotencyKeys(Set.of(removedPoint, valid))).thenReturn(Map.of());
+        when(garbagePointRepository.getReferenceById(8)).thenReturn(gp);
+        when(kioskOrderBatchRepository.insertOrders(any()))
+                .thenThrow(pointViolation())
+                .thenAnswer(inv -> {
+                    List<KioskOrder> orders = inv.getArgument(0);
+                    orders.forEach(o -> o.setId(600));
+                    return orders;
+                });
+
+        KioskOrderBatchResultDto result = kioskOrderService.createOrders(dto);
+
+        assertThat(result.getResults()).extracting(KioskOrderBatchResultDto.Item::getStatus)
+                .containsExactly(KioskOrderBatchStatus.rejected, KioskOrderBatchStatus.created);
+        assertThat(result.getResults().get(0).getError()).isEqualTo("Точка сбора не найдена или закрыта");
+        assertThat(result.getResults().get(1).getOrderId()).isEqualTo(600);
+        verify(validationSnapshot).invalidate();
+        verify(plannedRouteInsertionService).submitAfterCommit(List.of(8));
+    }
+
+    @Test
+    void createOrdersRejectsRemainingItemsWhenRetryViolatesConstraintAgain() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        KioskOrderBatchDto dto = new KioskOrderBatchDto(List.of(batchItemAt(first, 4), batchItemAt(second, 8)));
+
+        when(validationSnapshot.get()).thenReturn(snapshot(Map.of(), true));
+        referenceDataPresent();
+        when(kioskOrderBatchRepository.findIdsByIdempotencyKeys(Set.of(first, second))).thenReturn(Map.of());
+        when(kioskOrderBatchRepository.insertOrders(any())).thenThrow(pointViolation());
+
+        KioskOrderBatchResultDto result = kioskOrderService.createOrders(dto);
+
+        assertThat(result.getResults()).extracting(KioskOrderBatchResultDto.Item::getError)
+                .containsOnly("Точка сбора не найдена или закрыта");
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getCreated()).isZero();
+        verify(plannedRouteInsertionService).submitAfterCommit(List.of());
+    }
+
     @Test
     void deleteOrderDeletesEntity() {
         KioskOrder order = new KioskOrder();
@@ -228,6 +392,44 @@ class KioskOrderServiceTest {
         verify(kioskOrderRepository).delete(order);
     }
 
+    private static KioskOrderBatchItemDto batchItem(UUID key, Integer fractionId) {
+        return KioskOrderBatchItemDto.builder()
+                .idempotencyKey(key)
+                .garbagePointId(4)
+                .containerSizeId(1)
+                .fractionId(fractionId)
+                .build();
+    }
+
+    // заказ фракции 11 в контейнере 10 - справочники из referenceDataPresent
+    private static KioskOrderBatchItemDto batchItemAt(UUID key, Integer garbagePointId) {
+        return KioskOrderBatchItemDto.builder()
+                .idempotencyKey(key)
+                .garbagePointId(garbagePointId)
+                .containerSizeId(10)
+                .fractionId(11)
+                .build();
+    }
+
+    private static DataIntegrityViolationException pointViolation() {
+        return new DataIntegrityViolationException("insert failed", new ConstraintViolationException(
+                "insert failed", new SQLException(), "kiosk_orders_garbage_point_id_fkey"));
+    }
+
+    // точка 4 (открыта или нет) и точка 8 киоска 77, обе принимают фракцию 11
+    private static KioskOrderValidationSnapshot.Snapshot snapshot(Map<Integer, UserRole> activeUsers, boolean open) {
+        return new KioskOrderValidationSnapshot.Snapshot(
+                Map.of(4, new KioskOrderValidationSnapshot.Point(4, open, Set.of(11)),
+                        8, new KioskOrderValidationSnapshot.Point(8, true, Set.of(11))),
+                Map.of(77, 8),
+                activeUsers);
+    }
+
+    private void referenceDataPresent() {
+        when(referenceDataCache.containerSize(10L)).thenReturn(Optional.of(ContainerSizeRowDto.builder().id(10L).build()));
+        when(referenceDataCache.fraction(11)).thenReturn(Optional.of(FractionRowDto.builder().id(11).build()));
+    }
+
     private static Authentication auth(User user) {
         Authentication authentication = mock(Authentication.class);
         when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(user));
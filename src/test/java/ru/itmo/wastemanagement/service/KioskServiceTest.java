@@ -7,8 +7,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
 import ru.itmo.wastemanagement.dto.kiosk.KioskCreateUpdateDto;
+import ru.itmo.wastemanagement.dto.kiosk.KioskRowDto;
 import ru.itmo.wastemanagement.entity.User;
 import ru.itmo.wastemanagement.entity.enums.UserRole;
 import ru.itmo.wastemanagement.exception.BadRequestException;
@@ -44,11 +46,8 @@ class KioskServiceTest {
     @Test
     void queryKioskGridReturnsRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        User user = new User();
-        user.setId(1);
-        user.setName("Kiosk");
-        when(kioskGridRepository.findPageByGrid(req)).thenReturn(List.of(user));
-        when(kioskGridRepository.countByGrid(req)).thenReturn(1L);
+        KioskRowDto user = KioskRowDto.builder().id(1).name("Kiosk").build();
+        when(kioskGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(user), null, 1L, true));
 
         var result = kioskService.queryKioskGrid(req);
 
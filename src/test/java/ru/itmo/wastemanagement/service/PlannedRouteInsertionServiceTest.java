@@ -0,0 +1,42 @@
+package ru.itmo.wastemanagement.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.List;
+
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlannedRouteInsertionServiceTest {
+
+    @Mock
+    RouteService routeService;
+
+    @InjectMocks
+    PlannedRouteInsertionService insertionService;
+
+    @AfterEach
+    void tearDown() {
+        insertionService.shutdown();
+    }
+
+    @Test
+    void failedPointDoesNotStopTheRest() {
+        when(routeService.insertIntoPlannedRoute(4)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        // вне транзакции задача запускается сразу; повтор точки в пакете схлопывается
+        insertionService.submitAfterCommit(List.of(4, 8, 4));
+
+        verify(routeService, timeout(2000)).insertIntoPlannedRoute(8);
+        verify(routeService, times(1)).insertIntoPlannedRoute(4);
+    }
+}
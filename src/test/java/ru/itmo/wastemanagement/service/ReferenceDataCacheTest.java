@@ -0,0 +1,83 @@
+package ru.itmo.wastemanagement.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import ru.itmo.wastemanagement.entity.Fraction;
+import ru.itmo.wastemanagement.entity.Vehicle;
+import ru.itmo.wastemanagement.repository.ContainerSizeRepository;
+import ru.itmo.wastemanagement.repository.FractionRepository;
+import ru.itmo.wastemanagement.repository.VehicleRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReferenceDataCacheTest {
+
+    private final FractionRepository fractionRepository = mock(FractionRepository.class);
+    private final ContainerSizeRepository containerSizeRepository = mock(ContainerSizeRepository.class);
+    private final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReferenceDataCache cache =
+            new ReferenceDataCache(fractionRepository, containerSizeRepository, vehicleRepository, registry);
+
+    @Test
+    void listIsLoadedOnceAndServedFromMemory() {
+        when(fractionRepository.findAll(any(Sort.class))).thenReturn(List.of(fraction(1, "Бумага"), fraction(2, "Стекло")));
+
+        assertThat(cache.fractions()).extracting("name").containsExactly("Бумага", "Стекло");
+        assertThat(cache.fraction(2)).hasValueSatisfying(f -> assertThat(f.getName()).isEqualTo("Стекло"));
+        assertThat(cache.fraction(99)).isEmpty();
+
+        verify(fractionRepository, times(1)).findAll(any(Sort.class));
+        assertThat(requests("fractions", "miss")).isEqualTo(1);
+        assertThat(requests("fractions", "hit")).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateReloadsOnlyChangedReference() {
+        when(fractionRepository.findAll(any(Sort.class))).thenReturn(List.of(fraction(1, "Бумага")));
+        when(vehicleRepository.findAll(any(Sort.class))).thenReturn(List.of());
+        cache.fractions();
+        cache.vehicles();
+
+        cache.invalidate(Fraction.class);
+        cache.fractions();
+        cache.vehicles();
+
+        verify(fractionRepository, times(2)).findAll(any(Sort.class));
+        verify(vehicleRepository, times(1)).findAll(any(Sort.class));
+        assertThat(registry.get("reference.cache.evictions").tag("cache", "fractions").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void listLoadedBeforeWriteIsNotKept() {
+        Vehicle old = new Vehicle();
+        old.setId(1);
+        old.setPlateNumber("А001АА");
+        // запись справочника завершается, пока идёт загрузка
+        when(vehicleRepository.findAll(any(Sort.class))).thenAnswer(inv -> {
+            cache.invalidate(Vehicle.class);
+            return List.of(old);
+        }).thenReturn(List.of());
+
+        assertThat(cache.vehicle(1)).isPresent();
+        assertThat(cache.vehicle(1)).isEmpty();
+        verify(vehicleRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    private double requests(String name, String result) {
+        return registry.get("reference.cache.requests").tag("cache", name).tag("result", result).counter().count();
+    }
+
+    private static Fraction fraction(Integer id, String name) {
+        Fraction fraction = new Fraction();
+        fraction.setId(id);
+        fraction.setName(name);
+        return fraction;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.itmo.wastemanagement.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itmo.wastemanagement.dto.route.RouteDto;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobDto;
+import ru.itmo.wastemanagement.dto.route.RouteGenerationJobStatus;
+import ru.itmo.wastemanagement.entity.Route;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+import ru.itmo.wastemanagement.exception.ConflictException;
+import ru.itmo.wastemanagement.exception.ResourceNotFoundException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RouteGenerationJobServiceTest {
+
+    @Mock
+    RouteService routeService;
+
+    @InjectMocks
+    RouteGenerationJobService jobService;
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    void jobPersistsEveryDraftAndReportsProgress() throws Exception {
+        RouteService.RouteDraft first = draft();
+        RouteService.RouteDraft second = draft();
+        RouteService.RouteDraft empty = draft();
+        when(routeService.planFromKioskOrders()).thenReturn(List.of(first, second, empty));
+        when(routeService.persistDraft(first)).thenReturn(Optional.of(RouteDto.builder().id(10).build()));
+        when(routeService.persistDraft(second)).thenReturn(Optional.of(RouteDto.builder().id(11).build()));
+        when(routeService.persistDraft(empty)).thenReturn(Optional.empty());
+
+        RouteGenerationJobDto submitted = jobService.submit();
+        RouteGenerationJobDto done = awaitFinished(submitted.getId());
+
+        assertThat(done.getStatus()).isEqualTo(RouteGenerationJobStatus.completed);
+        assertThat(done.getTotalRoutes()).isEqualTo(3);
+        assertThat(done.getProcessedRoutes()).isEqualTo(3);
+        assertThat(done.getRouteIds()).containsExactly(10, 11);
+        assertThat(done.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void planningErrorMarksJobFailed() throws Exception {
+        when(routeService.planFromKioskOrders()).thenThrow(new BadRequestException("Нет активных заказов киосков для создания маршрутов"));
+
+        RouteGenerationJobDto done = awaitFinished(jobService.submit().getId());
+
+        assertThat(done.getStatus()).isEqualTo(RouteGenerationJobStatus.failed);
+        assertThat(done.getError()).isEqualTo("Нет активных заказов киосков для создания маршрутов");
+    }
+
+    @Test
+    void solverErrorFailsJobAndAllowsNextRun() throws Exception {
+        when(routeService.planFromKioskOrders()).thenThrow(new StackOverflowError());
+
+        RouteGenerationJobDto done = awaitFinished(jobService.submit().getId());
+
+        assertThat(done.getStatus()).isEqualTo(RouteGenerationJobStatus.failed);
+        assertThat(done.getError()).isEqualTo(StackOverflowError.class.getName());
+        // задача завершена, поэтому следующий запуск не получает 409
+        assertThatCode(() -> jobService.submit()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void cancelStopsBeforeNextRoute() throws Exception {
+        CountDownLatch planning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(routeService.planFromKioskOrders()).thenAnswer(invocation -> {
+            planning.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(draft(), draft());
+        });
+
+        UUID id = jobService.submit().getId();
+        assertThat(planning.await(5, TimeUnit.SECONDS)).isTrue();
+        // пока первая задача идёт, вторую запустить нельзя
+        assertThatThrownBy(() -> jobService.submit()).isInstanceOf(ConflictException.class);
+
+        jobService.cancel(id);
+        release.countDown();
+        RouteGenerationJobDto done = awaitFinished(id);
+
+        assertThat(done.getStatus()).isEqualTo(RouteGenerationJobStatus.cancelled);
+        assertThat(done.getProcessedRoutes()).isZero();
+        verify(routeService, never()).persistDraft(any());
+    }
+
+    @Test
+    void unknownJobIsNotFound() {
+        assertThatThrownBy(() -> jobService.getJob(UUID.randomUUID()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private RouteGenerationJobDto awaitFinished(UUID id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        RouteGenerationJobDto job = jobService.getJob(id);
+        while (!job.getStatus().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = jobService.getJob(id);
+        }
+        return job;
+    }
+
+    private static RouteService.RouteDraft draft() {
+        return new RouteService.RouteDraft(new Route(), List.of());
+    }
+}
@@ -6,25 +6,47 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.itmo.wastemanagement.dto.route.RouteDto;
+import ru.itmo.wastemanagement.entity.DriverShift;
 import ru.itmo.wastemanagement.entity.GarbagePoint;
 import ru.itmo.wastemanagement.entity.Route;
 import ru.itmo.wastemanagement.entity.RouteStop;
+import ru.itmo.wastemanagement.entity.User;
+import ru.itmo.wastemanagement.entity.Vehicle;
 import ru.itmo.wastemanagement.entity.enums.RouteStatus;
 import ru.itmo.wastemanagement.exception.BadRequestException;
+import ru.itmo.wastemanagement.repository.DriverShiftRepository;
+import ru.itmo.wastemanagement.repository.GarbagePointLoadRepository;
 import ru.itmo.wastemanagement.repository.GarbagePointRepository;
-import ru.itmo.wastemanagement.repository.KioskOrderRepository;
+import ru.itmo.wastemanagement.repository.RouteBatchRepository;
 import ru.itmo.wastemanagement.repository.RouteRepository;
 import ru.itmo.wastemanagement.repository.RouteStopRepository;
+import ru.itmo.wastemanagement.repository.VehicleRepository;
+import ru.itmo.wastemanagement.routing.ClusteredRoutePlanner;
+import ru.itmo.wastemanagement.routing.DistanceLookup;
+import ru.itmo.wastemanagement.routing.DistanceMatrix;
+import ru.itmo.wastemanagement.routing.GarbagePointDistanceCache;
+import ru.itmo.wastemanagement.routing.GeoDistance;
+import ru.itmo.wastemanagement.routing.GarbagePointSpatialIndex;
+import ru.itmo.wastemanagement.routing.RouteScheduler;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,17 +60,51 @@ class RouteServiceTest {
     RouteStopRepository routeStopRepository;
 
     @Mock
-    KioskOrderRepository kioskOrderRepository;
+    GarbagePointLoadRepository garbagePointLoadRepository;
 
     @Mock
     GarbagePointRepository garbagePointRepository;
 
+    @Mock
+    VehicleRepository vehicleRepository;
+
+    @Mock
+    RouteBatchRepository routeBatchRepository;
+
+    @Mock
+    DriverShiftRepository driverShiftRepository;
+
+    @Mock
+    GarbagePointSpatialIndex spatialIndex;
+
+    @Mock
+    GarbagePointDistanceCache distanceCache;
+
+    @Spy
+    ClusteredRoutePlanner routePlanner = new ClusteredRoutePlanner(300, 2, 42);
+
+    @Spy
+    RouteScheduler routeScheduler = new RouteScheduler(LocalTime.of(22, 0), 8, 25, 10);
+
     @InjectMocks
     RouteService routeService;
 
     @Captor
     ArgumentCaptor<List<RouteStop>> stopsCaptor;
 
+    @Captor
+    ArgumentCaptor<Collection<Integer>> pointIdsCaptor;
+
+    private void stubRouteInserts(int firstId) {
+        doAnswer(invocation -> {
+            int id = firstId;
+            for (Route r : invocation.<List<Route>>getArgument(0)) {
+                r.setId(id++);
+            }
+            return null;
+        }).when(routeBatchRepository).insertRoutes(anyList());
+    }
+
     private GarbagePoint gp(int id, Integer capacity, String address) {
         GarbagePoint gp = new GarbagePoint();
         gp.setId(id);
@@ -57,28 +113,25 @@ class RouteServiceTest {
         return gp;
     }
 
+    private GarbagePoint gp(int id, Integer capacity, double lat, double lon) {
+        GarbagePoint gp = gp(id, capacity, "Address " + id);
+        gp.setLat(lat);
+        gp.setLon(lon);
+        return gp;
+    }
+
     @Test
     void autoGenerateCreatesRouteForFilledPoints() {
-        when(routeRepository.save(any(Route.class))).thenAnswer(invocation -> {
-            Route r = invocation.getArgument(0);
-            if (r.getId() == null) {
-                r.setId(100);
-            }
-            return r;
-        });
-        when(routeStopRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        stubRouteInserts(100);
+        stubEmptyDistanceCache();
 
         // weights from kiosk orders: gp1=70kg (cap 100 -> 70%), gp2=20kg (cap 200 -> 10%, skip), gp3=50kg (cap 60 -> 83%)
-        when(kioskOrderRepository.findActiveWeightsByGarbagePoint()).thenReturn(List.of(
-                new Object[]{1, 70d, 1L, 1L, 0L},
-                new Object[]{2, 20d, 1L, 1L, 0L},
-                new Object[]{3, 50d, 1L, 1L, 0L}
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.of(
+                new Object[]{gp(1, 100, "Address 1"), 70d, 1L, 1L, 0L},
+                new Object[]{gp(2, 200, "Address 2"), 20d, 1L, 1L, 0L},
+                new Object[]{gp(3, 60, "Address 3"), 50d, 1L, 1L, 0L}
         ));
 
-        when(garbagePointRepository.findById(1)).thenReturn(Optional.of(gp(1, 100, "Address 1")));
-        when(garbagePointRepository.findById(2)).thenReturn(Optional.of(gp(2, 200, "Address 2")));
-        when(garbagePointRepository.findById(3)).thenReturn(Optional.of(gp(3, 60, "Address 3")));
-
         List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
 
         assertThat(routes).hasSize(1);
@@ -93,7 +146,7 @@ class RouteServiceTest {
         assertThat(dto.getStops().stream().map(s -> s.getGarbagePointId()).toList())
                 .containsExactlyInAnyOrder(1, 3);
 
-        verify(routeStopRepository).saveAll(stopsCaptor.capture());
+        verify(routeBatchRepository).insertStops(stopsCaptor.capture());
         List<RouteStop> savedStops = stopsCaptor.getValue();
         assertThat(savedStops).hasSize(2);
         assertThat(savedStops).allMatch(s -> s.getRoute().getId().equals(100));
@@ -101,23 +154,22 @@ class RouteServiceTest {
         // expected capacity rounded from weight
         RouteStop stopForGp1 = savedStops.stream().filter(s -> s.getGarbagePoint().getId() == 1).findFirst().orElseThrow();
         assertThat(stopForGp1.getExpectedCapacity()).isEqualTo(70);
+
+        // точки закрываются одним UPDATE, без построчного saveAll
+        verify(routeBatchRepository).closeGarbagePoints(pointIdsCaptor.capture());
+        assertThat(pointIdsCaptor.getValue()).containsExactlyInAnyOrder(1, 3);
+        verify(garbagePointRepository, never()).findById(any());
+        verify(garbagePointRepository, never()).saveAll(any());
     }
 
     @Test
     void autoGenerateFallsBackWhenBelowThreshold() {
-        when(routeRepository.save(any(Route.class))).thenAnswer(invocation -> {
-            Route r = invocation.getArgument(0);
-            if (r.getId() == null) {
-                r.setId(101);
-            }
-            return r;
-        });
-        when(routeStopRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        stubRouteInserts(101);
+        stubEmptyDistanceCache();
 
-        when(kioskOrderRepository.findActiveWeightsByGarbagePoint()).thenReturn(List.<Object[]>of(
-                new Object[]{1, 0d, 1L, 0L, 10L} // no weight provided -> fallback to container capacity
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.<Object[]>of(
+                new Object[]{gp(1, 100, "Addr"), 0d, 1L, 0L, 10L} // no weight provided -> fallback to container capacity
         ));
-        when(garbagePointRepository.findById(1)).thenReturn(Optional.of(gp(1, 100, "Addr")));
 
         List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
 
@@ -128,4 +180,332 @@ class RouteServiceTest {
         assertThat(dto.getStops()).hasSize(1);
         assertThat(dto.getStops().get(0).getGarbagePointId()).isEqualTo(1);
     }
+
+    @Test
+    void autoGenerateSplitsRoutesByVehicleCapacityAndGeography() {
+        stubRouteInserts(200);
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(200);
+
+        // две группы точек на разных концах города, каждая по 90 кг
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.of(
+                new Object[]{gp(1, 100, 59.90, 30.20), 90d, 1L, 1L, 0L},
+                new Object[]{gp(2, 100, 60.00, 30.50), 90d, 1L, 1L, 0L},
+                new Object[]{gp(3, 100, 59.901, 30.201), 90d, 1L, 1L, 0L},
+                new Object[]{gp(4, 100, 60.001, 30.501), 90d, 1L, 1L, 0L}
+        ));
+        DistanceMatrix matrix = new DistanceMatrix(0, 0);
+        matrix.load(new int[]{1, 2, 3, 4},
+                new double[]{59.90, 60.00, 59.901, 60.001},
+                new double[]{30.20, 30.50, 30.201, 30.501});
+        when(distanceCache.read(any())).thenAnswer(invocation ->
+                invocation.<Function<DistanceLookup, Object>>getArgument(0).apply(matrix));
+
+        List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
+
+        assertThat(routes).hasSize(2);
+        assertThat(routes).extracting(RouteDto::getId).containsExactly(200, 201);
+        assertThat(routes).allSatisfy(r -> assertThat(r.getStops()).hasSize(2));
+        assertThat(routes.stream()
+                .map(r -> r.getStops().stream().map(s -> s.getGarbagePointId()).sorted().toList())
+                .toList())
+                .containsExactlyInAnyOrder(List.of(1, 3), List.of(2, 4));
+    }
+
+    @Test
+    void autoGenerateAssignsRoutesToOpenShiftsByCapacity() {
+        stubRouteInserts(500);
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(200);
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.of(
+                new Object[]{gp(1, 100, 59.90, 30.20), 90d, 1L, 1L, 0L},
+                new Object[]{gp(2, 100, 59.901, 30.201), 90d, 1L, 1L, 0L},
+                new Object[]{gp(3, 100, 60.00, 30.50), 80d, 1L, 1L, 0L}
+        ));
+        stubEmptyDistanceCache();
+        // маленькая машина, большая машина и смена без машины
+        DriverShift small = shift(1, 11, vehicle(21, 100));
+        DriverShift large = shift(2, 12, vehicle(22, 200));
+        DriverShift noVehicle = shift(3, 13, null);
+        when(driverShiftRepository.findFreeOpenShifts()).thenReturn(List.of(large, small, noVehicle));
+
+        List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
+
+        assertThat(routes).hasSize(2);
+        RouteDto heavy = routes.stream().filter(r -> r.getStops().size() == 2).findFirst().orElseThrow();
+        RouteDto light = routes.stream().filter(r -> r.getStops().size() == 1).findFirst().orElseThrow();
+        assertThat(heavy.getShiftId()).isEqualTo(2);
+        assertThat(heavy.getDriverId()).isEqualTo(12);
+        assertThat(heavy.getVehicleId()).isEqualTo(22);
+        assertThat(light.getShiftId()).isEqualTo(1);
+        assertThat(light.getVehicleId()).isEqualTo(21);
+    }
+
+    @Test
+    void autoGenerateLeavesRouteUnassignedWhenNoVehicleFits() {
+        stubRouteInserts(600);
+        stubEmptyDistanceCache();
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.<Object[]>of(
+                new Object[]{gp(1, 100, 59.90, 30.20), 150d, 1L, 1L, 0L}
+        ));
+        when(driverShiftRepository.findFreeOpenShifts()).thenReturn(List.of(shift(1, 11, vehicle(21, 100))));
+
+        List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
+
+        assertThat(routes).hasSize(1);
+        assertThat(routes.get(0).getShiftId()).isNull();
+        assertThat(routes.get(0).getDriverId()).isNull();
+    }
+
+    @Test
+    void autoGenerateSchedulesStopsIntoOpeningWindows() {
+        stubRouteInserts(300);
+        stubEmptyDistanceCache();
+
+        GarbagePoint night = gp(1, 100, 59.90, 30.20);
+        night.setOpensAt(LocalTime.of(23, 0));
+        night.setClosesAt(LocalTime.of(23, 30));
+        // окно днём в ночную смену не попадает - точка уходит в отдельный маршрут
+        GarbagePoint day = gp(2, 100, 59.90, 30.21);
+        day.setOpensAt(LocalTime.of(10, 0));
+        day.setClosesAt(LocalTime.of(12, 0));
+        when(garbagePointLoadRepository.findActiveLoadWithGarbagePoints()).thenReturn(List.of(
+                new Object[]{night, 90d, 1L, 1L, 0L},
+                new Object[]{day, 90d, 1L, 1L, 0L}
+        ));
+
+        List<RouteDto> routes = routeService.autoGenerateFromKioskOrders();
+
+        assertThat(routes).hasSize(2);
+        verify(routeBatchRepository).insertStops(stopsCaptor.capture());
+        RouteStop nightStop = stopsCaptor.getValue().stream()
+                .filter(s -> s.getGarbagePoint().getId() == 1).findFirst().orElseThrow();
+        assertThat(nightStop.getTimeFrom()).isEqualTo(LocalDate.now().atTime(23, 0));
+        assertThat(nightStop.getTimeTo()).isEqualTo(LocalDate.now().atTime(23, 10));
+        assertThat(nightStop.getRoute().getPlannedStartAt()).isEqualTo(LocalDate.now().atTime(23, 0));
+        assertThat(nightStop.getRoute().getPlannedEndAt()).isEqualTo(LocalDate.now().atTime(23, 10));
+    }
+
+    @Test
+    void persistDraftSkipsPointsClaimedByAnotherRoute() {
+        stubRouteInserts(400);
+        Route route = Route.builder().plannedDate(LocalDate.now()).build();
+        RouteService.RouteDraft draft = new RouteService.RouteDraft(route, List.of(
+                stop(route, 1, gp(1, 100, "A"), 50),
+                stop(route, 2, gp(2, 100, "B"), 50),
+                stop(route, 3, gp(3, 100, "C"), 50)
+        ));
+        // точку 2 уже занял параллельно созданный маршрут
+        when(routeBatchRepository.claimGarbagePoints(List.of(1, 2, 3))).thenReturn(List.of(1, 3));
+        stubEmptyDistanceCache();
+
+        Optional<RouteDto> result = routeService.persistDraft(draft);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getId()).isEqualTo(400);
+        verify(routeBatchRepository).insertStops(stopsCaptor.capture());
+        assertThat(stopsCaptor.getValue()).extracting(s -> s.getGarbagePoint().getId()).containsExactly(1, 3);
+        assertThat(stopsCaptor.getValue()).extracting(RouteStop::getSeqNo).containsExactly(1, 2);
+    }
+
+    @Test
+    void persistDraftReschedulesRemainingStops() {
+        stubRouteInserts(400);
+        stubEmptyDistanceCache();
+        LocalDateTime shiftStart = LocalDate.now().atTime(22, 0);
+        Route route = Route.builder()
+                .plannedDate(LocalDate.now())
+                .plannedStartAt(shiftStart)
+                .plannedEndAt(shiftStart.plusHours(2))
+                .build();
+        GarbagePoint first = gp(1, 100, 59.90, 30.20);
+        GarbagePoint third = gp(3, 100, 59.90, 30.40);
+        RouteStop firstStop = stop(route, 1, first, 50);
+        RouteStop secondStop = stop(route, 2, gp(2, 100, 60.00, 30.30), 50);
+        RouteStop thirdStop = stop(route, 3, third, 50);
+        // время черновика посчитано с объездом через точку 2
+        firstStop.setTimeFrom(shiftStart);
+        firstStop.setTimeTo(shiftStart.plusMinutes(10));
+        thirdStop.setTimeFrom(shiftStart.plusMinutes(110));
+        thirdStop.setTimeTo(shiftStart.plusMinutes(120));
+        RouteService.RouteDraft draft = new RouteService.RouteDraft(route, List.of(firstStop, secondStop, thirdStop));
+        when(routeBatchRepository.claimGarbagePoints(List.of(1, 2, 3))).thenReturn(List.of(1, 3));
+
+        routeService.persistDraft(draft);
+
+        double km = GeoDistance.haversineKm(first.getLat(), first.getLon(), third.getLat(), third.getLon());
+        LocalDateTime arrival = shiftStart.plusMinutes(10).plusSeconds(Math.round(km / 25 * 3600));
+        verify(routeBatchRepository).insertStops(stopsCaptor.capture());
+        assertThat(stopsCaptor.getValue()).extracting(RouteStop::getTimeFrom).containsExactly(shiftStart, arrival);
+        assertThat(stopsCaptor.getValue()).extracting(RouteStop::getTimeTo)
+                .containsExactly(shiftStart.plusMinutes(10), arrival.plusMinutes(10));
+        assertThat(route.getPlannedStartAt()).isEqualTo(shiftStart);
+        assertThat(route.getPlannedEndAt()).isEqualTo(arrival.plusMinutes(10));
+    }
+
+    @Test
+    void persistDraftCreatesNothingWhenAllPointsAreTaken() {
+        Route route = Route.builder().plannedDate(LocalDate.now()).build();
+        RouteService.RouteDraft draft = new RouteService.RouteDraft(route, List.of(stop(route, 1, gp(1, 100, "A"), 50)));
+        when(routeBatchRepository.claimGarbagePoints(List.of(1))).thenReturn(List.of());
+
+        assertThat(routeService.persistDraft(draft)).isEmpty();
+        verify(routeBatchRepository, never()).insertRoutes(any());
+    }
+
+    @Test
+    void insertIntoPlannedRoutePutsPointAtCheapestPosition() {
+        GarbagePoint newPoint = gp(5, 100, 59.90, 30.30);
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(newPoint));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{80d, 1L, 1L, 0L}));
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(500);
+        stubEmptyDistanceCache();
+
+        Route route = Route.builder().id(7).plannedDate(LocalDate.now()).build();
+        List<RouteStop> stops = List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(2, 100, 59.90, 30.40), 100)
+        );
+        when(routeStopRepository.findPlannedStopsFrom(LocalDate.now())).thenReturn(stops);
+        when(routeRepository.findByIdForUpdate(7)).thenReturn(Optional.of(route));
+        when(routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(7))).thenReturn(stops);
+        when(routeBatchRepository.claimGarbagePoints(List.of(5))).thenReturn(List.of(5));
+        when(routeRepository.getReferenceById(7)).thenReturn(route);
+        when(garbagePointRepository.getReferenceById(5)).thenReturn(newPoint);
+        when(routeRepository.findById(7)).thenReturn(Optional.of(route));
+
+        Optional<RouteDto> result = routeService.insertIntoPlannedRoute(5);
+
+        assertThat(result).isPresent();
+        // точка между двумя остановками: остановки с seq >= 2 сдвигаются через временный offset
+        verify(routeStopRepository).shiftSeqNo(7, 2, 1_000_000);
+        verify(routeStopRepository).shiftSeqNo(7, 1_000_002, -999_999);
+        ArgumentCaptor<RouteStop> captor = ArgumentCaptor.forClass(RouteStop.class);
+        verify(routeStopRepository).save(captor.capture());
+        assertThat(captor.getValue().getSeqNo()).isEqualTo(2);
+        assertThat(captor.getValue().getExpectedCapacity()).isEqualTo(80);
+    }
+
+    @Test
+    void insertIntoPlannedRouteAddsNothingWhenPointIsAlreadyClaimed() {
+        GarbagePoint newPoint = gp(5, 100, 59.90, 30.30);
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(newPoint));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{80d, 1L, 1L, 0L}));
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(500);
+        stubEmptyDistanceCache();
+
+        Route route = Route.builder().id(7).plannedDate(LocalDate.now()).build();
+        List<RouteStop> stops = List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(2, 100, 59.90, 30.40), 100)
+        );
+        when(routeStopRepository.findPlannedStopsFrom(LocalDate.now())).thenReturn(stops);
+        when(routeRepository.findByIdForUpdate(7)).thenReturn(Optional.of(route));
+        when(routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(7))).thenReturn(stops);
+        // параллельный заказ той же точки уже добавил её в маршрут
+        when(routeBatchRepository.claimGarbagePoints(List.of(5))).thenReturn(List.of());
+
+        assertThat(routeService.insertIntoPlannedRoute(5)).isEmpty();
+        verify(routeStopRepository, never()).shiftSeqNo(any(), anyInt(), anyInt());
+        verify(routeStopRepository, never()).save(any());
+    }
+
+    @Test
+    void insertIntoPlannedRouteRechecksStopsUnderRouteLock() {
+        GarbagePoint newPoint = gp(5, 100, 59.90, 30.30);
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(newPoint));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{80d, 1L, 1L, 0L}));
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(300);
+        stubEmptyDistanceCache();
+
+        Route route = Route.builder().id(7).plannedDate(LocalDate.now()).build();
+        when(routeStopRepository.findPlannedStopsFrom(LocalDate.now())).thenReturn(List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(2, 100, 59.90, 30.40), 100)
+        ));
+        when(routeRepository.findByIdForUpdate(7)).thenReturn(Optional.of(route));
+        // пока ждали блокировку, параллельная вставка заняла остаток вместимости
+        when(routeStopRepository.findByRoute_IdInOrderByRoute_IdAscSeqNoAsc(List.of(7))).thenReturn(List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(6, 100, 59.90, 30.25), 80),
+                stop(route, 3, gp(2, 100, 59.90, 30.40), 100)
+        ));
+
+        assertThat(routeService.insertIntoPlannedRoute(5)).isEmpty();
+        verify(routeBatchRepository, never()).claimGarbagePoints(any());
+        verify(routeStopRepository, never()).save(any());
+    }
+
+    @Test
+    void insertIntoPlannedRouteSkipsRoutesWithoutFreeCapacity() {
+        GarbagePoint newPoint = gp(5, 100, 59.90, 30.30);
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(newPoint));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{80d, 1L, 1L, 0L}));
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(250);
+        stubEmptyDistanceCache();
+
+        Route route = Route.builder().id(7).plannedDate(LocalDate.now()).build();
+        when(routeStopRepository.findPlannedStopsFrom(LocalDate.now())).thenReturn(List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(2, 100, 59.90, 30.40), 100)
+        ));
+
+        assertThat(routeService.insertIntoPlannedRoute(5)).isEmpty();
+        verify(routeStopRepository, never()).save(any());
+        verify(routeBatchRepository, never()).claimGarbagePoints(any());
+    }
+
+    @Test
+    void insertIntoPlannedRouteRespectsOpeningWindow() {
+        GarbagePoint newPoint = gp(5, 100, 59.90, 30.30);
+        newPoint.setOpensAt(LocalTime.of(10, 0));
+        newPoint.setClosesAt(LocalTime.of(12, 0));
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(newPoint));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{80d, 1L, 1L, 0L}));
+        when(vehicleRepository.findMaxActiveCapacity()).thenReturn(500);
+        stubEmptyDistanceCache();
+
+        Route route = Route.builder().id(7).plannedDate(LocalDate.now()).build();
+        when(routeStopRepository.findPlannedStopsFrom(LocalDate.now())).thenReturn(List.of(
+                stop(route, 1, gp(1, 100, 59.90, 30.20), 100),
+                stop(route, 2, gp(2, 100, 59.90, 30.40), 100)
+        ));
+
+        assertThat(routeService.insertIntoPlannedRoute(5)).isEmpty();
+        verify(routeStopRepository, never()).save(any());
+    }
+
+    @Test
+    void insertIntoPlannedRouteIgnoresPointBelowThreshold() {
+        when(garbagePointRepository.findById(5)).thenReturn(Optional.of(gp(5, 100, 59.90, 30.30)));
+        when(garbagePointLoadRepository.findActiveLoadByGarbagePointId(5)).thenReturn(List.<Object[]>of(new Object[]{10d, 1L, 1L, 0L}));
+
+        assertThat(routeService.insertIntoPlannedRoute(5)).isEmpty();
+        verify(routeStopRepository, never()).findPlannedStopsFrom(any());
+    }
+
+    private static Vehicle vehicle(int id, Integer capacity) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setCapacity(capacity);
+        return vehicle;
+    }
+
+    private static DriverShift shift(int id, int driverId, Vehicle vehicle) {
+        User driver = new User();
+        driver.setId(driverId);
+        return DriverShift.builder().id(id).driver(driver).vehicle(vehicle).build();
+    }
+
+    private void stubEmptyDistanceCache() {
+        when(distanceCache.read(any())).thenAnswer(invocation ->
+                invocation.<Function<DistanceLookup, Object>>getArgument(0).apply(new DistanceMatrix(0, 0)));
+    }
+
+    private static RouteStop stop(Route route, int seqNo, GarbagePoint gp, int expectedCapacity) {
+        return RouteStop.builder()
+                .route(route)
+                .seqNo(seqNo)
+                .garbagePoint(gp)
+                .expectedCapacity(expectedCapacity)
+                .build();
+    }
 }
@@ -6,7 +6,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.itmo.wastemanagement.dto.gridtable.GridTablePage;
 import ru.itmo.wastemanagement.dto.gridtable.GridTableRequest;
+import ru.itmo.wastemanagement.dto.vehicle.VehicleRowDto;
 import ru.itmo.wastemanagement.dto.vehicle.VehicleUpsertDto;
 import ru.itmo.wastemanagement.entity.Vehicle;
 import ru.itmo.wastemanagement.exception.ConflictException;
@@ -32,23 +34,58 @@ class VehicleServiceTest {
     @Mock
     private VehicleGridRepository vehicleGridRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
     @InjectMocks
     private VehicleService vehicleService;
 
     @Test
     void queryGridReturnsMappedRows() {
         GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(10).build();
-        Vehicle v = new Vehicle();
-        v.setId(2);
-        v.setPlateNumber("A123AA");
-        when(vehicleGridRepository.findPageByGrid(req)).thenReturn(List.of(v));
-        when(vehicleGridRepository.countByGrid(req)).thenReturn(1L);
+        VehicleRowDto v = VehicleRowDto.builder().id(2).plateNumber("A123AA").build();
+        when(vehicleGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(v), null, 1L, true));
 
         var result = vehicleService.queryGrid(req);
 
         assertThat(result.getRows()).hasSize(1);
         assertThat(result.getRows().get(0).getPlateNumber()).isEqualTo("A123AA");
         assertThat(result.getLastRow()).isEqualTo(1);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void queryGridPassesNextCursorThrough() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(1).cursor("prev").build();
+        VehicleRowDto v = VehicleRowDto.builder().id(3).build();
+        when(vehicleGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(v), "next", 5L, true));
+
+        var result = vehicleService.queryGrid(req);
+
+        assertThat(result.getRows()).hasSize(1);
+        assertThat(result.getNextCursor()).isEqualTo("next");
+    }
+
+    @Test
+    void queryGridLeavesLastRowEmptyWhenCountSkipped() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(1).skipCount(true).build();
+        when(vehicleGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(VehicleRowDto.builder().build()), "next", null, false));
+
+        var result = vehicleService.queryGrid(req);
+
+        assertThat(result.getLastRow()).isNull();
+        assertThat(result.getLastRowExact()).isNull();
+    }
+
+    @Test
+    void queryGridMarksEstimatedLastRow() {
+        GridTableRequest req = GridTableRequest.builder().startRow(0).endRow(1).build();
+        when(vehicleGridRepository.findPageByGrid(req)).thenReturn(new GridTablePage<>(List.of(VehicleRowDto.builder().build()), "next", 9000L, false));
+
+        var result = vehicleService.queryGrid(req);
+
+        assertThat(result.getLastRow()).isEqualTo(9000);
+        assertThat(result.getLastRowExact()).isFalse();
     }
 
     @Test
@@ -0,0 +1,127 @@
+package ru.itmo.wastemanagement.util;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.itmo.wastemanagement.dto.gridtable.GridTableSortModel;
+import ru.itmo.wastemanagement.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class GridTableKeysetTest {
+
+    private static final List<GridTableSortModel> DEFAULT_SORT = List.of(new GridTableSortModel("id", "desc"));
+
+    private Root<?> root;
+    private Path<Object> idPath;
+    private Path<Object> createdAtPath;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        root = mock(Root.class);
+        idPath = mock(Path.class);
+        createdAtPath = mock(Path.class);
+        doReturn(Integer.class).when(idPath).getJavaType();
+        doReturn(LocalDateTime.class).when(createdAtPath).getJavaType();
+        doReturn(idPath).when(root).get("id");
+        doReturn(createdAtPath).when(root).get("createdAt");
+
+        EntityType<?> model = mock(EntityType.class);
+        SingularAttribute<?, ?> createdAt = mock(SingularAttribute.class);
+        when(createdAt.getName()).thenReturn("createdAt");
+        doReturn(SortedEntity.class).when(model).getJavaType();
+        doReturn(Set.of(createdAt)).when(model).getAttributes();
+        doReturn(model).when(root).getModel();
+    }
+
+    @Test
+    void sortKeysAppendIdInDirectionOfLastKey() {
+        var keys = GridTableKeyset.sortKeys(root, List.of(new GridTableSortModel("createdAt", "asc")), DEFAULT_SORT);
+
+        assertThat(keys).extracting(GridTableKeyset.SortKey::colId).containsExactly("createdAt", "id");
+        assertThat(keys).extracting(GridTableKeyset.SortKey::desc).containsExactly(false, false);
+        assertThat(GridTableKeyset.sortKeys(root, null, DEFAULT_SORT))
+                .extracting(GridTableKeyset.SortKey::colId).containsExactly("id");
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void cursorRoundTripRestoresTypedValues() {
+        var keys = GridTableKeyset.sortKeys(root, List.of(new GridTableSortModel("createdAt", "desc")), DEFAULT_SORT);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_456_000);
+        Tuple last = mock(Tuple.class);
+        when(last.get(1)).thenReturn(createdAt);
+        when(last.get(2)).thenReturn(42);
+
+        String cursor = GridTableKeyset.nextCursor(keys, List.of(mock(Tuple.class), last), 2);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_MOCKS);
+        GridTableKeyset.seekPredicate(cb, keys, cursor);
+
+        verify(cb).lessThan((Path) createdAtPath, (Comparable) createdAt);
+        verify(cb).equal(createdAtPath, createdAt);
+        verify(cb).lessThan((Path) idPath, (Comparable) 42);
+        verify(cb).lessThanOrEqualTo((Path) createdAtPath, (Comparable) createdAt);
+    }
+
+    @Test
+    void incompletePageHasNoNextCursor() {
+        var keys = GridTableKeyset.sortKeys(root, null, DEFAULT_SORT);
+
+        assertThat(GridTableKeyset.nextCursor(keys, List.of(mock(Tuple.class)), 2)).isNull();
+        assertThat(GridTableKeyset.nextCursor(keys, List.of(), 2)).isNull();
+    }
+
+    @Test
+    void secondPhaseRowsFollowPageOrder() {
+        List<String> rows = List.of("c", "a", "b");
+
+        assertThat(GridTableKeyset.inPageOrder(List.of('b', 'c', 'a'), rows, r -> r.charAt(0)))
+                .containsExactly("b", "c", "a");
+    }
+
+    @Test
+    void totalComesFromWindowOrFromShortPage() {
+        var keys = GridTableKeyset.sortKeys(root, null, DEFAULT_SORT);
+        Tuple row = mock(Tuple.class);
+        when(row.get(2, Long.class)).thenReturn(120L);
+
+        // полная страница: окно + уже пропущенные строки
+        assertThat(GridTableKeyset.total(List.of(row, row), keys, 40, 2, true)).isEqualTo(160L);
+        // неполная страница последняя - окно не нужно
+        assertThat(GridTableKeyset.total(List.of(row), keys, 40, 2, false)).isEqualTo(41L);
+        assertThat(GridTableKeyset.total(List.of(row, row), keys, 40, 2, false)).isNull();
+        assertThat(GridTableKeyset.total(List.of(), keys, 0, 2, true)).isZero();
+        assertThat(GridTableKeyset.total(List.of(), keys, 40, 2, true)).isNull();
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        var byId = GridTableKeyset.sortKeys(root, null, DEFAULT_SORT);
+        Tuple last = mock(Tuple.class);
+        when(last.get(1)).thenReturn(7);
+        String cursor = GridTableKeyset.nextCursor(byId, List.of(last), 1);
+        var byCreatedAt = GridTableKeyset.sortKeys(root, List.of(new GridTableSortModel("createdAt", "asc")), DEFAULT_SORT);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+
+        assertThatThrownBy(() -> GridTableKeyset.seekPredicate(cb, byCreatedAt, cursor))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> GridTableKeyset.seekPredicate(cb, byId, "не-курсор"))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(cb);
+    }
+
+    private static class SortedEntity {
+    }
+}
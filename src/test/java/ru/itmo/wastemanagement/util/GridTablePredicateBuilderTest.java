@@ -1,10 +1,24 @@
 package ru.itmo.wastemanagement.util;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.junit.jupiter.api.Test;
+import ru.itmo.wastemanagement.entity.enums.OrderStatus;
+import ru.itmo.wastemanagement.exception.BadRequestException;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 class GridTablePredicateBuilderTest {
 
@@ -14,4 +28,84 @@ class GridTablePredicateBuilderTest {
         assertThat(GridTablePredicateBuilder.parseToLocalDate(" ")).isNull();
         assertThat(GridTablePredicateBuilder.parseToLocalDate("2026-03-05")).isEqualTo(LocalDate.of(2026, 3, 5));
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatedFilterShapeReusesCompiledPlan() {
+        EntityType<?> model = mock(EntityType.class);
+        SingularAttribute<?, ?> status = mock(SingularAttribute.class);
+        when(status.getName()).thenReturn("status");
+        doReturn(OrderStatus.class).when(status).getJavaType();
+        doReturn(CachedEntity.class).when(model).getJavaType();
+        doReturn(Set.of(status)).when(model).getAttributes();
+        Root<?> root = mock(Root.class);
+        doReturn(model).when(root).getModel();
+        doReturn(mock(Path.class)).when(root).get("status");
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        CriteriaBuilder.In<Object> in = mock(CriteriaBuilder.In.class);
+        doReturn(in).when(cb).in(any());
+
+        GridTablePredicateBuilder.build(cb, root, setFilter("CONFIRMED"));
+        GridTablePredicateBuilder.build(cb, root, setFilter("CANCELLED"));
+
+        // метамодель разбирается один раз, значения приводятся к enum на каждом запросе
+        verify(model, times(1)).getAttributes();
+        verify(in).value(OrderStatus.CONFIRMED);
+        verify(in).value(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void containsIsIlikeWithEscapedWildcards() {
+        EntityType<?> model = mock(EntityType.class);
+        SingularAttribute<?, ?> address = mock(SingularAttribute.class);
+        when(address.getName()).thenReturn("address");
+        doReturn(String.class).when(address).getJavaType();
+        doReturn(TextEntity.class).when(model).getJavaType();
+        doReturn(Set.of(address)).when(model).getAttributes();
+        Root<?> root = mock(Root.class);
+        doReturn(model).when(root).getModel();
+        Path<String> path = mock(Path.class);
+        doReturn(path).when(root).get("address");
+        doReturn(path).when(path).as(String.class);
+        HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+
+        GridTablePredicateBuilder.build(cb, root,
+                Map.of("address", Map.of("filterType", "text", "type", "contains", "filter", "50%_off")));
+
+        // без lower(): ILIKE по колонке использует триграммный индекс
+        verify(cb).ilike(path, "%50\\%\\_off%", '\\');
+        verify(cb, never()).lower(any());
+    }
+
+    @Test
+    void escapeLikeKeepsPlainTextAsIs() {
+        assertThat(GridTablePredicateBuilder.escapeLike("ул. Ленина")).isEqualTo("ул. Ленина");
+        assertThat(GridTablePredicateBuilder.escapeLike("a\\b")).isEqualTo("a\\\\b");
+    }
+
+    @Test
+    void unknownColumnIsBadRequest() {
+        EntityType<?> model = mock(EntityType.class);
+        doReturn(UnknownColumnEntity.class).when(model).getJavaType();
+        doReturn(Set.of()).when(model).getAttributes();
+        Root<?> root = mock(Root.class);
+        doReturn(model).when(root).getModel();
+
+        assertThatThrownBy(() -> GridTablePredicateBuilder.resolvePath(root, "missing.field"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private static Map<String, Object> setFilter(String value) {
+        return Map.of("status", Map.of("filterType", "set", "values", List.of(value)));
+    }
+
+    private static class CachedEntity {
+    }
+
+    private static class UnknownColumnEntity {
+    }
+
+    private static class TextEntity {
+    }
 }